@@ -43,6 +43,7 @@ import org.onebusaway.users.model.User;
 import org.onebusaway.users.model.UserIndex;
 import org.onebusaway.users.model.UserIndexKey;
 import org.onebusaway.users.model.properties.UserPropertiesV3;
+import org.onebusaway.users.services.ApiKeyPermissionService;
 import org.onebusaway.users.services.CurrentUserService;
 import org.onebusaway.users.services.UserIndexTypes;
 import org.onebusaway.users.services.UserPropertiesService;
@@ -67,6 +68,9 @@ public class KeysResource {
 	  @Autowired
 	  private UserPropertiesService _userPropertiesService;
 
+	  @Autowired(required = false)
+	  private ApiKeyPermissionService _apiKeyPermissionService;
+
   	  protected CurrentUserService currentUserService;
 
   	  /**
@@ -339,6 +343,7 @@ public class KeysResource {
 
 	    // Clear the cached value here
 	    _userService.getMinApiRequestIntervalForKey(apiKey, true);
+	    invalidatePermission(apiKey);
 	  }
 
 	  private void updateKeyContactInfo(String apiKey, String contactName, 
@@ -375,6 +380,10 @@ public class KeysResource {
 
 	    _userPropertiesService.updateApiKeyContactInfo(user, keyContactName, 
         keyContactCompany, keyContactEmail, keyContactDetails);
+
+	    // Clear the cached value here
+	    _userService.getMinApiRequestIntervalForKey(apiKey, true);
+	    invalidatePermission(apiKey);
 	  }
 
 	  private void delete(String apiKey) throws Exception {
@@ -408,6 +417,12 @@ public class KeysResource {
 	    } catch (Exception e) {
 	      // Ignore this
 	    }
+	    invalidatePermission(apiKey);
+	  }
+
+	  private void invalidatePermission(String apiKey) {
+	    if (_apiKeyPermissionService != null)
+	      _apiKeyPermissionService.invalidateKey(apiKey);
 	  }
 	  
 	  private Response constructResponse(Object result) {
@@ -25,6 +25,7 @@ import org.onebusaway.users.client.model.UserBean;
 import org.onebusaway.users.model.User;
 import org.onebusaway.users.model.UserIndex;
 import org.onebusaway.users.model.UserIndexKey;
+import org.onebusaway.users.services.ApiKeyPermissionService;
 import org.onebusaway.users.services.UserIndexTypes;
 import org.onebusaway.users.services.UserPropertiesService;
 import org.onebusaway.users.services.UserService;
@@ -50,6 +51,7 @@ public class ApiKeyAction extends NextActionSupport{
 	private String key;
 	private UserService userService;
 	private UserPropertiesService userPropertiesService;
+	private ApiKeyPermissionService apiKeyPermissionService;
 
   /**
    * @return the minApiReqInt
@@ -156,6 +158,17 @@ public class ApiKeyAction extends NextActionSupport{
     this.userPropertiesService = userPropertiesService;
   }
 
+  /**
+   * Injects {@link ApiKeyPermissionService}, when one is running in this
+   * webapp
+   * @param apiKeyPermissionService the apiKeyPermissionService to set
+   */
+  @Autowired(required = false)
+  public void setApiKeyPermissionService(
+      ApiKeyPermissionService apiKeyPermissionService) {
+    this.apiKeyPermissionService = apiKeyPermissionService;
+  }
+
   /**
    * Handle the "Save" action for either creating a new key or updating
    * an existing one.
@@ -196,6 +209,7 @@ public class ApiKeyAction extends NextActionSupport{
 
     // Clear the cached value here
     userService.getMinApiRequestIntervalForKey(apiKey, true);
+    invalidatePermission(apiKey);
 		return;
 	}
 
@@ -226,6 +240,7 @@ public class ApiKeyAction extends NextActionSupport{
 
     // Clear the cached value here
     userService.getMinApiRequestIntervalForKey(key, true);
+    invalidatePermission(key);
     return;
   }
 
@@ -306,6 +321,7 @@ public class ApiKeyAction extends NextActionSupport{
       }
       // Clear the cached value here
       userService.getMinApiRequestIntervalForKey(key, true);
+      invalidatePermission(key);
 
       addActionMessage("Key '" + key + "' deleted");
       clearContactInfoAndKey();
@@ -313,6 +329,11 @@ public class ApiKeyAction extends NextActionSupport{
     return SUCCESS;
   }
 
+  private void invalidatePermission(String apiKey) {
+    if (apiKeyPermissionService != null)
+      apiKeyPermissionService.invalidateKey(apiKey);
+  }
+
 	private void clearContactInfoAndKey() {
 	  minApiReqInt = 100L;
     contactName = "";
@@ -21,16 +21,26 @@ import org.onebusaway.gtfs.model.AgencyAndId;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Holds the current {@link ServiceAlertsIndex} snapshot. The map accessors are
+ * read-only views of that snapshot.
+ */
 public interface ServiceAlertsCache {
   
   void clear();
 
-  Map<AgencyAndId, ServiceAlertRecord> getServiceAlerts();
+  /**
+   * @return the current snapshot, never null
+   */
+  ServiceAlertsIndex getIndex();
 
-  ServiceAlertRecord removeServiceAlert(AgencyAndId serviceAlertId);
+  /**
+   * Publish a new snapshot, replacing the current one in a single step.
+   */
+  void setIndex(ServiceAlertsIndex index);
+
+  Map<AgencyAndId, ServiceAlertRecord> getServiceAlerts();
 
-  ServiceAlertRecord putServiceAlert(AgencyAndId id, ServiceAlertRecord serviceAlert);
-  
   Map<String, Set<AgencyAndId>> getServiceAlertIdsByServiceAlertAgencyId();
 
   Map<String, Set<AgencyAndId>> getServiceAlertIdsByAgencyId();
@@ -48,9 +58,4 @@ public interface ServiceAlertsCache {
   Map<AgencyAndId, Set<AgencyAndId>> getServiceAlertIdsByTripId();
 
   Map<TripAndStopCallRef, Set<AgencyAndId>> getServiceAlertIdsByTripAndStopId();
-  
-  
-
-  
-
 }
@@ -0,0 +1,496 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.alerts.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.util.SystemTime;
+
+/**
+ * An immutable snapshot of the active service alerts, together with the
+ * indices from each supported affects key to the ids of the alerts that
+ * reference it.
+ *
+ * A snapshot is never modified once built. Changes are made through a
+ * {@link Builder} seeded from the current snapshot, and the result published
+ * with {@link ServiceAlertsCache#setIndex(ServiceAlertsIndex)}, so readers
+ * always see either the old alert set or the new one and never a partial one.
+ * The builder copies an id set only when it changes, so a small update to a
+ * large index costs little more than the outer maps.
+ *
+ * Each snapshot also derives, on demand, a filtered snapshot holding only the
+ * alerts whose publication windows include the current time. It stays valid
+ * until the clock crosses the next window start or end, so time-bound queries
+ * near the present skip expired and future alerts without checking each one.
+ *
+ * The maps and sets handed out by a snapshot must not be modified.
+ */
+public final class ServiceAlertsIndex {
+
+  public static final ServiceAlertsIndex EMPTY = new Builder(null).build();
+
+  private final Map<AgencyAndId, ServiceAlertRecord> _serviceAlerts;
+
+  private final Map<String, Set<AgencyAndId>> _serviceAlertIdsByServiceAlertAgencyId;
+
+  private final Map<String, Set<AgencyAndId>> _serviceAlertIdsByAgencyId;
+
+  private final Map<AgencyAndId, Set<AgencyAndId>> _serviceAlertIdsByStopId;
+
+  private final Map<AgencyAndId, Set<AgencyAndId>> _serviceAlertIdsByRouteId;
+
+  private final Map<RouteAndDirectionRef, Set<AgencyAndId>> _serviceAlertIdsByRouteAndDirectionId;
+
+  private final Map<RouteAndStopCallRef, Set<AgencyAndId>> _serviceAlertIdsByRouteAndStop;
+
+  private final Map<RouteDirectionAndStopCallRef, Set<AgencyAndId>> _serviceAlertIdsByRouteDirectionAndStopCall;
+
+  private final Map<AgencyAndId, Set<AgencyAndId>> _serviceAlertIdsByTripId;
+
+  private final Map<TripAndStopCallRef, Set<AgencyAndId>> _serviceAlertIdsByTripAndStopId;
+
+  /**
+   * Sorted, distinct times at which some alert enters or leaves its
+   * publication windows. Null for a filtered snapshot.
+   */
+  private final long[] _windowBoundaries;
+
+  /**
+   * For a filtered snapshot, the range [from, to) over which it holds exactly
+   * the published alerts. An empty range for a full snapshot.
+   */
+  private final long _activeFrom;
+
+  private final long _activeTo;
+
+  private volatile ServiceAlertsIndex _activeIndex;
+
+  private ServiceAlertsIndex(Builder builder) {
+    _serviceAlerts = Collections.unmodifiableMap(builder._serviceAlerts);
+    _serviceAlertIdsByServiceAlertAgencyId = Collections.unmodifiableMap(builder._serviceAlertIdsByServiceAlertAgencyId);
+    _serviceAlertIdsByAgencyId = Collections.unmodifiableMap(builder._serviceAlertIdsByAgencyId);
+    _serviceAlertIdsByStopId = Collections.unmodifiableMap(builder._serviceAlertIdsByStopId);
+    _serviceAlertIdsByRouteId = Collections.unmodifiableMap(builder._serviceAlertIdsByRouteId);
+    _serviceAlertIdsByRouteAndDirectionId = Collections.unmodifiableMap(builder._serviceAlertIdsByRouteAndDirectionId);
+    _serviceAlertIdsByRouteAndStop = Collections.unmodifiableMap(builder._serviceAlertIdsByRouteAndStop);
+    _serviceAlertIdsByRouteDirectionAndStopCall = Collections.unmodifiableMap(builder._serviceAlertIdsByRouteDirectionAndStopCall);
+    _serviceAlertIdsByTripId = Collections.unmodifiableMap(builder._serviceAlertIdsByTripId);
+    _serviceAlertIdsByTripAndStopId = Collections.unmodifiableMap(builder._serviceAlertIdsByTripAndStopId);
+    _windowBoundaries = getWindowBoundaries(builder._serviceAlerts);
+    _activeFrom = Long.MAX_VALUE;
+    _activeTo = Long.MIN_VALUE;
+  }
+
+  private ServiceAlertsIndex(ServiceAlertsIndex source, long from, long to) {
+
+    Map<AgencyAndId, ServiceAlertRecord> serviceAlerts = new HashMap<AgencyAndId, ServiceAlertRecord>();
+    for (Map.Entry<AgencyAndId, ServiceAlertRecord> entry : source._serviceAlerts.entrySet()) {
+      if (isPublished(entry.getValue(), from))
+        serviceAlerts.put(entry.getKey(), entry.getValue());
+    }
+    Set<AgencyAndId> ids = serviceAlerts.keySet();
+
+    _serviceAlerts = Collections.unmodifiableMap(serviceAlerts);
+    _serviceAlertIdsByServiceAlertAgencyId = filter(source._serviceAlertIdsByServiceAlertAgencyId, ids);
+    _serviceAlertIdsByAgencyId = filter(source._serviceAlertIdsByAgencyId, ids);
+    _serviceAlertIdsByStopId = filter(source._serviceAlertIdsByStopId, ids);
+    _serviceAlertIdsByRouteId = filter(source._serviceAlertIdsByRouteId, ids);
+    _serviceAlertIdsByRouteAndDirectionId = filter(source._serviceAlertIdsByRouteAndDirectionId, ids);
+    _serviceAlertIdsByRouteAndStop = filter(source._serviceAlertIdsByRouteAndStop, ids);
+    _serviceAlertIdsByRouteDirectionAndStopCall = filter(source._serviceAlertIdsByRouteDirectionAndStopCall, ids);
+    _serviceAlertIdsByTripId = filter(source._serviceAlertIdsByTripId, ids);
+    _serviceAlertIdsByTripAndStopId = filter(source._serviceAlertIdsByTripAndStopId, ids);
+    _windowBoundaries = null;
+    _activeFrom = from;
+    _activeTo = to;
+  }
+
+  /**
+   * @param serviceAlert
+   * @param time
+   * @return true if the alert has no publication windows or one of them
+   *         includes the given time
+   */
+  public static boolean isPublished(ServiceAlertRecord serviceAlert, long time) {
+    if (serviceAlert.getPublicationWindows().size() == 0)
+      return true;
+    for (ServiceAlertTimeRange publicationWindow : serviceAlert.getPublicationWindows()) {
+      if ((publicationWindow.getFromValue() == null || publicationWindow.getFromValue() <= time)
+          && (publicationWindow.getToValue() == null || publicationWindow.getToValue() >= time))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return a builder for a new snapshot that starts out identical to this one
+   */
+  public Builder builder() {
+    return new Builder(this);
+  }
+
+  public int size() {
+    return _serviceAlerts.size();
+  }
+
+  /**
+   * @param time
+   * @return true if this is a filtered snapshot holding exactly the alerts
+   *         published at the given time
+   */
+  public boolean isActiveIndexFor(long time) {
+    return _activeFrom <= time && time < _activeTo;
+  }
+
+  /**
+   * Returns the snapshot of alerts published at the given time, if that time
+   * falls in the same window interval as the current time. The filtered
+   * snapshot is built when first needed and rebuilt once the current time
+   * crosses a window boundary.
+   *
+   * @param time
+   * @return the filtered snapshot, or null if the time is too far from now
+   */
+  public ServiceAlertsIndex getActiveIndex(long time) {
+    if (_windowBoundaries == null)
+      return isActiveIndexFor(time) ? this : null;
+    ServiceAlertsIndex active = _activeIndex;
+    if (active == null || !active.isActiveIndexFor(time)) {
+      long now = SystemTime.currentTimeMillis();
+      if (active == null || !active.isActiveIndexFor(now)) {
+        active = createActiveIndex(now);
+        _activeIndex = active;
+      }
+      if (!active.isActiveIndexFor(time))
+        return null;
+    }
+    return active;
+  }
+
+  public Map<AgencyAndId, ServiceAlertRecord> getServiceAlerts() {
+    return _serviceAlerts;
+  }
+
+  public Map<String, Set<AgencyAndId>> getServiceAlertIdsByServiceAlertAgencyId() {
+    return _serviceAlertIdsByServiceAlertAgencyId;
+  }
+
+  public Map<String, Set<AgencyAndId>> getServiceAlertIdsByAgencyId() {
+    return _serviceAlertIdsByAgencyId;
+  }
+
+  public Map<AgencyAndId, Set<AgencyAndId>> getServiceAlertIdsByStopId() {
+    return _serviceAlertIdsByStopId;
+  }
+
+  public Map<AgencyAndId, Set<AgencyAndId>> getServiceAlertIdsByRouteId() {
+    return _serviceAlertIdsByRouteId;
+  }
+
+  public Map<RouteAndDirectionRef, Set<AgencyAndId>> getServiceAlertIdsByRouteAndDirectionId() {
+    return _serviceAlertIdsByRouteAndDirectionId;
+  }
+
+  public Map<RouteAndStopCallRef, Set<AgencyAndId>> getServiceAlertIdsByRouteAndStop() {
+    return _serviceAlertIdsByRouteAndStop;
+  }
+
+  public Map<RouteDirectionAndStopCallRef, Set<AgencyAndId>> getServiceAlertIdsByRouteDirectionAndStopCall() {
+    return _serviceAlertIdsByRouteDirectionAndStopCall;
+  }
+
+  public Map<AgencyAndId, Set<AgencyAndId>> getServiceAlertIdsByTripId() {
+    return _serviceAlertIdsByTripId;
+  }
+
+  public Map<TripAndStopCallRef, Set<AgencyAndId>> getServiceAlertIdsByTripAndStopId() {
+    return _serviceAlertIdsByTripAndStopId;
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private ServiceAlertsIndex createActiveIndex(long time) {
+    // the interval between the boundaries either side of time
+    int index = Arrays.binarySearch(_windowBoundaries, time);
+    if (index < 0)
+      index = -(index + 1) - 1;
+    long from = index < 0 ? Long.MIN_VALUE : _windowBoundaries[index];
+    long to = index + 1 < _windowBoundaries.length
+        ? _windowBoundaries[index + 1] : Long.MAX_VALUE;
+    return new ServiceAlertsIndex(this, from, to);
+  }
+
+  private static long[] getWindowBoundaries(
+      Map<AgencyAndId, ServiceAlertRecord> serviceAlerts) {
+    Set<Long> boundaries = new HashSet<Long>();
+    for (ServiceAlertRecord serviceAlert : serviceAlerts.values()) {
+      for (ServiceAlertTimeRange window : serviceAlert.getPublicationWindows()) {
+        if (window.getFromValue() != null)
+          boundaries.add(window.getFromValue());
+        // windows include their end time
+        if (window.getToValue() != null && window.getToValue() < Long.MAX_VALUE)
+          boundaries.add(window.getToValue() + 1);
+      }
+    }
+    long[] values = new long[boundaries.size()];
+    int i = 0;
+    for (Long boundary : boundaries)
+      values[i++] = boundary;
+    Arrays.sort(values);
+    return values;
+  }
+
+  private static <T> Map<T, Set<AgencyAndId>> filter(
+      Map<T, Set<AgencyAndId>> map, Set<AgencyAndId> ids) {
+    Map<T, Set<AgencyAndId>> filtered = new HashMap<T, Set<AgencyAndId>>();
+    for (Map.Entry<T, Set<AgencyAndId>> entry : map.entrySet()) {
+      Set<AgencyAndId> matches = new HashSet<AgencyAndId>();
+      for (AgencyAndId id : entry.getValue()) {
+        if (ids.contains(id))
+          matches.add(id);
+      }
+      if (matches.size() == entry.getValue().size())
+        filtered.put(entry.getKey(), entry.getValue());
+      else if (!matches.isEmpty())
+        filtered.put(entry.getKey(), matches);
+    }
+    return Collections.unmodifiableMap(filtered);
+  }
+
+  /**
+   * Accumulates changes to a snapshot. A builder is not thread-safe and may
+   * only be built once.
+   */
+  public static final class Builder {
+
+    private final Map<AgencyAndId, ServiceAlertRecord> _serviceAlerts;
+
+    private final Map<String, Set<AgencyAndId>> _serviceAlertIdsByServiceAlertAgencyId;
+
+    private final Map<String, Set<AgencyAndId>> _serviceAlertIdsByAgencyId;
+
+    private final Map<AgencyAndId, Set<AgencyAndId>> _serviceAlertIdsByStopId;
+
+    private final Map<AgencyAndId, Set<AgencyAndId>> _serviceAlertIdsByRouteId;
+
+    private final Map<RouteAndDirectionRef, Set<AgencyAndId>> _serviceAlertIdsByRouteAndDirectionId;
+
+    private final Map<RouteAndStopCallRef, Set<AgencyAndId>> _serviceAlertIdsByRouteAndStop;
+
+    private final Map<RouteDirectionAndStopCallRef, Set<AgencyAndId>> _serviceAlertIdsByRouteDirectionAndStopCall;
+
+    private final Map<AgencyAndId, Set<AgencyAndId>> _serviceAlertIdsByTripId;
+
+    private final Map<TripAndStopCallRef, Set<AgencyAndId>> _serviceAlertIdsByTripAndStopId;
+
+    /**
+     * Id sets created by this builder, which may be modified in place. Any
+     * other set is shared with the base snapshot and is copied before it is
+     * changed.
+     */
+    private Map<Set<AgencyAndId>, Boolean> _ownedSets = new IdentityHashMap<Set<AgencyAndId>, Boolean>();
+
+    private Builder(ServiceAlertsIndex base) {
+      if (base == null) {
+        _serviceAlerts = new HashMap<AgencyAndId, ServiceAlertRecord>();
+        _serviceAlertIdsByServiceAlertAgencyId = new HashMap<String, Set<AgencyAndId>>();
+        _serviceAlertIdsByAgencyId = new HashMap<String, Set<AgencyAndId>>();
+        _serviceAlertIdsByStopId = new HashMap<AgencyAndId, Set<AgencyAndId>>();
+        _serviceAlertIdsByRouteId = new HashMap<AgencyAndId, Set<AgencyAndId>>();
+        _serviceAlertIdsByRouteAndDirectionId = new HashMap<RouteAndDirectionRef, Set<AgencyAndId>>();
+        _serviceAlertIdsByRouteAndStop = new HashMap<RouteAndStopCallRef, Set<AgencyAndId>>();
+        _serviceAlertIdsByRouteDirectionAndStopCall = new HashMap<RouteDirectionAndStopCallRef, Set<AgencyAndId>>();
+        _serviceAlertIdsByTripId = new HashMap<AgencyAndId, Set<AgencyAndId>>();
+        _serviceAlertIdsByTripAndStopId = new HashMap<TripAndStopCallRef, Set<AgencyAndId>>();
+      } else {
+        _serviceAlerts = new HashMap<AgencyAndId, ServiceAlertRecord>(base._serviceAlerts);
+        _serviceAlertIdsByServiceAlertAgencyId = new HashMap<String, Set<AgencyAndId>>(base._serviceAlertIdsByServiceAlertAgencyId);
+        _serviceAlertIdsByAgencyId = new HashMap<String, Set<AgencyAndId>>(base._serviceAlertIdsByAgencyId);
+        _serviceAlertIdsByStopId = new HashMap<AgencyAndId, Set<AgencyAndId>>(base._serviceAlertIdsByStopId);
+        _serviceAlertIdsByRouteId = new HashMap<AgencyAndId, Set<AgencyAndId>>(base._serviceAlertIdsByRouteId);
+        _serviceAlertIdsByRouteAndDirectionId = new HashMap<RouteAndDirectionRef, Set<AgencyAndId>>(base._serviceAlertIdsByRouteAndDirectionId);
+        _serviceAlertIdsByRouteAndStop = new HashMap<RouteAndStopCallRef, Set<AgencyAndId>>(base._serviceAlertIdsByRouteAndStop);
+        _serviceAlertIdsByRouteDirectionAndStopCall = new HashMap<RouteDirectionAndStopCallRef, Set<AgencyAndId>>(base._serviceAlertIdsByRouteDirectionAndStopCall);
+        _serviceAlertIdsByTripId = new HashMap<AgencyAndId, Set<AgencyAndId>>(base._serviceAlertIdsByTripId);
+        _serviceAlertIdsByTripAndStopId = new HashMap<TripAndStopCallRef, Set<AgencyAndId>>(base._serviceAlertIdsByTripAndStopId);
+      }
+    }
+
+    public int size() {
+      return _serviceAlerts.size();
+    }
+
+    public boolean containsServiceAlert(AgencyAndId id) {
+      return _serviceAlerts.containsKey(id);
+    }
+
+    /**
+     * Add or replace an alert, updating every index it appears in.
+     *
+     * @param serviceAlert
+     * @return the alert it replaced, if any
+     */
+    public ServiceAlertRecord putServiceAlert(ServiceAlertRecord serviceAlert) {
+      checkNotBuilt();
+      AgencyAndId id = ServiceAlertLibrary.agencyAndId(
+          serviceAlert.getAgencyId(), serviceAlert.getServiceAlertId());
+      ServiceAlertRecord existing = _serviceAlerts.put(id, serviceAlert);
+      updateReferences(existing, serviceAlert);
+      return existing;
+    }
+
+    /**
+     * @param id
+     * @return the alert removed, if any
+     */
+    public ServiceAlertRecord removeServiceAlert(AgencyAndId id) {
+      checkNotBuilt();
+      ServiceAlertRecord existing = _serviceAlerts.remove(id);
+      if (existing != null)
+        updateReferences(existing, null);
+      return existing;
+    }
+
+    /**
+     * Remove every alert whose id is not in the given set.
+     *
+     * @param ids
+     * @return the number of alerts removed
+     */
+    public int retainServiceAlerts(Set<AgencyAndId> ids) {
+      checkNotBuilt();
+      int removed = 0;
+      for (Iterator<Map.Entry<AgencyAndId, ServiceAlertRecord>> it = _serviceAlerts.entrySet().iterator(); it.hasNext();) {
+        Map.Entry<AgencyAndId, ServiceAlertRecord> entry = it.next();
+        if (!ids.contains(entry.getKey())) {
+          it.remove();
+          updateReferences(entry.getValue(), null);
+          removed++;
+        }
+      }
+      return removed;
+    }
+
+    public ServiceAlertsIndex build() {
+      checkNotBuilt();
+      _ownedSets = null;
+      return new ServiceAlertsIndex(this);
+    }
+
+    /****
+     * Private Methods
+     ****/
+
+    private void checkNotBuilt() {
+      if (_ownedSets == null)
+        throw new IllegalStateException("builder has already been built");
+    }
+
+    private void updateReferences(ServiceAlertRecord existingServiceAlert,
+        ServiceAlertRecord serviceAlert) {
+
+      updateReferences(existingServiceAlert, serviceAlert,
+          _serviceAlertIdsByServiceAlertAgencyId,
+          AffectsServiceAlertAgencyKeyFactory.INSTANCE);
+
+      updateReferences(existingServiceAlert, serviceAlert,
+          _serviceAlertIdsByAgencyId, AffectsAgencyKeyFactory.INSTANCE);
+
+      updateReferences(existingServiceAlert, serviceAlert,
+          _serviceAlertIdsByStopId, AffectsStopKeyFactory.INSTANCE);
+
+      updateReferences(existingServiceAlert, serviceAlert,
+          _serviceAlertIdsByRouteId, AffectsRouteKeyFactory.INSTANCE);
+
+      updateReferences(existingServiceAlert, serviceAlert,
+          _serviceAlertIdsByRouteAndDirectionId,
+          AffectsRouteAndDirectionKeyFactory.INSTANCE);
+
+      updateReferences(existingServiceAlert, serviceAlert,
+          _serviceAlertIdsByRouteAndStop,
+          AffectsRouteAndStopKeyFactory.INSTANCE);
+
+      updateReferences(existingServiceAlert, serviceAlert,
+          _serviceAlertIdsByRouteDirectionAndStopCall,
+          AffectsRouteDirectionAndStopCallKeyFactory.INSTANCE);
+
+      updateReferences(existingServiceAlert, serviceAlert,
+          _serviceAlertIdsByTripId, AffectsTripKeyFactory.INSTANCE);
+
+      updateReferences(existingServiceAlert, serviceAlert,
+          _serviceAlertIdsByTripAndStopId,
+          AffectsTripAndStopKeyFactory.INSTANCE);
+    }
+
+    private <T> void updateReferences(ServiceAlertRecord existingServiceAlert,
+        ServiceAlertRecord serviceAlert, Map<T, Set<AgencyAndId>> map,
+        AffectsKeyFactory<T> affectsKeyFactory) {
+
+      Set<T> existingEffects = Collections.emptySet();
+      if (existingServiceAlert != null)
+        existingEffects = affectsKeyFactory.getKeysForAffects(existingServiceAlert);
+
+      Set<T> newEffects = Collections.emptySet();
+      if (serviceAlert != null)
+        newEffects = affectsKeyFactory.getKeysForAffects(serviceAlert);
+
+      for (T existingEffect : existingEffects) {
+        if (newEffects.contains(existingEffect))
+          continue;
+        AgencyAndId id = ServiceAlertLibrary.agencyAndId(
+            existingServiceAlert.getAgencyId(),
+            existingServiceAlert.getServiceAlertId());
+        Set<AgencyAndId> ids = map.get(existingEffect);
+        if (ids == null || !ids.contains(id))
+          continue;
+        if (ids.size() == 1) {
+          map.remove(existingEffect);
+        } else {
+          getOwnedSet(map, existingEffect, ids).remove(id);
+        }
+      }
+
+      for (T newEffect : newEffects) {
+        if (existingEffects.contains(newEffect))
+          continue;
+        AgencyAndId id = ServiceAlertLibrary.agencyAndId(
+            serviceAlert.getAgencyId(), serviceAlert.getServiceAlertId());
+        getOwnedSet(map, newEffect, map.get(newEffect)).add(id);
+      }
+    }
+
+    private <T> Set<AgencyAndId> getOwnedSet(Map<T, Set<AgencyAndId>> map,
+        T key, Set<AgencyAndId> ids) {
+      if (ids != null && _ownedSets.containsKey(ids))
+        return ids;
+      Set<AgencyAndId> owned = ids == null ? new HashSet<AgencyAndId>()
+          : new HashSet<AgencyAndId>(ids);
+      _ownedSets.put(owned, Boolean.TRUE);
+      map.put(key, owned);
+      return owned;
+    }
+  }
+}
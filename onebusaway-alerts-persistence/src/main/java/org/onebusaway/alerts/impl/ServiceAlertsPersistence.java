@@ -16,6 +16,9 @@
 package org.onebusaway.alerts.impl;
 
 import java.util.List;
+import java.util.Set;
+
+import org.onebusaway.gtfs.model.AgencyAndId;
 
 public interface ServiceAlertsPersistence {
 
@@ -23,6 +26,17 @@ public interface ServiceAlertsPersistence {
 
   List<ServiceAlertRecord> getAlerts();
 
+  /**
+   * @param modifiedTime
+   * @return the alerts last modified after the given time
+   */
+  List<ServiceAlertRecord> getAlertsModifiedSince(long modifiedTime);
+
+  /**
+   * @return the ids of every stored alert, without loading the alerts
+   */
+  Set<AgencyAndId> getAlertIds();
+
   void saveOrUpdate(ServiceAlertRecord record);
 
   void saveOrUpdate(List<ServiceAlertRecord> records);
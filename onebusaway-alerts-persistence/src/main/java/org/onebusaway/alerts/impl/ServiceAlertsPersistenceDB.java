@@ -16,13 +16,16 @@
 package org.onebusaway.alerts.impl;
 
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.hibernate.NonUniqueResultException;
 import org.hibernate.query.Query;
 import org.hibernate.SQLQuery;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.util.SystemTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -156,6 +159,29 @@ public class ServiceAlertsPersistenceDB implements ServiceAlertsPersistence {
         return query.list();
   }
 
+  @Override
+  @Transactional
+  public List<ServiceAlertRecord> getAlertsModifiedSince(long modifiedTime) {
+        Query query = getSession().createQuery("SELECT serviceAlert FROM ServiceAlertRecord serviceAlert " +
+                "left join fetch serviceAlert.consequences cs " +
+                "left join fetch cs.detourStopIds dsi " +
+                "WHERE serviceAlert.modifiedTime > :modifiedTime");
+        query.setParameter("modifiedTime", modifiedTime);
+        return query.list();
+  }
+
+  @Override
+  @Transactional
+  public Set<AgencyAndId> getAlertIds() {
+    Query query = getSession().createQuery("SELECT serviceAlert.agencyId, serviceAlert.serviceAlertId FROM ServiceAlertRecord serviceAlert");
+    Set<AgencyAndId> ids = new HashSet<AgencyAndId>();
+    for (Object row : query.list()) {
+      Object[] values = (Object[]) row;
+      ids.add(ServiceAlertLibrary.agencyAndId((String) values[0], (String) values[1]));
+    }
+    return ids;
+  }
+
   @Override
   @Transactional
   public void saveOrUpdate(ServiceAlertRecord record) {
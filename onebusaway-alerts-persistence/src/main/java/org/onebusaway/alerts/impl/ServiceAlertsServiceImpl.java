@@ -47,10 +47,22 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 		AGENCY, ROUTE, ROUTE_DIRECTION, ROUTE_STOP, ROUTE_DIRECTION_STOP, TRIP, TRIP_STOP, STOP, UNSUPPORTED
 	}
 
+	/**
+	 * How far back an incremental sync reaches before the last modified time
+	 * it saw, to pick up records committed late with an earlier timestamp.
+	 */
+	private static final long SYNC_OVERLAP = 60 * 1000;
+
 	private ServiceAlertsCache _cache;
 	
 	private ServiceAlertsPersistence _persister;
 
+	/**
+	 * The newest modified time seen by the last sync, or -1 if no full load has
+	 * completed yet
+	 */
+	private long _lastSyncModifiedTime = -1;
+
 	@Autowired
 	public void setServiceAlertsCache(ServiceAlertsCache cache) {
 	  _cache = cache;
@@ -91,7 +103,7 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 	public synchronized ServiceAlertRecord createOrUpdateServiceAlert(
       ServiceAlertRecord serviceAlertRecord) {
 
-	  if (_persister.needsSync()) this.loadServiceAlerts();
+	  if (_persister.needsSync()) this.syncServiceAlerts();
 	  
 		if (serviceAlertRecord.getServiceAlertId() == null) {
 			UUID uuid = UUID.randomUUID();
@@ -102,16 +114,19 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 		if (serviceAlertRecord.getCreationTime() < 1l)
         serviceAlertRecord.setCreationTime(lastModified);
 
-		updateReferences(serviceAlertRecord);
+		ServiceAlertsIndex.Builder builder = _cache.getIndex().builder();
+		builder.putServiceAlert(serviceAlertRecord);
+		_cache.setIndex(builder.build());
 		saveDBServiceAlerts(serviceAlertRecord, lastModified);
 		return serviceAlertRecord;
 	}
 
 	@Override
 	public synchronized List<ServiceAlertRecord> createOrUpdateServiceAlerts(String agencyId, List<ServiceAlertRecord> records) {
-		if (_persister.needsSync()) this.loadServiceAlerts();
+		if (_persister.needsSync()) this.syncServiceAlerts();
 		long lastModified = SystemTime.currentTimeMillis();
 
+		ServiceAlertsIndex.Builder builder = _cache.getIndex().builder();
 		for (ServiceAlertRecord serviceAlertRecord : records) {
 			if (serviceAlertRecord.getServiceAlertId() == null) {
 				UUID uuid = UUID.randomUUID();
@@ -122,8 +137,9 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 			if (serviceAlertRecord.getCreationTime() < 1l)
 				serviceAlertRecord.setCreationTime(lastModified);
 
-			updateReferences(serviceAlertRecord);
+			builder.putServiceAlert(serviceAlertRecord);
 		}
+		_cache.setIndex(builder.build());
 		saveDBServiceAlerts(records, lastModified);
 		return records;
 
@@ -133,7 +149,7 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 	@Override
 	public synchronized ServiceAlertRecord copyServiceAlert(ServiceAlertRecord serviceAlertRecord) {
 		
-		if (_persister.needsSync()) this.loadServiceAlerts();
+		if (_persister.needsSync()) this.syncServiceAlerts();
 		UUID uuid = UUID.randomUUID();
 		serviceAlertRecord.setServiceAlertId(uuid.toString());
 
@@ -141,7 +157,9 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
         serviceAlertRecord.setCreationTime(lastModified);
         serviceAlertRecord.setCopy(Boolean.TRUE);
 		
-		updateReferences(serviceAlertRecord);
+		ServiceAlertsIndex.Builder builder = _cache.getIndex().builder();
+		builder.putServiceAlert(serviceAlertRecord);
+		_cache.setIndex(builder.build());
 		saveDBServiceAlerts(serviceAlertRecord, lastModified);
 		return serviceAlertRecord;
 	}	
@@ -153,14 +171,14 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 
 	@Override
 	public synchronized void removeServiceAlerts(List<AgencyAndId> serviceAlertIds) {
-	  if (_persister.needsSync()) this.loadServiceAlerts();
+	  if (_persister.needsSync()) this.syncServiceAlerts();
+		ServiceAlertsIndex.Builder builder = _cache.getIndex().builder();
 		for (AgencyAndId serviceAlertId : serviceAlertIds) {
-      ServiceAlertRecord existingServiceAlert = _cache.removeServiceAlert(serviceAlertId);
+			builder.removeServiceAlert(serviceAlertId);
+		}
+		_cache.setIndex(builder.build());
 
-			if (existingServiceAlert != null) {
-				updateReferences(existingServiceAlert, null);
-			}
-			
+		for (AgencyAndId serviceAlertId : serviceAlertIds) {
 			//Now remove from the DataBase.
 			ServiceAlertRecord existingServiceAlertRecord = getServiceAlertRecordByAlertId(serviceAlertId.getAgencyId(), serviceAlertId.getId());
 			_log.debug("deleting service alert " + serviceAlertId.getId());
@@ -173,102 +191,110 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 	@Override
 	public synchronized void removeAllServiceAlertsForFederatedAgencyId(
 			String agencyId) {
-		Set<AgencyAndId> ids = _cache.getServiceAlertIdsByServiceAlertAgencyId().get(agencyId);
+		Set<AgencyAndId> ids = _cache.getIndex().getServiceAlertIdsByServiceAlertAgencyId().get(agencyId);
 		if (ids != null)
 			removeServiceAlerts(new ArrayList<AgencyAndId>(ids));
 	}
 
 	@Override
 	public ServiceAlertRecord getServiceAlertForId(AgencyAndId serviceAlertId) {
-	  if (_persister.cachedNeedsSync()) this.loadServiceAlerts();
-		return _cache.getServiceAlerts().get(serviceAlertId);
+	  if (_persister.cachedNeedsSync()) this.syncServiceAlerts();
+		return _cache.getIndex().getServiceAlerts().get(serviceAlertId);
 	}
 
 	@Override
 	public List<ServiceAlertRecord> getAllServiceAlerts() {
-	  if (_persister.cachedNeedsSync()) this.loadServiceAlerts();
-		return new ArrayList<ServiceAlertRecord>(_cache.getServiceAlerts().values());
+	  if (_persister.cachedNeedsSync()) this.syncServiceAlerts();
+		return new ArrayList<ServiceAlertRecord>(_cache.getIndex().getServiceAlerts().values());
 	}
 
 	@Override
 	public List<ServiceAlertRecord> getServiceAlertsForFederatedAgencyId(String agencyId) {
-	  if (_persister.cachedNeedsSync()) this.loadServiceAlerts();
-		Set<AgencyAndId> serviceAlertIds = _cache.getServiceAlertIdsByServiceAlertAgencyId().get(agencyId);
-		return getServiceAlertIdsAsObjects(serviceAlertIds);
+	  if (_persister.cachedNeedsSync()) this.syncServiceAlerts();
+		ServiceAlertsIndex index = _cache.getIndex();
+		Set<AgencyAndId> serviceAlertIds = index.getServiceAlertIdsByServiceAlertAgencyId().get(agencyId);
+		return getServiceAlertIdsAsObjects(index, serviceAlertIds);
 	}
 
 	@Override
 	public List<ServiceAlertRecord> getServiceAlertsForAgencyId(long time,
 			String agencyId) {
-	  if (_persister.cachedNeedsSync()) this.loadServiceAlerts();
+	  if (_persister.cachedNeedsSync()) this.syncServiceAlerts();
+		ServiceAlertsIndex index = getIndex(time);
 		Set<AgencyAndId> serviceAlertIds = new HashSet<AgencyAndId>();
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByAgencyId(), agencyId,
+		getServiceAlertIdsForKey(index.getServiceAlertIdsByAgencyId(), agencyId,
 				serviceAlertIds);
-		return getServiceAlertIdsAsObjects(serviceAlertIds, time);
+		return getServiceAlertIdsAsObjects(index, serviceAlertIds, time);
 	}
 
 	@Override
 	public List<ServiceAlertRecord> getServiceAlertsForStopId(long time,
 			AgencyAndId stopId) {
-	  if (_persister.cachedNeedsSync()) this.loadServiceAlerts();
+	  if (_persister.cachedNeedsSync()) this.syncServiceAlerts();
+		ServiceAlertsIndex index = getIndex(time);
 		Set<AgencyAndId> serviceAlertIds = new HashSet<AgencyAndId>();
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByAgencyId(), stopId.getAgencyId(),
+		getServiceAlertIdsForKey(index.getServiceAlertIdsByAgencyId(), stopId.getAgencyId(),
 				serviceAlertIds);
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByStopId(), stopId, serviceAlertIds);
-		return getServiceAlertIdsAsObjects(serviceAlertIds, time);
+		getServiceAlertIdsForKey(index.getServiceAlertIdsByStopId(), stopId, serviceAlertIds);
+		return getServiceAlertIdsAsObjects(index, serviceAlertIds, time);
 	}
 
 	@Override
 	public List<ServiceAlertRecord> getServiceAlertsForRouteId(long time, AgencyAndId routeId) {
+		ServiceAlertsIndex index = getIndex(time);
 		Set<AgencyAndId> serviceAlertIds = new HashSet<AgencyAndId>();
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByRouteId(), routeId, serviceAlertIds);
-		return getServiceAlertIdsAsObjects(serviceAlertIds, time);
+		getServiceAlertIdsForKey(index.getServiceAlertIdsByRouteId(), routeId, serviceAlertIds);
+		return getServiceAlertIdsAsObjects(index, serviceAlertIds, time);
 	}
 
 	@Override
 	public List<ServiceAlertRecord> getServiceAlertsForRouteAndStopId(long time, AgencyAndId routeId, AgencyAndId stopId) {
+		ServiceAlertsIndex index = getIndex(time);
 		Set<AgencyAndId> serviceAlertIds = new HashSet<AgencyAndId>();
 		RouteAndStopCallRef routeAndStopCallRef = new RouteAndStopCallRef(routeId,
 				stopId);
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByRouteAndStop(),
+		getServiceAlertIdsForKey(index.getServiceAlertIdsByRouteAndStop(),
 				routeAndStopCallRef, serviceAlertIds);
-		return getServiceAlertIdsAsObjects(serviceAlertIds, time);
+		return getServiceAlertIdsAsObjects(index, serviceAlertIds, time);
 	}
 
 	public List<ServiceAlertRecord> getServiceAlertsForRouteAndDirection(long time, AgencyAndId routeId, AgencyAndId tripId, String directionId) {
+		ServiceAlertsIndex index = getIndex(time);
 		Set<AgencyAndId> serviceAlertIds = new HashSet<AgencyAndId>();
 		RouteAndDirectionRef lineAndDirectionRef = new RouteAndDirectionRef(routeId,
 				directionId);
 
 
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByAgencyId(), routeId.getAgencyId(),
+		getServiceAlertIdsForKey(index.getServiceAlertIdsByAgencyId(), routeId.getAgencyId(),
 				serviceAlertIds);
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByRouteId(), routeId, serviceAlertIds);
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByRouteAndDirectionId(),
+		getServiceAlertIdsForKey(index.getServiceAlertIdsByRouteId(), routeId, serviceAlertIds);
+		getServiceAlertIdsForKey(index.getServiceAlertIdsByRouteAndDirectionId(),
 				lineAndDirectionRef, serviceAlertIds);
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByTripId(), tripId,
+		getServiceAlertIdsForKey(index.getServiceAlertIdsByTripId(), tripId,
 				serviceAlertIds);
 
-		return getServiceAlertIdsAsObjects(serviceAlertIds, time);
+		return getServiceAlertIdsAsObjects(index, serviceAlertIds, time);
 	}
 
 	@Override
 	public List<ServiceAlertRecord> getServiceAlertsForTripAndStopId(long time, AgencyAndId tripId, AgencyAndId stopId) {
+		ServiceAlertsIndex index = getIndex(time);
 		Set<AgencyAndId> serviceAlertIds = new HashSet<AgencyAndId>();
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByTripId(), tripId,
+		getServiceAlertIdsForKey(index.getServiceAlertIdsByTripId(), tripId,
 				serviceAlertIds);
 		TripAndStopCallRef tripAndStopCallRef = new TripAndStopCallRef(tripId,
 				stopId);
-		getServiceAlertIdsForKey(_cache.getServiceAlertIdsByTripAndStopId(),
+		getServiceAlertIdsForKey(index.getServiceAlertIdsByTripAndStopId(),
 				tripAndStopCallRef, serviceAlertIds);
 
-		return getServiceAlertIdsAsObjects(serviceAlertIds, time);
+		return getServiceAlertIdsAsObjects(index, serviceAlertIds, time);
 	}
 
 	@Override
 	public List<ServiceAlertRecord> getServiceAlerts(SituationQueryBean query) {
+		if (_persister.cachedNeedsSync()) this.syncServiceAlerts();
+		ServiceAlertsIndex index = getIndex(query.getTime());
 		Set<AgencyAndId> serviceAlertIds = new HashSet<AgencyAndId>();
-		if (_persister.cachedNeedsSync()) this.loadServiceAlerts();
 		for (SituationQueryBean.AffectsBean affects : query.getAffects()) {
 
 			AgencyAndId routeId = AgencyAndId.convertFromString(affects.getRouteId());
@@ -284,50 +310,50 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 				 * Note we are treating the query's agency ID as that of what the
 				 * service alert affects, not the alert's federated agency ID.
 				 */
-				getServiceAlertIdsForKey(_cache.getServiceAlertIdsByAgencyId(),
+				getServiceAlertIdsForKey(index.getServiceAlertIdsByAgencyId(),
 						affects.getAgencyId(), serviceAlertIds);
 				break;
 			}
 			case ROUTE: {
 
-				getServiceAlertIdsForKey(_cache.getServiceAlertIdsByRouteId(), routeId,
+				getServiceAlertIdsForKey(index.getServiceAlertIdsByRouteId(), routeId,
 						serviceAlertIds);
 				break;
 			}
 			case TRIP: {
-				getServiceAlertIdsForKey(_cache.getServiceAlertIdsByTripId(), tripId,
+				getServiceAlertIdsForKey(index.getServiceAlertIdsByTripId(), tripId,
 						serviceAlertIds);
 				break;
 			}
 			case STOP: {
-				getServiceAlertIdsForKey(_cache.getServiceAlertIdsByStopId(), stopId,
+				getServiceAlertIdsForKey(index.getServiceAlertIdsByStopId(), stopId,
 						serviceAlertIds);
 				break;
 			}
 			case ROUTE_DIRECTION: {
 				RouteAndDirectionRef routeAndDirectionRef = new RouteAndDirectionRef(
 						routeId, affects.getDirectionId());
-				getServiceAlertIdsForKey(_cache.getServiceAlertIdsByRouteAndDirectionId(),
+				getServiceAlertIdsForKey(index.getServiceAlertIdsByRouteAndDirectionId(),
 						routeAndDirectionRef, serviceAlertIds);
 				break;
 			}
 			case ROUTE_DIRECTION_STOP: {
 				RouteDirectionAndStopCallRef ref = new RouteDirectionAndStopCallRef(
 						routeId, affects.getDirectionId(), stopId);
-				getServiceAlertIdsForKey(_cache.getServiceAlertIdsByRouteDirectionAndStopCall(),
+				getServiceAlertIdsForKey(index.getServiceAlertIdsByRouteDirectionAndStopCall(),
 						ref, serviceAlertIds);
 				break;
 			}
 			case ROUTE_STOP: {
 				RouteAndStopCallRef routeAndStopRef = new RouteAndStopCallRef(
 						routeId, stopId);
-				getServiceAlertIdsForKey(_cache.getServiceAlertIdsByRouteAndStop(),
+				getServiceAlertIdsForKey(index.getServiceAlertIdsByRouteAndStop(),
 						routeAndStopRef, serviceAlertIds);
 				break;
 			}
 			case TRIP_STOP: {
 				TripAndStopCallRef ref = new TripAndStopCallRef(tripId, stopId);
-				getServiceAlertIdsForKey(_cache.getServiceAlertIdsByTripAndStopId(), ref,
+				getServiceAlertIdsForKey(index.getServiceAlertIdsByTripAndStopId(), ref,
 						serviceAlertIds);
 				break;
 			}
@@ -337,7 +363,7 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 			}
 		}
 
-		List<ServiceAlertRecord> alerts = getServiceAlertIdsAsObjects(serviceAlertIds, query.getTime());
+		List<ServiceAlertRecord> alerts = getServiceAlertIdsAsObjects(index, serviceAlertIds, query.getTime());
 
 		return alerts;
 	}
@@ -346,110 +372,44 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 	 * Private Methods
 	 ****/
 
-	private void updateReferences(ServiceAlertRecord serviceAlert) {
-		AgencyAndId id = ServiceAlertLibrary.agencyAndId(serviceAlert.getAgencyId(), serviceAlert.getServiceAlertId());
-    	ServiceAlertRecord existingServiceAlert = _cache.putServiceAlert(id, serviceAlert);
-		updateReferences(existingServiceAlert, serviceAlert);
-	}
-
-	private void updateReferences(ServiceAlertRecord existingServiceAlert,
-      ServiceAlertRecord serviceAlert) {
-
-		updateReferences(existingServiceAlert, serviceAlert,
-				_cache.getServiceAlertIdsByServiceAlertAgencyId(),
-				AffectsServiceAlertAgencyKeyFactory.INSTANCE);
-
-		updateReferences(existingServiceAlert, serviceAlert,
-				_cache.getServiceAlertIdsByAgencyId(), AffectsAgencyKeyFactory.INSTANCE);
-
-		updateReferences(existingServiceAlert, serviceAlert,
-				_cache.getServiceAlertIdsByStopId(), AffectsStopKeyFactory.INSTANCE);
-
-		updateReferences(existingServiceAlert, serviceAlert,
-				_cache.getServiceAlertIdsByRouteId(), AffectsRouteKeyFactory.INSTANCE);
-
-		updateReferences(existingServiceAlert, serviceAlert,
-				_cache.getServiceAlertIdsByRouteAndDirectionId(),
-				AffectsRouteAndDirectionKeyFactory.INSTANCE);
-
-		updateReferences(existingServiceAlert, serviceAlert,
-				_cache.getServiceAlertIdsByRouteAndStop(), AffectsRouteAndStopKeyFactory.INSTANCE);
-
-		updateReferences(existingServiceAlert, serviceAlert,
-				_cache.getServiceAlertIdsByRouteDirectionAndStopCall(),
-				AffectsRouteDirectionAndStopCallKeyFactory.INSTANCE);
-
-		updateReferences(existingServiceAlert, serviceAlert,
-				_cache.getServiceAlertIdsByTripId(), AffectsTripKeyFactory.INSTANCE);
-		updateReferences(existingServiceAlert, serviceAlert,
-				_cache.getServiceAlertIdsByTripAndStopId(), AffectsTripAndStopKeyFactory.INSTANCE);
-
-
-	}
-
-	private <T> void updateReferences(ServiceAlertRecord existingServiceAlert,
-			ServiceAlertRecord serviceAlert, Map<T, Set<AgencyAndId>> map,
-			AffectsKeyFactory<T> affectsKeyFactory) {
-
-		Set<T> existingEffects = Collections.emptySet();
-		if (existingServiceAlert != null) {
-			existingEffects = affectsKeyFactory.getKeysForAffects(existingServiceAlert);
-		}
-
-		Set<T> newEffects = Collections.emptySet();
-		if (serviceAlert != null) {
-			newEffects = affectsKeyFactory.getKeysForAffects(serviceAlert);
-		}
-
-		for (T existingEffect : existingEffects) {
-			if (newEffects.contains(existingEffect))
-				continue;
-			AgencyAndId id = ServiceAlertLibrary.agencyAndId(existingServiceAlert.getAgencyId(), existingServiceAlert.getServiceAlertId());
-			Set<AgencyAndId> ids = map.get(existingEffect);
-			ids.remove(id);
-			if (ids.isEmpty())
-				map.remove(existingEffect);
-			}
-
-		for (T newEffect : newEffects) {
-			if (existingEffects.contains(newEffect))
-				continue;
-      		AgencyAndId id = ServiceAlertLibrary.agencyAndId(serviceAlert.getAgencyId(), serviceAlert.getServiceAlertId());
-			Set<AgencyAndId> ids = map.get(newEffect);
-			if (ids == null) {
-				ids = new HashSet<AgencyAndId>();
-				map.put(newEffect, ids);
-			}
-				ids.add(id);
-		}
+	/**
+	 * @return the snapshot of alerts published at time if one is available,
+	 *         otherwise the full snapshot
+	 */
+	private ServiceAlertsIndex getIndex(long time) {
+		ServiceAlertsIndex index = _cache.getIndex();
+		if (time == -1)
+			return index;
+		ServiceAlertsIndex active = index.getActiveIndex(time);
+		return active != null ? active : index;
 	}
 
-	private synchronized <T> void getServiceAlertIdsForKey(
+	private <T> void getServiceAlertIdsForKey(
 			Map<T, Set<AgencyAndId>> serviceAlertIdsByKey, T key,
 			Collection<AgencyAndId> matches) {
-		if (serviceAlertIdsByKey != null) {
-			Set<AgencyAndId> ids = serviceAlertIdsByKey.get(key);
-			if (ids != null) {
-				// copy to guard against changes
-				Set<AgencyAndId> copyOfIds = new HashSet<>(ids);
-				matches.addAll(copyOfIds);
-			}
-		}
+		// the index is immutable, so the set can be read without a copy
+		Set<AgencyAndId> ids = serviceAlertIdsByKey.get(key);
+		if (ids != null)
+			matches.addAll(ids);
 	}
 
 	private List<ServiceAlertRecord> getServiceAlertIdsAsObjects(
-			Collection<AgencyAndId> serviceAlertIds) {
-		return getServiceAlertIdsAsObjects(serviceAlertIds, -1);
+			ServiceAlertsIndex index, Collection<AgencyAndId> serviceAlertIds) {
+		return getServiceAlertIdsAsObjects(index, serviceAlertIds, -1);
 	}
 
 	private List<ServiceAlertRecord> getServiceAlertIdsAsObjects(
-			Collection<AgencyAndId> serviceAlertIds, long time) {
+			ServiceAlertsIndex index, Collection<AgencyAndId> serviceAlertIds,
+			long time) {
 		if (serviceAlertIds == null || serviceAlertIds.isEmpty())
 			return Collections.emptyList();
 		List<ServiceAlertRecord> serviceAlerts = new ArrayList<ServiceAlertRecord>(
 				serviceAlertIds.size());
+		// an active index has already dropped the alerts not published at time
+		if (index.isActiveIndexFor(time))
+			time = -1;
 		for (AgencyAndId serviceAlertId : serviceAlertIds) {
-			ServiceAlertRecord serviceAlert = _cache.getServiceAlerts().get(serviceAlertId);
+			ServiceAlertRecord serviceAlert = index.getServiceAlerts().get(serviceAlertId);
 			if (serviceAlert != null && filterByTime(serviceAlert, time))
 				serviceAlerts.add(serviceAlert);
 		}
@@ -457,15 +417,7 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 	}
 
 	private boolean filterByTime(ServiceAlertRecord serviceAlert, long time) {
-		if (time == -1 || serviceAlert.getPublicationWindows().size() == 0)
-			return true;
-		for (ServiceAlertTimeRange publicationWindow : serviceAlert.getPublicationWindows()) {
-			if ((publicationWindow.getFromValue() == null || publicationWindow.getFromValue() <= time)
-					&& (publicationWindow.getToValue() == null || publicationWindow.getToValue() >= time)) {
-				return true;
-			}
-		}
-		return false;
+		return time == -1 || ServiceAlertsIndex.isPublished(serviceAlert, time);
 	}
 
 	private AffectsType getAffectsType(String agencyId, String routeId,
@@ -535,27 +487,84 @@ public class ServiceAlertsServiceImpl implements ServiceAlertsService {
 		_persister.deleteOrphans();
 	}
 
+	/**
+	 * Rebuild the index from every record in the DB. The new index is built off
+	 * to the side and published in one step, so readers keep seeing the old
+	 * alerts until it is ready, and keep them if the load fails.
+	 */
 	@Override
 	public synchronized void loadServiceAlerts() {
-	  _cache.clear(); //we need to clear the cache in case records were deleted
-		List<ServiceAlertRecord> alerts = _persister.getAlerts();
-		_log.debug("Loaded " + alerts.size() + " service alerts from DB");
-		try {			
+		try {
+			List<ServiceAlertRecord> alerts = _persister.getAlerts();
+			_log.debug("Loaded " + alerts.size() + " service alerts from DB");
+			ServiceAlertsIndex.Builder builder = ServiceAlertsIndex.EMPTY.builder();
+			long lastModified = 0;
 			for (ServiceAlertRecord serviceAlert : alerts) {
-				updateReferences(serviceAlert);
+				builder.putServiceAlert(serviceAlert);
+				lastModified = Math.max(lastModified, getModifiedTime(serviceAlert));
 			}
+			ServiceAlertsIndex index = builder.build();
+			_cache.setIndex(index);
+			_lastSyncModifiedTime = lastModified;
 			_log.info("updateReferences complete with "
-					+ _cache.getServiceAlertIdsByAgencyId().size() + " agency alerts, "
-					+ _cache.getServiceAlertIdsByRouteAndStop().size() + " route and stop alerts, "
-					+ _cache.getServiceAlertIdsByRouteId().size() + " route alerts, and "
-					+ _cache.getServiceAlerts().size() + " distinct alerts");
+					+ index.getServiceAlertIdsByAgencyId().size() + " agency alerts, "
+					+ index.getServiceAlertIdsByRouteAndStop().size() + " route and stop alerts, "
+					+ index.getServiceAlertIdsByRouteId().size() + " route alerts, and "
+					+ index.size() + " distinct alerts");
+		} catch (Exception ex) {
+			_log.error("error loading service alerts from DB ", ex);
+		}
+	}
+
+	/**
+	 * Bring the index up to date with only the records modified since the last
+	 * sync, plus an id-only query to find deletions. Falls back to a full load
+	 * if nothing has been loaded yet, or if the DB holds an alert that neither
+	 * the index nor the modified records account for.
+	 */
+	private synchronized void syncServiceAlerts() {
+		if (_lastSyncModifiedTime < 0) {
+			loadServiceAlerts();
+			return;
+		}
+		try {
+			List<ServiceAlertRecord> modified = _persister.getAlertsModifiedSince(
+					_lastSyncModifiedTime - SYNC_OVERLAP);
+			ServiceAlertsIndex.Builder builder = _cache.getIndex().builder();
+			long lastModified = _lastSyncModifiedTime;
+			for (ServiceAlertRecord serviceAlert : modified) {
+				builder.putServiceAlert(serviceAlert);
+				lastModified = Math.max(lastModified, getModifiedTime(serviceAlert));
+			}
 
+			Set<AgencyAndId> ids = _persister.getAlertIds();
+			for (AgencyAndId id : ids) {
+				if (!builder.containsServiceAlert(id)) {
+					_log.debug("alert " + id + " missed by incremental sync, reloading");
+					loadServiceAlerts();
+					return;
+				}
+			}
+			int removed = builder.retainServiceAlerts(ids);
 
+			_cache.setIndex(builder.build());
+			_lastSyncModifiedTime = lastModified;
+			_log.debug("synced " + modified.size() + " modified and " + removed
+					+ " removed service alerts");
 		} catch (Exception ex) {
-			_log.error("error loading service alerts from DB ", ex);
+			_log.error("error syncing service alerts from DB ", ex);
 		}
 	}
 
+	/**
+	 * The modified time column is nullable, and alerts written without one
+	 * count as never modified
+	 */
+	private static long getModifiedTime(ServiceAlertRecord serviceAlert) {
+		Long modifiedTime = serviceAlert.getModifiedTime();
+		return modifiedTime == null ? 0 : modifiedTime;
+	}
+
 	// this is admittedly slow performing, but it is only called on an update
 	// of a single service alert
 	private synchronized void saveDBServiceAlerts(ServiceAlertRecord alert, Long lastModified) {
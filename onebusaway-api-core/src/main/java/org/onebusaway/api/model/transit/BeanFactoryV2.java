@@ -1174,18 +1174,48 @@ public class BeanFactoryV2 {
       addToReferences(stop);
     }
     bean.setStopIds(stopIds);
-    bean.setStopGroupings(stopsForRoute.getStopGroupings());
-    if (!includePolylines) {
-      for (StopGroupingBean grouping : stopsForRoute.getStopGroupings()) {
-        for (StopGroupBean group : grouping.getStopGroups())
-          group.setPolylines(null);
-      }
-    }
-    if (includePolylines)
+    if (includePolylines) {
+      bean.setStopGroupings(stopsForRoute.getStopGroupings());
       bean.setPolylines(stopsForRoute.getPolylines());
+    } else {
+      bean.setStopGroupings(getStopGroupingsWithoutPolylines(stopsForRoute.getStopGroupings()));
+    }
     return bean;
   }
 
+  /**
+   * The {@link StopsForRouteBean} may be shared with other requests (it can
+   * come straight out of a cache), so rather than clearing the polylines in
+   * place we copy the groupings and groups and leave the copies without them.
+   */
+  private List<StopGroupingBean> getStopGroupingsWithoutPolylines(
+      List<StopGroupingBean> groupings) {
+    if (groupings == null)
+      return null;
+    List<StopGroupingBean> copies = new ArrayList<StopGroupingBean>(
+        groupings.size());
+    for (StopGroupingBean grouping : groupings) {
+      StopGroupingBean groupingCopy = new StopGroupingBean();
+      groupingCopy.setType(grouping.getType());
+      groupingCopy.setOrdered(grouping.isOrdered());
+      if (grouping.getStopGroups() != null) {
+        List<StopGroupBean> groupCopies = new ArrayList<StopGroupBean>(
+            grouping.getStopGroups().size());
+        for (StopGroupBean group : grouping.getStopGroups()) {
+          StopGroupBean groupCopy = new StopGroupBean();
+          groupCopy.setId(group.getId());
+          groupCopy.setName(group.getName());
+          groupCopy.setStopIds(group.getStopIds());
+          groupCopy.setSubGroups(group.getSubGroups());
+          groupCopies.add(groupCopy);
+        }
+        groupingCopy.setStopGroups(groupCopies);
+      }
+      copies.add(groupingCopy);
+    }
+    return copies;
+  }
+
   public StopWithArrivalsAndDeparturesV2Bean getStopWithArrivalAndDepartures(
       StopWithArrivalsAndDeparturesBean sad) {
     StopWithArrivalsAndDeparturesV2Bean bean = new StopWithArrivalsAndDeparturesV2Bean();
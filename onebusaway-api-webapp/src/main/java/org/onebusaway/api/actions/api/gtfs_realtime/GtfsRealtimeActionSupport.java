@@ -21,10 +21,13 @@ import java.util.Locale;
 import java.util.TimeZone;
 
 import org.apache.struts2.ServletActionContext;
+import org.apache.struts2.dispatcher.mapper.ActionMapping;
 import org.apache.struts2.rest.DefaultHttpHeaders;
 import org.onebusaway.api.actions.api.ApiActionSupport;
 import org.onebusaway.api.model.transit.realtime.GtfsRealtimeConstantsV2;
 import org.onebusaway.api.services.AgencyAndIdModificationStrategy;
+import org.onebusaway.api.services.GtfsRealtimeFeedSnapshot;
+import org.onebusaway.api.services.GtfsRealtimeSnapshotService;
 import org.onebusaway.exceptions.ServiceException;
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.transit_data.services.TransitDataService;
@@ -38,6 +41,7 @@ import com.google.transit.realtime.GtfsRealtime.FeedMessage;
 import com.opensymphony.xwork2.conversion.annotations.TypeConversion;
 import com.opensymphony.xwork2.validator.annotations.RequiredFieldValidator;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 public abstract class GtfsRealtimeActionSupport extends ApiActionSupport {
@@ -58,6 +62,9 @@ public abstract class GtfsRealtimeActionSupport extends ApiActionSupport {
   @Autowired(required = false)
   protected AgencyAndIdModificationStrategy _stopIdModificationStrategy;
 
+  @Autowired(required = false)
+  protected GtfsRealtimeSnapshotService _snapshotService;
+
   private String _agencyId;
 
   private long _time;
@@ -81,6 +88,10 @@ public abstract class GtfsRealtimeActionSupport extends ApiActionSupport {
     _service = service;
   }
 
+  public void setSnapshotService(GtfsRealtimeSnapshotService snapshotService) {
+    _snapshotService = snapshotService;
+  }
+
   @RequiredFieldValidator
   public void setId(String id) {
     _agencyId = id;
@@ -110,19 +121,14 @@ public abstract class GtfsRealtimeActionSupport extends ApiActionSupport {
     if (hasErrors())
       return setValidationErrorsResponse();
 
+    if (isSnapshotRequest())
+      return showSnapshot();
+
     long time = SystemTime.currentTimeMillis();
     if (_time != 0)
       time = _time;
 
-    FeedMessage.Builder feed = FeedMessage.newBuilder();
-    FeedHeader.Builder header = feed.getHeaderBuilder();
-    header.setGtfsRealtimeVersion(GtfsRealtimeConstantsV2.VERSION);
-    header.setTimestamp(time / 1000);
-    if (getRouteFilterId() != null) {
-      fillFeedMessage(feed, _agencyId, time, FILTER_TYPE.ROUTE_ID, getRouteFilterId());
-    } else {
-      fillFeedMessage(feed, _agencyId, time, FILTER_TYPE.UNFILTERED, null);
-    }
+    FeedMessage.Builder feed = createFeedMessage(time);
 
     try {
       return setOkResponse(feed.build());
@@ -135,6 +141,79 @@ public abstract class GtfsRealtimeActionSupport extends ApiActionSupport {
   protected abstract void fillFeedMessage(FeedMessage.Builder feed,
       String agencyId, long timestamp, FILTER_TYPE filterType, String filterValue);
 
+  /**
+   * Requests for the current feed in binary or text protobuf form are served
+   * from a shared, pre-serialized snapshot. Requests for a specific time always
+   * build the feed.
+   */
+  private boolean isSnapshotRequest() {
+    if (_snapshotService == null || !_snapshotService.isEnabled() || _time != 0)
+      return false;
+    ActionMapping mapping = ServletActionContext.getActionMapping();
+    if (mapping == null)
+      return false;
+    String extension = mapping.getExtension();
+    return "pb".equals(extension) || "pbtext".equals(extension);
+  }
+
+  private DefaultHttpHeaders showSnapshot() {
+
+    String key = getClass().getName() + "|" + _agencyId + "|"
+        + _routeFilterId + "|" + _removeAgencyIds;
+
+    GtfsRealtimeFeedSnapshot snapshot = _snapshotService.getSnapshot(key,
+        new GtfsRealtimeSnapshotService.FeedSource() {
+          @Override
+          public FeedMessage build(long time) {
+            return createFeedMessage(time).build();
+          }
+        });
+
+    HttpServletRequest request = ServletActionContext.getRequest();
+    boolean gzipped = request != null
+        && snapshot.isGzipped(request.getHeader("Accept-Encoding"));
+    String etag = snapshot.getETag(gzipped);
+
+    DefaultHttpHeaders headers = setOkResponse(snapshot).withETag(etag).lastModified(
+        new Date(snapshot.getTime()));
+
+    // the body may be gzipped depending on the request, so caches must key on it
+    HttpServletResponse response = ServletActionContext.getResponse();
+    if (response != null)
+      response.setHeader("Vary", "Accept-Encoding");
+
+    if (isNotModified(request, snapshot, etag))
+      headers = headers.withStatus(HttpServletResponse.SC_NOT_MODIFIED);
+
+    return headers;
+  }
+
+  private boolean isNotModified(HttpServletRequest request,
+      GtfsRealtimeFeedSnapshot snapshot, String etag) {
+    if (request == null)
+      return false;
+    String ifNoneMatch = request.getHeader("If-None-Match");
+    if (ifNoneMatch != null)
+      return GtfsRealtimeFeedSnapshot.matchesIfNoneMatch(ifNoneMatch, etag);
+    long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+    // HTTP dates only carry second resolution
+    return ifModifiedSince != -1
+        && snapshot.getTime() / 1000 <= ifModifiedSince / 1000;
+  }
+
+  private FeedMessage.Builder createFeedMessage(long time) {
+    FeedMessage.Builder feed = FeedMessage.newBuilder();
+    FeedHeader.Builder header = feed.getHeaderBuilder();
+    header.setGtfsRealtimeVersion(GtfsRealtimeConstantsV2.VERSION);
+    header.setTimestamp(time / 1000);
+    if (getRouteFilterId() != null) {
+      fillFeedMessage(feed, _agencyId, time, FILTER_TYPE.ROUTE_ID, getRouteFilterId());
+    } else {
+      fillFeedMessage(feed, _agencyId, time, FILTER_TYPE.UNFILTERED, null);
+    }
+    return feed;
+  }
+
   protected void setLastModifiedHeader(long feedTimestamp){
     if(feedTimestamp != 0){
       long lastModifiedMills = feedTimestamp * 1000L;
@@ -27,7 +27,10 @@ import com.google.transit.realtime.GtfsRealtime.FeedMessage;
 import com.google.transit.realtime.GtfsRealtime.TripDescriptor;
 import com.google.transit.realtime.GtfsRealtime.TripUpdate;
 import com.google.transit.realtime.GtfsRealtime.VehicleDescriptor;
+import org.onebusaway.transit_data.services.TransitDataBatchService;
+import org.onebusaway.transit_data.services.TransitDataServiceBatch;
 import org.onebusaway.util.AgencyAndIdLibrary;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -36,6 +39,13 @@ public class TripUpdatesForAgencyAction extends GtfsRealtimeActionSupport {
 
   private static final long serialVersionUID = 2L;
 
+  @Autowired(required = false)
+  private TransitDataBatchService _batchService;
+
+  public void setTransitDataBatchService(TransitDataBatchService batchService) {
+    _batchService = batchService;
+  }
+
   @Override
   protected void fillFeedMessage(FeedMessage.Builder feed, String agencyId,
       long timestamp, FILTER_TYPE filterType, String filterValue) {
@@ -43,6 +53,9 @@ public class TripUpdatesForAgencyAction extends GtfsRealtimeActionSupport {
     ListBean<VehicleStatusBean> vehicles = _service.getAllVehiclesForAgency(
         agencyId, timestamp);
 
+    Map<String, TransitDataServiceBatch.Result<TripDetailsBean>> tripDetails = fetchTripDetails(
+        vehicles.getList(), timestamp, filterType, filterValue);
+
     for (VehicleStatusBean vehicle : vehicles.getList()) {
       TripStatusBean tripStatus = vehicle.getTripStatus();
       if (tripStatus == null) {
@@ -60,7 +73,7 @@ public class TripUpdatesForAgencyAction extends GtfsRealtimeActionSupport {
       if (tripStatus.getTimepointPredictions() != null && !tripStatus.getTimepointPredictions().isEmpty()) {
         // use the predictions that we fed to us, not the trivial trip delay propagation
         // also support multiple tripUpdates on the block, not just the active trip
-        tripUpdates.addAll(serveTripUpdatesFromTimepoints(agencyId, tripStatus, feed, timestamp));
+        tripUpdates.addAll(serveTripUpdatesFromTimepoints(agencyId, tripStatus, feed, timestamp, tripDetails));
       } else {
         // we still support legacy trip delay propagation
         tripUpdates.add(serveTripUpdatesFromStatus(agencyId, tripStatus, feed, timestamp));
@@ -151,14 +164,15 @@ public class TripUpdatesForAgencyAction extends GtfsRealtimeActionSupport {
 
   }
 
-  private List<TripUpdate.Builder> serveTripUpdatesFromTimepoints(String agencyId, TripStatusBean tripStatus, FeedMessage.Builder feed, long timestamp) {
+  private List<TripUpdate.Builder> serveTripUpdatesFromTimepoints(String agencyId, TripStatusBean tripStatus, FeedMessage.Builder feed, long timestamp,
+          Map<String, TransitDataServiceBatch.Result<TripDetailsBean>> tripDetails) {
     TripBean activeTrip = tripStatus.getActiveTrip();
     List<TripUpdate.Builder> tripUpdates = new ArrayList<>();
 
     for (String activeTripId : activeTripsIds(tripStatus)) {
 
-      TripStopTimesBean schedule = getScheduleForTrip(activeTripId, tripStatus.getServiceDate(),
-              tripStatus.getVehicleId(), timestamp);
+      TripStopTimesBean schedule = getScheduleForTrip(tripDetails.get(
+              getTripDetailsKey(activeTripId, tripStatus)));
 
       FeedEntity.Builder entity = feed.addEntityBuilder();
       // make the id something meaningful and distinct
@@ -226,13 +240,47 @@ public class TripUpdatesForAgencyAction extends GtfsRealtimeActionSupport {
     return tripUpdates;
   }
 
-  private TripStopTimesBean getScheduleForTrip(String activeTripId, long serviceDate, String vehicleId, long timestamp) {
-    TripDetailsQueryBean query = new TripDetailsQueryBean();
-    query.setTripId(activeTripId);
-    query.setServiceDate(serviceDate);
-    query.setVehicleId(vehicleId);
-    query.setTime(timestamp);
-    TripDetailsBean tripDetails = _service.getSingleTripDetails(query);
+  /**
+   * Fetch the details of every trip we will serve timepoint predictions for in
+   * a single batch, rather than one remote call per trip.
+   */
+  private Map<String, TransitDataServiceBatch.Result<TripDetailsBean>> fetchTripDetails(
+          List<VehicleStatusBean> vehicles, long timestamp, FILTER_TYPE filterType, String filterValue) {
+    TransitDataServiceBatch batch = new TransitDataServiceBatch(_service, _batchService);
+    Map<String, TransitDataServiceBatch.Result<TripDetailsBean>> results = new HashMap<>();
+    for (VehicleStatusBean vehicle : vehicles) {
+      TripStatusBean tripStatus = vehicle.getTripStatus();
+      if (tripStatus == null || tripStatus.getTimepointPredictions() == null
+              || tripStatus.getTimepointPredictions().isEmpty()) {
+        continue;
+      }
+      RouteBean route = tripStatus.getActiveTrip().getRoute();
+      if (FILTER_TYPE.ROUTE_ID == filterType && !filterValue.equals(AgencyAndIdLibrary.convertFromString(route.getId()).getId())) {
+        continue;
+      }
+      for (String activeTripId : activeTripsIds(tripStatus)) {
+        String key = getTripDetailsKey(activeTripId, tripStatus);
+        if (results.containsKey(key)) {
+          continue;
+        }
+        TripDetailsQueryBean query = new TripDetailsQueryBean();
+        query.setTripId(activeTripId);
+        query.setServiceDate(tripStatus.getServiceDate());
+        query.setVehicleId(tripStatus.getVehicleId());
+        query.setTime(timestamp);
+        results.put(key, batch.add(tds -> tds.getSingleTripDetails(query)));
+      }
+    }
+    batch.execute();
+    return results;
+  }
+
+  private String getTripDetailsKey(String tripId, TripStatusBean tripStatus) {
+    return tripId + "_" + tripStatus.getServiceDate() + "_" + tripStatus.getVehicleId();
+  }
+
+  private TripStopTimesBean getScheduleForTrip(TransitDataServiceBatch.Result<TripDetailsBean> result) {
+    TripDetailsBean tripDetails = result == null ? null : result.get();
     TripStopTimesBean schedule = null;
     if (tripDetails != null) {
       schedule = tripDetails.getSchedule();
@@ -15,13 +15,16 @@
  */
 package org.onebusaway.api.actions.api.where;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.struts2.rest.DefaultHttpHeaders;
 import org.onebusaway.api.actions.api.ApiActionSupport;
 import org.onebusaway.api.services.AlarmService;
 import org.onebusaway.exceptions.ServiceException;
+import org.onebusaway.transit_data.services.TransitDataBatchService;
 import org.onebusaway.transit_data.services.TransitDataService;
+import org.onebusaway.transit_data.services.TransitDataServiceBatch;
 import org.springframework.beans.factory.annotation.Autowired;
 
 public class CancelAlarmsAction extends ApiActionSupport {
@@ -33,6 +36,9 @@ public class CancelAlarmsAction extends ApiActionSupport {
   @Autowired
   private TransitDataService _service;
 
+  @Autowired(required = false)
+  private TransitDataBatchService _batchService;
+
   @Autowired
   private AlarmService _alarmService;
 
@@ -52,10 +58,19 @@ public class CancelAlarmsAction extends ApiActionSupport {
       return setValidationErrorsResponse();
 
     if (_ids != null) {
+      TransitDataServiceBatch batch = new TransitDataServiceBatch(_service,
+          _batchService);
+      List<TransitDataServiceBatch.Result<Void>> results = new ArrayList<TransitDataServiceBatch.Result<Void>>();
       for (String id : _ids) {
-        _service.cancelAlarmForArrivalAndDepartureAtStop(id);
+        results.add(batch.add(tds -> {
+          tds.cancelAlarmForArrivalAndDepartureAtStop(id);
+          return null;
+        }));
         _alarmService.cancelAlarm(id);
       }
+      batch.execute();
+      for (TransitDataServiceBatch.Result<Void> result : results)
+        result.get();
     }
 
     if (isVersion(V2)) {
@@ -67,7 +67,10 @@ public class CustomJsonLibHandler extends AbstractContentTypeHandler {
                         value = mapper.writeValueAsString(obj);
                 }
                 if (value != null && callback != null) {
-                        stream.write(callback + "(" + value + ")");
+                        stream.write(callback);
+                        stream.write('(');
+                        stream.write(value);
+                        stream.write(')');
                 }
                 else {
                         stream.write(value);
@@ -19,12 +19,14 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import com.opensymphony.xwork2.ActionInvocation;
 import org.apache.struts2.ServletActionContext;
 import org.apache.struts2.rest.handler.ContentTypeHandler;
 import org.onebusaway.api.model.ResponseBean;
+import org.onebusaway.api.services.GtfsRealtimeFeedSnapshot;
 
 import com.google.protobuf.Message;
 
@@ -44,7 +46,9 @@ public class CustomProtocolBufferHandler implements ContentTypeHandler {
   public String fromObject(Object obj, String resultCode, Writer stream)
       throws IOException {
     ResponseBean response = (ResponseBean) obj;
-    if (response.getData() != null && response.getData() instanceof Message) {
+    if (response.getData() instanceof GtfsRealtimeFeedSnapshot) {
+      writeSnapshot((GtfsRealtimeFeedSnapshot) response.getData());
+    } else if (response.getData() != null && response.getData() instanceof Message) {
       Message message = (Message) response.getData();
       /**
        * Instead of writing to the output Writer, we write directly to the
@@ -69,7 +73,9 @@ public class CustomProtocolBufferHandler implements ContentTypeHandler {
     }
 
     ResponseBean response = (ResponseBean) obj;
-    if (response.getData() != null && response.getData() instanceof Message) {
+    if (response.getData() instanceof GtfsRealtimeFeedSnapshot) {
+      writeSnapshot((GtfsRealtimeFeedSnapshot) response.getData());
+    } else if (response.getData() != null && response.getData() instanceof Message) {
       Message message = (Message) response.getData();
       /**
        * Instead of writing to the output Writer, we write directly to the
@@ -93,4 +99,26 @@ public class CustomProtocolBufferHandler implements ContentTypeHandler {
   public String getExtension() {
     return "pb";
   }
+
+  /**
+   * Snapshots are already serialized, so the bytes (gzipped if the client
+   * accepts it and the snapshot was pre-compressed) are copied straight out.
+   */
+  private void writeSnapshot(GtfsRealtimeFeedSnapshot snapshot)
+      throws IOException {
+    HttpServletResponse res = ServletActionContext.getResponse();
+    if (res == null)
+      return;
+    byte[] bytes = snapshot.getBytes();
+    if (snapshot.isGzipped(getAcceptEncoding(ServletActionContext.getRequest()))) {
+      bytes = snapshot.getGzippedBytes();
+      res.setHeader("Content-Encoding", "gzip");
+    }
+    res.setContentLength(bytes.length);
+    res.getOutputStream().write(bytes);
+  }
+
+  private String getAcceptEncoding(HttpServletRequest req) {
+    return req == null ? null : req.getHeader("Accept-Encoding");
+  }
 }
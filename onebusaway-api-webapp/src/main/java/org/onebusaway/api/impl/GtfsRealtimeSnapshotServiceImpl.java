@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.api.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.onebusaway.api.services.GtfsRealtimeFeedSnapshot;
+import org.onebusaway.api.services.GtfsRealtimeSnapshotService;
+import org.onebusaway.util.SystemTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps one {@link GtfsRealtimeFeedSnapshot} per feed key and rebuilds it at
+ * most once per refresh interval. While a stale snapshot is being rebuilt,
+ * concurrent requests keep being served the previous snapshot rather than
+ * queueing up behind the rebuild; only the very first request for a key
+ * waits.
+ */
+@Component
+public class GtfsRealtimeSnapshotServiceImpl implements
+    GtfsRealtimeSnapshotService {
+
+  private static Logger _log = LoggerFactory.getLogger(GtfsRealtimeSnapshotServiceImpl.class);
+
+  private final ConcurrentMap<String, SnapshotEntry> _entriesByKey = new ConcurrentHashMap<String, SnapshotEntry>();
+
+  private boolean _enabled = true;
+
+  /**
+   * How long, in milliseconds, a snapshot is served before it is rebuilt.
+   * Should roughly match the realtime refresh interval of the TDS.
+   */
+  private long _refreshInterval = 10 * 1000;
+
+  private boolean _gzip = false;
+
+  private final AtomicLong _hitCount = new AtomicLong();
+
+  private final AtomicLong _buildCount = new AtomicLong();
+
+  private volatile long _lastBuildDuration = 0;
+
+  public void setEnabled(boolean enabled) {
+    _enabled = enabled;
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return _enabled;
+  }
+
+  /**
+   * @param refreshInterval in seconds
+   */
+  public void setRefreshInterval(int refreshInterval) {
+    _refreshInterval = refreshInterval * 1000L;
+  }
+
+  /**
+   * @param gzip when true, a gzipped copy of each snapshot is kept so it can be
+   *          served to clients sending "Accept-Encoding: gzip" without
+   *          compressing per request
+   */
+  public void setGzip(boolean gzip) {
+    _gzip = gzip;
+  }
+
+  public long getHitCount() {
+    return _hitCount.get();
+  }
+
+  public long getBuildCount() {
+    return _buildCount.get();
+  }
+
+  public long getLastBuildDuration() {
+    return _lastBuildDuration;
+  }
+
+  @Override
+  public GtfsRealtimeFeedSnapshot getSnapshot(String key, FeedSource source) {
+
+    long now = SystemTime.currentTimeMillis();
+
+    SnapshotEntry entry = _entriesByKey.get(key);
+    if (entry == null) {
+      SnapshotEntry newEntry = new SnapshotEntry();
+      entry = _entriesByKey.putIfAbsent(key, newEntry);
+      if (entry == null)
+        entry = newEntry;
+    }
+
+    GtfsRealtimeFeedSnapshot snapshot = entry.snapshot;
+
+    if (snapshot != null) {
+
+      if (!isStale(snapshot, now) || !entry.refreshing.compareAndSet(false, true)) {
+        _hitCount.incrementAndGet();
+        return snapshot;
+      }
+
+      try {
+        snapshot = build(source, now);
+        entry.snapshot = snapshot;
+      } catch (RuntimeException ex) {
+        _log.error("error rebuilding GTFS-realtime snapshot " + key
+            + ", serving previous snapshot", ex);
+      } finally {
+        entry.refreshing.set(false);
+      }
+      return snapshot;
+    }
+
+    synchronized (entry) {
+      snapshot = entry.snapshot;
+      if (snapshot == null || isStale(snapshot, now)) {
+        snapshot = build(source, now);
+        entry.snapshot = snapshot;
+      } else {
+        _hitCount.incrementAndGet();
+      }
+      return snapshot;
+    }
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private boolean isStale(GtfsRealtimeFeedSnapshot snapshot, long now) {
+    return now - snapshot.getTime() >= _refreshInterval;
+  }
+
+  private GtfsRealtimeFeedSnapshot build(FeedSource source, long now) {
+    long t1 = SystemTime.currentTimeMillis();
+    GtfsRealtimeFeedSnapshot snapshot = new GtfsRealtimeFeedSnapshot(
+        source.build(now), now, _gzip);
+    _lastBuildDuration = SystemTime.currentTimeMillis() - t1;
+    _buildCount.incrementAndGet();
+    return snapshot;
+  }
+
+  private static class SnapshotEntry {
+
+    private volatile GtfsRealtimeFeedSnapshot snapshot;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+  }
+}
@@ -0,0 +1,362 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.api.impl;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.onebusaway.container.cache.CacheableMethodCache;
+import org.onebusaway.container.cache.CacheableMethodCacheFactory;
+import org.onebusaway.container.cache.CacheableMethodStatistics;
+import org.onebusaway.container.cache.CaffeineCacheableMethodCacheFactory;
+import org.onebusaway.container.refresh.Refreshable;
+import org.onebusaway.transit_data.services.TransitDataService;
+import org.onebusaway.transit_data_federation.impl.RefreshableResources;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.FactoryBean;
+
+/**
+ * Wraps a remote {@link TransitDataService}, typically a Hessian proxy, with a
+ * near cache for lookups whose results only change when the transit data
+ * bundle changes, so that in a split deployment they are served locally rather
+ * than fetched over the network for every response.
+ * 
+ * Cached results are keyed by the active bundle id along with the method
+ * arguments. The bundle id is polled from the remote service every
+ * {@link #setBundleCheckInterval(int)} seconds and on every
+ * {@link RefreshableResources#BUNDLE_SWAP} refresh; when it changes, the caches
+ * are cleared. A result loaded while the bundle was changing is stored under
+ * the old bundle id and never served for the new one.
+ * 
+ * Each method has its own cache bounded by {@link #setMaxSize(int)} and its own
+ * {@link CacheableMethodStatistics}, optionally registered with JMX. Methods
+ * not listed in {@link #setCachedMethods(Set)} are passed straight through.
+ * 
+ * Like results cached with @Cacheable on the server side, cached beans are
+ * shared between callers and must not be modified.
+ */
+public class TransitDataServiceNearCacheFactoryBean implements
+    FactoryBean<TransitDataService> {
+
+  private static Logger _log = LoggerFactory.getLogger(TransitDataServiceNearCacheFactoryBean.class);
+
+  private static final Set<String> DEFAULT_CACHED_METHODS = new HashSet<String>(
+      Arrays.asList("getAgenciesWithCoverage", "getAgency",
+          "getRouteForId", "getStop", "getTrip", "getShapeForId",
+          "getStopsForRoute"));
+
+  private TransitDataService _target;
+
+  private CacheableMethodCacheFactory _cacheFactory;
+
+  private Set<String> _cachedMethods = DEFAULT_CACHED_METHODS;
+
+  private int _maxSize = 10000;
+
+  private int _bundleCheckInterval = 60;
+
+  private boolean _registerMBeans = false;
+
+  private final Map<Method, CacheEntry> _entriesByMethod = new HashMap<Method, CacheEntry>();
+
+  private volatile String _bundleId = null;
+
+  private ScheduledExecutorService _executor;
+
+  private TransitDataService _proxy;
+
+  public void setTarget(TransitDataService target) {
+    _target = target;
+  }
+
+  /**
+   * Defaults to a {@link CaffeineCacheableMethodCacheFactory}
+   */
+  public void setCacheFactory(CacheableMethodCacheFactory cacheFactory) {
+    _cacheFactory = cacheFactory;
+  }
+
+  /**
+   * @param cachedMethods names of the {@link TransitDataService} methods to
+   *          cache, all of whose results must depend only on their arguments
+   *          and the bundle
+   */
+  public void setCachedMethods(Set<String> cachedMethods) {
+    _cachedMethods = cachedMethods;
+  }
+
+  /**
+   * @param maxSize the maximum number of results cached per method
+   */
+  public void setMaxSize(int maxSize) {
+    _maxSize = maxSize;
+  }
+
+  /**
+   * @param bundleCheckInterval seconds between checks for a new bundle, or 0
+   *          to only check at startup and on a bundle swap refresh
+   */
+  public void setBundleCheckInterval(int bundleCheckInterval) {
+    _bundleCheckInterval = bundleCheckInterval;
+  }
+
+  /**
+   * Register a {@link CacheableMethodStatistics} with the platform MBean server
+   * for each cached method, named
+   * "org.onebusaway.container.cache:type=CacheableMethod,name=cacheName".
+   */
+  public void setRegisterMBeans(boolean registerMBeans) {
+    _registerMBeans = registerMBeans;
+  }
+
+  @PostConstruct
+  public void start() {
+
+    if (_cacheFactory == null)
+      _cacheFactory = new CaffeineCacheableMethodCacheFactory();
+
+    for (Method method : TransitDataService.class.getMethods()) {
+      if (!_cachedMethods.contains(method.getName()))
+        continue;
+      String name = "nearCache-" + TransitDataService.class.getName() + "."
+          + method.getName();
+      CacheableMethodCache cache = _cacheFactory.createCache(name, _maxSize, 0);
+      CacheableMethodStatistics statistics = new CacheableMethodStatistics(
+          name, cache);
+      if (_registerMBeans)
+        registerMBean(statistics);
+      _entriesByMethod.put(method, new CacheEntry(cache, statistics));
+    }
+
+    // the remote service may not be up yet, so don't block startup on it
+    _executor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "transit-data-near-cache");
+      thread.setDaemon(true);
+      return thread;
+    });
+    if (_bundleCheckInterval > 0)
+      _executor.scheduleWithFixedDelay(this::checkBundle, 0,
+          _bundleCheckInterval, TimeUnit.SECONDS);
+    else
+      _executor.execute(this::checkBundle);
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (_executor != null) {
+      _executor.shutdownNow();
+      _executor = null;
+    }
+  }
+
+  /**
+   * Check the active bundle of the remote service, clearing the caches if it
+   * has changed.
+   */
+  @Refreshable(dependsOn = RefreshableResources.BUNDLE_SWAP)
+  public void checkBundle() {
+    String bundleId;
+    try {
+      bundleId = _target.getActiveBundleId();
+    } catch (Throwable ex) {
+      _log.warn("error checking active bundle id", ex);
+      return;
+    }
+    if (Objects.equals(bundleId, _bundleId))
+      return;
+    _log.info("active bundle changed from {} to {}, clearing near cache",
+        _bundleId, bundleId);
+    _bundleId = bundleId;
+    clear();
+  }
+
+  public void clear() {
+    for (CacheEntry entry : _entriesByMethod.values())
+      entry.getCache().clear();
+  }
+
+  /**
+   * @return statistics for each cached method, by cache name
+   */
+  public Map<String, CacheableMethodStatistics> getStatistics() {
+    Map<String, CacheableMethodStatistics> statistics = new HashMap<String, CacheableMethodStatistics>();
+    for (CacheEntry entry : _entriesByMethod.values())
+      statistics.put(entry.getStatistics().getCacheName(),
+          entry.getStatistics());
+    return Collections.unmodifiableMap(statistics);
+  }
+
+  @Override
+  public synchronized TransitDataService getObject() {
+    if (_proxy == null)
+      _proxy = (TransitDataService) Proxy.newProxyInstance(
+          TransitDataService.class.getClassLoader(),
+          new Class<?>[] {TransitDataService.class}, new NearCacheHandler());
+    return _proxy;
+  }
+
+  @Override
+  public Class<?> getObjectType() {
+    return TransitDataService.class;
+  }
+
+  @Override
+  public boolean isSingleton() {
+    return true;
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private Object invokeTarget(Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(_target, args);
+    } catch (InvocationTargetException ex) {
+      throw ex.getTargetException();
+    }
+  }
+
+  private void registerMBean(CacheableMethodStatistics statistics) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(
+          "org.onebusaway.container.cache:type=CacheableMethod,name="
+              + ObjectName.quote(statistics.getCacheName()));
+      try {
+        server.registerMBean(statistics, name);
+      } catch (InstanceAlreadyExistsException ex) {
+        // left over from a previous application context
+        server.unregisterMBean(name);
+        server.registerMBean(statistics, name);
+      }
+    } catch (Exception ex) {
+      _log.warn("error registering statistics for cache "
+          + statistics.getCacheName(), ex);
+    }
+  }
+
+  /****
+   *
+   ****/
+
+  private class NearCacheHandler implements InvocationHandler {
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+        throws Throwable {
+
+      if (method.getDeclaringClass() == Object.class)
+        return method.invoke(TransitDataServiceNearCacheFactoryBean.this, args);
+
+      CacheEntry entry = _entriesByMethod.get(method);
+      String bundleId = _bundleId;
+
+      // until the bundle is known, results can't be keyed by it
+      if (entry == null || bundleId == null)
+        return invokeTarget(method, args);
+
+      CacheableMethodCache cache = entry.getCache();
+      CacheableMethodStatistics statistics = entry.getStatistics();
+      Key key = new Key(bundleId, args);
+
+      Object value = cache.get(key);
+      if (value != null) {
+        statistics.recordHit();
+        return value == CacheableMethodCache.NULL_VALUE ? null : value;
+      }
+      statistics.recordMiss();
+
+      long start = System.nanoTime();
+      Object retVal = invokeTarget(method, args);
+      statistics.recordLoad(System.nanoTime() - start);
+      cache.put(key, retVal);
+      return retVal;
+    }
+  }
+
+  private static class CacheEntry {
+
+    private final CacheableMethodCache _cache;
+
+    private final CacheableMethodStatistics _statistics;
+
+    public CacheEntry(CacheableMethodCache cache,
+        CacheableMethodStatistics statistics) {
+      _cache = cache;
+      _statistics = statistics;
+    }
+
+    public CacheableMethodCache getCache() {
+      return _cache;
+    }
+
+    public CacheableMethodStatistics getStatistics() {
+      return _statistics;
+    }
+  }
+
+  private static final class Key implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String _bundleId;
+
+    private final Object[] _args;
+
+    public Key(String bundleId, Object[] args) {
+      _bundleId = bundleId;
+      _args = args == null ? new Object[0] : args;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * _bundleId.hashCode() + Arrays.deepHashCode(_args);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Key))
+        return false;
+      Key other = (Key) obj;
+      return _bundleId.equals(other._bundleId)
+          && Arrays.deepEquals(_args, other._args);
+    }
+  }
+}
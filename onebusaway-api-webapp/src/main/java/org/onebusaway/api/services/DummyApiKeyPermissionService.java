@@ -23,5 +23,10 @@ public class DummyApiKeyPermissionService implements ApiKeyPermissionService {
   public Status getPermission(String key, String service) {
     return Status.AUTHORIZED;
   }
+
+  @Override
+  public void invalidateKey(String key) {
+
+  }
   
 }
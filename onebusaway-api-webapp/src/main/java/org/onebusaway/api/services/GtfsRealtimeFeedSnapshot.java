@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.api.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+
+/**
+ * An immutable, pre-serialized GTFS-realtime feed. The serialized bytes (and
+ * optionally a gzipped copy) are computed once when the snapshot is built and
+ * can be written straight to any number of clients.
+ */
+public final class GtfsRealtimeFeedSnapshot {
+
+  private final FeedMessage _feed;
+
+  private final byte[] _bytes;
+
+  private final byte[] _gzippedBytes;
+
+  private final long _time;
+
+  private final String _etag;
+
+  private final String _gzippedETag;
+
+  public GtfsRealtimeFeedSnapshot(FeedMessage feed, long time, boolean gzip) {
+    _feed = feed;
+    _bytes = feed.toByteArray();
+    _gzippedBytes = gzip ? gzip(_bytes) : null;
+    _time = time;
+
+    CRC32 crc = new CRC32();
+    crc.update(_bytes);
+    String tag = Long.toHexString(crc.getValue()) + "-"
+        + Integer.toHexString(_bytes.length);
+    // each encoding is a different representation, so it needs its own tag
+    _etag = "\"" + tag + "\"";
+    _gzippedETag = "\"" + tag + "-gzip\"";
+  }
+
+  public FeedMessage getFeed() {
+    return _feed;
+  }
+
+  public byte[] getBytes() {
+    return _bytes;
+  }
+
+  /**
+   * @return the gzipped serialized feed, or null if the snapshot was not
+   *         pre-compressed
+   */
+  public byte[] getGzippedBytes() {
+    return _gzippedBytes;
+  }
+
+  /**
+   * @return the time, in milliseconds, the snapshot was built
+   */
+  public long getTime() {
+    return _time;
+  }
+
+  public String getETag() {
+    return _etag;
+  }
+
+  /**
+   * @param gzipped whether the gzipped bytes are being sent
+   * @return the entity tag of that representation
+   */
+  public String getETag(boolean gzipped) {
+    return gzipped ? _gzippedETag : _etag;
+  }
+
+  /**
+   * @param acceptEncoding the request's Accept-Encoding header, may be null
+   * @return true if the gzipped bytes should be sent
+   */
+  public boolean isGzipped(String acceptEncoding) {
+    return _gzippedBytes != null && acceptEncoding != null
+        && acceptEncoding.contains("gzip");
+  }
+
+  /**
+   * @param ifNoneMatch the request's If-None-Match header: "*" or a
+   *          comma-separated list of strong or weak (W/) entity tags
+   * @param etag
+   * @return true if the header matches the tag, using the weak comparison
+   *         If-None-Match calls for
+   */
+  public static boolean matchesIfNoneMatch(String ifNoneMatch, String etag) {
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.equals("*"))
+        return true;
+      if (candidate.startsWith("W/"))
+        candidate = candidate.substring(2);
+      if (candidate.equals(etag))
+        return true;
+    }
+    return false;
+  }
+
+  private static byte[] gzip(byte[] bytes) {
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 64);
+      GZIPOutputStream gzip = new GZIPOutputStream(out);
+      gzip.write(bytes);
+      gzip.close();
+      return out.toByteArray();
+    } catch (IOException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
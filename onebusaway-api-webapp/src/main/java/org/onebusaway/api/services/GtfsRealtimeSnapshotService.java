@@ -0,0 +1,39 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.api.services;
+
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+
+/**
+ * Publishes pre-serialized GTFS-realtime feeds so that the many clients polling
+ * the same agency (or agency and route) feed share one build per refresh
+ * interval instead of each rebuilding it from the TransitDataService.
+ */
+public interface GtfsRealtimeSnapshotService {
+
+  public interface FeedSource {
+    public FeedMessage build(long time);
+  }
+
+  public boolean isEnabled();
+
+  /**
+   * @param key uniquely identifies the feed (type, agency, filters)
+   * @param source builds the feed when the current snapshot is missing or stale
+   * @return the current snapshot for the key
+   */
+  public GtfsRealtimeFeedSnapshot getSnapshot(String key, FeedSource source);
+}
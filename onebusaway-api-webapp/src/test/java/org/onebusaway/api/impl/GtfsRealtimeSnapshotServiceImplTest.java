@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.api.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+import org.onebusaway.api.services.GtfsRealtimeFeedSnapshot;
+import org.onebusaway.api.services.GtfsRealtimeSnapshotService.FeedSource;
+
+import com.google.transit.realtime.GtfsRealtime.FeedHeader;
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+
+public class GtfsRealtimeSnapshotServiceImplTest {
+
+  @Test
+  public void testSnapshotIsShared() {
+    GtfsRealtimeSnapshotServiceImpl service = new GtfsRealtimeSnapshotServiceImpl();
+    service.setRefreshInterval(60);
+    CountingSource source = new CountingSource();
+
+    GtfsRealtimeFeedSnapshot a = service.getSnapshot("1", source);
+    GtfsRealtimeFeedSnapshot b = service.getSnapshot("1", source);
+
+    assertSame(a, b);
+    assertEquals(1, source.count.get());
+    assertEquals(1, service.getBuildCount());
+    assertEquals(1, service.getHitCount());
+    assertNull(a.getGzippedBytes());
+    assertArrayEquals(a.getFeed().toByteArray(), a.getBytes());
+
+    service.getSnapshot("2", source);
+    assertEquals(2, source.count.get());
+  }
+
+  @Test
+  public void testStaleSnapshotIsRebuilt() {
+    GtfsRealtimeSnapshotServiceImpl service = new GtfsRealtimeSnapshotServiceImpl();
+    service.setRefreshInterval(0);
+    CountingSource source = new CountingSource();
+
+    service.getSnapshot("1", source);
+    service.getSnapshot("1", source);
+    assertEquals(2, source.count.get());
+  }
+
+  @Test
+  public void testGzip() throws IOException {
+    GtfsRealtimeSnapshotServiceImpl service = new GtfsRealtimeSnapshotServiceImpl();
+    service.setGzip(true);
+
+    GtfsRealtimeFeedSnapshot snapshot = service.getSnapshot("1",
+        new CountingSource());
+    assertNotNull(snapshot.getGzippedBytes());
+
+    GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(
+        snapshot.getGzippedBytes()));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    int n;
+    while ((n = in.read(buffer)) != -1)
+      out.write(buffer, 0, n);
+    assertArrayEquals(snapshot.getBytes(), out.toByteArray());
+
+    assertTrue(snapshot.isGzipped("gzip, deflate"));
+    assertFalse(snapshot.isGzipped("identity"));
+    assertFalse(snapshot.isGzipped(null));
+    assertNotEquals(snapshot.getETag(false), snapshot.getETag(true));
+    assertEquals(snapshot.getETag(), snapshot.getETag(false));
+  }
+
+  @Test
+  public void testMatchesIfNoneMatch() {
+    String etag = "\"abc-10\"";
+    assertTrue(GtfsRealtimeFeedSnapshot.matchesIfNoneMatch(etag, etag));
+    assertTrue(GtfsRealtimeFeedSnapshot.matchesIfNoneMatch("*", etag));
+    assertTrue(GtfsRealtimeFeedSnapshot.matchesIfNoneMatch("W/\"abc-10\"",
+        etag));
+    assertTrue(GtfsRealtimeFeedSnapshot.matchesIfNoneMatch(
+        "\"other\", W/\"abc-10\"", etag));
+    assertFalse(GtfsRealtimeFeedSnapshot.matchesIfNoneMatch(
+        "\"abc-10-gzip\"", etag));
+    assertFalse(GtfsRealtimeFeedSnapshot.matchesIfNoneMatch("\"other\"",
+        etag));
+  }
+
+  private static class CountingSource implements FeedSource {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public FeedMessage build(long time) {
+      count.incrementAndGet();
+      FeedMessage.Builder feed = FeedMessage.newBuilder();
+      FeedHeader.Builder header = feed.getHeaderBuilder();
+      header.setGtfsRealtimeVersion("2.0");
+      header.setTimestamp(time / 1000);
+      return feed.build();
+    }
+  }
+}
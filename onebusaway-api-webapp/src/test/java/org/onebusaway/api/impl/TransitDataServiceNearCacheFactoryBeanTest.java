@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.api.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.onebusaway.container.cache.CacheableMethodStatistics;
+import org.onebusaway.transit_data.model.StopBean;
+import org.onebusaway.transit_data.services.TransitDataService;
+
+public class TransitDataServiceNearCacheFactoryBeanTest {
+
+  private TransitDataService _target;
+
+  private TransitDataServiceNearCacheFactoryBean _factory;
+
+  private TransitDataService _service;
+
+  @Before
+  public void before() {
+    _target = Mockito.mock(TransitDataService.class);
+    Mockito.when(_target.getActiveBundleId()).thenReturn("bundleA");
+
+    _factory = new TransitDataServiceNearCacheFactoryBean();
+    _factory.setTarget(_target);
+    _factory.setBundleCheckInterval(0);
+    _factory.start();
+    _factory.checkBundle();
+    _service = _factory.getObject();
+  }
+
+  @After
+  public void after() {
+    _factory.stop();
+  }
+
+  @Test
+  public void testCachedUntilBundleChange() {
+
+    StopBean stopA = new StopBean();
+    StopBean stopB = new StopBean();
+    Mockito.when(_target.getStop("1_stop")).thenReturn(stopA, stopB);
+
+    assertSame(stopA, _service.getStop("1_stop"));
+    assertSame(stopA, _service.getStop("1_stop"));
+    Mockito.verify(_target, Mockito.times(1)).getStop("1_stop");
+
+    // null results are cached too
+    assertNull(_service.getStop("1_missing"));
+    assertNull(_service.getStop("1_missing"));
+    Mockito.verify(_target, Mockito.times(1)).getStop("1_missing");
+
+    // same bundle, nothing is cleared
+    _factory.checkBundle();
+    assertSame(stopA, _service.getStop("1_stop"));
+
+    Mockito.when(_target.getActiveBundleId()).thenReturn("bundleB");
+    _factory.checkBundle();
+    assertSame(stopB, _service.getStop("1_stop"));
+    Mockito.verify(_target, Mockito.times(2)).getStop("1_stop");
+
+    CacheableMethodStatistics statistics = _factory.getStatistics().get(
+        "nearCache-" + TransitDataService.class.getName() + ".getStop");
+    assertEquals(3, statistics.getHitCount());
+    assertEquals(3, statistics.getMissCount());
+    assertEquals(1, statistics.getSize());
+  }
+
+  @Test
+  public void testUncachedMethod() {
+
+    _service.getActiveBundleId();
+    _service.getActiveBundleId();
+
+    // once from before() and twice here, plus the startup check
+    Mockito.verify(_target, Mockito.atLeast(3)).getActiveBundleId();
+  }
+}
@@ -0,0 +1,295 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl;
+
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.block;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.blockConfiguration;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.dateAsLong;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.lsids;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.serviceIds;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.stop;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.stopTime;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.time;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.trip;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.onebusaway.collections.Range;
+import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.gtfs.model.calendar.ServiceDate;
+import org.onebusaway.realtime.api.TimepointPredictionRecord;
+import org.onebusaway.realtime.api.VehicleLocationRecord;
+import org.onebusaway.transit_data_federation.impl.blocks.BlockStatusServiceImpl;
+import org.onebusaway.transit_data_federation.impl.blocks.ScheduledBlockLocationServiceImpl;
+import org.onebusaway.transit_data_federation.impl.realtime.BlockLocationServiceImpl;
+import org.onebusaway.transit_data_federation.impl.realtime.VehicleLocationRecordCacheImpl;
+import org.onebusaway.transit_data_federation.impl.transit_graph.BlockEntryImpl;
+import org.onebusaway.transit_data_federation.impl.transit_graph.StopEntryImpl;
+import org.onebusaway.transit_data_federation.impl.transit_graph.TripEntryImpl;
+import org.onebusaway.transit_data_federation.model.StopTimeInstance;
+import org.onebusaway.transit_data_federation.model.TargetTime;
+import org.onebusaway.transit_data_federation.services.StopTimeService;
+import org.onebusaway.transit_data_federation.services.blocks.BlockInstance;
+import org.onebusaway.transit_data_federation.services.blocks.ScheduledBlockLocation;
+import org.onebusaway.transit_data_federation.services.realtime.ArrivalAndDepartureInstance;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockConfigurationEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockStopTimeEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures {@link ArrivalAndDepartureServiceImpl} for a single busy stop, the
+ * code path behind every arrivals-and-departures-for-stop call.
+ *
+ * A synthetic bundle is built with {@code UnitTestingSupport}: a set of blocks,
+ * each with a single long trip, all passing through the same target stop.
+ * Each block instance is then loaded with {@link #vehiclesPerBlock}
+ * {@link VehicleLocationRecord} records spread along the trip, each carrying
+ * timepoint predictions for the remainder of the trip, as a GTFS-realtime
+ * TripUpdate feed would.
+ *
+ * Run with "java -jar target/benchmarks.jar ArrivalsAndDeparturesForStop -prof gc"
+ * to report allocation rate alongside throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ArrivalsAndDeparturesForStopBenchmark {
+
+  private static final int BLOCK_COUNT = 20;
+
+  private static final int STOPS_PER_TRIP = 40;
+
+  private static final int TARGET_STOP_INDEX = STOPS_PER_TRIP / 2;
+
+  /**
+   * Seconds between consecutive stops on a trip
+   */
+  private static final int STOP_SPACING = 120;
+
+  /**
+   * Seconds between the start of consecutive blocks
+   */
+  private static final int BLOCK_HEADWAY = 180;
+
+  @Param({"1", "10", "100"})
+  public int vehiclesPerBlock;
+
+  private final long _serviceDate = dateAsLong("2015-07-23 00:00");
+
+  private final long _currentTime = dateAsLong("2015-07-23 13:00");
+
+  private final long _fromTime = dateAsLong("2015-07-23 12:30");
+
+  private final long _toTime = dateAsLong("2015-07-23 14:30");
+
+  private ArrivalAndDepartureServiceImpl _service;
+
+  private StopEntryImpl _targetStop;
+
+  private TargetTime _targetTime;
+
+  @Setup(Level.Trial)
+  public void setup() {
+
+    List<StopEntryImpl> stops = new ArrayList<StopEntryImpl>();
+    for (int i = 0; i < STOPS_PER_TRIP; i++)
+      stops.add(stop("stop" + i, 47.0, -122.0 + i * 0.01));
+    _targetStop = stops.get(TARGET_STOP_INDEX);
+
+    VehicleLocationRecordCacheImpl cache = new VehicleLocationRecordCacheImpl();
+    List<StopTimeInstance> stis = new ArrayList<StopTimeInstance>();
+
+    for (int b = 0; b < BLOCK_COUNT; b++) {
+
+      BlockEntryImpl block = block("block" + b);
+      TripEntryImpl trip = trip("trip" + b, "sA", STOPS_PER_TRIP * 1000);
+
+      int tripStart = time(12, 0) + b * BLOCK_HEADWAY;
+      for (int i = 0; i < STOPS_PER_TRIP; i++) {
+        int t = tripStart + i * STOP_SPACING;
+        stopTime(i, stops.get(i), trip, t, t + 30, i * 1000);
+      }
+
+      BlockConfigurationEntry blockConfig = blockConfiguration(block,
+          serviceIds(lsids("sA"), lsids()), trip);
+      BlockInstance blockInstance = new BlockInstance(blockConfig,
+          _serviceDate);
+
+      BlockStopTimeEntry targetStopTime = blockConfig.getStopTimes().get(
+          TARGET_STOP_INDEX);
+      stis.add(new StopTimeInstance(targetStopTime, blockInstance.getState()));
+
+      for (int v = 0; v < vehiclesPerBlock; v++)
+        addVehicle(cache, blockInstance, b, v);
+    }
+
+    ScheduledBlockLocationServiceImpl scheduledBlockLocationService = new ScheduledBlockLocationServiceImpl();
+
+    BlockLocationServiceImpl blockLocationService = new BlockLocationServiceImpl();
+    blockLocationService.setLocationInterpolation(false);
+    blockLocationService.setVehicleLocationRecordCache(cache);
+    blockLocationService.setScheduledBlockLocationService(scheduledBlockLocationService);
+
+    _service = new ArrivalAndDepartureServiceImpl();
+    _service.setBlockStatusService(new BlockStatusServiceImpl());
+    _service.setStopTimeService(new FixedStopTimeService(_targetStop, stis));
+    _service.setBlockLocationService(blockLocationService);
+
+    _targetTime = new TargetTime(_currentTime, _currentTime);
+  }
+
+  @Benchmark
+  public List<ArrivalAndDepartureInstance> arrivalsAndDeparturesForStop() {
+    return _service.getArrivalsAndDeparturesForStopInTimeRange(_targetStop,
+        _targetTime, _fromTime, _toTime);
+  }
+
+  @Benchmark
+  public List<ArrivalAndDepartureInstance> scheduledArrivalsAndDeparturesForStop() {
+    return _service.getScheduledArrivalsAndDeparturesForStopInTimeRange(
+        _targetStop, _currentTime, _fromTime, _toTime);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder().include(
+        ArrivalsAndDeparturesForStopBenchmark.class.getSimpleName()).addProfiler(
+        GCProfiler.class).build();
+    new Runner(options).run();
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  /**
+   * Places vehicle v of block b somewhere along the trip, running a few
+   * minutes late, with timepoint predictions for every remaining stop.
+   */
+  private void addVehicle(VehicleLocationRecordCacheImpl cache,
+      BlockInstance blockInstance, int b, int v) {
+
+    BlockConfigurationEntry blockConfig = blockInstance.getBlock();
+    List<BlockStopTimeEntry> stopTimes = blockConfig.getStopTimes();
+
+    int position = (v * STOPS_PER_TRIP) / vehiclesPerBlock;
+    int deviation = (v % 5) * 60;
+
+    BlockStopTimeEntry nextStop = stopTimes.get(position);
+
+    List<TimepointPredictionRecord> tprs = new ArrayList<TimepointPredictionRecord>();
+    for (int i = position; i < stopTimes.size(); i++) {
+      BlockStopTimeEntry bst = stopTimes.get(i);
+      TimepointPredictionRecord tpr = new TimepointPredictionRecord();
+      tpr.setTimepointId(bst.getStopTime().getStop().getId());
+      tpr.setTripId(bst.getTrip().getTrip().getId());
+      tpr.setStopSequence(bst.getStopTime().getSequence());
+      tpr.setTimepointScheduledTime(_serviceDate
+          + bst.getStopTime().getArrivalTime() * 1000L);
+      tpr.setTimepointPredictedArrivalTime(_serviceDate
+          + (bst.getStopTime().getArrivalTime() + deviation) * 1000L);
+      tpr.setTimepointPredictedDepartureTime(_serviceDate
+          + (bst.getStopTime().getDepartureTime() + deviation) * 1000L);
+      tprs.add(tpr);
+    }
+
+    VehicleLocationRecord vlr = new VehicleLocationRecord();
+    vlr.setBlockId(blockConfig.getBlock().getId());
+    vlr.setTripId(nextStop.getTrip().getTrip().getId());
+    vlr.setServiceDate(_serviceDate);
+    vlr.setTimeOfRecord(_currentTime);
+    vlr.setScheduleDeviation(deviation);
+    vlr.setTimepointPredictions(tprs);
+    vlr.setVehicleId(new AgencyAndId("1", "vehicle_" + b + "_" + v));
+
+    ScheduledBlockLocation sbl = new ScheduledBlockLocation();
+    sbl.setActiveTrip(nextStop.getTrip());
+    sbl.setClosestStop(nextStop);
+    sbl.setNextStop(nextStop);
+    sbl.setScheduledTime(nextStop.getStopTime().getArrivalTime());
+    sbl.setDistanceAlongBlock(nextStop.getDistanceAlongBlock());
+    sbl.setInService(true);
+
+    cache.addRecord(blockInstance, vlr, sbl, null);
+  }
+
+  /**
+   * Stands in for the bundle-backed {@link StopTimeService}, returning the
+   * same pre-computed stop time instances for the target stop on every call.
+   */
+  private static class FixedStopTimeService implements StopTimeService {
+
+    private final StopEntry _stop;
+
+    private final List<StopTimeInstance> _instances;
+
+    public FixedStopTimeService(StopEntry stop,
+        List<StopTimeInstance> instances) {
+      _stop = stop;
+      _instances = instances;
+    }
+
+    @Override
+    public List<StopTimeInstance> getStopTimeInstancesInTimeRange(
+        AgencyAndId stopId, Date from, Date to) {
+      if (!_stop.getId().equals(stopId))
+        return Collections.emptyList();
+      return _instances;
+    }
+
+    @Override
+    public List<StopTimeInstance> getStopTimeInstancesInTimeRange(
+        StopEntry stopEntry, Date from, Date to,
+        EFrequencyStopTimeBehavior frequencyBehavior) {
+      return getStopTimeInstancesInTimeRange(stopEntry.getId(), from, to);
+    }
+
+    @Override
+    public Range getDepartureForStopAndServiceDate(AgencyAndId stopId,
+        ServiceDate serviceDate) {
+      return null;
+    }
+
+    @Override
+    public List<StopTimeInstance> getNextBlockSequenceDeparturesForStop(
+        StopEntry stop, long time, boolean includePrivateSerivce) {
+      return getStopTimeInstancesInTimeRange(stop.getId(), null, null);
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.siri;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import uk.org.siri.siri.LineRefStructure;
+import uk.org.siri.siri.LocationStructure;
+import uk.org.siri.siri.ServiceDelivery;
+import uk.org.siri.siri.Siri;
+import uk.org.siri.siri.VehicleActivityStructure;
+import uk.org.siri.siri.VehicleActivityStructure.MonitoredVehicleJourney;
+import uk.org.siri.siri.VehicleMonitoringDeliveryStructure;
+import uk.org.siri.siri.VehicleRefStructure;
+
+/**
+ * Compares SIRI VehicleMonitoring serialization through the shared
+ * {@link SiriJsonSerializer} and {@link SiriXmlSerializer} against the
+ * per-request setup they used to do: a freshly configured Jackson mapper, or a
+ * freshly created JAXB marshaller followed by regex clean-up, on every call.
+ *
+ * Run with "java -jar target/benchmarks.jar SiriSerializer -prof gc" to report
+ * allocation rate alongside throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SiriSerializerBenchmark {
+
+  private static final String CALLBACK = "callback";
+
+  @Param({"10", "100", "1000"})
+  public int vehicleCount;
+
+  private Siri _siri;
+
+  private SiriJsonSerializer _jsonSerializer;
+
+  private SiriXmlSerializer _xmlSerializer;
+
+  private JAXBContext _context;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+
+    VehicleMonitoringDeliveryStructure delivery = new VehicleMonitoringDeliveryStructure();
+    Date now = new Date();
+    delivery.setResponseTimestamp(now);
+
+    for (int i = 0; i < vehicleCount; i++) {
+
+      LineRefStructure lineRef = new LineRefStructure();
+      lineRef.setValue("1_route" + (i % 20));
+
+      VehicleRefStructure vehicleRef = new VehicleRefStructure();
+      vehicleRef.setValue("1_vehicle" + i);
+
+      LocationStructure location = new LocationStructure();
+      location.setLatitude(BigDecimal.valueOf(47.6 + i * 0.0001));
+      location.setLongitude(BigDecimal.valueOf(-122.3 - i * 0.0001));
+
+      MonitoredVehicleJourney journey = new MonitoredVehicleJourney();
+      journey.setLineRef(lineRef);
+      journey.setVehicleRef(vehicleRef);
+      journey.setVehicleLocation(location);
+
+      VehicleActivityStructure activity = new VehicleActivityStructure();
+      activity.setRecordedAtTime(now);
+      activity.setMonitoredVehicleJourney(journey);
+      delivery.getVehicleActivity().add(activity);
+    }
+
+    ServiceDelivery serviceDelivery = new ServiceDelivery();
+    serviceDelivery.setResponseTimestamp(now);
+    serviceDelivery.getVehicleMonitoringDelivery().add(delivery);
+
+    _siri = new Siri();
+    _siri.setServiceDelivery(serviceDelivery);
+
+    _jsonSerializer = new SiriJsonSerializer();
+    _xmlSerializer = new SiriXmlSerializer();
+    _context = JAXBContext.newInstance(Siri.class,
+        SiriExtensionWrapper.class, SiriDistanceExtension.class);
+  }
+
+  /**
+   * The previous {@link SiriJsonSerializer#getJson(Siri, String)}: constructing
+   * the serializer configures a new mapper, as every call used to.
+   */
+  @Benchmark
+  public String jsonPerRequestMapper() throws Exception {
+    return new SiriJsonSerializer().getJson(_siri, CALLBACK);
+  }
+
+  @Benchmark
+  public String jsonSharedWriter() throws Exception {
+    return _jsonSerializer.getJson(_siri, CALLBACK);
+  }
+
+  @Benchmark
+  public int jsonStreamed() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+    _jsonSerializer.writeJson(_siri, CALLBACK, out);
+    return out.size();
+  }
+
+  /**
+   * The previous {@link SiriXmlSerializer#getXml(Siri)}.
+   */
+  @Benchmark
+  public String xmlPerRequestMarshaller() throws Exception {
+    Marshaller marshaller = _context.createMarshaller();
+    marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
+    StringWriter output = new StringWriter();
+    marshaller.marshal(_siri, output);
+    String xml = output.toString();
+    xml = xml.replaceAll("<ns5:", "<");
+    xml = xml.replaceAll("</ns5:", "</");
+    xml = xml.replaceAll("xmlns:ns5", "xmlns");
+    xml = xml.replaceAll("<siriExtensionWrapper>", "");
+    xml = xml.replaceAll("</siriExtensionWrapper>", "");
+    return xml;
+  }
+
+  @Benchmark
+  public String xmlPooledMarshaller() throws Exception {
+    return _xmlSerializer.getXml(_siri);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder().include(
+        SiriSerializerBenchmark.class.getSimpleName()).addProfiler(
+        GCProfiler.class).build();
+    new Runner(options).run();
+  }
+}
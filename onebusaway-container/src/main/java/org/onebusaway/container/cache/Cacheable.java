@@ -30,10 +30,12 @@ import java.lang.annotation.Target;
  * handles the actual task of generating a cache key for a particular method
  * call, determining if a cached results exists, and generating a fresh result
  * as needed by completing the underlying method call. EhCache is used as the
- * default caching mechanism. Unless otherwise specified with {@link #name()},
- * each method cache name takes the form of "package.SomeClass.methodName". Use
- * standard EhCache configuration to provide specific cache behavior for a
- * particular cached method call.
+ * default caching mechanism, and can be swapped for another
+ * {@link CacheableMethodCacheFactory} such as
+ * {@link CaffeineCacheableMethodCacheFactory}. Each method cache name takes the
+ * form of "package.SomeClass.methodName". Use {@link #maxSize()} and
+ * {@link #expireAfterWriteSeconds()}, or standard EhCache configuration, to
+ * provide specific cache behavior for a particular cached method call.
  * 
  * The {@link #keyFactory()} method allows an extension mechanism to define a
  * {@link CacheableMethodKeyFactory} that determines how the arguments to a
@@ -56,5 +58,23 @@ public @interface Cacheable {
    */
   Class<? extends CacheableMethodKeyFactory> keyFactory() default CacheableMethodKeyFactory.class;
   
+  /**
+   * @return false if the method's results may not be {@link java.io.Serializable},
+   *         in which case the cache keeps them on the heap only and returns
+   *         them without copying
+   */
   boolean isValueSerializable() default true;
+
+  /**
+   * @return the maximum number of results to cache for this method, or -1 to
+   *         use the cache backend's default
+   */
+  int maxSize() default -1;
+
+  /**
+   * @return the number of seconds a cached result stays valid after it is
+   *         computed, 0 to never expire, or -1 to use the cache backend's
+   *         default
+   */
+  int expireAfterWriteSeconds() default -1;
 }
@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.container.cache;
+
+import java.io.Serializable;
+
+/**
+ * The results cache for a single {@link Cacheable} method, as created by a
+ * {@link CacheableMethodCacheFactory}.
+ * 
+ * A method may legitimately return null, so a cached null result is reported
+ * as {@link #NULL_VALUE} rather than as a cache miss.
+ * 
+ * @see CacheableMethodManager
+ */
+public interface CacheableMethodCache {
+
+  /**
+   * Returned by {@link #get(Serializable)} when a null result is cached
+   */
+  public static final Object NULL_VALUE = NullValue.INSTANCE;
+
+  /**
+   * @param key
+   * @return the cached result, {@link #NULL_VALUE} if a null result is cached,
+   *         or null if nothing is cached for the key
+   */
+  public Object get(Serializable key);
+
+  public void put(Serializable key, Object value);
+
+  /**
+   * @return the number of results currently cached, which may be approximate
+   */
+  public long size();
+
+  public void clear();
+
+  enum NullValue {
+    INSTANCE
+  }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.container.cache;
+
+/**
+ * Creates the backing cache for each {@link Cacheable} method, allowing
+ * {@link CacheableMethodManager} to work against different cache
+ * implementations.
+ * 
+ * @see EhCacheableMethodCacheFactory
+ * @see CaffeineCacheableMethodCacheFactory
+ */
+public interface CacheableMethodCacheFactory {
+
+  /**
+   * @param name the cache name, of the form "package.SomeClass.methodName"
+   * @param maxSize the maximum number of results to cache, or -1 for the
+   *          factory default
+   * @param expireAfterWriteSeconds seconds a result stays valid, 0 to never
+   *          expire, or -1 for the factory default
+   * @return a cache for the method's results
+   */
+  public CacheableMethodCache createCache(String name, int maxSize,
+      int expireAfterWriteSeconds);
+
+  /**
+   * Factories that keep results in memory can ignore valueSerializable, which
+   * is what the default implementation does.
+   * 
+   * @param valueSerializable false if the method's results may not be
+   *          {@link java.io.Serializable}, see
+   *          {@link Cacheable#isValueSerializable()}
+   * @return a cache for the method's results
+   */
+  public default CacheableMethodCache createCache(String name, int maxSize,
+      int expireAfterWriteSeconds, boolean valueSerializable) {
+    return createCache(name, maxSize, expireAfterWriteSeconds);
+  }
+}
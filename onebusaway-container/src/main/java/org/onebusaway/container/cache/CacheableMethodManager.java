@@ -16,16 +16,24 @@
 package org.onebusaway.container.cache;
 
 import java.io.Serializable;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
-import net.sf.ehcache.Element;
 import net.sf.ehcache.ObjectExistsException;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,30 +41,46 @@ import org.slf4j.LoggerFactory;
  * Support class providing functionality for caching the output of arbitrary
  * method calls, using the arguments to the method to generate the cache key.
  * 
- * EhCache is used as the backing cache store.
+ * The backing cache store is provided by a {@link CacheableMethodCacheFactory}.
+ * If none is set, EhCache is used through the configured {@link CacheManager}.
+ * The key factory and cache for each method are resolved on its first call and
+ * looked up by {@link Method} afterwards. Hit, miss and load-time statistics
+ * are kept for every cached method, see {@link #getStatistics()}.
  * 
  * @author bdferris
  * @see Cacheable
  * @see CacheableAnnotationInterceptor
- * @see CacheableMethodKeyFactory
- * @see CacheableMethodKeyFactoryManager
  */
 public class CacheableMethodManager {
 
   private static Logger _log = LoggerFactory.getLogger(CacheableMethodManager.class);
-  
+
   private ConcurrentHashMap<String, CacheEntry> _entries = new ConcurrentHashMap<String, CacheEntry>();
 
+  private ConcurrentHashMap<Method, CacheEntry> _entriesByMethod = new ConcurrentHashMap<Method, CacheEntry>();
+
   private CacheManager _cacheManager;
 
+  private CacheableMethodCacheFactory _cacheFactory;
+
   protected CacheableMethodKeyFactoryManager _cacheableMethodKeyFactoryManager;
 
   private String _cacheNamePrefix;
 
+  private boolean _registerMBeans = false;
+
   public void setCacheManager(CacheManager cacheManager) {
     _cacheManager = cacheManager;
   }
 
+  /**
+   * Override the cache backend. Defaults to EhCache through
+   * {@link #setCacheManager(CacheManager)}.
+   */
+  public void setCacheFactory(CacheableMethodCacheFactory cacheFactory) {
+    _cacheFactory = cacheFactory;
+  }
+
   public void setCacheableMethodKeyFactoryManager(
       CacheableMethodKeyFactoryManager cacheableMethodKeyFactoryManager) {
     _cacheableMethodKeyFactoryManager = cacheableMethodKeyFactoryManager;
@@ -66,26 +90,59 @@ public class CacheableMethodManager {
     _cacheNamePrefix = cacheNamePrefix;
   }
 
+  /**
+   * Register a {@link CacheableMethodStatisticsMXBean} with the platform MBean
+   * server for each cached method, named
+   * "org.onebusaway.container.cache:type=CacheableMethod,name=cacheName".
+   */
+  public void setRegisterMBeans(boolean registerMBeans) {
+    _registerMBeans = registerMBeans;
+  }
+
   public Object evaluate(ProceedingJoinPoint pjp) throws Throwable {
 
     CacheEntry entry = getCache(pjp);
     CacheableMethodKeyFactory keyFactory = entry.getKeyFactory();
-    Cache cache = entry.getCache();
+    CacheableMethodCache cache = entry.getCache();
+    CacheableMethodStatistics statistics = entry.getStatistics();
     CacheKeyInfo keyInfo = keyFactory.createKey(pjp);
     Serializable key = keyInfo.getKey();
 
-    Element element = cache.get(key);
-
-    if (element == null || keyInfo.isCacheRefreshIndicated()) {
-      Object retVal = pjp.proceed();
-      element = new Element(key, retVal);
-      cache.put(element);
+    if (keyInfo.isCacheRefreshIndicated()) {
+      statistics.recordRefresh();
+    } else {
+      Object value = cache.get(key);
+      if (value != null) {
+        statistics.recordHit();
+        return value == CacheableMethodCache.NULL_VALUE ? null : value;
+      }
+      statistics.recordMiss();
     }
 
-    if (entry.isValueSerializable())
-      return element.getValue();
-    else
-      return element.getObjectValue();
+    long start = System.nanoTime();
+    Object retVal = pjp.proceed();
+    statistics.recordLoad(System.nanoTime() - start);
+    cache.put(key, retVal);
+    return retVal;
+  }
+
+  /**
+   * @return statistics for each cached method, by cache name
+   */
+  public Map<String, CacheableMethodStatistics> getStatistics() {
+    Map<String, CacheableMethodStatistics> statistics = new HashMap<String, CacheableMethodStatistics>();
+    for (Map.Entry<String, CacheEntry> entry : _entries.entrySet())
+      statistics.put(entry.getKey(), entry.getValue().getStatistics());
+    return Collections.unmodifiableMap(statistics);
+  }
+
+  /**
+   * Discard every cached result, such as after a bundle change. Caches held in
+   * an EhCache {@link CacheManager} are also cleared by clearing the manager.
+   */
+  public void clearAll() {
+    for (CacheEntry entry : _entries.values())
+      entry.getCache().clear();
   }
 
   /***************************************************************************
@@ -109,6 +166,10 @@ public class CacheableMethodManager {
     return b.toString();
   }
 
+  /**
+   * Subclasses can supply a custom EhCache cache for a method, which is then
+   * used in place of the configured cache backend.
+   */
   protected Cache createCache(ProceedingJoinPoint pjp, String name) {
     return null;
   }
@@ -119,78 +180,108 @@ public class CacheableMethodManager {
 
   private CacheEntry getCache(ProceedingJoinPoint pjp) {
 
+    Signature sig = pjp.getSignature();
+    Method invokedMethod = null;
+    if (sig instanceof MethodSignature) {
+      invokedMethod = ((MethodSignature) sig).getMethod();
+      CacheEntry entry = _entriesByMethod.get(invokedMethod);
+      if (entry != null)
+        return entry;
+    }
+
     String name = getCacheName(pjp);
+    CacheEntry entry = _entries.computeIfAbsent(name,
+        n -> createEntry(pjp, n));
+
+    if (invokedMethod != null)
+      _entriesByMethod.putIfAbsent(invokedMethod, entry);
+
+    return entry;
+  }
 
-    CacheEntry entry = _entries.get(name);
-
-    if (entry == null) {
-      Method method = _cacheableMethodKeyFactoryManager.getMatchingMethodForJoinPoint(pjp);
-      CacheableMethodKeyFactory keyFactory = getKeyFactory(pjp, method);
-      boolean valueSerializable = isValueSerializable(pjp, method);
-      Cache cache = _cacheManager.getCache(name);
-      if (cache == null) {
-        cache = createCache(pjp, name);
-        if (cache == null) {
-          if(!_cacheManager.cacheExists(name))
-            try {
-              _cacheManager.addCache(name);
-            } catch (ObjectExistsException oee) {
-              _log.error("Cache already exists: " + name);
-            }
-          cache = _cacheManager.getCache(name);
-        } else {
-          try {
-            _cacheManager.addCache(cache);
-          } catch (ObjectExistsException oee) {
-            _log.error("Cache already exists: " + name);
-          }
+  private CacheEntry createEntry(ProceedingJoinPoint pjp, String name) {
+
+    Method method = _cacheableMethodKeyFactoryManager.getMatchingMethodForJoinPoint(pjp);
+    CacheableMethodKeyFactory keyFactory = getKeyFactory(pjp, method);
+    Cacheable c = method.getAnnotation(Cacheable.class);
+    int maxSize = c == null ? -1 : c.maxSize();
+    int expireAfterWriteSeconds = c == null ? -1 : c.expireAfterWriteSeconds();
+    boolean valueSerializable = c == null || c.isValueSerializable();
+
+    CacheableMethodCache cache = null;
+    Cache ehcache = createCache(pjp, name);
+    if (ehcache != null) {
+      if (_cacheManager != null) {
+        try {
+          _cacheManager.addCache(ehcache);
+        } catch (ObjectExistsException oee) {
+          _log.error("Cache already exists: " + name);
         }
       }
-      synchronized (_entries) {
-    	  entry = new CacheEntry(keyFactory, valueSerializable, cache);
-    	  if (_entries.containsKey(name)) {
-    		  // another thread beat us here, discard
-    		  _log.warn("concurrent attempt to create cache = " + name);
-    	  } else {
-    		  _entries.put(name, entry);
-    	  }
-      }
+      cache = EhCacheableMethodCacheFactory.wrap(ehcache, valueSerializable);
+    } else {
+      cache = getCacheFactory().createCache(name, maxSize,
+          expireAfterWriteSeconds, valueSerializable);
     }
-    return _entries.get(name);
+
+    CacheableMethodStatistics statistics = new CacheableMethodStatistics(name,
+        cache);
+    if (_registerMBeans)
+      registerMBean(statistics);
+
+    return new CacheEntry(keyFactory, cache, statistics);
   }
 
-  private boolean isValueSerializable(ProceedingJoinPoint pjp, Method method) {
-    Cacheable c = method.getAnnotation(Cacheable.class);
-    if (c == null)
-      return true;
-    return c.isValueSerializable();
+  private CacheableMethodCacheFactory getCacheFactory() {
+    if (_cacheFactory == null)
+      _cacheFactory = new EhCacheableMethodCacheFactory(_cacheManager);
+    return _cacheFactory;
+  }
+
+  private void registerMBean(CacheableMethodStatistics statistics) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(
+          "org.onebusaway.container.cache:type=CacheableMethod,name="
+              + ObjectName.quote(statistics.getCacheName()));
+      try {
+        server.registerMBean(statistics, name);
+      } catch (InstanceAlreadyExistsException ex) {
+        // left over from a previous application context
+        server.unregisterMBean(name);
+        server.registerMBean(statistics, name);
+      }
+    } catch (Exception ex) {
+      _log.warn("error registering statistics for cache "
+          + statistics.getCacheName(), ex);
+    }
   }
 
   private static class CacheEntry {
 
-    private CacheableMethodKeyFactory _keyFactory;
+    private final CacheableMethodKeyFactory _keyFactory;
 
-    private boolean _valueSerializable;
+    private final CacheableMethodCache _cache;
 
-    private Cache _cache;
+    private final CacheableMethodStatistics _statistics;
 
     public CacheEntry(CacheableMethodKeyFactory keyFactory,
-        boolean valueSerializable, Cache cache) {
+        CacheableMethodCache cache, CacheableMethodStatistics statistics) {
       _keyFactory = keyFactory;
-      _valueSerializable = valueSerializable;
       _cache = cache;
+      _statistics = statistics;
     }
 
     public CacheableMethodKeyFactory getKeyFactory() {
       return _keyFactory;
     }
 
-    public boolean isValueSerializable() {
-      return _valueSerializable;
+    public CacheableMethodCache getCache() {
+      return _cache;
     }
 
-    public Cache getCache() {
-      return _cache;
+    public CacheableMethodStatistics getStatistics() {
+      return _statistics;
     }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.container.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit, miss and load-time counters for a single {@link Cacheable} method, kept
+ * by {@link CacheableMethodManager} independently of the cache backend.
+ */
+public class CacheableMethodStatistics implements
+    CacheableMethodStatisticsMXBean {
+
+  private final String _cacheName;
+
+  private final CacheableMethodCache _cache;
+
+  private final LongAdder _hits = new LongAdder();
+
+  private final LongAdder _misses = new LongAdder();
+
+  private final LongAdder _refreshes = new LongAdder();
+
+  private final LongAdder _loads = new LongAdder();
+
+  private final LongAdder _loadTimeNanos = new LongAdder();
+
+  public CacheableMethodStatistics(String cacheName, CacheableMethodCache cache) {
+    _cacheName = cacheName;
+    _cache = cache;
+  }
+
+  public void recordHit() {
+    _hits.increment();
+  }
+
+  public void recordMiss() {
+    _misses.increment();
+  }
+
+  public void recordRefresh() {
+    _refreshes.increment();
+  }
+
+  public void recordLoad(long loadTimeNanos) {
+    _loads.increment();
+    _loadTimeNanos.add(loadTimeNanos);
+  }
+
+  @Override
+  public String getCacheName() {
+    return _cacheName;
+  }
+
+  @Override
+  public long getHitCount() {
+    return _hits.sum();
+  }
+
+  @Override
+  public long getMissCount() {
+    return _misses.sum();
+  }
+
+  @Override
+  public long getRefreshCount() {
+    return _refreshes.sum();
+  }
+
+  @Override
+  public double getHitRatio() {
+    long hits = _hits.sum();
+    long total = hits + _misses.sum() + _refreshes.sum();
+    return total == 0 ? 0.0 : (double) hits / total;
+  }
+
+  @Override
+  public long getLoadCount() {
+    return _loads.sum();
+  }
+
+  @Override
+  public double getAverageLoadTimeMillis() {
+    long loads = _loads.sum();
+    return loads == 0 ? 0.0 : _loadTimeNanos.sum() / (loads * 1e6);
+  }
+
+  @Override
+  public long getSize() {
+    return _cache.size();
+  }
+
+  @Override
+  public void reset() {
+    _hits.reset();
+    _misses.reset();
+    _refreshes.reset();
+    _loads.reset();
+    _loadTimeNanos.reset();
+  }
+
+  @Override
+  public String toString() {
+    return "CacheableMethodStatistics(" + _cacheName + " hits=" + getHitCount()
+        + " misses=" + getMissCount() + " refreshes=" + getRefreshCount()
+        + " avgLoadMillis=" + getAverageLoadTimeMillis() + ")";
+  }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.container.cache;
+
+/**
+ * JMX view of the statistics for a single {@link Cacheable} method.
+ * 
+ * @see CacheableMethodStatistics
+ */
+public interface CacheableMethodStatisticsMXBean {
+
+  public String getCacheName();
+
+  public long getHitCount();
+
+  public long getMissCount();
+
+  /**
+   * @return calls that skipped the cache because the arguments asked for a
+   *         refresh
+   */
+  public long getRefreshCount();
+
+  public double getHitRatio();
+
+  /**
+   * @return the number of times the underlying method was invoked
+   */
+  public long getLoadCount();
+
+  public double getAverageLoadTimeMillis();
+
+  public long getSize();
+
+  public void reset();
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.container.cache;
+
+import java.io.Serializable;
+import java.time.Duration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Backs each {@link Cacheable} method with an in-process Caffeine cache.
+ * Caffeine evicts with W-TinyLFU, which keeps frequently requested results
+ * through bursts of one-off lookups that would flush an LRU cache of the same
+ * size.
+ * 
+ * Methods without their own {@link Cacheable#maxSize()} or
+ * {@link Cacheable#expireAfterWriteSeconds()} get the defaults configured
+ * here.
+ */
+public class CaffeineCacheableMethodCacheFactory implements
+    CacheableMethodCacheFactory {
+
+  private int _defaultMaxSize = 10000;
+
+  private int _defaultExpireAfterWriteSeconds = 0;
+
+  public void setDefaultMaxSize(int defaultMaxSize) {
+    _defaultMaxSize = defaultMaxSize;
+  }
+
+  /**
+   * @param defaultExpireAfterWriteSeconds seconds a result stays valid, or 0
+   *          to never expire
+   */
+  public void setDefaultExpireAfterWriteSeconds(
+      int defaultExpireAfterWriteSeconds) {
+    _defaultExpireAfterWriteSeconds = defaultExpireAfterWriteSeconds;
+  }
+
+  @Override
+  public CacheableMethodCache createCache(String name, int maxSize,
+      int expireAfterWriteSeconds) {
+
+    if (maxSize < 0)
+      maxSize = _defaultMaxSize;
+    if (expireAfterWriteSeconds < 0)
+      expireAfterWriteSeconds = _defaultExpireAfterWriteSeconds;
+
+    Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(
+        maxSize);
+    if (expireAfterWriteSeconds > 0)
+      builder.expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds));
+
+    return new CacheImpl(builder.build());
+  }
+
+  private static class CacheImpl implements CacheableMethodCache {
+
+    private final Cache<Serializable, Object> _cache;
+
+    public CacheImpl(Cache<Serializable, Object> cache) {
+      _cache = cache;
+    }
+
+    @Override
+    public Object get(Serializable key) {
+      return _cache.getIfPresent(key);
+    }
+
+    @Override
+    public void put(Serializable key, Object value) {
+      _cache.put(key, value == null ? NULL_VALUE : value);
+    }
+
+    @Override
+    public long size() {
+      return _cache.estimatedSize();
+    }
+
+    @Override
+    public void clear() {
+      _cache.invalidateAll();
+    }
+  }
+}
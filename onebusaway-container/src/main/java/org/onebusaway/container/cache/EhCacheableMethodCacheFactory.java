@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.container.cache;
+
+import java.io.Serializable;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.ObjectExistsException;
+import net.sf.ehcache.config.CacheConfiguration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Backs each {@link Cacheable} method with an EhCache {@link Cache} from a
+ * {@link CacheManager}. A cache already registered under the method's cache
+ * name is used as is; otherwise one is created from the manager's default
+ * cache configuration, adjusted by the method's {@link Cacheable#maxSize()}
+ * and {@link Cacheable#expireAfterWriteSeconds()}. Caches for methods with
+ * {@link Cacheable#isValueSerializable()} set to false never overflow to disk
+ * or copy their values, since neither works without serialization.
+ * 
+ * This is the default backend for {@link CacheableMethodManager}.
+ */
+public class EhCacheableMethodCacheFactory implements
+    CacheableMethodCacheFactory {
+
+  private static Logger _log = LoggerFactory.getLogger(EhCacheableMethodCacheFactory.class);
+
+  private CacheManager _cacheManager;
+
+  public EhCacheableMethodCacheFactory() {
+
+  }
+
+  public EhCacheableMethodCacheFactory(CacheManager cacheManager) {
+    _cacheManager = cacheManager;
+  }
+
+  public void setCacheManager(CacheManager cacheManager) {
+    _cacheManager = cacheManager;
+  }
+
+  public CacheManager getCacheManager() {
+    return _cacheManager;
+  }
+
+  @Override
+  public CacheableMethodCache createCache(String name, int maxSize,
+      int expireAfterWriteSeconds) {
+    return createCache(name, maxSize, expireAfterWriteSeconds, true);
+  }
+
+  @Override
+  public CacheableMethodCache createCache(String name, int maxSize,
+      int expireAfterWriteSeconds, boolean valueSerializable) {
+
+    Cache cache = _cacheManager.getCache(name);
+
+    if (cache == null) {
+      try {
+        if (maxSize < 0 && expireAfterWriteSeconds < 0 && valueSerializable) {
+          _cacheManager.addCache(name);
+        } else {
+          CacheConfiguration config = _cacheManager.getConfiguration().getDefaultCacheConfiguration().clone();
+          config.setName(name);
+          if (!valueSerializable) {
+            config.setOverflowToDisk(false);
+            config.setDiskPersistent(false);
+            config.setCopyOnRead(false);
+            config.setCopyOnWrite(false);
+          }
+          if (maxSize >= 0)
+            config.setMaxEntriesLocalHeap(maxSize);
+          if (expireAfterWriteSeconds == 0) {
+            config.setEternal(true);
+          } else if (expireAfterWriteSeconds > 0) {
+            config.setEternal(false);
+            config.setTimeToLiveSeconds(expireAfterWriteSeconds);
+          }
+          _cacheManager.addCache(new Cache(config));
+        }
+      } catch (ObjectExistsException oee) {
+        _log.error("Cache already exists: " + name);
+      }
+      cache = _cacheManager.getCache(name);
+    } else if (!valueSerializable
+        && cache.getCacheConfiguration().isOverflowToDisk()) {
+      _log.warn("cache " + name
+          + " overflows to disk but its values are not serializable");
+    }
+
+    return wrap(cache, valueSerializable);
+  }
+
+  /**
+   * @param cache an EhCache cache
+   * @return the cache as a {@link CacheableMethodCache}
+   */
+  public static CacheableMethodCache wrap(Cache cache) {
+    return wrap(cache, true);
+  }
+
+  /**
+   * @param cache an EhCache cache
+   * @param valueSerializable if true, reading a value that is not
+   *          {@link Serializable} fails
+   * @return the cache as a {@link CacheableMethodCache}
+   */
+  public static CacheableMethodCache wrap(Cache cache,
+      boolean valueSerializable) {
+    return new CacheImpl(cache, valueSerializable);
+  }
+
+  private static class CacheImpl implements CacheableMethodCache {
+
+    private final Cache _cache;
+
+    private final boolean _valueSerializable;
+
+    public CacheImpl(Cache cache, boolean valueSerializable) {
+      _cache = cache;
+      _valueSerializable = valueSerializable;
+    }
+
+    @Override
+    public Object get(Serializable key) {
+      Element element = _cache.get(key);
+      if (element == null)
+        return null;
+      Object value = _valueSerializable ? element.getValue()
+          : element.getObjectValue();
+      return value == null ? NULL_VALUE : value;
+    }
+
+    @Override
+    public void put(Serializable key, Object value) {
+      _cache.put(new Element(key, value));
+    }
+
+    @Override
+    public long size() {
+      return _cache.getSize();
+    }
+
+    @Override
+    public void clear() {
+      _cache.removeAll();
+    }
+  }
+}
@@ -16,10 +16,14 @@
 package org.onebusaway.container.cache;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 
 import java.lang.reflect.Method;
 
 import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.junit.Test;
@@ -64,5 +68,71 @@ public class CacheableMethodManagerTest {
 
     assertEquals("test", value);
     assertEquals(2, impl.getEvalauteBeanWithParameterAnnotationCount());
+
+    CacheableMethodStatistics statistics = manager.getStatistics().values().iterator().next();
+    assertEquals(1, statistics.getHitCount());
+    assertEquals(1, statistics.getMissCount());
+    assertEquals(1, statistics.getRefreshCount());
+    assertEquals(2, statistics.getLoadCount());
+  }
+
+  @Test
+  public void testCaffeine() throws Throwable {
+
+    CaffeineCacheableMethodCacheFactory cacheFactory = new CaffeineCacheableMethodCacheFactory();
+
+    CacheableMethodManager manager = new CacheableMethodManager();
+    manager.setCacheableMethodKeyFactoryManager(new CacheableMethodKeyFactoryManager());
+    manager.setCacheFactory(cacheFactory);
+
+    MockServiceImpl impl = new MockServiceImpl();
+    Method method = MockServiceImpl.class.getMethod(
+        "evalauteBeanWithParameterAnnotation", MockBean.class, Boolean.TYPE);
+
+    MockBean bean = new MockBean();
+    bean.setId("id");
+
+    ProceedingJoinPoint pjp = ProceedingJoinPointFactory.create(impl, impl,
+        MockService.class, method, bean, false);
+
+    assertEquals("test", manager.evaluate(pjp));
+    assertEquals("test", manager.evaluate(pjp));
+    assertEquals(1, impl.getEvalauteBeanWithParameterAnnotationCount());
+
+    CacheableMethodStatistics statistics = manager.getStatistics().values().iterator().next();
+    assertEquals(1, statistics.getSize());
+    assertEquals(0.5, statistics.getHitRatio(), 0.0);
+
+    manager.clearAll();
+    assertEquals(0, statistics.getSize());
+    assertEquals("test", manager.evaluate(pjp));
+    assertEquals(2, impl.getEvalauteBeanWithParameterAnnotationCount());
+  }
+
+  @Test
+  public void testEhCacheValueNotSerializable() {
+
+    // copying values serializes them, which fails for this one
+    Configuration configuration = new Configuration().name(
+        "testEhCacheValueNotSerializable").defaultCache(
+        new CacheConfiguration().maxEntriesLocalHeap(50).eternal(true).copyOnRead(
+            true).copyOnWrite(true));
+    CacheManager cacheManager = new CacheManager(configuration);
+    EhCacheableMethodCacheFactory cacheFactory = new EhCacheableMethodCacheFactory(
+        cacheManager);
+
+    CacheableMethodCache cache = cacheFactory.createCache("nonSerializable",
+        -1, -1, false);
+
+    Object value = new Object();
+    cache.put("key", value);
+    assertSame(value, cache.get("key"));
+
+    CacheConfiguration config = cacheManager.getCache("nonSerializable").getCacheConfiguration();
+    assertFalse(config.isCopyOnRead());
+    assertFalse(config.isCopyOnWrite());
+    assertFalse(config.isOverflowToDisk());
+
+    cacheManager.shutdown();
   }
 }
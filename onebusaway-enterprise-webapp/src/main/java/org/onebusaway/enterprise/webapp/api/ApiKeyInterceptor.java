@@ -15,6 +15,7 @@
  */
 package org.onebusaway.enterprise.webapp.api;
 
+import java.io.IOException;
 import java.util.Date;
 
 import javax.servlet.http.HttpServletRequest;
@@ -73,7 +74,7 @@ public class ApiKeyInterceptor extends AbstractInterceptor {
                 : "API key is not authorized or rate exceeded.")));
         HttpServletResponse servletResponse = ServletActionContext.getResponse();
         servletResponse.setStatus(allowed);
-        servletResponse.getWriter().write(serializeResponse(servletResponse));
+        writeResponse(servletResponse);
       } catch (Exception e) {
         _log.error(e.getMessage());
         e.printStackTrace();
@@ -157,18 +158,21 @@ public class ApiKeyInterceptor extends AbstractInterceptor {
     return siri;
   }
 
-  public String serializeResponse(HttpServletResponse servletResponse) {
+  public void writeResponse(HttpServletResponse servletResponse)
+      throws IOException {
     try {
       if (_type.equals("xml")) {
         servletResponse.setContentType("application/xml");
-        return _realtimeService.getSiriXmlSerializer().getXml(_response);
+        _realtimeService.getSiriXmlSerializer().writeXml(_response,
+            servletResponse.getWriter());
       } else {
         servletResponse.setContentType("application/json");
-        return _realtimeService.getSiriJsonSerializer().getJson(_response,
-            ServletActionContext.getRequest().getParameter("callback"));
+        _realtimeService.getSiriJsonSerializer().writeJson(_response,
+            ServletActionContext.getRequest().getParameter("callback"),
+            servletResponse.getWriter());
       }
     } catch (Exception e) {
-      return e.getMessage();
+      servletResponse.getWriter().write(e.getMessage());
     }
 
   }
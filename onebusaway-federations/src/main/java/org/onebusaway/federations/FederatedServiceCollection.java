@@ -56,6 +56,13 @@ public interface FederatedServiceCollection {
   public abstract FederatedService getServiceForBounds(double lat1,
       double lon1, double lat2, double lon2) throws ServiceAreaServiceException;
 
+  /**
+   * @return every service whose coverage intersects the bounds, which may be
+   *         empty
+   */
+  public abstract Set<FederatedService> getServicesForBounds(double lat1,
+      double lon1, double lat2, double lon2);
+
   public abstract FederatedService getServiceForLocation(double lat, double lon)
       throws ServiceAreaServiceException;
 
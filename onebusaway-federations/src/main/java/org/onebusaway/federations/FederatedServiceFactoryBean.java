@@ -22,6 +22,7 @@ import java.util.Map;
 
 import org.onebusaway.federations.annotations.FederatedServiceMethodInvocationHandler;
 import org.onebusaway.federations.annotations.FederatedServiceMethodInvocationHandlerFactory;
+import org.onebusaway.federations.annotations.FederatedServiceScatterGather;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.config.AbstractFactoryBean;
 
@@ -49,6 +50,8 @@ public class FederatedServiceFactoryBean extends AbstractFactoryBean<Object> {
 
   private FederatedServiceCollection _collection;
 
+  private FederatedServiceScatterGather _scatterGather;
+
   public void setServiceInterface(Class<?> serviceInterface) {
     _serviceInterface = serviceInterface;
   }
@@ -57,6 +60,15 @@ public class FederatedServiceFactoryBean extends AbstractFactoryBean<Object> {
     _collection = collection;
   }
 
+  /**
+   * @param scatterGather controls the thread pool, timeouts and partial
+   *          results of methods dispatched to more than one service. If not
+   *          set, a shared default instance is used.
+   */
+  public void setScatterGather(FederatedServiceScatterGather scatterGather) {
+    _scatterGather = scatterGather;
+  }
+
   @Override
   public Class<?> getObjectType() {
     return _serviceInterface;
@@ -85,9 +97,14 @@ public class FederatedServiceFactoryBean extends AbstractFactoryBean<Object> {
   }
 
   private Map<Method, FederatedServiceMethodInvocationHandler> getMethodHandlers() {
+    FederatedServiceMethodInvocationHandlerFactory handlerFactory = _handlerFactory;
+    if (_scatterGather != null) {
+      handlerFactory = new FederatedServiceMethodInvocationHandlerFactory();
+      handlerFactory.setScatterGather(_scatterGather);
+    }
     Map<Method, FederatedServiceMethodInvocationHandler> handlers = new HashMap<Method, FederatedServiceMethodInvocationHandler>();
     for (Method method : _serviceInterface.getDeclaredMethods()) {
-      FederatedServiceMethodInvocationHandler handler = _handlerFactory.getHandlerForMethod(method);
+      FederatedServiceMethodInvocationHandler handler = handlerFactory.getHandlerForMethod(method);
       handlers.put(method, handler);
     }
     return handlers;
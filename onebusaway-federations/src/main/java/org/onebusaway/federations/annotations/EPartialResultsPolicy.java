@@ -0,0 +1,35 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.federations.annotations;
+
+/**
+ * Controls what a {@link FederatedServiceScatterGather} does when some of the
+ * services a method call is dispatched to fail or time out.
+ */
+public enum EPartialResultsPolicy {
+
+  /**
+   * The whole call fails with the first failure
+   */
+  FAIL,
+
+  /**
+   * Results from the services that did respond are aggregated, and failed
+   * services are logged and skipped. The call still fails if no service
+   * responded.
+   */
+  PARTIAL
+}
@@ -23,12 +23,14 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Provides a {@link FederatedServiceMethodInvocationHandler} implementation for
- * the {@link FederatedByAggregateMethod} annotation.
+ * the {@link FederatedByAggregateMethod} annotation. The method is invoked on
+ * all services concurrently through a {@link FederatedServiceScatterGather}.
  * 
  * @author bdferris
  */
@@ -36,8 +38,16 @@ class FederatedByAggregateMethodInvocationHandlerImpl implements FederatedServic
 
   private EMethodAggregationType _aggregationType;
 
+  private FederatedServiceScatterGather _scatterGather;
+
   public FederatedByAggregateMethodInvocationHandlerImpl(EMethodAggregationType aggregationType) {
+    this(aggregationType, FederatedServiceScatterGather.getDefaultInstance());
+  }
+
+  public FederatedByAggregateMethodInvocationHandlerImpl(EMethodAggregationType aggregationType,
+      FederatedServiceScatterGather scatterGather) {
     _aggregationType = aggregationType;
+    _scatterGather = scatterGather;
   }
   
   public EMethodAggregationType getAggregationType() {
@@ -47,26 +57,28 @@ class FederatedByAggregateMethodInvocationHandlerImpl implements FederatedServic
   public Object invoke(FederatedServiceCollection collection, Method method, Object[] args)
       throws ServiceAreaServiceException, IllegalArgumentException, IllegalAccessException, InvocationTargetException {
 
-    List<Object> results = new ArrayList<Object>();
+    Map<FederatedService, Object[]> argsByService = new LinkedHashMap<FederatedService, Object[]>();
 
     for (FederatedService service : collection.getAllServices())
-      results.add(method.invoke(service, args));
+      argsByService.put(service, args);
+
+    List<Object> results = _scatterGather.invoke(method, argsByService);
 
-    return aggregateResults(results);
+    return aggregateResults(_aggregationType, results);
   }
 
-  private Object aggregateResults(List<Object> results) {
-    switch (_aggregationType) {
+  static Object aggregateResults(EMethodAggregationType aggregationType, List<Object> results) {
+    switch (aggregationType) {
       case LIST:
         return aggregateResultsAsList(results);
       case MAP:
         return aggregateResultsAsMap(results);
       default:
-        throw new IllegalStateException("unknown aggregation type: " + _aggregationType);
+        throw new IllegalStateException("unknown aggregation type: " + aggregationType);
     }
   }
 
-  private Object aggregateResultsAsList(List<Object> results) {
+  private static Object aggregateResultsAsList(List<Object> results) {
     List<Object> asList = new ArrayList<Object>();
     for (Object result : results) {
       List<?> values = (List<?>) result;
@@ -75,7 +87,7 @@ class FederatedByAggregateMethodInvocationHandlerImpl implements FederatedServic
     return asList;
   }
 
-  private Object aggregateResultsAsMap(List<Object> results) {
+  private static Object aggregateResultsAsMap(List<Object> results) {
     Map<Object, Object> asMap = new HashMap<Object, Object>();
     for (Object result : results) {
       Map<?, ?> values = (Map<?, ?>) result;
@@ -15,17 +15,27 @@
  */
 package org.onebusaway.federations.annotations;
 
+import org.onebusaway.exceptions.OutOfServiceAreaServiceException;
 import org.onebusaway.exceptions.ServiceAreaServiceException;
 import org.onebusaway.federations.FederatedService;
 import org.onebusaway.federations.FederatedServiceCollection;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Provides a {@link FederatedServiceMethodInvocationHandler} implementation for
  * the {@link FederatedByBoundsMethod} annotation.
  * 
+ * If the bounds span more than one service and the method returns a
+ * {@link List} or {@link Map}, every service in the bounds is called
+ * concurrently and the results are aggregated. Otherwise, the bounds must fall
+ * within a single service.
+ * 
  * @author bdferris
  */
 class FederatedByBoundsMethodInvocationHandlerImpl implements FederatedServiceMethodInvocationHandler {
@@ -38,12 +48,28 @@ class FederatedByBoundsMethodInvocationHandlerImpl implements FederatedServiceMe
 
   private int _lon2ArgumentIndex;
 
+  private EMethodAggregationType _aggregationType;
+
+  private FederatedServiceScatterGather _scatterGather;
+
   public FederatedByBoundsMethodInvocationHandlerImpl(int lat1ArgumentIndex, int lon1ArgumentIndex,
       int lat2ArgumentIndex, int lon2ArgumentIndex) {
+    this(lat1ArgumentIndex, lon1ArgumentIndex, lat2ArgumentIndex, lon2ArgumentIndex, null, null);
+  }
+
+  /**
+   * @param aggregationType how to aggregate results across services, or null
+   *          if the method's results can't be aggregated
+   */
+  public FederatedByBoundsMethodInvocationHandlerImpl(int lat1ArgumentIndex, int lon1ArgumentIndex,
+      int lat2ArgumentIndex, int lon2ArgumentIndex, EMethodAggregationType aggregationType,
+      FederatedServiceScatterGather scatterGather) {
     _lat1ArgumentIndex = lat1ArgumentIndex;
     _lon1ArgumentIndex = lon1ArgumentIndex;
     _lat2ArgumentIndex = lat2ArgumentIndex;
     _lon2ArgumentIndex = lon2ArgumentIndex;
+    _aggregationType = aggregationType;
+    _scatterGather = scatterGather;
   }
 
   public int getLat1ArgumentIndex() {
@@ -70,8 +96,25 @@ class FederatedByBoundsMethodInvocationHandlerImpl implements FederatedServiceMe
     double lat2 = arg(args, _lat2ArgumentIndex);
     double lon2 = arg(args, _lon2ArgumentIndex);
 
-    FederatedService service = collection.getServiceForBounds(lat1, lon1, lat2, lon2);
-    return method.invoke(service, args);
+    if (_aggregationType == null) {
+      FederatedService service = collection.getServiceForBounds(lat1, lon1, lat2, lon2);
+      return method.invoke(service, args);
+    }
+
+    Set<FederatedService> services = collection.getServicesForBounds(lat1, lon1, lat2, lon2);
+
+    if (services.isEmpty())
+      throw new OutOfServiceAreaServiceException();
+
+    if (services.size() == 1)
+      return method.invoke(services.iterator().next(), args);
+
+    Map<FederatedService, Object[]> argsByService = new LinkedHashMap<FederatedService, Object[]>();
+    for (FederatedService service : services)
+      argsByService.put(service, args);
+
+    List<Object> results = _scatterGather.invoke(method, argsByService);
+    return FederatedByAggregateMethodInvocationHandlerImpl.aggregateResults(_aggregationType, results);
   }
 
   private static final double arg(Object[] args, int index) {
@@ -15,19 +15,31 @@
  */
 package org.onebusaway.federations.annotations;
 
+import org.onebusaway.exceptions.OutOfServiceAreaServiceException;
 import org.onebusaway.exceptions.ServiceException;
 import org.onebusaway.federations.FederatedService;
 import org.onebusaway.federations.FederatedServiceCollection;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Provides a {@link FederatedServiceMethodInvocationHandler} implementation for
  * the {@link FederatedByEntityIdsMethod} annotation.
  * 
+ * If the entity ids belong to more than one service and the method returns a
+ * {@link List} or {@link Map}, each service is called concurrently with just
+ * its own entity ids and the results are aggregated. Otherwise, all the entity
+ * ids must belong to a single service.
+ * 
  * @author bdferris
  */
 class FederatedByEntityIdsMethodInvocationHandlerImpl implements
@@ -35,8 +47,26 @@ class FederatedByEntityIdsMethodInvocationHandlerImpl implements
 
   private int _argumentIndex;
 
+  private EMethodAggregationType _aggregationType;
+
+  private FederatedServiceScatterGather _scatterGather;
+
   public FederatedByEntityIdsMethodInvocationHandlerImpl(int argumentIndex) {
+    this(argumentIndex, null, null);
+  }
+
+  /**
+   * @param argumentIndex
+   * @param aggregationType how to aggregate results across services, or null
+   *          if the method's results can't be aggregated
+   * @param scatterGather
+   */
+  public FederatedByEntityIdsMethodInvocationHandlerImpl(int argumentIndex,
+      EMethodAggregationType aggregationType,
+      FederatedServiceScatterGather scatterGather) {
     _argumentIndex = argumentIndex;
+    _aggregationType = aggregationType;
+    _scatterGather = scatterGather;
   }
 
   public int getArgumentIndex() {
@@ -49,6 +79,10 @@ class FederatedByEntityIdsMethodInvocationHandlerImpl implements
       IllegalAccessException, InvocationTargetException {
 
     Iterable<String> entityIds = (Iterable<String>) args[_argumentIndex];
+
+    if (_aggregationType != null)
+      return invokeByService(collection, method, args, entityIds);
+
     Set<String> agencyIds = new HashSet<String>();
     for (String entityId : entityIds)
       agencyIds.add(AgencyIdSupport.getAgencyIdFromEntityId(entityId));
@@ -56,4 +90,48 @@ class FederatedByEntityIdsMethodInvocationHandlerImpl implements
     return method.invoke(service, args);
   }
 
+  private Object invokeByService(FederatedServiceCollection collection,
+      Method method, Object[] args, Iterable<String> entityIds)
+      throws ServiceException, IllegalAccessException,
+      InvocationTargetException {
+
+    Map<FederatedService, List<String>> entityIdsByService = new LinkedHashMap<FederatedService, List<String>>();
+    for (String entityId : entityIds) {
+      String agencyId = AgencyIdSupport.getAgencyIdFromEntityId(entityId);
+      FederatedService service = collection.getServiceForAgencyId(agencyId);
+      List<String> ids = entityIdsByService.get(service);
+      if (ids == null) {
+        ids = new ArrayList<String>();
+        entityIdsByService.put(service, ids);
+      }
+      ids.add(entityId);
+    }
+
+    if (entityIdsByService.isEmpty())
+      throw new OutOfServiceAreaServiceException();
+
+    if (entityIdsByService.size() == 1) {
+      FederatedService service = entityIdsByService.keySet().iterator().next();
+      return method.invoke(service, args);
+    }
+
+    Class<?> argumentType = method.getParameterTypes()[_argumentIndex];
+
+    Map<FederatedService, Object[]> argsByService = new LinkedHashMap<FederatedService, Object[]>();
+    for (Map.Entry<FederatedService, List<String>> entry : entityIdsByService.entrySet()) {
+      Collection<String> ids = Set.class.isAssignableFrom(argumentType)
+          ? new LinkedHashSet<String>(entry.getValue()) : entry.getValue();
+      if (!argumentType.isInstance(ids))
+        throw new IllegalArgumentException("cannot split entity ids of type "
+            + argumentType.getName() + " across services for method " + method);
+      Object[] serviceArgs = args.clone();
+      serviceArgs[_argumentIndex] = ids;
+      argsByService.put(entry.getKey(), serviceArgs);
+    }
+
+    List<Object> results = _scatterGather.invoke(method, argsByService);
+    return FederatedByAggregateMethodInvocationHandlerImpl.aggregateResults(
+        _aggregationType, results);
+  }
+
 }
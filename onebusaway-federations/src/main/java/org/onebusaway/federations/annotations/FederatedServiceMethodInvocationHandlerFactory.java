@@ -39,6 +39,16 @@ import org.onebusaway.exceptions.ServiceException;
  */
 public class FederatedServiceMethodInvocationHandlerFactory {
 
+  private FederatedServiceScatterGather _scatterGather = FederatedServiceScatterGather.getDefaultInstance();
+
+  /**
+   * @param scatterGather used by handlers that dispatch a single call to more
+   *          than one service
+   */
+  public void setScatterGather(FederatedServiceScatterGather scatterGather) {
+    _scatterGather = scatterGather;
+  }
+
   public FederatedServiceMethodInvocationHandler getHandlerForMethod(
       Method method) {
 
@@ -61,13 +71,15 @@ public class FederatedServiceMethodInvocationHandlerFactory {
     FederatedByEntityIdsMethod ann1 = method.getAnnotation(FederatedByEntityIdsMethod.class);
     if (ann1 != null)
       return new FederatedByEntityIdsMethodInvocationHandlerImpl(
-          ann1.argument());
+          ann1.argument(), getAggregationTypeForMethodIfSupported(method),
+          _scatterGather);
 
     FederatedByBoundsMethod ann2 = method.getAnnotation(FederatedByBoundsMethod.class);
     if (ann2 != null)
       return new FederatedByBoundsMethodInvocationHandlerImpl(
           ann2.lat1Argument(), ann2.lon1Argument(), ann2.lat2Argument(),
-          ann2.lon2Argument());
+          ann2.lon2Argument(), getAggregationTypeForMethodIfSupported(method),
+          _scatterGather);
 
     FederatedByLocationMethod ann3 = method.getAnnotation(FederatedByLocationMethod.class);
     if (ann3 != null)
@@ -78,7 +90,7 @@ public class FederatedServiceMethodInvocationHandlerFactory {
     if (ann4 != null) {
       EMethodAggregationType aggregationType = getAggregationTypeForMethod(method);
       return new FederatedByAggregateMethodInvocationHandlerImpl(
-          aggregationType);
+          aggregationType, _scatterGather);
     }
 
     FederatedByCoordinateBoundsMethod ann5 = method.getAnnotation(FederatedByCoordinateBoundsMethod.class);
@@ -113,13 +125,21 @@ public class FederatedServiceMethodInvocationHandlerFactory {
   }
 
   private EMethodAggregationType getAggregationTypeForMethod(Method method) {
+    EMethodAggregationType aggregationType = getAggregationTypeForMethodIfSupported(method);
+    if (aggregationType == null)
+      throw new IllegalArgumentException("unsupported aggregation type: "
+          + method.getReturnType().getName());
+    return aggregationType;
+  }
+
+  private EMethodAggregationType getAggregationTypeForMethodIfSupported(
+      Method method) {
     Class<?> returnType = method.getReturnType();
     if (List.class.isAssignableFrom(returnType))
       return EMethodAggregationType.LIST;
     if (Map.class.isAssignableFrom(returnType))
       return EMethodAggregationType.MAP;
-    throw new IllegalArgumentException("unsupported aggregation type: "
-        + returnType.getName());
+    return null;
   }
 
 }
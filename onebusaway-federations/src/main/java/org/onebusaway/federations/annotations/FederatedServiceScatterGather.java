@@ -0,0 +1,403 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.federations.annotations;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.PreDestroy;
+
+import org.onebusaway.exceptions.ServiceException;
+import org.onebusaway.federations.FederatedService;
+import org.onebusaway.federations.FederatedServiceFactoryBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Dispatches a method call to several {@link FederatedService} instances at
+ * once, so that the latency of the call is that of the slowest service rather
+ * than the sum of all of them. Calls run on a bounded thread pool; when the
+ * pool and its queue are full, the calling thread runs the call itself. A call
+ * to a single service always runs on the calling thread.
+ *
+ * Each service gets the same timeout, measured from the start of the call.
+ * What happens when a service fails or times out is controlled by the
+ * {@link EPartialResultsPolicy}. The latency of every call is recorded in a
+ * {@link LatencyHistogram} per service, and a summary of each is exported over
+ * JMX when the instance is a Spring bean.
+ *
+ * An instance can be shared by several {@link FederatedServiceFactoryBean}
+ * proxies.
+ */
+@ManagedResource("org.onebusaway.federations.annotations:name=FederatedServiceScatterGather")
+public class FederatedServiceScatterGather {
+
+  private static Logger _log = LoggerFactory.getLogger(FederatedServiceScatterGather.class);
+
+  private static final FederatedServiceScatterGather _defaultInstance = new FederatedServiceScatterGather();
+
+  private int _threadPoolSize = 16;
+
+  private int _queueSize = 256;
+
+  private long _timeout = 10 * 1000;
+
+  private EPartialResultsPolicy _partialResultsPolicy = EPartialResultsPolicy.FAIL;
+
+  private volatile ThreadPoolExecutor _executor;
+
+  private final ConcurrentMap<FederatedService, LatencyHistogram> _latencyByService = new ConcurrentHashMap<FederatedService, LatencyHistogram>();
+
+  /**
+   * @return the instance used by handlers that weren't given one explicitly
+   */
+  public static FederatedServiceScatterGather getDefaultInstance() {
+    return _defaultInstance;
+  }
+
+  public void setThreadPoolSize(int threadPoolSize) {
+    _threadPoolSize = threadPoolSize;
+  }
+
+  public void setQueueSize(int queueSize) {
+    _queueSize = queueSize;
+  }
+
+  /**
+   * @param timeout how long to wait for each service, in ms, or zero to wait
+   *          indefinitely. Defaults to ten seconds.
+   */
+  @ManagedAttribute
+  public void setTimeout(long timeout) {
+    _timeout = timeout;
+  }
+
+  @ManagedAttribute
+  public long getTimeout() {
+    return _timeout;
+  }
+
+  public void setPartialResultsPolicy(EPartialResultsPolicy partialResultsPolicy) {
+    _partialResultsPolicy = partialResultsPolicy;
+  }
+
+  @PreDestroy
+  public synchronized void stop() {
+    if (_executor != null) {
+      _executor.shutdownNow();
+      _executor = null;
+    }
+  }
+
+  /**
+   * @return the latency histogram of every service called so far
+   */
+  public Map<FederatedService, LatencyHistogram> getLatencyHistograms() {
+    return Collections.unmodifiableMap(_latencyByService);
+  }
+
+  /**
+   * @return a one-line summary of the latency histogram of every service
+   *         called so far, keyed by service
+   */
+  @ManagedAttribute
+  public Map<String, String> getLatencySummaries() {
+    Map<String, String> summaries = new TreeMap<String, String>();
+    for (Map.Entry<FederatedService, LatencyHistogram> entry : _latencyByService.entrySet())
+      summaries.put(entry.getKey().toString(), entry.getValue().toString());
+    return summaries;
+  }
+
+  @ManagedOperation
+  public void resetLatencyHistograms() {
+    _latencyByService.clear();
+  }
+
+  /**
+   * Invoke the method on each service with its own arguments.
+   *
+   * @param method
+   * @param argsByService the arguments to invoke the method with, keyed by
+   *          service
+   * @return the results of the services that responded, in the iteration order
+   *         of argsByService
+   */
+  public List<Object> invoke(Method method,
+      Map<FederatedService, Object[]> argsByService)
+      throws IllegalAccessException, InvocationTargetException {
+
+    if (argsByService.size() == 1) {
+      Map.Entry<FederatedService, Object[]> entry = argsByService.entrySet().iterator().next();
+      return Collections.singletonList(invokeAndRecordLatency(method,
+          entry.getKey(), entry.getValue()));
+    }
+
+    long startTime = System.currentTimeMillis();
+    ThreadPoolExecutor executor = getExecutor();
+
+    List<FederatedService> services = new ArrayList<FederatedService>();
+    List<Future<Object>> futures = new ArrayList<Future<Object>>();
+
+    for (Map.Entry<FederatedService, Object[]> entry : argsByService.entrySet()) {
+      FederatedService service = entry.getKey();
+      Object[] args = entry.getValue();
+      services.add(service);
+      futures.add(executor.submit(() -> invokeAndRecordLatency(method,
+          service, args)));
+    }
+
+    List<Object> results = new ArrayList<Object>();
+    Throwable firstFailure = null;
+
+    for (int i = 0; i < futures.size(); i++) {
+
+      FederatedService service = services.get(i);
+      Future<Object> future = futures.get(i);
+
+      try {
+        results.add(getResult(future, startTime));
+      } catch (TimeoutException ex) {
+        future.cancel(true);
+        getLatencyHistogram(service).addTimeout();
+        ServiceException timeout = new ServiceException("call to "
+            + method.getName() + " on federated service " + service
+            + " timed out after " + _timeout + " ms");
+        firstFailure = handleFailure(service, method, timeout, firstFailure,
+            futures);
+      } catch (ExecutionException ex) {
+        firstFailure = handleFailure(service, method, ex.getCause(),
+            firstFailure, futures);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        cancelAll(futures);
+        throw new ServiceException("interrupted calling federated services",
+            ex);
+      }
+    }
+
+    if (results.isEmpty() && firstFailure != null)
+      rethrow(firstFailure);
+
+    return results;
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private Object invokeAndRecordLatency(Method method,
+      FederatedService service, Object[] args) throws IllegalAccessException,
+      InvocationTargetException {
+    long t = System.nanoTime();
+    try {
+      return method.invoke(service, args);
+    } finally {
+      long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t);
+      getLatencyHistogram(service).addLatency(latency);
+    }
+  }
+
+  private Object getResult(Future<Object> future, long startTime)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    if (_timeout <= 0)
+      return future.get();
+    long remaining = startTime + _timeout - System.currentTimeMillis();
+    return future.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @return the first failure seen so far
+   */
+  private Throwable handleFailure(FederatedService service, Method method,
+      Throwable failure, Throwable firstFailure, List<Future<Object>> futures)
+      throws IllegalAccessException, InvocationTargetException {
+
+    if (_partialResultsPolicy == EPartialResultsPolicy.FAIL) {
+      cancelAll(futures);
+      rethrow(failure);
+    }
+
+    _log.warn("call to " + method.getName() + " on federated service "
+        + service + " failed, returning partial results", failure);
+
+    return firstFailure != null ? firstFailure : failure;
+  }
+
+  private void cancelAll(List<Future<Object>> futures) {
+    for (Future<Object> future : futures)
+      future.cancel(true);
+  }
+
+  private void rethrow(Throwable failure) throws IllegalAccessException,
+      InvocationTargetException {
+    if (failure instanceof InvocationTargetException)
+      throw (InvocationTargetException) failure;
+    if (failure instanceof IllegalAccessException)
+      throw (IllegalAccessException) failure;
+    if (failure instanceof RuntimeException)
+      throw (RuntimeException) failure;
+    if (failure instanceof Error)
+      throw (Error) failure;
+    throw new ServiceException(failure);
+  }
+
+  private LatencyHistogram getLatencyHistogram(FederatedService service) {
+    LatencyHistogram histogram = _latencyByService.get(service);
+    if (histogram == null) {
+      histogram = new LatencyHistogram();
+      LatencyHistogram existing = _latencyByService.putIfAbsent(service,
+          histogram);
+      if (existing != null)
+        histogram = existing;
+    }
+    return histogram;
+  }
+
+  private ThreadPoolExecutor getExecutor() {
+    ThreadPoolExecutor executor = _executor;
+    if (executor != null)
+      return executor;
+    synchronized (this) {
+      if (_executor == null) {
+        _executor = new ThreadPoolExecutor(_threadPoolSize, _threadPoolSize,
+            60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(_queueSize),
+            new DaemonThreadFactory(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        _executor.allowCoreThreadTimeOut(true);
+      }
+      return _executor;
+    }
+  }
+
+  /****
+   *
+   ****/
+
+  /**
+   * Counts of call latencies in power-of-two millisecond buckets: bucket 0
+   * holds calls under 1 ms, bucket i holds calls from 2^(i-1) up to 2^i ms, and
+   * the last bucket holds everything longer.
+   */
+  public static class LatencyHistogram {
+
+    private static final int BUCKETS = 18;
+
+    private final AtomicLongArray _counts = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong _total = new AtomicLong();
+
+    private final AtomicLong _max = new AtomicLong();
+
+    private final AtomicLong _timeouts = new AtomicLong();
+
+    public void addLatency(long latency) {
+      int bucket = latency <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(latency);
+      _counts.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+      _total.addAndGet(latency);
+      _max.accumulateAndGet(latency, Math::max);
+    }
+
+    public void addTimeout() {
+      _timeouts.incrementAndGet();
+    }
+
+    public long getCount() {
+      long count = 0;
+      for (int i = 0; i < BUCKETS; i++)
+        count += _counts.get(i);
+      return count;
+    }
+
+    public long getTimeoutCount() {
+      return _timeouts.get();
+    }
+
+    public double getMean() {
+      long count = getCount();
+      return count == 0 ? 0 : (double) _total.get() / count;
+    }
+
+    public long getMax() {
+      return _max.get();
+    }
+
+    /**
+     * @param percentile between 0 and 1
+     * @return the upper bound, in ms, of the bucket containing the percentile,
+     *         or the max latency for the last bucket
+     */
+    public long getPercentile(double percentile) {
+      long count = getCount();
+      if (count == 0)
+        return 0;
+      long rank = (long) Math.ceil(percentile * count);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS - 1; i++) {
+        seen += _counts.get(i);
+        if (seen >= rank)
+          return 1L << i;
+      }
+      return getMax();
+    }
+
+    public long[] getBucketCounts() {
+      long[] counts = new long[BUCKETS];
+      for (int i = 0; i < BUCKETS; i++)
+        counts[i] = _counts.get(i);
+      return counts;
+    }
+
+    @Override
+    public String toString() {
+      return "LatencyHistogram(count=" + getCount() + " mean=" + getMean()
+          + " p50=" + getPercentile(0.5) + " p99=" + getPercentile(0.99)
+          + " max=" + getMax() + " timeouts=" + getTimeoutCount() + ")";
+    }
+  }
+
+  private static class DaemonThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger _index = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "federated-service-"
+          + _index.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
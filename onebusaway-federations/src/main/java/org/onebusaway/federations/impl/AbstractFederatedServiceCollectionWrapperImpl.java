@@ -62,6 +62,12 @@ public abstract class AbstractFederatedServiceCollectionWrapperImpl implements
     return getCollection().getServiceForBounds(lat1, lon1, lat2, lon2);
   }
 
+  @Override
+  public Set<FederatedService> getServicesForBounds(double lat1, double lon1,
+      double lat2, double lon2) {
+    return getCollection().getServicesForBounds(lat1, lon1, lat2, lon2);
+  }
+
   @Override
   public FederatedService getServiceForLocation(double lat, double lon)
       throws ServiceAreaServiceException {
@@ -139,6 +139,13 @@ public class FederatedServiceCollectionImpl implements
     return getProviderForRectangle(rectangle);
   }
 
+  @Override
+  public Set<FederatedService> getServicesForBounds(double lat1, double lon1,
+      double lat2, double lon2) {
+    Envelope rectangle = new Envelope(lon1, lon2, lat1, lat2);
+    return getProvidersForRectangle(rectangle);
+  }
+
   @Override
   public FederatedService getServiceForLocation(double lat, double lon)
       throws ServiceAreaServiceException {
@@ -175,11 +182,14 @@ public class FederatedServiceCollectionImpl implements
 
   private FederatedService getProviderForRectangle(Envelope env)
       throws ServiceAreaServiceException {
+    return getProviderFromProviders(getProvidersForRectangle(env));
+  }
+
+  private Set<FederatedService> getProvidersForRectangle(Envelope env) {
     ProviderCollector collector = new ProviderCollector();
     if (_tree.size() != 0)
       _tree.query(env, collector);
-    Set<FederatedService> providers = collector.getProviders();
-    return getProviderFromProviders(providers);
+    return collector.getProviders();
   }
 
   private FederatedService getProviderFromProviders(
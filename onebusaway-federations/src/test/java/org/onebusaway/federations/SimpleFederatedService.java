@@ -51,6 +51,9 @@ public interface SimpleFederatedService extends FederatedService {
   @FederatedByEntityIdsMethod(argument=1)
   public String getValueForValueAndIds(String value, Set<String> entityId);
   
+  @FederatedByEntityIdsMethod
+  public List<String> getValuesForIds(Set<String> entityIds);
+  
   @FederatedByBoundsMethod
   public String getValueForBounds(double lat1, double lon1, double lat2, double lon2);
   
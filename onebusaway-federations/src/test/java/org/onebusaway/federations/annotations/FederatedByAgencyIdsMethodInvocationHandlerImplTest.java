@@ -15,6 +15,8 @@
  */
 package org.onebusaway.federations.annotations;
 
+import static org.junit.Assert.assertEquals;
+
 import org.onebusaway.federations.FederatedServiceCollection;
 import org.onebusaway.federations.SimpleFederatedService;
 import org.onebusaway.federations.impl.FederatedServiceCollectionImpl;
@@ -23,7 +25,10 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class FederatedByAgencyIdsMethodInvocationHandlerImplTest {
@@ -71,4 +76,39 @@ public class FederatedByAgencyIdsMethodInvocationHandlerImplTest {
 
     Mockito.verify(mockService).getValueForValueAndIds("value",ids);
   }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testSplitAcrossServices() throws Exception {
+
+    Set<String> idsA = new HashSet<String>(Arrays.asList("agencyA_1", "agencyA_2"));
+    Set<String> idsB = Collections.singleton("agencyB_1");
+
+    Set<String> ids = new HashSet<String>();
+    ids.addAll(idsA);
+    ids.addAll(idsB);
+
+    SimpleFederatedService mockServiceA = Mockito.mock(SimpleFederatedService.class);
+    Mockito.when(mockServiceA.getValuesForIds(idsA)).thenReturn(Arrays.asList("a1", "a2"));
+
+    SimpleFederatedService mockServiceB = Mockito.mock(SimpleFederatedService.class);
+    Mockito.when(mockServiceB.getValuesForIds(idsB)).thenReturn(Arrays.asList("b1"));
+
+    FederatedServiceCollection mockCollection = Mockito.mock(FederatedServiceCollectionImpl.class);
+    Mockito.when(mockCollection.getServiceForAgencyId("agencyA")).thenReturn(mockServiceA);
+    Mockito.when(mockCollection.getServiceForAgencyId("agencyB")).thenReturn(mockServiceB);
+
+    Method method = SimpleFederatedService.class.getDeclaredMethod("getValuesForIds", Set.class);
+    Object[] args = {ids};
+
+    FederatedServiceMethodInvocationHandler handler = new FederatedByEntityIdsMethodInvocationHandlerImpl(
+        0, EMethodAggregationType.LIST, new FederatedServiceScatterGather());
+    List<String> results = (List<String>) handler.invoke(mockCollection, method, args);
+
+    Mockito.verify(mockServiceA).getValuesForIds(idsA);
+    Mockito.verify(mockServiceB).getValuesForIds(idsB);
+
+    Collections.sort(results);
+    assertEquals(Arrays.asList("a1", "a2", "b1"), results);
+  }
 }
@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.federations.annotations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.onebusaway.exceptions.ServiceException;
+import org.onebusaway.federations.FederatedService;
+import org.onebusaway.federations.SimpleFederatedService;
+
+public class FederatedServiceScatterGatherTest {
+
+  private FederatedServiceScatterGather _scatterGather;
+
+  private Method _method;
+
+  private SimpleFederatedService _serviceA;
+
+  private SimpleFederatedService _serviceB;
+
+  @Before
+  public void before() throws Exception {
+    _scatterGather = new FederatedServiceScatterGather();
+    _method = SimpleFederatedService.class.getDeclaredMethod("getValuesAsList");
+    _serviceA = Mockito.mock(SimpleFederatedService.class);
+    _serviceB = Mockito.mock(SimpleFederatedService.class);
+  }
+
+  @After
+  public void after() {
+    _scatterGather.stop();
+  }
+
+  @Test
+  public void testConcurrent() throws Exception {
+
+    Mockito.when(_serviceA.getValuesAsList()).thenAnswer(invocation -> {
+      Thread.sleep(300);
+      return Arrays.asList("a");
+    });
+    Mockito.when(_serviceB.getValuesAsList()).thenAnswer(invocation -> {
+      Thread.sleep(300);
+      return Arrays.asList("b");
+    });
+
+    long t = System.currentTimeMillis();
+    List<Object> results = _scatterGather.invoke(_method, args());
+    long elapsed = System.currentTimeMillis() - t;
+
+    // results come back in service order
+    assertEquals(Arrays.asList(Arrays.asList("a"), Arrays.asList("b")),
+        results);
+    assertTrue("elapsed=" + elapsed, elapsed < 550);
+
+    Map<FederatedService, FederatedServiceScatterGather.LatencyHistogram> histograms = _scatterGather.getLatencyHistograms();
+    assertEquals(1, histograms.get(_serviceA).getCount());
+    assertTrue(histograms.get(_serviceA).getMax() >= 300);
+    assertEquals(512, histograms.get(_serviceB).getPercentile(0.5));
+
+    // one summary per service, as exported over JMX
+    Map<String, String> summaries = _scatterGather.getLatencySummaries();
+    assertEquals(2, summaries.size());
+    assertEquals(histograms.get(_serviceA).toString(),
+        summaries.get(_serviceA.toString()));
+  }
+
+  @Test
+  public void testDefaultTimeoutIsFinite() {
+    assertTrue(_scatterGather.getTimeout() > 0);
+  }
+
+  @Test
+  public void testTimeoutWithPartialResults() throws Exception {
+
+    _scatterGather.setTimeout(100);
+    _scatterGather.setPartialResultsPolicy(EPartialResultsPolicy.PARTIAL);
+
+    Mockito.when(_serviceA.getValuesAsList()).thenReturn(Arrays.asList("a"));
+    Mockito.when(_serviceB.getValuesAsList()).thenAnswer(invocation -> {
+      Thread.sleep(2000);
+      return Arrays.asList("b");
+    });
+
+    List<Object> results = _scatterGather.invoke(_method, args());
+    assertEquals(Arrays.asList(Arrays.asList("a")), results);
+    assertEquals(1,
+        _scatterGather.getLatencyHistograms().get(_serviceB).getTimeoutCount());
+  }
+
+  @Test
+  public void testTimeoutWithFailure() throws Exception {
+
+    _scatterGather.setTimeout(100);
+
+    Mockito.when(_serviceA.getValuesAsList()).thenReturn(Arrays.asList("a"));
+    Mockito.when(_serviceB.getValuesAsList()).thenAnswer(invocation -> {
+      Thread.sleep(2000);
+      return Arrays.asList("b");
+    });
+
+    try {
+      _scatterGather.invoke(_method, args());
+      fail();
+    } catch (ServiceException ex) {
+
+    }
+  }
+
+  @Test
+  public void testFailure() throws Exception {
+
+    Mockito.when(_serviceA.getValuesAsList()).thenReturn(Arrays.asList("a"));
+    Mockito.when(_serviceB.getValuesAsList()).thenThrow(
+        new IllegalStateException("b"));
+
+    try {
+      _scatterGather.invoke(_method, args());
+      fail();
+    } catch (InvocationTargetException ex) {
+      assertEquals("b", ex.getTargetException().getMessage());
+    }
+
+    _scatterGather.setPartialResultsPolicy(EPartialResultsPolicy.PARTIAL);
+    List<Object> results = _scatterGather.invoke(_method, args());
+    assertEquals(Arrays.asList(Arrays.asList("a")), results);
+  }
+
+  private Map<FederatedService, Object[]> args() {
+    Map<FederatedService, Object[]> argsByService = new LinkedHashMap<FederatedService, Object[]>();
+    argsByService.put(_serviceA, new Object[] {});
+    argsByService.put(_serviceB, new Object[] {});
+    return argsByService;
+  }
+}
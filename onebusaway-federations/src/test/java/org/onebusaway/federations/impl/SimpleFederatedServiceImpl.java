@@ -71,6 +71,11 @@ public class SimpleFederatedServiceImpl implements SimpleFederatedService {
     return _value;
   }
 
+  @Override
+  public List<String> getValuesForIds(Set<String> entityIds) {
+    return Arrays.asList(_value);
+  }
+
   @Override
   public String getValueForLocation(double lat, double lon) {
     return _value;
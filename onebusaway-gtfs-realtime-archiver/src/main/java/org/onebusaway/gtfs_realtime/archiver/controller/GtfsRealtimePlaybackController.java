@@ -15,7 +15,9 @@
  */
 package org.onebusaway.gtfs_realtime.archiver.controller;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -23,6 +25,7 @@ import java.util.Date;
 import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.onebusaway.gtfs_realtime.archiver.service.GtfsRealtimeArchive;
 import org.onebusaway.gtfs_realtime.archiver.service.GtfsRealtimeRetriever;
 import org.onebusaway.gtfs_realtime.archiver.service.GtfsRealtimeRetriever.EntityType;
 import org.onebusaway.gtfs_realtime.archiver.service.TimeService;
@@ -42,9 +45,14 @@ public class GtfsRealtimePlaybackController {
 
   private static final int TOO_MANY_REQUESTS = 429;
 
+  private static final long DAY = 24 * 60 * 60 * 1000;
+
   @Autowired
   private GtfsRealtimeRetriever _gtfsRealtimeRetriever;
 
+  @Autowired(required = false)
+  private GtfsRealtimeArchive _archive;
+
   @Autowired
   private TimeService _timeService;
   
@@ -99,9 +107,59 @@ public class GtfsRealtimePlaybackController {
     Date endDate = _timeService.getCurrentTime(key);
     Date startDate = new Date((endDate.getTime() - (interval * 1000))); 
         
-    FeedMessage tripUpdates = _gtfsRealtimeRetriever.getFeedMessage(type, startDate, endDate);
+    FeedMessage tripUpdates;
+    if (isArchived(type, startDate)) {
+      tripUpdates = _archive.getFeedMessage(type, startDate, endDate);
+    } else {
+      tripUpdates = _gtfsRealtimeRetriever.getFeedMessage(type, startDate, endDate);
+    }
     render(request, response, tripUpdates);
   }
+
+  /**
+   * Stream a day of archived entities as length-delimited FeedEntity messages.
+   * Requires a {@link GtfsRealtimeArchive} to be configured.
+   */
+  @RequestMapping(value = "/gtfs-realtime/{path:trip-updates|vehicle-positions}/export")
+  public void export(HttpServletResponse response,
+      @RequestParam(value = "key", required = true) String key,
+      @RequestParam(value = "date", required = true) String date,
+      @PathVariable String path)
+          throws IOException {
+
+    Status status = isAllowed(key);
+
+    if(Status.RATE_EXCEEDED == status) {
+      response.sendError(TOO_MANY_REQUESTS);
+      return;
+    }
+
+    if(Status.AUTHORIZED != status) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN);
+      return;
+    }
+
+    if (_archive == null) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND, "no archive configured");
+      return;
+    }
+
+    Date startDate;
+    try {
+      startDate = new SimpleDateFormat("yyyy-MM-dd").parse(date);
+    } catch (ParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "date must be yyyy-MM-dd");
+      return;
+    }
+    Date endDate = new Date(startDate.getTime() + DAY - 1);
+
+    EntityType type  = path.equals("trip-updates") ? EntityType.TRIP : EntityType.VEHICLE;
+
+    response.setContentType("application/x-google-protobuf");
+    OutputStream out = new BufferedOutputStream(response.getOutputStream());
+    _archive.export(type, startDate, endDate, out);
+    out.flush();
+  }
   
   @RequestMapping(value = "/gtfs-realtime/clear")
   public @ResponseBody String clear(HttpServletResponse response,
@@ -136,6 +194,13 @@ public class GtfsRealtimePlaybackController {
   }
   
   
+  private boolean isArchived(EntityType type, Date startDate) {
+    if (_archive == null)
+      return false;
+    Date earliest = _archive.getEarliestTime(type);
+    return earliest != null && !startDate.before(earliest);
+  }
+
   private Status isAllowed(String key) {
     return _keyService.getPermission(key, "api");
   }
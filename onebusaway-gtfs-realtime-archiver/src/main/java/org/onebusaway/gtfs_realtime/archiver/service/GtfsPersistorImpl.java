@@ -24,6 +24,8 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
 import org.onebusaway.gtfs_realtime.archiver.model.LinkAVLData;
+import org.onebusaway.gtfs_realtime.archiver.service.GtfsRealtimeRetriever.EntityType;
+import org.onebusaway.gtfs_realtime.interfaces.FeedEntityModel;
 import org.onebusaway.gtfs_realtime.model.AlertModel;
 import org.onebusaway.gtfs_realtime.model.TripUpdateModel;
 import org.onebusaway.gtfs_realtime.model.VehiclePositionModel;
@@ -58,6 +60,7 @@ public class GtfsPersistorImpl implements GtfsPersistor, ApplicationListener {
   private VehiclePositionDao _vehiclePositionDao;
   private AlertDao _alertDao;
   private LinkAvlDao _linkAvlDao;
+  private GtfsRealtimeArchive _archive;
   private boolean initialized = false;
 
   @Autowired
@@ -85,6 +88,15 @@ public class GtfsPersistorImpl implements GtfsPersistor, ApplicationListener {
     _linkAvlDao = dao;
   }
 
+  /**
+   * Optional file archive that trip updates and vehicle positions are also
+   * written to once persisted
+   */
+  @Autowired(required = false)
+  public void setArchive(GtfsRealtimeArchive archive) {
+    _archive = archive;
+  }
+
   /**
    * number of inserts to batch together
    */
@@ -175,6 +187,16 @@ public class GtfsPersistorImpl implements GtfsPersistor, ApplicationListener {
     }
   }
 
+  private void archive(EntityType type, List<? extends FeedEntityModel> records) {
+    if (_archive == null)
+      return;
+    try {
+      _archive.append(type, records);
+    } catch (Exception e) {
+      _log.error("error archiving " + type + " records=", e);
+    }
+  }
+
   private class TripUpdateThread implements Runnable {
 
     @Override
@@ -188,6 +210,7 @@ public class GtfsPersistorImpl implements GtfsPersistor, ApplicationListener {
         } catch (Exception e) {
           _log.error("error persisting trip updates=", e);
         }
+        archive(EntityType.TRIP, records);
         records.clear();
         count = _tripUpdates.drainTo(records, _batchSize);
         if (count > 0) _log.info("drained " + records.size() + " trip updates");
@@ -211,6 +234,7 @@ public class GtfsPersistorImpl implements GtfsPersistor, ApplicationListener {
         } catch (Exception e) {
           _log.error("error persisting vehiclePositions=", e);
         }
+        archive(EntityType.VEHICLE, records);
         records.clear();
         count = _vehiclePositions.drainTo(records, _batchSize);
         if (count > 0) _log.info("drained " + records.size() + " vehicle positions");
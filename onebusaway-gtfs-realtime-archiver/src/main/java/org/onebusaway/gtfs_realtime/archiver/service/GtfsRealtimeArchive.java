@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.gtfs_realtime.archiver.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.List;
+
+import org.onebusaway.gtfs_realtime.archiver.service.GtfsRealtimeRetriever.EntityType;
+import org.onebusaway.gtfs_realtime.interfaces.FeedEntityModel;
+
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+
+/**
+ * Append-only file archive of persisted trip updates and vehicle positions,
+ * written alongside the database so playback and export don't have to query
+ * it.
+ */
+public interface GtfsRealtimeArchive {
+
+  /**
+   * Archive records that have been persisted.
+   */
+  void append(EntityType type, List<? extends FeedEntityModel> records);
+
+  /**
+   * @return the timestamp of the oldest archived record of the given type, or
+   *         null if none have been archived
+   */
+  Date getEarliestTime(EntityType type);
+
+  /**
+   * Equivalent to {@link GtfsRealtimeRetriever#getFeedMessage}, read from the
+   * archive.
+   */
+  FeedMessage getFeedMessage(EntityType type, Date startDate, Date endDate);
+
+  /**
+   * Stream the archived entities with timestamps in [startDate, endDate], hour
+   * by hour, each written as a length-delimited FeedEntity.
+   */
+  void export(EntityType type, Date startDate, Date endDate, OutputStream out)
+      throws IOException;
+}
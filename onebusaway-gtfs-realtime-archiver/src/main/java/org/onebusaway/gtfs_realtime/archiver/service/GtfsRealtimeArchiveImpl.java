@@ -0,0 +1,376 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.gtfs_realtime.archiver.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PostConstruct;
+
+import org.onebusaway.gtfs_realtime.archiver.service.GtfsRealtimeRetriever.EntityType;
+import org.onebusaway.gtfs_realtime.interfaces.FeedEntityModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.transit.realtime.GtfsRealtime.FeedEntity;
+import com.google.transit.realtime.GtfsRealtime.FeedHeader;
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+
+/**
+ * Archives records into one segment file per entity type and hour (UTC), e.g.
+ * vehicle-positions/20261018/13.seg. Each batch of records appended to a
+ * segment becomes a gzipped block holding a column of delta-encoded
+ * timestamps followed by a column of length-delimited FeedEntity messages.
+ * Alongside each segment an index file records the time range, offset and
+ * length of every block, so reading a window only decompresses the blocks
+ * that overlap it, and only parses the entities inside it.
+ *
+ * Blocks are written before their index entry, so a reader never sees an
+ * index entry for a partial block, and a partial trailing index entry left by
+ * a crash is ignored.
+ */
+public class GtfsRealtimeArchiveImpl implements GtfsRealtimeArchive {
+
+  private static Logger _log = LoggerFactory.getLogger(GtfsRealtimeArchiveImpl.class);
+
+  private static final String GTFS_RT_VERSION = "1.0";
+
+  private static final long SEGMENT_INTERVAL = 60 * 60 * 1000;
+
+  private static final String SEGMENT_SUFFIX = ".seg";
+
+  private static final String INDEX_SUFFIX = ".idx";
+
+  /**
+   * minTime, maxTime, offset (longs) then length, count (ints)
+   */
+  private static final int INDEX_ENTRY_SIZE = 3 * 8 + 2 * 4;
+
+  private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern(
+      "yyyyMMdd").withZone(ZoneOffset.UTC);
+
+  private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern(
+      "HH").withZone(ZoneOffset.UTC);
+
+  private static final Comparator<FeedEntityModel> TIMESTAMP_COMPARATOR = Comparator.comparing(FeedEntityModel::getTimestamp);
+
+  private final Map<EntityType, Object> _writeLocks = new EnumMap<EntityType, Object>(
+      EntityType.class);
+
+  private final Map<EntityType, Long> _earliestTimes = new ConcurrentHashMap<EntityType, Long>();
+
+  private GtfsRealtimeRetriever _gtfsRealtimeRetriever;
+
+  private File _archiveDirectory;
+
+  public GtfsRealtimeArchiveImpl() {
+    for (EntityType type : EntityType.values())
+      _writeLocks.put(type, new Object());
+  }
+
+  @Autowired
+  public void setGtfsRealtimeRetriever(
+      GtfsRealtimeRetriever gtfsRealtimeRetriever) {
+    _gtfsRealtimeRetriever = gtfsRealtimeRetriever;
+  }
+
+  public void setArchiveDirectory(File archiveDirectory) {
+    _archiveDirectory = archiveDirectory;
+  }
+
+  @PostConstruct
+  public void start() {
+    if (!_archiveDirectory.exists() && !_archiveDirectory.mkdirs())
+      _log.error("unable to create archive directory " + _archiveDirectory);
+  }
+
+  @Override
+  public void append(EntityType type, List<? extends FeedEntityModel> records) {
+
+    Map<Long, List<FeedEntityModel>> recordsBySegment = new TreeMap<Long, List<FeedEntityModel>>();
+    for (FeedEntityModel record : records) {
+      if (record.getTimestamp() == null)
+        continue;
+      long segmentStart = getSegmentStart(record.getTimestamp().getTime());
+      recordsBySegment.computeIfAbsent(segmentStart,
+          k -> new ArrayList<FeedEntityModel>()).add(record);
+    }
+
+    synchronized (_writeLocks.get(type)) {
+      for (Map.Entry<Long, List<FeedEntityModel>> entry : recordsBySegment.entrySet()) {
+        try {
+          appendBlock(type, entry.getKey(), entry.getValue());
+        } catch (IOException ex) {
+          _log.error("error archiving " + entry.getValue().size() + " records",
+              ex);
+        }
+      }
+    }
+  }
+
+  @Override
+  public Date getEarliestTime(EntityType type) {
+    Long earliest = _earliestTimes.get(type);
+    if (earliest == null) {
+      try {
+        earliest = findEarliestTime(type);
+      } catch (IOException ex) {
+        _log.error("error reading archive index", ex);
+      }
+      if (earliest == null)
+        return null;
+      earliest = _earliestTimes.merge(type, earliest, Math::min);
+    }
+    return new Date(earliest);
+  }
+
+  @Override
+  public FeedMessage getFeedMessage(EntityType type, Date startDate,
+      Date endDate) {
+
+    FeedMessage.Builder builder = FeedMessage.newBuilder();
+    long[] timestamp = new long[1];
+
+    try {
+      read(type, startDate.getTime(), endDate.getTime(), (time, entity) -> {
+        builder.addEntity(entity);
+        timestamp[0] = Math.max(timestamp[0], time);
+      });
+    } catch (IOException ex) {
+      _log.error("error reading archive", ex);
+    }
+
+    FeedHeader.Builder header = FeedHeader.newBuilder();
+    header.setTimestamp(timestamp[0] / 1000);
+    header.setGtfsRealtimeVersion(GTFS_RT_VERSION);
+    builder.setHeader(header);
+
+    return builder.build();
+  }
+
+  @Override
+  public void export(EntityType type, Date startDate, Date endDate,
+      OutputStream out) throws IOException {
+    read(type, startDate.getTime(), endDate.getTime(),
+        (time, entity) -> entity.writeDelimitedTo(out));
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private void appendBlock(EntityType type, long segmentStart,
+      List<FeedEntityModel> records) throws IOException {
+
+    records.sort(TIMESTAMP_COMPARATOR);
+    byte[] block = encodeBlock(records);
+    long minTime = records.get(0).getTimestamp().getTime();
+    long maxTime = records.get(records.size() - 1).getTimestamp().getTime();
+
+    File segmentFile = getSegmentFile(type, segmentStart, SEGMENT_SUFFIX);
+    File indexFile = getSegmentFile(type, segmentStart, INDEX_SUFFIX);
+    File dayDirectory = segmentFile.getParentFile();
+    if (!dayDirectory.exists() && !dayDirectory.mkdirs())
+      throw new IOException("unable to create " + dayDirectory);
+
+    long offset = segmentFile.length();
+    try (FileOutputStream out = new FileOutputStream(segmentFile, true)) {
+      out.write(block);
+    }
+
+    ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+    entry.putLong(minTime);
+    entry.putLong(maxTime);
+    entry.putLong(offset);
+    entry.putInt(block.length);
+    entry.putInt(records.size());
+    try (FileOutputStream out = new FileOutputStream(indexFile, true)) {
+      out.write(entry.array());
+    }
+
+    _earliestTimes.merge(type, minTime, Math::min);
+  }
+
+  private byte[] encodeBlock(List<FeedEntityModel> records) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+      CodedOutputStream out = CodedOutputStream.newInstance(gzip);
+      out.writeUInt32NoTag(records.size());
+      long previous = 0;
+      for (FeedEntityModel record : records) {
+        long time = record.getTimestamp().getTime();
+        out.writeSInt64NoTag(time - previous);
+        previous = time;
+      }
+      for (FeedEntityModel record : records)
+        out.writeMessageNoTag(_gtfsRealtimeRetriever.getFeedEntity(record));
+      out.flush();
+    }
+    return bytes.toByteArray();
+  }
+
+  private void read(EntityType type, long from, long to, EntityHandler handler)
+      throws IOException {
+
+    for (long segmentStart = getSegmentStart(from); segmentStart <= to; segmentStart += SEGMENT_INTERVAL) {
+
+      File indexFile = getSegmentFile(type, segmentStart, INDEX_SUFFIX);
+      if (!indexFile.exists())
+        continue;
+
+      List<IndexEntry> entries = new ArrayList<IndexEntry>();
+      for (IndexEntry entry : readIndex(indexFile)) {
+        if (entry.maxTime >= from && entry.minTime <= to)
+          entries.add(entry);
+      }
+      if (entries.isEmpty())
+        continue;
+
+      File segmentFile = getSegmentFile(type, segmentStart, SEGMENT_SUFFIX);
+      try (RandomAccessFile segment = new RandomAccessFile(segmentFile, "r")) {
+        for (IndexEntry entry : entries) {
+          byte[] block = new byte[entry.length];
+          segment.seek(entry.offset);
+          segment.readFully(block);
+          decodeBlock(block, from, to, handler);
+        }
+      }
+    }
+  }
+
+  private void decodeBlock(byte[] block, long from, long to,
+      EntityHandler handler) throws IOException {
+
+    CodedInputStream in = CodedInputStream.newInstance(new GZIPInputStream(
+        new ByteArrayInputStream(block)));
+    in.setSizeLimit(Integer.MAX_VALUE);
+
+    int count = in.readUInt32();
+    long[] times = new long[count];
+    long previous = 0;
+    for (int i = 0; i < count; i++) {
+      previous += in.readSInt64();
+      times[i] = previous;
+    }
+
+    // timestamps are sorted, so skip ahead to the first one in range
+    for (int i = 0; i < count && times[i] <= to; i++) {
+      int length = in.readRawVarint32();
+      if (times[i] < from) {
+        in.skipRawBytes(length);
+        continue;
+      }
+      FeedEntity entity = FeedEntity.parseFrom(in.readRawBytes(length));
+      handler.handle(times[i], entity);
+    }
+  }
+
+  private List<IndexEntry> readIndex(File indexFile) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexFile.toPath()));
+    int n = buffer.remaining() / INDEX_ENTRY_SIZE;
+    List<IndexEntry> entries = new ArrayList<IndexEntry>(n);
+    for (int i = 0; i < n; i++) {
+      IndexEntry entry = new IndexEntry();
+      entry.minTime = buffer.getLong();
+      entry.maxTime = buffer.getLong();
+      entry.offset = buffer.getLong();
+      entry.length = buffer.getInt();
+      entry.count = buffer.getInt();
+      entries.add(entry);
+    }
+    return entries;
+  }
+
+  private Long findEarliestTime(EntityType type) throws IOException {
+    String[] days = getTypeDirectory(type).list();
+    if (days == null)
+      return null;
+    Arrays.sort(days);
+    for (String day : days) {
+      String[] files = new File(getTypeDirectory(type), day).list();
+      if (files == null)
+        continue;
+      Arrays.sort(files);
+      for (String file : files) {
+        if (!file.endsWith(INDEX_SUFFIX))
+          continue;
+        Long earliest = null;
+        for (IndexEntry entry : readIndex(new File(new File(
+            getTypeDirectory(type), day), file))) {
+          if (earliest == null || entry.minTime < earliest)
+            earliest = entry.minTime;
+        }
+        if (earliest != null)
+          return earliest;
+      }
+    }
+    return null;
+  }
+
+  private File getTypeDirectory(EntityType type) {
+    String name = type == EntityType.VEHICLE ? "vehicle-positions"
+        : "trip-updates";
+    return new File(_archiveDirectory, name);
+  }
+
+  private File getSegmentFile(EntityType type, long segmentStart,
+      String suffix) {
+    Instant instant = Instant.ofEpochMilli(segmentStart);
+    File dayDirectory = new File(getTypeDirectory(type),
+        DAY_FORMAT.format(instant));
+    return new File(dayDirectory, HOUR_FORMAT.format(instant) + suffix);
+  }
+
+  private static long getSegmentStart(long time) {
+    return Math.floorDiv(time, SEGMENT_INTERVAL) * SEGMENT_INTERVAL;
+  }
+
+  private interface EntityHandler {
+    void handle(long time, FeedEntity entity) throws IOException;
+  }
+
+  private static class IndexEntry {
+    long minTime;
+    long maxTime;
+    long offset;
+    int length;
+    int count;
+  }
+}
@@ -17,9 +17,18 @@ package org.onebusaway.gtfs_realtime.archiver.service;
 
 import java.util.Date;
 
+import org.onebusaway.gtfs_realtime.interfaces.FeedEntityModel;
+
+import com.google.transit.realtime.GtfsRealtime.FeedEntity;
 import com.google.transit.realtime.GtfsRealtime.FeedMessage;
 
 public interface GtfsRealtimeRetriever {
   enum EntityType { TRIP, VEHICLE };
   public FeedMessage getFeedMessage(EntityType type, Date startDate, Date endDate);
+
+  /**
+   * @param model a persisted trip update or vehicle position
+   * @return the entity as it appears in {@link #getFeedMessage}
+   */
+  public FeedEntity getFeedEntity(FeedEntityModel model);
 }
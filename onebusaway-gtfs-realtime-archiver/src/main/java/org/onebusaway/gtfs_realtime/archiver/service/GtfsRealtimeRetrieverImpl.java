@@ -64,10 +64,7 @@ public class GtfsRealtimeRetrieverImpl implements GtfsRealtimeRetriever {
     long timestamp = 0;
 
     for (FeedEntityModel update : updates) {
-      FeedEntity.Builder fe = fillFeedEntity(update);
-      // This is not guaranteed to match entityID in source feed.
-      fe.setId(Long.toString(update.getId()));
-      builder.addEntity(fe);
+      builder.addEntity(getFeedEntity(update));
       timestamp = Math.max(timestamp, update.getTimestamp().getTime());
     }
     
@@ -80,6 +77,14 @@ public class GtfsRealtimeRetrieverImpl implements GtfsRealtimeRetriever {
     return builder.build();
   }
   
+  @Override
+  public FeedEntity getFeedEntity(FeedEntityModel model) {
+    FeedEntity.Builder fe = fillFeedEntity(model);
+    // This is not guaranteed to match entityID in source feed.
+    fe.setId(Long.toString(model.getId()));
+    return fe.build();
+  }
+
   private FeedEntity.Builder fillFeedEntity(FeedEntityModel model) {
     if (model instanceof VehiclePositionModel) {
       return fillFeedEntity((VehiclePositionModel) model);
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.gtfs_realtime.archiver.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.onebusaway.gtfs_realtime.archiver.service.GtfsRealtimeRetriever.EntityType;
+import org.onebusaway.gtfs_realtime.model.VehiclePositionModel;
+
+import com.google.transit.realtime.GtfsRealtime.FeedEntity;
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+
+public class GtfsRealtimeArchiveImplTest {
+
+  // 2026-10-18 12:59:50 UTC, just before an hour boundary
+  private static final long TIME = 1792328390000L;
+
+  @Rule
+  public TemporaryFolder _folder = new TemporaryFolder();
+
+  private File _directory;
+
+  private GtfsRealtimeArchiveImpl _archive;
+
+  @Before
+  public void before() throws Exception {
+    _directory = _folder.newFolder("archive");
+    _archive = createArchive();
+  }
+
+  @Test
+  public void testGetFeedMessage() {
+
+    assertNull(_archive.getEarliestTime(EntityType.VEHICLE));
+
+    // records spanning two hourly segments, out of order
+    _archive.append(EntityType.VEHICLE, Arrays.asList(
+        vehiclePosition(3, TIME + 20 * 1000, "c"),
+        vehiclePosition(1, TIME, "a"),
+        vehiclePosition(2, TIME + 5 * 1000, "b")));
+    _archive.append(EntityType.VEHICLE,
+        Arrays.asList(vehiclePosition(4, TIME + 40 * 1000, "d")));
+
+    assertEquals(TIME, _archive.getEarliestTime(EntityType.VEHICLE).getTime());
+    assertNull(_archive.getEarliestTime(EntityType.TRIP));
+
+    FeedMessage message = _archive.getFeedMessage(EntityType.VEHICLE,
+        new Date(TIME + 5 * 1000), new Date(TIME + 30 * 1000));
+    assertEquals(2, message.getEntityCount());
+    assertEquals("2", message.getEntity(0).getId());
+    assertEquals("b", message.getEntity(0).getVehicle().getVehicle().getId());
+    assertEquals("3", message.getEntity(1).getId());
+    assertEquals((TIME + 20 * 1000) / 1000, message.getHeader().getTimestamp());
+
+    message = _archive.getFeedMessage(EntityType.VEHICLE, new Date(TIME
+        - 60 * 1000), new Date(TIME + 60 * 1000));
+    assertEquals(4, message.getEntityCount());
+
+    message = _archive.getFeedMessage(EntityType.TRIP, new Date(TIME - 60
+        * 1000), new Date(TIME + 60 * 1000));
+    assertEquals(0, message.getEntityCount());
+  }
+
+  @Test
+  public void testExportAndReopen() throws Exception {
+
+    List<VehiclePositionModel> records = new ArrayList<VehiclePositionModel>();
+    for (int i = 0; i < 100; i++)
+      records.add(vehiclePosition(i, TIME + i * 1000, "v" + i));
+    _archive.append(EntityType.VEHICLE, records);
+
+    // a new instance finds the existing archive on disk
+    _archive = createArchive();
+    assertEquals(TIME, _archive.getEarliestTime(EntityType.VEHICLE).getTime());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    _archive.export(EntityType.VEHICLE, new Date(TIME + 50 * 1000), new Date(
+        TIME + 200 * 1000), out);
+
+    InputStream in = new ByteArrayInputStream(out.toByteArray());
+    List<FeedEntity> entities = new ArrayList<FeedEntity>();
+    FeedEntity entity;
+    while ((entity = FeedEntity.parseDelimitedFrom(in)) != null)
+      entities.add(entity);
+
+    assertEquals(50, entities.size());
+    assertEquals("50", entities.get(0).getId());
+    assertEquals("v99", entities.get(49).getVehicle().getVehicle().getId());
+  }
+
+  private GtfsRealtimeArchiveImpl createArchive() {
+    GtfsRealtimeArchiveImpl archive = new GtfsRealtimeArchiveImpl();
+    archive.setArchiveDirectory(_directory);
+    archive.setGtfsRealtimeRetriever(new GtfsRealtimeRetrieverImpl());
+    archive.start();
+    return archive;
+  }
+
+  private VehiclePositionModel vehiclePosition(long id, long time,
+      String vehicleId) {
+    VehiclePositionModel model = new VehiclePositionModel();
+    model.setId(id);
+    model.setTimestamp(new Date(time));
+    model.setVehicleId(vehicleId);
+    model.setLat(47.6f);
+    model.setLon(-122.3f);
+    return model;
+  }
+}
@@ -0,0 +1,341 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.presentation.impl.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.onebusaway.transit_data.model.RouteBean;
+import org.onebusaway.transit_data.model.StopBean;
+import org.onebusaway.util.AgencyAndIdLibrary;
+
+/**
+ * An immutable snapshot of the route and stop names of a single bundle, used
+ * by {@link SearchServiceImpl} to resolve search queries without calling the
+ * transit data service.
+ *
+ * Besides the exact lookup maps, route short names are kept in two sorted
+ * arrays, one of the names and one of the names reversed, which act as prefix
+ * and suffix tries: every name starting (or ending) with a query is a
+ * contiguous range found by binary search. Route long names are indexed by
+ * trigram, so finding the long names containing a query only looks at names
+ * sharing its rarest trigram instead of every name in the bundle.
+ *
+ * Instances are built with a {@link Builder} and never modified, so they can
+ * be shared between request threads and replaced wholesale when the bundle
+ * changes.
+ */
+final class SearchIndex {
+
+  private static final int GRAM_LENGTH = 3;
+
+  private final String _bundleId;
+
+  private final Map<String, List<RouteBean>> _routesByShortName;
+
+  private final Map<String, RouteBean> _routesById;
+
+  private final Map<String, List<RouteBean>> _routesByLongName;
+
+  private final Map<String, String> _stopIdsByStopCode;
+
+  private final Map<String, Set<String>> _stopIdsByUnqualifiedStopId;
+
+  private final Map<String, Set<String>> _stopIdsByStopName;
+
+  private final String[] _shortNames;
+
+  private final String[] _reversedShortNames;
+
+  private final String[] _longNames;
+
+  private final Map<String, int[]> _longNamesByTrigram;
+
+  private SearchIndex(Builder builder) {
+    _bundleId = builder._bundleId;
+    _routesByShortName = unmodifiableListMap(builder._routesByShortName);
+    _routesById = Collections.unmodifiableMap(builder._routesById);
+    _routesByLongName = unmodifiableListMap(builder._routesByLongName);
+    _stopIdsByStopCode = Collections.unmodifiableMap(builder._stopIdsByStopCode);
+    _stopIdsByUnqualifiedStopId = unmodifiableSetMap(builder._stopIdsByUnqualifiedStopId);
+    _stopIdsByStopName = unmodifiableSetMap(builder._stopIdsByStopName);
+
+    _shortNames = sorted(_routesByShortName.keySet());
+    _reversedShortNames = new String[_shortNames.length];
+    for (int i = 0; i < _shortNames.length; i++)
+      _reversedShortNames[i] = reverse(_shortNames[i]);
+    Arrays.sort(_reversedShortNames);
+
+    _longNames = sorted(_routesByLongName.keySet());
+    _longNamesByTrigram = indexTrigrams(_longNames);
+  }
+
+  public static Builder builder(String bundleId) {
+    return new Builder(bundleId);
+  }
+
+  public String getBundleId() {
+    return _bundleId;
+  }
+
+  /**
+   * @param shortName an upper case route short name
+   */
+  public boolean hasRouteShortName(String shortName) {
+    return _routesByShortName.containsKey(shortName);
+  }
+
+  /**
+   * @param shortName an upper case route short name
+   * @return the routes with the short name, or null if there are none
+   */
+  public List<RouteBean> getRoutesForShortName(String shortName) {
+    return _routesByShortName.get(shortName);
+  }
+
+  public RouteBean getRouteForId(String routeId) {
+    return _routesById.get(routeId);
+  }
+
+  /**
+   * @return the routes with the long name, or null if there are none
+   */
+  public List<RouteBean> getRoutesForLongName(String longName) {
+    return _routesByLongName.get(longName);
+  }
+
+  /**
+   * @param stopCode the agency id and upper case stop code, joined by "_"
+   * @return the matching stop id, or null if there is none
+   */
+  public String getStopIdForStopCode(String stopCode) {
+    return _stopIdsByStopCode.get(stopCode);
+  }
+
+  public Set<String> getStopIdsForUnqualifiedStopId(String stopId) {
+    return _stopIdsByUnqualifiedStopId.get(stopId);
+  }
+
+  public Set<String> getStopIdsForStopName(String stopName) {
+    return _stopIdsByStopName.get(stopName);
+  }
+
+  /**
+   * @param query an upper case query
+   * @return the route short names that start or end with the query, in sorted
+   *         order
+   */
+  public Set<String> getRouteShortNamesWithPrefixOrSuffix(String query) {
+    Set<String> names = new TreeSet<String>();
+    if (query.isEmpty())
+      return names;
+    int from = prefixRangeStart(_shortNames, query);
+    for (int i = from; i < _shortNames.length
+        && _shortNames[i].startsWith(query); i++)
+      names.add(_shortNames[i]);
+    String reversedQuery = reverse(query);
+    from = prefixRangeStart(_reversedShortNames, reversedQuery);
+    for (int i = from; i < _reversedShortNames.length
+        && _reversedShortNames[i].startsWith(reversedQuery); i++)
+      names.add(reverse(_reversedShortNames[i]));
+    return names;
+  }
+
+  /**
+   * Match is case sensitive, as long names are indexed as they appear in the
+   * bundle.
+   *
+   * @param query
+   * @return the route long names containing the query followed by a space or
+   *         preceded by a space, in sorted order
+   */
+  public List<String> getRouteLongNamesContainingWord(String query) {
+    String before = query + " ";
+    String after = " " + query;
+
+    BitSet candidates = new BitSet(_longNames.length);
+    addCandidates(before, candidates);
+    addCandidates(after, candidates);
+
+    List<String> names = new ArrayList<String>();
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      String name = _longNames[i];
+      if (name.contains(before) || name.contains(after))
+        names.add(name);
+    }
+    return names;
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  /**
+   * Adds the long names that may contain the literal, which is every name when
+   * the literal is too short to have a trigram, and otherwise the names sharing
+   * the literal's rarest trigram.
+   */
+  private void addCandidates(String literal, BitSet candidates) {
+    if (literal.length() < GRAM_LENGTH) {
+      candidates.set(0, _longNames.length);
+      return;
+    }
+    int[] rarest = null;
+    for (int i = 0; i + GRAM_LENGTH <= literal.length(); i++) {
+      int[] postings = _longNamesByTrigram.get(literal.substring(i,
+          i + GRAM_LENGTH));
+      if (postings == null)
+        return;
+      if (rarest == null || postings.length < rarest.length)
+        rarest = postings;
+    }
+    for (int index : rarest)
+      candidates.set(index);
+  }
+
+  private static Map<String, int[]> indexTrigrams(String[] names) {
+    Map<String, List<Integer>> postings = new HashMap<String, List<Integer>>();
+    for (int index = 0; index < names.length; index++) {
+      String name = names[index];
+      for (int i = 0; i + GRAM_LENGTH <= name.length(); i++) {
+        String gram = name.substring(i, i + GRAM_LENGTH);
+        List<Integer> list = postings.get(gram);
+        if (list == null) {
+          list = new ArrayList<Integer>();
+          postings.put(gram, list);
+        }
+        // a gram repeated within the same name is only posted once
+        if (list.isEmpty() || list.get(list.size() - 1) != index)
+          list.add(index);
+      }
+    }
+    Map<String, int[]> index = new HashMap<String, int[]>();
+    for (Map.Entry<String, List<Integer>> entry : postings.entrySet()) {
+      List<Integer> list = entry.getValue();
+      int[] values = new int[list.size()];
+      for (int i = 0; i < values.length; i++)
+        values[i] = list.get(i);
+      index.put(entry.getKey(), values);
+    }
+    return index;
+  }
+
+  private static int prefixRangeStart(String[] sortedValues, String prefix) {
+    int index = Arrays.binarySearch(sortedValues, prefix);
+    return index < 0 ? -(index + 1) : index;
+  }
+
+  private static String[] sorted(Set<String> values) {
+    String[] array = values.toArray(new String[values.size()]);
+    Arrays.sort(array);
+    return array;
+  }
+
+  private static String reverse(String value) {
+    return new StringBuilder(value).reverse().toString();
+  }
+
+  private static <T> Map<String, List<T>> unmodifiableListMap(
+      Map<String, List<T>> map) {
+    Map<String, List<T>> copy = new HashMap<String, List<T>>();
+    for (Map.Entry<String, List<T>> entry : map.entrySet())
+      copy.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+    return Collections.unmodifiableMap(copy);
+  }
+
+  private static <T> Map<String, Set<T>> unmodifiableSetMap(
+      Map<String, Set<T>> map) {
+    Map<String, Set<T>> copy = new HashMap<String, Set<T>>();
+    for (Map.Entry<String, Set<T>> entry : map.entrySet())
+      copy.put(entry.getKey(), Collections.unmodifiableSet(entry.getValue()));
+    return Collections.unmodifiableMap(copy);
+  }
+
+  /****
+   *
+   ****/
+
+  public static class Builder {
+
+    private final String _bundleId;
+
+    private final Map<String, List<RouteBean>> _routesByShortName = new HashMap<String, List<RouteBean>>();
+
+    private final Map<String, RouteBean> _routesById = new HashMap<String, RouteBean>();
+
+    private final Map<String, List<RouteBean>> _routesByLongName = new HashMap<String, List<RouteBean>>();
+
+    private final Map<String, String> _stopIdsByStopCode = new HashMap<String, String>();
+
+    private final Map<String, Set<String>> _stopIdsByUnqualifiedStopId = new HashMap<String, Set<String>>();
+
+    private final Map<String, Set<String>> _stopIdsByStopName = new HashMap<String, Set<String>>();
+
+    private Builder(String bundleId) {
+      _bundleId = bundleId;
+    }
+
+    public Builder addRoute(RouteBean route) {
+      if (route.getShortName() != null)
+        addToList(_routesByShortName, route.getShortName().toUpperCase(), route);
+      if (route.getLongName() != null)
+        addToList(_routesByLongName, route.getLongName(), route);
+      _routesById.put(route.getId(), route);
+      return this;
+    }
+
+    public Builder addStop(String agencyId, StopBean stop) {
+      String unqualifiedId = AgencyAndIdLibrary.convertFromString(stop.getId()).getId();
+      addToSet(_stopIdsByUnqualifiedStopId, unqualifiedId, stop.getId());
+      _stopIdsByStopCode.put(agencyId + "_" + stop.getCode().toUpperCase(),
+          stop.getId());
+      addToSet(_stopIdsByStopName, stop.getName(), stop.getId());
+      return this;
+    }
+
+    public SearchIndex build() {
+      return new SearchIndex(this);
+    }
+
+    private static <T> void addToList(Map<String, List<T>> map, String key,
+        T value) {
+      List<T> values = map.get(key);
+      if (values == null) {
+        values = new ArrayList<T>();
+        map.put(key, values);
+      }
+      values.add(value);
+    }
+
+    private static <T> void addToSet(Map<String, Set<T>> map, String key,
+        T value) {
+      Set<T> values = map.get(key);
+      if (values == null) {
+        values = new HashSet<T>();
+        map.put(key, values);
+      }
+      values.add(value);
+    }
+  }
+}
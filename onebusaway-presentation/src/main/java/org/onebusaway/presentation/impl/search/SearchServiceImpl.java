@@ -41,17 +41,21 @@ import org.springframework.stereotype.Component;
 
 import java.net.URLDecoder;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+
+import javax.annotation.PreDestroy;
+
 import org.onebusaway.util.AgencyAndIdLibrary;
 
 /**
@@ -87,6 +91,8 @@ public class SearchServiceImpl implements SearchService {
 	// The max number of closest stops to display
 	private static final int MAX_STOPS = 10;
 
+	private static final SearchIndex EMPTY_INDEX = SearchIndex.builder(null).build();
+
 	@Autowired
 	private ConfigurationService _configurationService;
 
@@ -96,19 +102,23 @@ public class SearchServiceImpl implements SearchService {
 	@Autowired
 	private TransitDataService _transitDataService;
 
-	private Map<String, List<RouteBean>> _routeShortNameToRouteBeanMap = new HashMap<String, List<RouteBean>>();
-	
-	private Map<String, RouteBean> _routeIdToRouteBeanMap = new HashMap<String, RouteBean>(); // these are uniquely prefixed, they don't need to be a list
-
-	private Map<String, List<RouteBean>> _routeLongNameToRouteBeanMap = new HashMap<String, List<RouteBean>>();
-
-	private Map<String, String> _stopCodeToStopIdMap = new HashMap<String, String>();
+	// an immutable snapshot of the route and stop names of the active bundle,
+	// replaced wholesale once an index for a new bundle has been built
+	private final AtomicReference<SearchIndex> _index = new AtomicReference<SearchIndex>();
 
-	private Map<String, Set<String>> _unqualifiedStopIdToStopIdMap = new HashMap<String, Set<String>>();
+	// the bundle id of the index currently being built in the background, if any
+	private final AtomicReference<String> _pendingBundleId = new AtomicReference<String>();
 
-	private Map<String, Set<String>> _stopNameToStopIdMap = new HashMap<>();
+	private final ExecutorService _indexExecutor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "search-index-builder");
+		thread.setDaemon(true);
+		return thread;
+	});
 
-	private String _bundleIdForCaches = null;
+	@PreDestroy
+	public void stop() {
+		_indexExecutor.shutdownNow();
+	}
 
 	// we keep an internal cache of route short/long names because if we moved
 	// this into the
@@ -119,64 +129,77 @@ public class SearchServiceImpl implements SearchService {
 	// long-term FIXME: figure out how to split apart the model creation a bit
 	// more from the actual
 	// search process.
+	//
+	// Only the very first index is built on the calling thread; after that,
+	// searches keep using the current index while the index for a new bundle is
+	// built in the background.
 	public void refreshCachesIfNecessary() {
 		String currentBundleId = _transitDataService.getActiveBundleId();
+		if (currentBundleId == null) {
+			return;
+		}
 
-		if ((_bundleIdForCaches != null && _bundleIdForCaches
-				.equals(currentBundleId)) || currentBundleId == null) {
+		SearchIndex index = _index.get();
+		if (index == null) {
+			buildInitialIndex(currentBundleId);
 			return;
 		}
-		_bundleIdForCaches = _transitDataService.getActiveBundleId();
-		refreshCaches();
+		if (currentBundleId.equals(index.getBundleId())) {
+			return;
+		}
+
+		String pendingBundleId = _pendingBundleId.getAndSet(currentBundleId);
+		if (currentBundleId.equals(pendingBundleId)) {
+			return;
+		}
+		_indexExecutor.submit(() -> {
+			try {
+				_index.set(buildIndex(currentBundleId));
+			} catch (Throwable ex) {
+				_log.error("error building search index for bundle " + currentBundleId, ex);
+			} finally {
+				_pendingBundleId.compareAndSet(currentBundleId, null);
+			}
+		});
+	}
+
+	private synchronized void buildInitialIndex(String bundleId) {
+		if (_index.get() == null) {
+			_index.set(buildIndex(bundleId));
+		}
 	}
-	private synchronized void refreshCaches() {
 
-		_routeShortNameToRouteBeanMap.clear();
-		_routeIdToRouteBeanMap.clear();
-		_routeLongNameToRouteBeanMap.clear();
-		_stopCodeToStopIdMap.clear();
-		_unqualifiedStopIdToStopIdMap.clear();
-		_stopNameToStopIdMap.clear();
+	private SearchIndex buildIndex(String bundleId) {
+
+		long t = System.currentTimeMillis();
+		SearchIndex.Builder builder = SearchIndex.builder(bundleId);
 
 		for (AgencyWithCoverageBean agency : _transitDataService
 				.getAgenciesWithCoverage()) {
 			for (RouteBean routeBean : _transitDataService
 					.getRoutesForAgencyId(agency.getAgency().getId()).getList()) {
-				if (routeBean.getShortName() != null)
-				    if (_routeShortNameToRouteBeanMap.containsKey(routeBean.getShortName().toUpperCase())) {
-				      _routeShortNameToRouteBeanMap.get(routeBean.getShortName().toUpperCase()).add(routeBean);
-				    } else {
-					_routeShortNameToRouteBeanMap.put(routeBean.getShortName()
-							.toUpperCase(), new ArrayList<RouteBean>(Arrays.asList(routeBean)));
-				    }
-				if (routeBean.getLongName() != null)
-				  if (_routeLongNameToRouteBeanMap.containsKey(routeBean.getLongName())) {
-				    _routeLongNameToRouteBeanMap.get(routeBean.getLongName()).add(routeBean);
-				  } else {
-				    _routeLongNameToRouteBeanMap.put(routeBean.getLongName(),
-							new ArrayList<RouteBean>(Arrays.asList(routeBean)));
-				  }
-				
-				_routeIdToRouteBeanMap.put(routeBean.getId(), routeBean);
+				builder.addRoute(routeBean);
 			}
 
 			List<StopBean> stopsList = _transitDataService.getAllRevenueStops(agency);
 			for (StopBean stop : stopsList) {
-				String unqualifiedId = AgencyAndIdLibrary.convertFromString(stop.getId()).getId();
-				if (!_unqualifiedStopIdToStopIdMap.containsKey(unqualifiedId)) {
-					_unqualifiedStopIdToStopIdMap.put(unqualifiedId, new HashSet<>());
-				}
-				_unqualifiedStopIdToStopIdMap.get(unqualifiedId).add(stop.getId());
-				_stopCodeToStopIdMap.put(agency.getAgency().getId() + "_"
-					+ stop.getCode().toUpperCase(), stop.getId());
-				if (!_stopNameToStopIdMap.containsKey(stop.getName())) {
-					_stopNameToStopIdMap.put(stop.getName(), new HashSet<>());
-				}
-				_stopNameToStopIdMap.get(stop.getName()).add(stop.getId());
+				builder.addStop(agency.getAgency().getId(), stop);
 			}
 		}
 
+		SearchIndex index = builder.build();
+		_log.info("built search index for bundle " + bundleId + " in "
+				+ (System.currentTimeMillis() - t) + " ms");
+		return index;
+	}
 
+	private SearchIndex getIndex() {
+		SearchIndex index = _index.get();
+		if (index == null) {
+			// no bundle loaded yet
+			return EMPTY_INDEX;
+		}
+		return index;
 	}
 
 
@@ -495,8 +518,8 @@ public class SearchServiceImpl implements SearchService {
 		}
 		// try stop name match
 		// stopNames are not guaranteed unique, and therefore this may return the wrong stop
-		if (_stopNameToStopIdMap.containsKey(stopQuery)) {
-			Set<String> stopIdSet = _stopNameToStopIdMap.get(stopQuery);
+		Set<String> stopIdSet = getIndex().getStopIdsForStopName(stopQuery);
+		if (stopIdSet != null) {
 			// if it's not an exact match let later search heuristics catch it
 			if (stopIdSet.size() == 1) {
 				StopBean stopBean = _transitDataService.getStop(stopIdSet.iterator().next());
@@ -530,7 +553,7 @@ public class SearchServiceImpl implements SearchService {
 		}
 
 	private void tryAsUnqualifiedStopId(SearchResultCollection results, String q, SearchResultFactory resultFactory){
-		Set<String> potentialStops = _unqualifiedStopIdToStopIdMap.get(q);
+		Set<String> potentialStops = getIndex().getStopIdsForUnqualifiedStopId(q);
 		if (potentialStops != null && potentialStops.size() == 1) {
 			// need exactly one match for this to work
 			StopBean stopBean = _transitDataService.getStop(potentialStops.iterator().next());
@@ -587,6 +610,7 @@ public class SearchServiceImpl implements SearchService {
             }
 		}
 
+		SearchIndex index = getIndex();
 		String normalizedQuery = "";
 		for (int i = 0; i < tokens.size(); i++) {
 			String token = tokens.get(i);
@@ -600,17 +624,17 @@ public class SearchServiceImpl implements SearchService {
 			}
 
 			// keep track of route tokens we found when parsing
-			if (_routeShortNameToRouteBeanMap.containsKey(token.toUpperCase())) {
+			if (index.hasRouteShortName(token.toUpperCase())) {
 				// if a route is included as part of another type of query, then
 				// it's a filter--
 				// so remove it from the normalized query sent to the geocoder
 				// or stop service
-				if ((lastItem != null && !_routeShortNameToRouteBeanMap
-						.containsKey(lastItem.toUpperCase()))
-						|| (nextItem != null && !_routeShortNameToRouteBeanMap
-								.containsKey(nextItem.toUpperCase()))) {
-					results.addRouteFilter(_routeShortNameToRouteBeanMap
-							.get(token.toUpperCase()).get(0)); //TODO Filtering on multiple route matches
+				if ((lastItem != null && !index
+						.hasRouteShortName(lastItem.toUpperCase()))
+						|| (nextItem != null && !index
+								.hasRouteShortName(nextItem.toUpperCase()))) {
+					results.addRouteFilter(index
+							.getRoutesForShortName(token.toUpperCase()).get(0)); //TODO Filtering on multiple route matches
 					continue;
 				}
 			} else {
@@ -618,9 +642,9 @@ public class SearchServiceImpl implements SearchService {
 				// valid stop id (but not also a route ID),
 				// consider the token a bad filter and remove it from the query.
 				if ((lastItem != null && stopsForId(lastItem, serviceInterval).size() > 0
-						&& !_routeShortNameToRouteBeanMap.containsKey(lastItem.toUpperCase()))
+						&& !index.hasRouteShortName(lastItem.toUpperCase()))
 						|| (nextItem != null && stopsForId(nextItem, serviceInterval).size() > 0
-								&& !_routeShortNameToRouteBeanMap.containsKey(nextItem.toUpperCase()))) { // TOOD Filtering on multiple route matches
+								&& !index.hasRouteShortName(nextItem.toUpperCase()))) { // TOOD Filtering on multiple route matches
 					if (!token.contains("_")) {
 						// if we have an agency Id, its probably a stop, don't
 						// discard
@@ -634,7 +658,7 @@ public class SearchServiceImpl implements SearchService {
 				// if a user is prepending a route filter with a plus sign, chop
 				// it off
 				// e.g. main and craig + B63
-				if (_routeShortNameToRouteBeanMap.containsKey(nextItem.toUpperCase())) {
+				if (index.hasRouteShortName(nextItem.toUpperCase())) {
 					continue;
 				}
 
@@ -748,9 +772,11 @@ public class SearchServiceImpl implements SearchService {
 			return;
 		}
 
+		SearchIndex index = getIndex();
+
 		// short name matching -- if single exact result
-		if (_routeShortNameToRouteBeanMap.get(expectedTerm) != null) {
-			List<RouteBean> routeBeans = _routeShortNameToRouteBeanMap.get(expectedTerm);
+		if (index.getRoutesForShortName(expectedTerm) != null) {
+			List<RouteBean> routeBeans = index.getRoutesForShortName(expectedTerm);
 			if (routeBeans.size() == 1) {
 				results.addMatch(resultFactory.getRouteResult(routeBeans.get(0)));
 				results.setHint("tryAsRoute");
@@ -758,7 +784,7 @@ public class SearchServiceImpl implements SearchService {
 			}
 			// if we have more data see if it matches
 			if (additionalTerm != null) {
-				for (RouteBean routeBean : _routeShortNameToRouteBeanMap.get(expectedTerm)) {
+				for (RouteBean routeBean : routeBeans) {
 					AgencyAndId routeId = AgencyAndIdLibrary.convertFromString(routeBean.getId());
 					if (routeId.getId().equalsIgnoreCase(additionalTerm)) {
 						results.addMatch(resultFactory.getRouteResult(routeBean));
@@ -770,8 +796,8 @@ public class SearchServiceImpl implements SearchService {
 		}
 
 		// long name matching -- if single exact result
-		if (_routeLongNameToRouteBeanMap.get(expectedTerm) != null) {
-			List<RouteBean> routeBeans = _routeLongNameToRouteBeanMap.get(expectedTerm);
+		if (index.getRoutesForLongName(expectedTerm) != null) {
+			List<RouteBean> routeBeans = index.getRoutesForLongName(expectedTerm);
 			if (routeBeans.size() == 1) {
 				results.addMatch(resultFactory.getRouteResult(routeBeans.get(0)));
 				results.setHint("tryAsRoute");
@@ -779,7 +805,7 @@ public class SearchServiceImpl implements SearchService {
 			}
 			// if we have more data see if it matches
 			if (additionalTerm != null) {
-				for (RouteBean routeBean : _routeLongNameToRouteBeanMap.get(expectedTerm)) {
+				for (RouteBean routeBean : routeBeans) {
 					AgencyAndId routeId = AgencyAndIdLibrary.convertFromString(routeBean.getId());
 					if (routeId.getId().equalsIgnoreCase(additionalTerm)) {
 						results.addMatch(resultFactory.getRouteResult(routeBean));
@@ -806,9 +832,11 @@ public class SearchServiceImpl implements SearchService {
 			return;
 		}
 
+		SearchIndex index = getIndex();
+
 		// agency + route id matching (from direct links) as exact case
-    if (_routeIdToRouteBeanMap.get(routeQueryMixedCase) != null) {
-      RouteBean routeBean = _routeIdToRouteBeanMap.get(routeQueryMixedCase);
+    if (index.getRouteForId(routeQueryMixedCase) != null) {
+      RouteBean routeBean = index.getRouteForId(routeQueryMixedCase);
       results.addMatch(resultFactory.getRouteResult(routeBean));
       results.setHint("tryAsRoute");
       // if we've matched, assume no others
@@ -816,8 +844,8 @@ public class SearchServiceImpl implements SearchService {
     }
 
     // agency + route id matching (from direct links) as upper case
-    if (_routeIdToRouteBeanMap.get(routeQuery) != null) {
-      RouteBean routeBean = _routeIdToRouteBeanMap.get(routeQuery);
+    if (index.getRouteForId(routeQuery) != null) {
+      RouteBean routeBean = index.getRouteForId(routeQuery);
       results.addMatch(resultFactory.getRouteResult(routeBean));
 		results.setHint("tryAsRoute");
       // if we've matched, assume no others
@@ -825,15 +853,16 @@ public class SearchServiceImpl implements SearchService {
     }
 		
 		// short name matching
-		if (_routeShortNameToRouteBeanMap.get(routeQuery) != null) {
-		  for (RouteBean routeBean : _routeShortNameToRouteBeanMap.get(routeQuery)) {
+		if (index.getRoutesForShortName(routeQuery) != null) {
+		  for (RouteBean routeBean : index.getRoutesForShortName(routeQuery)) {
 				results.addMatch(resultFactory.getRouteResult(routeBean));
 			  	results.setHint("tryAsRoute");
 		  }
 		}
 
-		// TOOD make this configurable as it may be expensive on large datasets
-		for (String routeShortName : _routeShortNameToRouteBeanMap.keySet()) {
+		// only short names starting or ending with the query can match, and the
+		// index finds those without scanning every short name
+		for (String routeShortName : index.getRouteShortNamesWithPrefixOrSuffix(routeQuery)) {
 			// if the route short name ends or starts with our query, and
 			// whatever's left over
 			// matches the regex
@@ -845,7 +874,7 @@ public class SearchServiceImpl implements SearchService {
 					&& ((routeShortName.startsWith(routeQuery) && leftOversAreDiscardable) || (routeShortName
 							.endsWith(routeQuery) && leftOversAreDiscardable))) {
 			  try {
-			    for (RouteBean routeBean : _routeShortNameToRouteBeanMap.get(routeShortName)) {
+			    for (RouteBean routeBean : index.getRoutesForShortName(routeShortName)) {
 			      results.addSuggestion(resultFactory.getRouteResult(routeBean));
 				  results.setHint("tryAsRoute");
 			    }
@@ -857,17 +886,14 @@ public class SearchServiceImpl implements SearchService {
 		}
 
 		// long name matching
-		for (String routeLongName : _routeLongNameToRouteBeanMap.keySet()) {
-			if (routeLongName.contains(routeQuery + " ")
-					|| routeLongName.contains(" " + routeQuery)) {
-			  try {
-			    for (RouteBean routeBean : _routeLongNameToRouteBeanMap.get(routeLongName)) {
-			      results.addSuggestion(resultFactory.getRouteResult(routeBean));
-			      results.setHint("tryAsRoute");
-			    }
-			  } catch (OutOfServiceAreaServiceException oosase) {
-			  }
-			}
+		for (String routeLongName : index.getRouteLongNamesContainingWord(routeQuery)) {
+		  try {
+		    for (RouteBean routeBean : index.getRoutesForLongName(routeLongName)) {
+		      results.addSuggestion(resultFactory.getRouteResult(routeBean));
+		      results.setHint("tryAsRoute");
+		    }
+		  } catch (OutOfServiceAreaServiceException oosase) {
+		  }
 		}
 
 	}
@@ -896,17 +922,19 @@ public class SearchServiceImpl implements SearchService {
             }
         }
 
+        SearchIndex index = getIndex();
+
         //for each route, match to either an agency prefixed route (ex: 1_92)
         //or a short name of route (ex: 92)
         for (String route : routeTokens)  {
-            if (_routeIdToRouteBeanMap.get(route) != null) {
-                RouteBean routeBean = _routeIdToRouteBeanMap.get(route);
+            if (index.getRouteForId(route) != null) {
+                RouteBean routeBean = index.getRouteForId(route);
                 results.addMatch(resultFactory.getRouteResult(routeBean));
 				results.setHint("tryAsRoute");
             }
 
-            if (_routeShortNameToRouteBeanMap.get(route) != null) {
-                for (RouteBean routeBean : _routeShortNameToRouteBeanMap.get(route)) {
+            if (index.getRoutesForShortName(route) != null) {
+                for (RouteBean routeBean : index.getRoutesForShortName(route)) {
                     results.addMatch(resultFactory.getRouteResult(routeBean));
 					results.setHint("tryAsRoute");
                 }
@@ -1039,9 +1067,11 @@ public class SearchServiceImpl implements SearchService {
 	}
 
 	private String getStopIdFromStopCode(String code) {
-		if (code != null
-				&& _stopCodeToStopIdMap.containsKey(code.toUpperCase()))
-			return _stopCodeToStopIdMap.get(code.toUpperCase());
+		if (code != null) {
+			String stopId = getIndex().getStopIdForStopCode(code.toUpperCase());
+			if (stopId != null)
+				return stopId;
+		}
 		return code;
 	}
 
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.presentation.impl.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.onebusaway.transit_data.model.RouteBean;
+import org.onebusaway.transit_data.model.StopBean;
+
+public class SearchIndexTest {
+
+  private SearchIndex _index;
+
+  private RouteBean _b63;
+
+  private RouteBean _b63a;
+
+  private RouteBean _sb63;
+
+  private RouteBean _m1;
+
+  @Before
+  public void before() {
+    _b63 = route("1_B63", "B63", "Cobble Hill - Bay Ridge");
+    _b63a = route("1_B63A", "b63a", "Bay Ridge Express");
+    _sb63 = route("1_SB63", "SB63", "Bay Ridge Local");
+    _m1 = route("2_M1", "M1", "Harlem - East Village");
+
+    _index = SearchIndex.builder("bundle").addRoute(_b63).addRoute(_b63a).addRoute(
+        _sb63).addRoute(_m1).addStop("1", stop("1_100", "A1", "Main St")).addStop(
+        "2", stop("2_100", "B1", "Main St")).addStop("1",
+        stop("1_200", "a2", "Elm St")).build();
+  }
+
+  @Test
+  public void testExactLookups() {
+    assertEquals("bundle", _index.getBundleId());
+
+    assertTrue(_index.hasRouteShortName("B63A"));
+    assertFalse(_index.hasRouteShortName("b63a"));
+    assertEquals(Arrays.asList(_b63a), _index.getRoutesForShortName("B63A"));
+    assertEquals(_m1, _index.getRouteForId("2_M1"));
+    assertEquals(Arrays.asList(_sb63),
+        _index.getRoutesForLongName("Bay Ridge Local"));
+    assertNull(_index.getRoutesForLongName("BAY RIDGE LOCAL"));
+
+    assertEquals("1_200", _index.getStopIdForStopCode("1_A2"));
+    assertEquals(new HashSet<String>(Arrays.asList("1_100", "2_100")),
+        _index.getStopIdsForUnqualifiedStopId("100"));
+    assertEquals(new HashSet<String>(Arrays.asList("1_100", "2_100")),
+        _index.getStopIdsForStopName("Main St"));
+  }
+
+  @Test
+  public void testRouteShortNamesWithPrefixOrSuffix() {
+    assertEquals(Arrays.asList("B63", "B63A", "SB63"), new ArrayList<String>(
+        _index.getRouteShortNamesWithPrefixOrSuffix("B63")));
+    assertEquals(Arrays.asList("B63", "B63A"), new ArrayList<String>(
+        _index.getRouteShortNamesWithPrefixOrSuffix("B6")));
+    assertEquals(Arrays.asList("B63A"), new ArrayList<String>(
+        _index.getRouteShortNamesWithPrefixOrSuffix("3A")));
+    assertEquals(Collections.emptyList(), new ArrayList<String>(
+        _index.getRouteShortNamesWithPrefixOrSuffix("6")));
+    assertEquals(Collections.emptyList(), new ArrayList<String>(
+        _index.getRouteShortNamesWithPrefixOrSuffix("")));
+  }
+
+  @Test
+  public void testRouteLongNamesContainingWord() {
+    assertEquals(Arrays.asList("Bay Ridge Express", "Bay Ridge Local",
+        "Cobble Hill - Bay Ridge"),
+        _index.getRouteLongNamesContainingWord("Ridge"));
+    assertEquals(Arrays.asList("Bay Ridge Local"),
+        _index.getRouteLongNamesContainingWord("Local"));
+    assertEquals(Arrays.asList("Cobble Hill - Bay Ridge",
+        "Harlem - East Village"), _index.getRouteLongNamesContainingWord("-"));
+    // matching is case sensitive and on whole words at one end or the other
+    assertEquals(Collections.emptyList(),
+        _index.getRouteLongNamesContainingWord("RIDGE"));
+    assertEquals(Arrays.asList("Cobble Hill - Bay Ridge"),
+        _index.getRouteLongNamesContainingWord("ll"));
+    assertEquals(Collections.emptyList(),
+        _index.getRouteLongNamesContainingWord("Queens"));
+  }
+
+  private RouteBean route(String id, String shortName, String longName) {
+    RouteBean.Builder builder = RouteBean.builder();
+    builder.setId(id);
+    builder.setShortName(shortName);
+    builder.setLongName(longName);
+    return builder.create();
+  }
+
+  private StopBean stop(String id, String code, String name) {
+    StopBean stop = new StopBean();
+    stop.setId(id);
+    stop.setCode(code);
+    stop.setName(name);
+    return stop;
+  }
+}
@@ -16,10 +16,25 @@
 package org.onebusaway.transit_data_federation.bundle.tasks.history;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.transit_data_federation.impl.realtime.history.BlockLocationArchiveRecord;
 
 public interface BlockLocationArchiveSource {
   public List<BlockLocationArchiveRecord> getRecordsForTrip(AgencyAndId blockId);
+
+  /**
+   * Pass each record for the trip to the consumer in turn. Sources that can
+   * stream records should override this so that the full record list for a
+   * trip never has to be held in memory at once.
+   * 
+   * @param tripId
+   * @param consumer
+   */
+  public default void streamRecordsForTrip(AgencyAndId tripId,
+      Consumer<BlockLocationArchiveRecord> consumer) {
+    for (BlockLocationArchiveRecord record : getRecordsForTrip(tripId))
+      consumer.accept(record);
+  }
 }
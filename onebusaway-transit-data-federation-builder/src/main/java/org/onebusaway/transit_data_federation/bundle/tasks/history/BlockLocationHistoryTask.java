@@ -21,6 +21,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.onebusaway.collections.FactoryMap;
 import org.onebusaway.collections.Range;
@@ -58,6 +62,10 @@ public class BlockLocationHistoryTask implements Runnable {
 
   private AgencyAndId _skipToTrip = null;
 
+  private int _parallelism = 1;
+
+  private int _progressInterval = 100;
+
   @Autowired
   public void setTransitGraphDao(TransitGraphDao transitGraphDao) {
     _transitGraphDao = transitGraphDao;
@@ -89,42 +97,78 @@ public class BlockLocationHistoryTask implements Runnable {
     _skipToTrip = AgencyAndIdLibrary.convertFromString(tripId);
   }
 
+  /**
+   * Trips are processed on a fork-join pool of this many threads. The source
+   * must be safe to call from several threads at once when this is greater
+   * than one, which {@link JdbcBlockLocationArchiveSource} is but
+   * {@link DatabaseBlockLocationArchiveSource} is not.
+   * 
+   * @param parallelism the number of trips to process at once
+   */
+  public void setParallelism(int parallelism) {
+    _parallelism = parallelism;
+  }
+
+  /**
+   * @param progressInterval log progress and throughput every this many trips
+   */
+  public void setProgressInterval(int progressInterval) {
+    _progressInterval = progressInterval;
+  }
+
   @Override
   public void run() {
 
     if (_source == null) {
       _log.info("No BlockLocationHistoryTask data source specified.  Skipping this optional task");
+      return;
     }
 
-    int tripIndex = 0;
-
-    Iterable<TripEntry> allTrips = _transitGraphDao.getAllTrips();
+    List<TripEntry> trips = new ArrayList<TripEntry>();
 
     boolean skipTo = _skipToTrip != null;
 
-    for (TripEntry trip : allTrips) {
-
-      if (tripIndex % 20 == 0)
-        _log.info("tripsProcessed=" + tripIndex);
-      tripIndex++;
-
+    for (TripEntry trip : _transitGraphDao.getAllTrips()) {
       if (_skipToTrip != null && trip.getId().equals(_skipToTrip)) {
         skipTo = false;
       } else if (!skipTo) {
-        try {
-          processTrip(trip);
-        } catch (Throwable ex) {
-          _log.warn("error processing trip " + trip.getId(), ex);
-        }
+        trips.add(trip);
       }
     }
+
+    Progress progress = new Progress(trips.size());
+
+    if (_parallelism > 1) {
+      ForkJoinPool pool = new ForkJoinPool(_parallelism);
+      try {
+        pool.invoke(new ProcessTripsAction(trips, 0, trips.size(), progress));
+      } finally {
+        pool.shutdown();
+      }
+    } else {
+      for (TripEntry trip : trips)
+        processTripAndLogProgress(trip, progress);
+    }
+
+    progress.log("complete");
   }
 
-  private void processTrip(TripEntry trip) {
+  private void processTripAndLogProgress(TripEntry trip, Progress progress) {
+    try {
+      processTrip(trip, progress);
+    } catch (Throwable ex) {
+      progress.errors.incrementAndGet();
+      _log.warn("error processing trip " + trip.getId(), ex);
+    }
+    int tripsProcessed = progress.tripsProcessed.incrementAndGet();
+    if (tripsProcessed % _progressInterval == 0)
+      progress.log("in progress");
+  }
 
-    List<BlockLocationArchiveRecord> records = _source.getRecordsForTrip(trip.getId());
+  private void processTrip(TripEntry trip, Progress progress) {
 
-    Map<AgencyAndId, BlockLocationArchiveRecordMap> recordsByTrip = loadRecords(records);
+    Map<AgencyAndId, BlockLocationArchiveRecordMap> recordsByTrip = loadRecords(
+        trip.getId(), progress);
 
     List<ScheduleDeviationHistory> histories = new ArrayList<ScheduleDeviationHistory>();
 
@@ -144,22 +188,24 @@ public class BlockLocationHistoryTask implements Runnable {
       histories.add(history);
     }
 
-    if (!histories.isEmpty())
+    if (!histories.isEmpty()) {
       _scheduleDeviationHistoryDao.saveScheduleDeviationHistory(histories);
+      progress.histories.addAndGet(histories.size());
+    }
   }
 
   private Map<AgencyAndId, BlockLocationArchiveRecordMap> loadRecords(
-      List<BlockLocationArchiveRecord> records) {
+      AgencyAndId tripId, Progress progress) {
 
     Map<AgencyAndId, BlockLocationArchiveRecordMap> recordsByTrip = new FactoryMap<AgencyAndId, BlockLocationArchiveRecordMap>(
         new BlockLocationArchiveRecordMap());
 
-    for (BlockLocationArchiveRecord record : records) {
-      AgencyAndId tripId = record.getTripId();
-      AgencyAndIdInstance instance = new AgencyAndIdInstance(tripId,
-          record.getServiceDate());
+    _source.streamRecordsForTrip(tripId, record -> {
+      AgencyAndIdInstance instance = new AgencyAndIdInstance(
+          record.getTripId(), record.getServiceDate());
       recordsByTrip.get(record.getTripId()).get(instance).add(record);
-    }
+      progress.records.incrementAndGet();
+    });
 
     return recordsByTrip;
   }
@@ -346,6 +392,74 @@ public class BlockLocationHistoryTask implements Runnable {
    * 
    ****/
 
+  /**
+   * Splits a range of trips in half until it is small enough to process
+   * directly, so idle pool threads can steal the remaining work
+   */
+  private class ProcessTripsAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int THRESHOLD = 8;
+
+    private final List<TripEntry> _trips;
+
+    private final int _from;
+
+    private final int _to;
+
+    private final Progress _progress;
+
+    public ProcessTripsAction(List<TripEntry> trips, int from, int to,
+        Progress progress) {
+      _trips = trips;
+      _from = from;
+      _to = to;
+      _progress = progress;
+    }
+
+    @Override
+    protected void compute() {
+      if (_to - _from <= THRESHOLD) {
+        for (int i = _from; i < _to; i++)
+          processTripAndLogProgress(_trips.get(i), _progress);
+        return;
+      }
+      int mid = (_from + _to) >>> 1;
+      invokeAll(new ProcessTripsAction(_trips, _from, mid, _progress),
+          new ProcessTripsAction(_trips, mid, _to, _progress));
+    }
+  }
+
+  private static class Progress {
+
+    private final long startTime = System.currentTimeMillis();
+
+    private final int tripCount;
+
+    private final AtomicInteger tripsProcessed = new AtomicInteger();
+
+    private final AtomicLong records = new AtomicLong();
+
+    private final AtomicInteger histories = new AtomicInteger();
+
+    private final AtomicInteger errors = new AtomicInteger();
+
+    public Progress(int tripCount) {
+      this.tripCount = tripCount;
+    }
+
+    public void log(String label) {
+      double seconds = Math.max(System.currentTimeMillis() - startTime, 1) / 1000.0;
+      int trips = tripsProcessed.get();
+      long recordCount = records.get();
+      _log.info(String.format(
+          "%s: tripsProcessed=%d/%d records=%d histories=%d errors=%d elapsed=%.1fs trips/sec=%.1f records/sec=%.0f",
+          label, trips, tripCount, recordCount, histories.get(), errors.get(),
+          seconds, trips / seconds, recordCount / seconds));
+    }
+  }
+
   public static class BlockLocationArchiveRecordMap extends
       FactoryMap<AgencyAndIdInstance, List<BlockLocationArchiveRecord>> {
 
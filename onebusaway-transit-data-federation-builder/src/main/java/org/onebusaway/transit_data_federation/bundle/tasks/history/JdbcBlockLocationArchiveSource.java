@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.bundle.tasks.history;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.transit_data_federation.impl.realtime.history.BlockLocationArchiveRecord;
+
+/**
+ * Reads {@link BlockLocationArchiveRecord} rows straight from the historical
+ * block location table with a forward-only cursor, bypassing Hibernate. Only
+ * the fields used to build schedule deviation histories are populated, and
+ * rows without a schedule deviation are skipped.
+ *
+ * Each call borrows its own connection from the {@link DataSource}, so a
+ * single instance can serve several trips in parallel.
+ */
+public class JdbcBlockLocationArchiveSource implements
+    BlockLocationArchiveSource {
+
+  private static final String QUERY = "SELECT serviceDate, time, scheduleDeviation"
+      + " FROM oba_block_location_records_historical"
+      + " WHERE trip_agencyId=? AND trip_id=? AND scheduleDeviation IS NOT NULL";
+
+  private DataSource _dataSource;
+
+  private int _fetchSize = 1000;
+
+  public void setDataSource(DataSource dataSource) {
+    _dataSource = dataSource;
+  }
+
+  /**
+   * @param fetchSize the number of rows the driver should fetch per round trip
+   */
+  public void setFetchSize(int fetchSize) {
+    _fetchSize = fetchSize;
+  }
+
+  @Override
+  public List<BlockLocationArchiveRecord> getRecordsForTrip(AgencyAndId tripId) {
+    List<BlockLocationArchiveRecord> records = new ArrayList<BlockLocationArchiveRecord>();
+    streamRecordsForTrip(tripId, records::add);
+    return records;
+  }
+
+  @Override
+  public void streamRecordsForTrip(AgencyAndId tripId,
+      Consumer<BlockLocationArchiveRecord> consumer) {
+
+    try (Connection connection = _dataSource.getConnection()) {
+
+      /**
+       * Some drivers (PostgreSQL in particular) only honor the fetch size with
+       * a cursor inside a transaction, and otherwise read the full result set
+       * into memory
+       */
+      boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+
+      try (PreparedStatement statement = connection.prepareStatement(QUERY,
+          ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+        statement.setFetchSize(_fetchSize);
+        statement.setString(1, tripId.getAgencyId());
+        statement.setString(2, tripId.getId());
+
+        try (ResultSet rs = statement.executeQuery()) {
+          while (rs.next()) {
+            BlockLocationArchiveRecord record = new BlockLocationArchiveRecord();
+            record.setTripId(tripId);
+            record.setServiceDate(rs.getLong(1));
+            record.setTime(rs.getLong(2));
+            record.setScheduleDeviation(rs.getDouble(3));
+            consumer.accept(record);
+          }
+        }
+      } finally {
+        connection.rollback();
+        connection.setAutoCommit(autoCommit);
+      }
+    } catch (SQLException ex) {
+      throw new IllegalStateException("error reading block location records for trip "
+          + tripId, ex);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.bundle.tasks.transit_graph;
+
+import java.io.File;
+
+import org.onebusaway.transit_data_federation.impl.bundle.BundleDeltaLibrary;
+import org.onebusaway.transit_data_federation.impl.transit_graph.TransitGraphImpl;
+import org.onebusaway.transit_data_federation.model.bundle.BundleDelta;
+import org.onebusaway.transit_data_federation.services.FederatedTransitDataBundle;
+import org.onebusaway.utility.ObjectSerializationLibrary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Writes a {@link BundleDelta} from a previously built bundle to the bundle
+ * being built, so a running server on the previous bundle can switch by
+ * patching its transit graph instead of reloading it. Does nothing unless
+ * {@link #setPreviousBundlePath(File)} is set.
+ */
+public class BundleDeltaTask implements Runnable {
+
+  private static Logger _log = LoggerFactory.getLogger(BundleDeltaTask.class);
+
+  private FederatedTransitDataBundle _bundle;
+
+  private File _previousBundlePath;
+
+  @Autowired
+  public void setBundle(FederatedTransitDataBundle bundle) {
+    _bundle = bundle;
+  }
+
+  /**
+   * @param previousBundlePath the root of the bundle servers will be running
+   *          when they switch to the bundle being built
+   */
+  public void setPreviousBundlePath(File previousBundlePath) {
+    _previousBundlePath = previousBundlePath;
+  }
+
+  public void run() {
+
+    if (_previousBundlePath == null) {
+      _log.info("no previous bundle path set, skipping bundle delta");
+      return;
+    }
+
+    FederatedTransitDataBundle previous = new FederatedTransitDataBundle(
+        _previousBundlePath);
+
+    try {
+
+      TransitGraphImpl base = ObjectSerializationLibrary.readObject(previous.getTransitGraphPath());
+      base.initialize();
+      TransitGraphImpl target = ObjectSerializationLibrary.readObject(_bundle.getTransitGraphPath());
+      target.initialize();
+
+      BundleDelta delta = BundleDeltaLibrary.computeDelta(base, target);
+      _log.info("bundle delta from " + _previousBundlePath + ": " + delta);
+
+      ObjectSerializationLibrary.writeObject(_bundle.getBundleDeltaPath(),
+          delta);
+
+    } catch (Exception ex) {
+      throw new IllegalStateException("error computing bundle delta", ex);
+    }
+  }
+}
@@ -18,6 +18,7 @@ package org.onebusaway.transit_data_federation.bundle.tasks.transit_graph;
 
 import org.onebusaway.container.refresh.RefreshService;
 import org.onebusaway.transit_data_federation.impl.RefreshableResources;
+import org.onebusaway.transit_data_federation.impl.transit_graph.TransitGraphBinaryWriter;
 import org.onebusaway.transit_data_federation.impl.transit_graph.TransitGraphImpl;
 import org.onebusaway.transit_data_federation.services.FederatedTransitDataBundle;
 import org.onebusaway.utility.ObjectSerializationLibrary;
@@ -44,6 +45,8 @@ public class TransitGraphTask implements Runnable {
 
   private FrequencyEntriesFactory _frequencyEntriesFactory;
 
+  private boolean _writeBinaryGraph = true;
+
   @Autowired
   public void setBundle(FederatedTransitDataBundle bundle) {
     _bundle = bundle;
@@ -91,6 +94,15 @@ public class TransitGraphTask implements Runnable {
     _refreshService = refreshService;
   }
 
+  /**
+   * Also write the graph in the binary bundle format, which the runtime can
+   * decode from a memory-mapped file instead of deserializing. Defaults to
+   * true.
+   */
+  public void setWriteBinaryGraph(boolean writeBinaryGraph) {
+    _writeBinaryGraph = writeBinaryGraph;
+  }
+
   @Transactional
   public void run() {
 
@@ -115,6 +127,10 @@ public class TransitGraphTask implements Runnable {
       ObjectSerializationLibrary.writeObject(_bundle.getTransitGraphPath(),
           graph);
 
+      if (_writeBinaryGraph)
+        TransitGraphBinaryWriter.write(graph,
+            _bundle.getTransitGraphBinaryPath());
+
     } catch (Exception ex) {
       throw new IllegalStateException("error writing graph to file", ex);
     }
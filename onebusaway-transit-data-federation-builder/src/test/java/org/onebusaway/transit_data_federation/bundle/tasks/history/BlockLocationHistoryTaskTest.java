@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.bundle.tasks.history;
+
+import static org.junit.Assert.assertEquals;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.trip;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.transit_data_federation.impl.realtime.history.BlockLocationArchiveRecord;
+import org.onebusaway.transit_data_federation.impl.realtime.history.ScheduleDeviationHistory;
+import org.onebusaway.transit_data_federation.services.realtime.ScheduleDeviationHistoryDao;
+import org.onebusaway.transit_data_federation.services.transit_graph.TransitGraphDao;
+import org.onebusaway.transit_data_federation.services.transit_graph.TripEntry;
+
+public class BlockLocationHistoryTaskTest {
+
+  private static final long SERVICE_DATE = 1792281600000L;
+
+  private static final long DAY = 24 * 60 * 60 * 1000;
+
+  private BlockLocationHistoryTask _task;
+
+  private ScheduleDeviationHistoryDao _dao;
+
+  @Before
+  public void before() {
+
+    List<TripEntry> trips = new ArrayList<TripEntry>();
+    for (int i = 0; i < 20; i++)
+      trips.add(trip("trip" + i));
+
+    TransitGraphDao transitGraphDao = Mockito.mock(TransitGraphDao.class);
+    Mockito.when(transitGraphDao.getAllTrips()).thenReturn(trips);
+
+    _dao = Mockito.mock(ScheduleDeviationHistoryDao.class);
+
+    _task = new BlockLocationHistoryTask();
+    _task.setTransitGraphDao(transitGraphDao);
+    _task.setScheduleDeviationHistoryDao(_dao);
+    _task.setSource(new TestSource());
+  }
+
+  @Test
+  public void testRunInParallel() {
+
+    _task.setParallelism(4);
+    _task.run();
+
+    Set<AgencyAndId> tripIds = new HashSet<AgencyAndId>();
+    for (ScheduleDeviationHistory history : getSavedHistories(20)) {
+      tripIds.add(history.getTripId());
+      assertEquals(12, history.getNumberOfSamples());
+    }
+    assertEquals(20, tripIds.size());
+  }
+
+  @Test
+  public void testSkipToTrip() {
+
+    _task.setSkipToTrip("1_trip14");
+    _task.run();
+
+    Set<AgencyAndId> tripIds = new HashSet<AgencyAndId>();
+    for (ScheduleDeviationHistory history : getSavedHistories(5))
+      tripIds.add(history.getTripId());
+    assertEquals(new HashSet<AgencyAndId>(Arrays.asList(
+        new AgencyAndId("1", "trip15"), new AgencyAndId("1", "trip16"),
+        new AgencyAndId("1", "trip17"), new AgencyAndId("1", "trip18"),
+        new AgencyAndId("1", "trip19"))), tripIds);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private List<ScheduleDeviationHistory> getSavedHistories(int saves) {
+    ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+    Mockito.verify(_dao, Mockito.times(saves)).saveScheduleDeviationHistory(
+        captor.capture());
+    List<ScheduleDeviationHistory> histories = new ArrayList<ScheduleDeviationHistory>();
+    for (List list : captor.getAllValues())
+      histories.addAll(list);
+    return histories;
+  }
+
+  /**
+   * Twelve days of records for every trip, one every minute for an hour
+   */
+  private static class TestSource implements BlockLocationArchiveSource {
+
+    @Override
+    public List<BlockLocationArchiveRecord> getRecordsForTrip(
+        AgencyAndId tripId) {
+      List<BlockLocationArchiveRecord> records = new ArrayList<BlockLocationArchiveRecord>();
+      for (int day = 0; day < 12; day++) {
+        long serviceDate = SERVICE_DATE + day * DAY;
+        for (int t = 0; t <= 3600; t += 60) {
+          BlockLocationArchiveRecord record = new BlockLocationArchiveRecord();
+          record.setTripId(tripId);
+          record.setServiceDate(serviceDate);
+          record.setTime(serviceDate + (8 * 3600 + t) * 1000L);
+          record.setScheduleDeviation((double) (60 + day));
+          records.add(record);
+        }
+      }
+      return records;
+    }
+  }
+}
@@ -26,6 +26,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import org.onebusaway.container.refresh.RefreshService;
 import org.onebusaway.transit_data_federation.impl.RefreshableResources;
+import org.onebusaway.transit_data_federation.impl.transit_graph.TransitGraphBinaryReader;
 import org.onebusaway.transit_data_federation.impl.transit_graph.TransitGraphImpl;
 import org.onebusaway.transit_data_federation.services.FederatedTransitDataBundle;
 import org.onebusaway.utility.ObjectSerializationLibrary;
@@ -59,6 +60,8 @@ public class TransitGraphTaskTest {
 
     FederatedTransitDataBundle bundle = Mockito.mock(FederatedTransitDataBundle.class);
     Mockito.when(bundle.getTransitGraphPath()).thenReturn(path);
+    File binaryPath = new File(path.getPath() + ".bin");
+    Mockito.when(bundle.getTransitGraphBinaryPath()).thenReturn(binaryPath);
 
     task.setBundle(bundle);
 
@@ -81,5 +84,8 @@ public class TransitGraphTaskTest {
 
     TransitGraphImpl graph = ObjectSerializationLibrary.readObject(path);
     assertNotNull(graph);
+
+    assertTrue(binaryPath.exists());
+    assertNotNull(TransitGraphBinaryReader.read(binaryPath));
   }
 }
@@ -15,8 +15,12 @@
  */
 package org.onebusaway.transit_data_federation_webapp.controllers;
 
+import java.util.Collections;
+import java.util.List;
+
 import net.sf.ehcache.CacheManager;
 
+import org.onebusaway.container.cache.CacheableMethodManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -29,14 +33,24 @@ public class ClearCacheController {
 
   private CacheManager _cacheManager;
 
+  private List<CacheableMethodManager> _cacheableMethodManagers = Collections.emptyList();
+
   @Autowired
   public void setCacheManager(CacheManager cacheManager) {
     _cacheManager = cacheManager;
   }
 
+  @Autowired(required = false)
+  public void setCacheableMethodManagers(
+      List<CacheableMethodManager> cacheableMethodManagers) {
+    _cacheableMethodManagers = cacheableMethodManagers;
+  }
+
   @RequestMapping()
   public ModelAndView index(@RequestParam() String serviceId) {
     _cacheManager.clearAll();
+    for (CacheableMethodManager manager : _cacheableMethodManagers)
+      manager.clearAll();
     return new ModelAndView("ok.jspx");
   }
 }
@@ -18,16 +18,20 @@ package org.onebusaway.transit_data_federation.impl;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -36,6 +40,7 @@ import org.onebusaway.exceptions.ServiceException;
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.transit_data.model.RegisterAlarmQueryBean;
 import org.onebusaway.util.AgencyAndIdLibrary;
+import org.onebusaway.transit_data_federation.impl.HashedTimingWheel.Timeout;
 import org.onebusaway.transit_data_federation.services.AlarmAction;
 import org.onebusaway.transit_data_federation.services.ArrivalAndDepartureAlarmService;
 import org.onebusaway.transit_data_federation.services.ArrivalAndDepartureQuery;
@@ -49,51 +54,189 @@ import org.onebusaway.util.SystemTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Component;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Alarms are grouped by block instance so that new real-time data for a block
+ * can move the alarms of the vehicle serving it. Each pending alarm sits in a
+ * {@link HashedTimingWheel} at the wall-clock time it should fire, which is
+ * its effective schedule time adjusted by the latest schedule deviation of its
+ * vehicle. A dedicated scheduler thread advances the wheel once per tick and
+ * hands each expired alarm to a separate, bounded callback pool as its own
+ * task, so slow callbacks only hold up each other and never the tick.
+ *
+ * Registration, cancellation and real-time updates only touch concurrent maps
+ * and the wheel, so they never wait on the thread firing alarms or on each
+ * other.
+ */
 @Component
-class ArrivalAndDepartureAlarmServiceImpl implements
+@ManagedResource("org.onebusaway.transit_data_federation.impl:name=ArrivalAndDepartureAlarmServiceImpl")
+public class ArrivalAndDepartureAlarmServiceImpl implements
     ArrivalAndDepartureAlarmService, BlockLocationListener {
 
   private static Logger _log = LoggerFactory.getLogger(ArrivalAndDepartureAlarmServiceImpl.class);
 
+  private static final int WHEEL_SIZE = 512;
+
   private ArrivalAndDepartureService _arrivalAndDepartureService;
 
   private ConcurrentMap<BlockInstance, AlarmsForBlockInstance> _alarmsByBlockInstance = new ConcurrentHashMap<BlockInstance, AlarmsForBlockInstance>();
 
-  private Map<AgencyAndId, AlarmForBlockInstance> _alarmsById = new HashMap<AgencyAndId, AlarmForBlockInstance>();
+  private ConcurrentMap<AgencyAndId, AlarmForBlockInstance> _alarmsById = new ConcurrentHashMap<AgencyAndId, AlarmForBlockInstance>();
+
+  private ScheduledExecutorService _tickExecutor;
+
+  private ExecutorService _callbackExecutor;
 
-  private ScheduledExecutorService _executor;
+  private HashedTimingWheel<AlarmForBlockInstance> _wheel;
 
   private int _threadPoolSize = 5;
 
+  private int _callbackQueueSize = 10000;
+
+  private long _tickDuration = 1000;
+
+  private int _connectTimeout = 5 * 1000;
+
+  private int _readTimeout = 10 * 1000;
+
+  private final AtomicLong _firedCount = new AtomicLong();
+
+  private final AtomicLong _canceledCount = new AtomicLong();
+
+  private final AtomicLong _rejectedCount = new AtomicLong();
+
+  private final AtomicLong _maxFiringLag = new AtomicLong();
+
+  private volatile long _lastFiringLag = 0;
+
   @Autowired
   public void setArrivalAndDepartureService(
       ArrivalAndDepartureService arrivalAndDepartureService) {
     _arrivalAndDepartureService = arrivalAndDepartureService;
   }
 
+  /**
+   * @param threadPoolSize the number of threads calling alarm callback urls
+   */
   public void setThreadPoolSize(int threadPoolSize) {
     _threadPoolSize = threadPoolSize;
   }
 
+  /**
+   * @param callbackQueueSize how many fired alarms may wait for a callback
+   *          thread before further alarms are dropped
+   */
+  public void setCallbackQueueSize(int callbackQueueSize) {
+    _callbackQueueSize = callbackQueueSize;
+  }
+
+  /**
+   * @param tickDuration how often pending alarms are checked, in ms
+   */
+  public void setTickDuration(long tickDuration) {
+    _tickDuration = tickDuration;
+  }
+
+  /**
+   * @param connectTimeout how long to wait, in ms, to connect to an alarm's
+   *          callback url
+   */
+  public void setConnectTimeout(int connectTimeout) {
+    _connectTimeout = connectTimeout;
+  }
+
+  /**
+   * @param readTimeout how long to wait, in ms, for an alarm's callback url to
+   *          respond
+   */
+  public void setReadTimeout(int readTimeout) {
+    _readTimeout = readTimeout;
+  }
+
   /****
    * 
    ****/
 
   @PostConstruct
   public void start() {
-    _executor = Executors.newScheduledThreadPool(_threadPoolSize);
+    _wheel = new HashedTimingWheel<AlarmForBlockInstance>(_tickDuration,
+        WHEEL_SIZE, SystemTime.currentTimeMillis());
+    _callbackExecutor = new ThreadPoolExecutor(_threadPoolSize,
+        _threadPoolSize, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(_callbackQueueSize),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat(
+            "alarm-callback-%d").build());
+    _tickExecutor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat(
+            "alarm-tick-%d").build());
+    _tickExecutor.scheduleAtFixedRate(new ProcessAlarmsTask(), _tickDuration,
+        _tickDuration, TimeUnit.MILLISECONDS);
   }
 
   @PreDestroy
   public void stop() {
-    if (_executor != null) {
-      _executor.shutdownNow();
-      _executor = null;
+    if (_tickExecutor != null) {
+      _tickExecutor.shutdownNow();
+      _tickExecutor = null;
+    }
+    if (_callbackExecutor != null) {
+      _callbackExecutor.shutdownNow();
+      _callbackExecutor = null;
     }
   }
 
+  /****
+   * Statistics Methods
+   ****/
+
+  @ManagedAttribute
+  public int getPendingAlarmCount() {
+    return _alarmsById.size();
+  }
+
+  @ManagedAttribute
+  public int getBlockInstanceCount() {
+    return _alarmsByBlockInstance.size();
+  }
+
+  @ManagedAttribute
+  public long getFiredAlarmCount() {
+    return _firedCount.get();
+  }
+
+  @ManagedAttribute
+  public long getCanceledAlarmCount() {
+    return _canceledCount.get();
+  }
+
+  /**
+   * @return how many fired alarms were dropped because the callback queue was
+   *         full
+   */
+  @ManagedAttribute
+  public long getRejectedAlarmCount() {
+    return _rejectedCount.get();
+  }
+
+  /**
+   * @return how late, in ms, the most recently fired alarm was handed off for
+   *         firing, relative to when it was due
+   */
+  @ManagedAttribute
+  public long getLastFiringLag() {
+    return _lastFiringLag;
+  }
+
+  @ManagedAttribute
+  public long getMaxFiringLag() {
+    return _maxFiringLag.get();
+  }
+
   /****
    * {@link ArrivalAndDepartureAlarmService} Interface
    ****/
@@ -112,11 +255,6 @@ class ArrivalAndDepartureAlarmServiceImpl implements
      */
     BlockInstance blockInstance = instance.getBlockInstance();
 
-    /**
-     * Retrieve the alarms for the block instance
-     */
-    AlarmsForBlockInstance alarms = getAlarmsForBlockInstance(blockInstance);
-
     /**
      * The effective schedule time is the point in the transit vehicle's
      * schedule run time when the alarm should be fired
@@ -130,10 +268,29 @@ class ArrivalAndDepartureAlarmServiceImpl implements
     AlarmAction action = new AlarmAction();
     action.setUrl(alarmBean.getUrl());
 
-    AlarmForBlockInstance alarm = alarms.registerAlarm(action,
-        effectiveScheduleTime, instance);
+    StopEntry stop = instance.getStop();
+    AgencyAndId alarmId = new AgencyAndId(stop.getId().getAgencyId(),
+        UUID.randomUUID().toString());
+
+    AlarmForBlockInstance alarm = new AlarmForBlockInstance(alarmId, action,
+        blockInstance, effectiveScheduleTime);
+
+    _alarmsById.put(alarmId, alarm);
 
-    _alarmsById.put(alarm.getId(), alarm);
+    /**
+     * Adding the alarm and creating the alarms for the block instance if need
+     * be is atomic with respect to the block instance being cleaned up when
+     * its last alarm fires
+     */
+    BlockLocation blockLocation = instance.getBlockLocation();
+    _alarmsByBlockInstance.compute(blockInstance, (key, alarms) -> {
+      if (alarms == null)
+        alarms = new AlarmsForBlockInstance();
+      alarms.addAlarm(alarm, blockLocation);
+      return alarms;
+    });
+
+    scheduleAlarm(alarm);
 
     _log.debug("alarm created: {}", alarm.getId());
 
@@ -143,9 +300,15 @@ class ArrivalAndDepartureAlarmServiceImpl implements
   @Override
   public void cancelAlarmForArrivalAndDepartureAtStop(AgencyAndId alarmId) {
     _log.debug("cancelling alarm: {}", alarmId);
-    AlarmForBlockInstance alarm = _alarmsById.get(alarmId);
-    if (alarm != null)
-      alarm.setCanceled();
+    AlarmForBlockInstance alarm = _alarmsById.remove(alarmId);
+    if (alarm == null)
+      return;
+    alarm.setCanceled();
+    Timeout<AlarmForBlockInstance> timeout = alarm.getTimeout();
+    if (timeout != null)
+      timeout.cancel();
+    removeAlarmFromBlockInstance(alarm);
+    _canceledCount.incrementAndGet();
   }
 
   /****
@@ -190,127 +353,144 @@ class ArrivalAndDepartureAlarmServiceImpl implements
   }
 
   /**
-   * We group the alarms by their block instance, storing the alarms in a
-   * ConcurrentMap keyed off the block instance. When all alarms for a block
-   * instance have been fired, we'd like to be able to clean and remove the
-   * alarms object. However, there is a possibility for a race condition when
-   * attempting to remove the AlarmsForBlockInstance object from the concurrent
-   * map when another alarm is being registered at the same time. We get around
-   * this by marking an alarms object as "canceled", indicating that no new
-   * alarms can be registered. Thus, we loop while until we get an active alarm
-   * instance.
-   * 
-   * @param blockInstance
-   * @return
+   * Place the alarm in the timing wheel at its current fire time, replacing
+   * any earlier placement. If the alarm has already fired or been canceled,
+   * this does nothing.
+   *
+   * Registration and real-time updates for the same alarm can race, so the
+   * replacement timeout is swapped in with a compare-and-set and the fire time
+   * is recomputed on every retry, which means the last swap always reflects
+   * the latest schedule deviation.
    */
-  private AlarmsForBlockInstance getAlarmsForBlockInstance(
-      BlockInstance blockInstance) {
-
-    while (true) {
-      AlarmsForBlockInstance alarms = _alarmsByBlockInstance.get(blockInstance);
-
-      if (alarms == null) {
-        AlarmsForBlockInstance newAlarms = new AlarmsForBlockInstance(
-            blockInstance);
-        alarms = _alarmsByBlockInstance.putIfAbsent(blockInstance, newAlarms);
-        if (alarms == null)
-          alarms = newAlarms;
-      }
+  private void scheduleAlarm(AlarmForBlockInstance alarm) {
+
+    while (!alarm.isCanceled()) {
+
+      Timeout<AlarmForBlockInstance> existing = alarm.getTimeout();
+      long fireTime = alarm.computeFireTime();
+
+      if (existing != null && existing.getDeadline() == fireTime)
+        return;
+
+      Timeout<AlarmForBlockInstance> timeout = _wheel.schedule(alarm, fireTime);
 
-      if (alarms.isCanceled())
+      if (!alarm.compareAndSetTimeout(existing, timeout)) {
+        /**
+         * Another thread moved the alarm first, so try again against its
+         * placement
+         */
+        timeout.cancel();
         continue;
+      }
 
-      return alarms;
+      /**
+       * If the old placement already expired, the alarm has fired and the new
+       * placement is not needed. The alarm may also have been canceled while
+       * we were placing it.
+       */
+      if ((existing != null && !existing.cancel()) || alarm.isCanceled())
+        timeout.cancel();
+      return;
     }
   }
 
-  private void fireAlarm(AlarmForBlockInstance alarm) {
-    _executor.submit(new FireAlarmTask(alarm.getId(), alarm.action));
+  private void removeAlarmFromBlockInstance(AlarmForBlockInstance alarm) {
+    _alarmsByBlockInstance.computeIfPresent(alarm.getBlockInstance(),
+        (key, alarms) -> {
+          alarms.removeAlarm(alarm);
+          if (alarms.isEmpty()) {
+            _log.debug("all alarms fired or canceled, cleaning up: {}", key);
+            return null;
+          }
+          return alarms;
+        });
+  }
+
+  /**
+   * Called once per tick from the tick thread
+   */
+  private void processAlarms() {
+
+    long now = SystemTime.currentTimeMillis();
+    List<Timeout<AlarmForBlockInstance>> expired = _wheel.advance(now);
+
+    for (Timeout<AlarmForBlockInstance> timeout : expired) {
+
+      AlarmForBlockInstance alarm = timeout.getValue();
+
+      if (alarm.isCanceled() || _alarmsById.remove(alarm.getId()) == null)
+        continue;
+
+      removeAlarmFromBlockInstance(alarm);
+
+      long lag = Math.max(now - timeout.getDeadline(), 0);
+      _lastFiringLag = lag;
+      _maxFiringLag.accumulateAndGet(lag, Math::max);
+      _firedCount.incrementAndGet();
+
+      try {
+        _callbackExecutor.execute(new FireAlarmTask(alarm));
+      } catch (RejectedExecutionException ex) {
+        _rejectedCount.incrementAndGet();
+        _log.warn("alarm callback queue full, dropping alarm: {}",
+            alarm.getId());
+      }
+    }
   }
 
   /****
    * 
    ****/
 
-  private class AlarmsForBlockInstance implements Runnable {
-
-    private final BlockInstance _blockInstance;
+  private class AlarmsForBlockInstance {
 
     /**
-     * Queue of alarms where no real-time data is available. If real-time
-     * becomes available, we'll upgrade the alarm to the first real-time-equiped
-     * vehicle.
+     * Pending alarms for the block instance
      */
-    private PriorityQueue<AlarmForBlockInstance> _noVehicleIdQueue = new PriorityQueue<AlarmForBlockInstance>();
+    private final Set<AlarmForBlockInstance> _alarms = ConcurrentHashMap.newKeySet();
 
     /**
-     * Queues of alarms grouped by vehicle id. Remember that multiple vehicles
+     * Real-time state grouped by vehicle id. Remember that multiple vehicles
      * can be servicing the same block instance.
      */
-    private Map<AgencyAndId, VehicleInfo> _vehicleInfoByVehicleId = new HashMap<AgencyAndId, VehicleInfo>();
-
-    /**
-     * The actual task that will run to check and fire alarms in the future. We
-     * reschedule this task to reflect the next upcoming alarm.
-     */
-    private Future<?> _alarmTask = null;
-
-    /**
-     * Indicates that this alarms instance has been canceled and no new alarms
-     * should be registered. An alarm instance is canceled when it contains no
-     * new alarms. The "canceled" flag helps avoid a race condition where
-     * additional alarms are added while we are in the process of cleanup.
-     */
-    private boolean _canceled = false;
-
-    public AlarmsForBlockInstance(BlockInstance blockInstance) {
-      _blockInstance = blockInstance;
-    }
+    private final ConcurrentMap<AgencyAndId, VehicleInfo> _vehicleInfoByVehicleId = new ConcurrentHashMap<AgencyAndId, VehicleInfo>();
 
-    public synchronized boolean isCanceled() {
-      return _canceled;
+    public boolean isEmpty() {
+      return _alarms.isEmpty();
     }
 
-    public synchronized AlarmForBlockInstance registerAlarm(AlarmAction action,
-        int effectiveScheduleTime, ArrivalAndDepartureInstance instance) {
-
-      StopEntry stop = instance.getStop();
-      AgencyAndId stopId = stop.getId();
-      AgencyAndId alarmId = new AgencyAndId(stopId.getAgencyId(),
-          UUID.randomUUID().toString());
-
-      AlarmForBlockInstance alarm = new AlarmForBlockInstance(alarmId, action,
-          effectiveScheduleTime);
+    public void addAlarm(AlarmForBlockInstance alarm,
+        BlockLocation blockLocation) {
 
       /**
-       * We put the alarm in the schedule-only vs real-time queue as appropriate
+       * We attach the alarm to its vehicle if we have real-time data, and
+       * leave it schedule-only otherwise
        */
-      BlockLocation blockLocation = instance.getBlockLocation();
-
       if (blockLocation == null || blockLocation.getVehicleId() == null) {
 
-        _log.debug("schedule only for alarm: {}", instance);
-        _noVehicleIdQueue.add(alarm);
+        _log.debug("schedule only for alarm: {}", alarm.getId());
 
       } else {
 
-        _log.debug("real-time for alarm: {}", instance);
+        _log.debug("real-time for alarm: {}", alarm.getId());
         AgencyAndId vehicleId = blockLocation.getVehicleId();
-        VehicleInfo vehicleInfo = getVehicleInfoForVehicleId(vehicleId, true);
+        VehicleInfo vehicleInfo = _vehicleInfoByVehicleId.computeIfAbsent(
+            vehicleId, k -> new VehicleInfo());
         if (blockLocation.isScheduleDeviationSet())
           vehicleInfo.setScheduleDeviation((int) blockLocation.getScheduleDeviation());
         else
           _log.warn("no schedule deviation for block location " + blockLocation);
-        PriorityQueue<AlarmForBlockInstance> queue = vehicleInfo.getQueue();
-        queue.add(alarm);
+        alarm.setVehicleInfo(vehicleInfo);
       }
 
-      processQueues();
+      _alarms.add(alarm);
+    }
 
-      return alarm;
+    public void removeAlarm(AlarmForBlockInstance alarm) {
+      _alarms.remove(alarm);
     }
 
-    public synchronized void updateBlockLocation(BlockLocation blockLocation) {
+    public void updateBlockLocation(BlockLocation blockLocation) {
 
       AgencyAndId vehicleId = blockLocation.getVehicleId();
 
@@ -328,143 +508,45 @@ class ArrivalAndDepartureAlarmServiceImpl implements
           blockLocation.getVehicleId());
 
       /**
-       * We've create the vehicle info queue if it means we can move alarms out
-       * of the "scheduled arrival" queue
+       * We create the vehicle info if it means we can move alarms off of the
+       * schedule-only times
        */
-      boolean create = !_noVehicleIdQueue.isEmpty();
+      boolean create = false;
+      for (AlarmForBlockInstance alarm : _alarms) {
+        if (alarm.getVehicleInfo() == null) {
+          create = true;
+          break;
+        }
+      }
 
-      VehicleInfo vehicleInfo = getVehicleInfoForVehicleId(vehicleId, create);
+      VehicleInfo vehicleInfo = create
+          ? _vehicleInfoByVehicleId.computeIfAbsent(vehicleId,
+              k -> new VehicleInfo())
+          : _vehicleInfoByVehicleId.get(vehicleId);
 
       if (vehicleInfo == null)
         return;
 
       vehicleInfo.setScheduleDeviation((int) blockLocation.getScheduleDeviation());
 
-      moveNoVehicleAlarmsToVehicleAlarms();
-      processQueues();
-    }
-
-    /**
-     * This is called by the scheduler
-     */
-    @Override
-    public synchronized void run() {
-      _alarmTask = null;
-      processQueues();
-    }
-
-    /****
-     * 
-     ****/
-
-    private VehicleInfo getVehicleInfoForVehicleId(AgencyAndId vehicleId,
-        boolean create) {
-
-      VehicleInfo vehicleInfo = _vehicleInfoByVehicleId.get(vehicleId);
-
-      if (vehicleInfo == null && create) {
-        vehicleInfo = new VehicleInfo();
-        _vehicleInfoByVehicleId.put(vehicleId, vehicleInfo);
-      }
-
-      return vehicleInfo;
-    }
-
-    /**
-     * If we had alarms set for a "scheduled arrival" and we now have real-time
-     * tracking for a vehicle serving that arrival, we move the alarms over.
-     */
-    private void moveNoVehicleAlarmsToVehicleAlarms() {
-
-      if (_noVehicleIdQueue.isEmpty() || _vehicleInfoByVehicleId.isEmpty())
-        return;
-      VehicleInfo first = _vehicleInfoByVehicleId.values().iterator().next();
-
-      PriorityQueue<AlarmForBlockInstance> queue = first.getQueue();
-
-      queue.addAll(_noVehicleIdQueue);
-      _noVehicleIdQueue.clear();
-    }
-
-    private void processQueues() {
-
-      if (_alarmTask != null)
-        _alarmTask.cancel(false);
-
-      boolean allQueuesAreEmpty = true;
-      int minNextAlarmTime = Integer.MAX_VALUE;
-
-      for (VehicleInfo vehicleInfo : _vehicleInfoByVehicleId.values()) {
-        PriorityQueue<AlarmForBlockInstance> queue = vehicleInfo.getQueue();
-        int scheduleDeviation = vehicleInfo.getScheduleDeviation();
-        int nextAlarmTime = processQueue(queue, scheduleDeviation);
-        if (nextAlarmTime > 0) {
-          minNextAlarmTime = Math.min(minNextAlarmTime, nextAlarmTime);
-          allQueuesAreEmpty = false;
-        }
-      }
-
-      int nextAlarmTime = processQueue(_noVehicleIdQueue, 0);
-      if (nextAlarmTime > 0) {
-        minNextAlarmTime = Math.min(minNextAlarmTime, nextAlarmTime);
-        allQueuesAreEmpty = false;
-      }
-
-      if (allQueuesAreEmpty) {
-        _log.debug("all alarm queues are empty, cleaning up: {}",
-            _blockInstance);
-        _vehicleInfoByVehicleId.clear();
-        _canceled = true;
-        _alarmsByBlockInstance.remove(_blockInstance);
-
-      } else {
-        _log.debug("scheduling next alarm check in {} secs for {}",
-            minNextAlarmTime, _blockInstance);
-        /**
-         * Schedule the next alarm
-         */
-        _alarmTask = _executor.schedule(this, minNextAlarmTime,
-            TimeUnit.SECONDS);
-      }
-    }
-
-    private int processQueue(PriorityQueue<AlarmForBlockInstance> queue,
-        int scheduleDeviation) {
-
-      int effectiveScheduleTime = (int) ((SystemTime.currentTimeMillis() - _blockInstance.getServiceDate()) / 1000 - scheduleDeviation);
-
-      while (!queue.isEmpty()) {
-        AlarmForBlockInstance alarm = queue.peek();
-
-        if (alarm.isCanceled()) {
-          queue.poll();
-          continue;
-        }
-
-        /**
-         * If the first alarm in the queue isn't ready to be fired yet, we
-         * return the time until it should be fired
-         */
-        if (effectiveScheduleTime < alarm.getEffectiveScheduleTime()) {
-          return alarm.getEffectiveScheduleTime() - effectiveScheduleTime;
-        }
-        queue.poll();
-        fireAlarm(alarm);
-      }
-
       /**
-       * We've gone through all the alarms
+       * If we had alarms set for a "scheduled arrival" and we now have
+       * real-time tracking for a vehicle serving that arrival, we move the
+       * alarms over. Then every alarm following this vehicle is moved to its
+       * new fire time.
        */
-      return -1;
+      for (AlarmForBlockInstance alarm : _alarms) {
+        if (alarm.getVehicleInfo() == null)
+          alarm.setVehicleInfo(vehicleInfo);
+        if (alarm.getVehicleInfo() == vehicleInfo)
+          scheduleAlarm(alarm);
+      }
     }
-
   }
 
-  private class VehicleInfo {
-
-    private final PriorityQueue<AlarmForBlockInstance> _queue = new PriorityQueue<AlarmForBlockInstance>();
+  private static class VehicleInfo {
 
-    private int _scheduleDeviation = 0;
+    private volatile int _scheduleDeviation = 0;
 
     public int getScheduleDeviation() {
       return _scheduleDeviation;
@@ -473,27 +555,29 @@ class ArrivalAndDepartureAlarmServiceImpl implements
     public void setScheduleDeviation(int scheduleDeviation) {
       _scheduleDeviation = scheduleDeviation;
     }
-
-    public PriorityQueue<AlarmForBlockInstance> getQueue() {
-      return _queue;
-    }
   }
 
-  private class AlarmForBlockInstance implements
-      Comparable<AlarmForBlockInstance> {
+  private static class AlarmForBlockInstance {
 
     private final AgencyAndId id;
 
     private final AlarmAction action;
 
+    private final BlockInstance blockInstance;
+
     private final int effectiveScheduleTime;
 
-    private boolean canceled = false;
+    private volatile VehicleInfo vehicleInfo = null;
+
+    private final AtomicReference<Timeout<AlarmForBlockInstance>> timeout = new AtomicReference<Timeout<AlarmForBlockInstance>>();
+
+    private volatile boolean canceled = false;
 
     public AlarmForBlockInstance(AgencyAndId id, AlarmAction action,
-        int effectiveScheduleTime) {
+        BlockInstance blockInstance, int effectiveScheduleTime) {
       this.id = id;
       this.action = action;
+      this.blockInstance = blockInstance;
       this.effectiveScheduleTime = effectiveScheduleTime;
     }
 
@@ -501,8 +585,30 @@ class ArrivalAndDepartureAlarmServiceImpl implements
       return id;
     }
 
-    public int getEffectiveScheduleTime() {
-      return effectiveScheduleTime;
+    public AlarmAction getAction() {
+      return action;
+    }
+
+    public BlockInstance getBlockInstance() {
+      return blockInstance;
+    }
+
+    public VehicleInfo getVehicleInfo() {
+      return vehicleInfo;
+    }
+
+    public void setVehicleInfo(VehicleInfo vehicleInfo) {
+      this.vehicleInfo = vehicleInfo;
+    }
+
+    public Timeout<AlarmForBlockInstance> getTimeout() {
+      return timeout.get();
+    }
+
+    public boolean compareAndSetTimeout(
+        Timeout<AlarmForBlockInstance> expected,
+        Timeout<AlarmForBlockInstance> timeout) {
+      return this.timeout.compareAndSet(expected, timeout);
     }
 
     public void setCanceled() {
@@ -513,9 +619,30 @@ class ArrivalAndDepartureAlarmServiceImpl implements
       return canceled;
     }
 
+    /**
+     * @return the wall-clock time at which the vehicle reaches the effective
+     *         schedule time, given its latest schedule deviation
+     */
+    public long computeFireTime() {
+      VehicleInfo info = vehicleInfo;
+      int scheduleDeviation = info != null ? info.getScheduleDeviation() : 0;
+      return blockInstance.getServiceDate()
+          + (effectiveScheduleTime + scheduleDeviation) * 1000L;
+    }
+  }
+
+  private class ProcessAlarmsTask implements Runnable {
+
     @Override
-    public int compareTo(AlarmForBlockInstance o) {
-      return this.effectiveScheduleTime - o.effectiveScheduleTime;
+    public void run() {
+      try {
+        processAlarms();
+      } catch (Throwable ex) {
+        /**
+         * An exception would cancel all future runs of this task
+         */
+        _log.warn("error processing alarms", ex);
+      }
     }
   }
 
@@ -526,25 +653,28 @@ class ArrivalAndDepartureAlarmServiceImpl implements
    * @author bdferris
    * 
    */
-  private static class FireAlarmTask implements Runnable {
-
-    private final AgencyAndId alarmId;
+  private class FireAlarmTask implements Runnable {
 
-    private final AlarmAction action;
+    private final AlarmForBlockInstance alarm;
 
-    public FireAlarmTask(AgencyAndId alarmId, AlarmAction action) {
-      this.alarmId = alarmId;
-      this.action = action;
+    public FireAlarmTask(AlarmForBlockInstance alarm) {
+      this.alarm = alarm;
     }
 
     @Override
     public void run() {
+      fireAlarm(alarm.getId(), alarm.getAction());
+    }
+
+    private void fireAlarm(AgencyAndId alarmId, AlarmAction action) {
       try {
         String rawUrl = action.getUrl();
         String rawAlarmId = AgencyAndIdLibrary.convertToString(alarmId);
         rawUrl = rawUrl.replace("#ALARM_ID#", rawAlarmId);
         URL url = new URL(rawUrl);
         URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(_connectTimeout);
+        connection.setReadTimeout(_readTimeout);
         InputStream in = connection.getInputStream();
         in.close();
       } catch (Throwable ex) {
@@ -19,6 +19,7 @@ package org.onebusaway.transit_data_federation.impl;
 import org.onebusaway.collections.FactoryMap;
 import org.onebusaway.collections.Min;
 import org.onebusaway.container.ConfigurationParameter;
+import org.onebusaway.container.refresh.Refreshable;
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.realtime.api.TimepointPredictionRecord;
 import org.onebusaway.transit_data.model.TimeIntervalBean;
@@ -37,7 +38,9 @@ import org.onebusaway.transit_data_federation.services.blocks.InstanceState;
 import org.onebusaway.transit_data_federation.services.realtime.ArrivalAndDepartureInstance;
 import org.onebusaway.transit_data_federation.services.realtime.ArrivalAndDepartureTime;
 import org.onebusaway.transit_data_federation.services.realtime.BlockLocation;
+import org.onebusaway.transit_data_federation.services.realtime.BlockLocationListener;
 import org.onebusaway.transit_data_federation.services.realtime.BlockLocationService;
+import org.onebusaway.transit_data_federation.services.realtime.BlockStopTimePredictions;
 import org.onebusaway.transit_data_federation.services.realtime.ScheduleDeviationSamples;
 import org.onebusaway.transit_data_federation.services.transit_graph.BlockConfigurationEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.BlockStopTimeEntry;
@@ -56,10 +59,18 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
-class ArrivalAndDepartureServiceImpl implements ArrivalAndDepartureService {
+class ArrivalAndDepartureServiceImpl implements ArrivalAndDepartureService,
+    BlockLocationListener {
 
   private static Logger _log = LoggerFactory.getLogger(ArrivalAndDepartureServiceImpl.class);
   
@@ -73,6 +84,28 @@ class ArrivalAndDepartureServiceImpl implements ArrivalAndDepartureService {
 
   private boolean hideCanceledTrips = true;
 
+  /**
+   * Query times are rounded down to this many milliseconds, so that repeated
+   * queries for a stop within the same interval share a cached result. Zero
+   * disables the cache.
+   */
+  private long _arrivalsCacheResolution = 1000;
+
+  private int _arrivalsCacheMaxSize = 10000;
+
+  /**
+   * Results by stop and query window, reused while the stop's generation is
+   * unchanged. Entries expire after one resolution interval, by which time
+   * live queries no longer round to them.
+   */
+  private volatile Cache<ArrivalsKey, CachedArrivals> _arrivalsCache = createArrivalsCache();
+
+  /**
+   * Bumped for every stop of a block each time a new block location is
+   * received for it
+   */
+  private final ConcurrentMap<AgencyAndId, AtomicLong> _generationsByStopId = new ConcurrentHashMap<AgencyAndId, AtomicLong>();
+
   @Autowired
   public void setStopTimeService(StopTimeService stopTimeService) {
     _stopTimeService = stopTimeService;
@@ -91,11 +124,46 @@ class ArrivalAndDepartureServiceImpl implements ArrivalAndDepartureService {
 
   public void setRemoveFuturePredictionsWithoutRealtime(boolean remove) {
     this.removeFuturePredictionsWithoutRealtime = remove;
+    _arrivalsCache.invalidateAll();
   }
 
   @ConfigurationParameter
   public void setHideCanceledTrips(boolean hide) {
     this.hideCanceledTrips = hide;
+    _arrivalsCache.invalidateAll();
+  }
+
+  /**
+   * 
+   * @param resolution in milliseconds, or zero to disable caching of stop
+   *          arrivals and departures
+   */
+  @ConfigurationParameter
+  public void setArrivalsCacheResolution(long resolution) {
+    _arrivalsCacheResolution = resolution;
+    _arrivalsCache = createArrivalsCache();
+  }
+
+  /**
+   * 
+   * @param maxSize the most stop and query window results to keep cached
+   */
+  @ConfigurationParameter
+  public void setArrivalsCacheMaxSize(int maxSize) {
+    _arrivalsCacheMaxSize = maxSize;
+    _arrivalsCache = createArrivalsCache();
+  }
+
+  /**
+   * Cached results and generations refer to the stops and blocks of the
+   * previous bundle, so both are dropped when it is replaced
+   */
+  @Refreshable(dependsOn = {
+      RefreshableResources.TRANSIT_GRAPH,
+      RefreshableResources.BLOCK_INDEX_DATA})
+  public void clearArrivalsCache() {
+    _generationsByStopId.clear();
+    _arrivalsCache.invalidateAll();
   }
 
   @Override
@@ -107,6 +175,41 @@ class ArrivalAndDepartureServiceImpl implements ArrivalAndDepartureService {
   public List<ArrivalAndDepartureInstance> getArrivalsAndDeparturesForStopInTimeRange(
       StopEntry stop, TargetTime targetTime, long fromTime, long toTime) {
 
+    long resolution = _arrivalsCacheResolution;
+    if (resolution <= 0)
+      return computeArrivalsAndDeparturesForStopInTimeRange(stop, targetTime,
+          fromTime, toTime);
+
+    /**
+     * Compute with the rounded times so that a cached result is exactly what
+     * any query sharing its key would have computed
+     */
+    TargetTime roundedTargetTime = new TargetTime(floor(
+        targetTime.getTargetTime(), resolution), floor(
+        targetTime.getCurrentTime(), resolution));
+    long roundedFromTime = floor(fromTime, resolution);
+    long roundedToTime = floor(toTime, resolution);
+
+    // read the generation first, so a concurrent update invalidates the result
+    AgencyAndId stopId = stop.getId();
+    long generation = getGeneration(stopId);
+
+    ArrivalsKey key = new ArrivalsKey(stopId, roundedTargetTime,
+        roundedFromTime, roundedToTime);
+    Cache<ArrivalsKey, CachedArrivals> cache = _arrivalsCache;
+    CachedArrivals cached = cache.getIfPresent(key);
+    if (cached != null && cached.generation == generation)
+      return cached.instances;
+
+    List<ArrivalAndDepartureInstance> instances = Collections.unmodifiableList(computeArrivalsAndDeparturesForStopInTimeRange(
+        stop, roundedTargetTime, roundedFromTime, roundedToTime));
+    cache.put(key, new CachedArrivals(generation, instances));
+    return instances;
+  }
+
+  private List<ArrivalAndDepartureInstance> computeArrivalsAndDeparturesForStopInTimeRange(
+      StopEntry stop, TargetTime targetTime, long fromTime, long toTime) {
+
     // We add a buffer before and after to catch late and early buses
     Date fromTimeBuffered = new Date(
         fromTime - _blockStatusService.getRunningLateWindow() * 1000);
@@ -405,6 +508,64 @@ class ArrivalAndDepartureServiceImpl implements ArrivalAndDepartureService {
     return nextInstance;
   }
 
+  /**
+   * New real-time data for a block invalidates the cached arrivals of every
+   * stop it serves
+   */
+  @Override
+  public void handleBlockLocation(BlockLocation blockLocation) {
+
+    if (blockLocation == null || _arrivalsCacheResolution <= 0)
+      return;
+
+    BlockConfigurationEntry block = blockLocation.getBlockInstance().getBlock();
+    for (BlockStopTimeEntry blockStopTime : block.getStopTimes()) {
+      AgencyAndId stopId = blockStopTime.getStopTime().getStop().getId();
+      _generationsByStopId.computeIfAbsent(stopId, k -> new AtomicLong()).incrementAndGet();
+    }
+  }
+
+  /**
+   * A batch often holds several vehicles on the same block, so each block's
+   * stops are only invalidated once
+   */
+  @Override
+  public void handleBlockLocations(List<BlockLocation> blockLocations) {
+
+    if (_arrivalsCacheResolution <= 0)
+      return;
+
+    Set<BlockConfigurationEntry> blocks = new HashSet<BlockConfigurationEntry>();
+    for (BlockLocation blockLocation : blockLocations) {
+      if (blockLocation != null)
+        blocks.add(blockLocation.getBlockInstance().getBlock());
+    }
+
+    Set<AgencyAndId> stopIds = new HashSet<AgencyAndId>();
+    for (BlockConfigurationEntry block : blocks) {
+      for (BlockStopTimeEntry blockStopTime : block.getStopTimes())
+        stopIds.add(blockStopTime.getStopTime().getStop().getId());
+    }
+
+    for (AgencyAndId stopId : stopIds)
+      _generationsByStopId.computeIfAbsent(stopId, k -> new AtomicLong()).incrementAndGet();
+  }
+
+  private Cache<ArrivalsKey, CachedArrivals> createArrivalsCache() {
+    return Caffeine.newBuilder().maximumSize(
+        Math.max(_arrivalsCacheMaxSize, 0)).expireAfterWrite(
+        Duration.ofMillis(Math.max(_arrivalsCacheResolution, 1))).build();
+  }
+
+  private long getGeneration(AgencyAndId stopId) {
+    AtomicLong generation = _generationsByStopId.get(stopId);
+    return generation == null ? 0 : generation.get();
+  }
+
+  private static long floor(long time, long resolution) {
+    return Math.floorDiv(time, resolution) * resolution;
+  }
+
   private Map<BlockInstance, List<StopTimeInstance>> getStopTimeInstancesByBlockInstance(
       List<StopTimeInstance> stopTimes) {
 
@@ -675,89 +836,37 @@ class ArrivalAndDepartureServiceImpl implements ArrivalAndDepartureService {
     if (records == null)
       return false;
 
-    // Find the right timepoint prediction record. We need to make sure that
-    // there are the proper number of records if the trip loops and stopSequence
-    // is not set.
-
-    int stopSequence = instance.getBlockStopTime().getStopTime().getSequence();
-    int gtfsSequence = instance.getBlockStopTime().getStopTime().getGtfsSequence();
-
-    int totalCandidates = 0;
-    int thisStopIndex = 0; // index (with respect to stop sequence) among stops
-                           // with the same ID
-
-    List<BlockStopTimeEntry> stopTimes = instance.getBlockTrip().getStopTimes();
-    for (int i = 0; i < stopTimes.size(); i++) {
-      BlockStopTimeEntry stopTime = stopTimes.get(i);
-      StopTimeEntry stop = stopTime.getStopTime();
-      if (stop.getStop().getId().equals(instance.getStop().getId())) {
-        totalCandidates++;
-        if (stop.getSequence() < stopSequence)
-          thisStopIndex++;
-      }
-    }
-
-    int tprTotalCandidates = 0;
-    int tprStopIndex = 0;
-
-    boolean success = false;
-
-    for (TimepointPredictionRecord tpr : records) {
-      boolean tripMatches = tpr.getTripId().equals(
-          instance.getBlockTrip().getTrip().getId());
-      boolean stopMatches = tpr.getTimepointId().equals(
-          instance.getStop().getId());
-      boolean sequenceMatches = tpr.getStopSequence() > 0
-          && tpr.getStopSequence() == gtfsSequence;
-      // records may have predictions across multiple blocks
-      if (!tripMatches) {
-        _log.debug("unmatched trip on tpr: " + tpr.getTripId() + " != " + instance.getBlockTrip().getTrip().getId());
-        continue;
-      }
-      if (!stopMatches) {
-        _log.debug("unmatched stop on tpr: " + tpr.getTimepointId() + " != " + instance.getStop().getId());
-        continue;
-      }
-
-      if (sequenceMatches || tprStopIndex == thisStopIndex) {
-
-        success = true;
-
-        long arrivalTime = tpr.getTimepointPredictedArrivalTime();
-
-        long departureTime = tpr.getTimepointPredictedDepartureTime();
-        if (departureTime <= 0) {
-          int slack = instance.getBlockStopTime().getStopTime().getSlackTime();
-          departureTime = arrivalTime + slack * 1000;
-        }
-        setPredictedDepartureTimeForInstance(instance, departureTime);
+    BlockStopTimeEntry blockStopTime = instance.getBlockStopTime();
+    BlockConfigurationEntry block = blockStopTime.getTrip().getBlockConfiguration();
 
-        /*
-         * if arrivalTime is -1 be polite to clients and serve departureTime
-         */
-      	if (arrivalTime == -1) {
-      	    setPredictedArrivalTimeForInstance(instance, departureTime);
-      	} else {
-      	    setPredictedArrivalTimeForInstance(instance, arrivalTime);
-      	}
-
-        instance.setScheduledTrack(tpr.getScheduledTrack());
-        instance.setActualTrack(tpr.getActualTrack());
-        instance.setStatus(tpr.getStatus());
-
-        if (sequenceMatches)
-          return true;
-      }
+    /**
+     * Block locations built from the real-time cache come with the records
+     * already resolved against the block. Otherwise resolve them here, once
+     * for all the instances that share this block location.
+     */
+    BlockStopTimePredictions predictions = blockLocation.getStopTimePredictions();
+    if (predictions == null || predictions.getBlock() != block
+        || predictions.getTimepointPredictions() != records) {
+      predictions = BlockStopTimePredictions.create(block, records);
+      blockLocation.setStopTimePredictions(predictions);
+    }
 
-      else if (tprStopIndex < thisStopIndex)
-        tprStopIndex++;
+    int index = blockStopTime.getBlockSequence();
 
-      tprTotalCandidates++;
+    TimepointPredictionRecord tpr = predictions.getRecord(index);
+    if (tpr != null) {
+      instance.setScheduledTrack(tpr.getScheduledTrack());
+      instance.setActualTrack(tpr.getActualTrack());
+      instance.setStatus(tpr.getStatus());
     }
 
-    if (success && totalCandidates == tprTotalCandidates
-        && tprStopIndex == thisStopIndex)
+    if (predictions.hasPrediction(index)) {
+      setPredictedDepartureTimeForInstance(instance,
+          predictions.getDepartureTime(index));
+      setPredictedArrivalTimeForInstance(instance,
+          predictions.getArrivalTime(index));
       return true;
+    }
 
     // Clear out prediction times if we didn't end up finding the proper number
     // of records
@@ -1246,4 +1355,52 @@ class ArrivalAndDepartureServiceImpl implements ArrivalAndDepartureService {
     }
   }
 
+  private static class ArrivalsKey {
+
+    private final AgencyAndId stopId;
+
+    private final TargetTime targetTime;
+
+    private final long fromTime;
+
+    private final long toTime;
+
+    public ArrivalsKey(AgencyAndId stopId, TargetTime targetTime,
+        long fromTime, long toTime) {
+      this.stopId = stopId;
+      this.targetTime = targetTime;
+      this.fromTime = fromTime;
+      this.toTime = toTime;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(stopId, targetTime, fromTime, toTime);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof ArrivalsKey))
+        return false;
+      ArrivalsKey other = (ArrivalsKey) obj;
+      return stopId.equals(other.stopId)
+          && targetTime.equals(other.targetTime) && fromTime == other.fromTime
+          && toTime == other.toTime;
+    }
+  }
+
+  private static class CachedArrivals {
+
+    private final long generation;
+
+    private final List<ArrivalAndDepartureInstance> instances;
+
+    public CachedArrivals(long generation,
+        List<ArrivalAndDepartureInstance> instances) {
+      this.generation = generation;
+      this.instances = instances;
+    }
+  }
 }
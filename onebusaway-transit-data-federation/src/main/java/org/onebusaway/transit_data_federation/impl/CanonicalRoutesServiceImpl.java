@@ -64,7 +64,9 @@ public class CanonicalRoutesServiceImpl implements CanonicalRoutesService {
   }
 
   @PostConstruct
-  @Refreshable(dependsOn = RefreshableResources.TRANSIT_GRAPH)
+  @Refreshable(dependsOn = {
+      RefreshableResources.TRANSIT_GRAPH,
+      RefreshableResources.TRANSIT_GRAPH_DELTA })
   public void setup() throws IOException, ClassNotFoundException {
     _log.info("bundle path=" + _bundle.getPath());
     File path = _bundle.getCanonicalRoutePath();
@@ -0,0 +1,205 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hashed timing wheel: deadlines are hashed by tick into a fixed ring of
+ * buckets, so scheduling and expiring a timeout is constant time no matter how
+ * many are pending. A deadline more than one revolution away simply stays in
+ * its bucket until the wheel comes around to its tick.
+ *
+ * {@link #schedule(Object, long)} and {@link Timeout#cancel()} are lock-free
+ * and may be called from any thread. {@link #advance(long)} must only be called
+ * from a single thread at a time, which is the only thread that ever touches
+ * the buckets. New timeouts are handed to it through a concurrent queue and
+ * canceled timeouts are dropped lazily when their bucket is next visited.
+ *
+ * @param <T> the value attached to each timeout
+ */
+class HashedTimingWheel<T> {
+
+  private static final int PENDING = 0;
+
+  private static final int CANCELED = 1;
+
+  private static final int EXPIRED = 2;
+
+  private final long _tickDuration;
+
+  private final long _startTime;
+
+  private final List<Timeout<T>>[] _buckets;
+
+  private final int _mask;
+
+  private final Queue<Timeout<T>> _newTimeouts = new ConcurrentLinkedQueue<Timeout<T>>();
+
+  private final AtomicInteger _pendingCount = new AtomicInteger();
+
+  private long _tick = 0;
+
+  /**
+   * @param tickDuration the resolution of the wheel, in ms
+   * @param wheelSize the number of buckets, rounded up to a power of two
+   * @param startTime the time of tick zero, in ms
+   */
+  @SuppressWarnings("unchecked")
+  public HashedTimingWheel(long tickDuration, int wheelSize, long startTime) {
+    if (tickDuration <= 0)
+      throw new IllegalArgumentException("tickDuration must be positive: "
+          + tickDuration);
+    int size = Integer.highestOneBit(Math.max(wheelSize, 1) * 2 - 1);
+    _tickDuration = tickDuration;
+    _startTime = startTime;
+    _buckets = new List[size];
+    for (int i = 0; i < size; i++)
+      _buckets[i] = new ArrayList<Timeout<T>>();
+    _mask = size - 1;
+  }
+
+  /**
+   * @param value
+   * @param deadline the time after which the timeout expires, in ms
+   * @return the timeout, which can be used to cancel it
+   */
+  public Timeout<T> schedule(T value, long deadline) {
+    Timeout<T> timeout = new Timeout<T>(this, value, deadline);
+    _pendingCount.incrementAndGet();
+    _newTimeouts.add(timeout);
+    return timeout;
+  }
+
+  /**
+   * Advance the wheel to the given time, expiring every timeout whose deadline
+   * is at or before it.
+   *
+   * @param now the current time, in ms
+   * @return the expired timeouts, in no particular order
+   */
+  public List<Timeout<T>> advance(long now) {
+
+    long targetTick = (now - _startTime) / _tickDuration;
+
+    transferNewTimeouts();
+
+    List<Timeout<T>> expired = new ArrayList<Timeout<T>>();
+    while (_tick < targetTick) {
+      _tick++;
+      expireBucket(_buckets[(int) (_tick & _mask)], expired);
+    }
+    return expired;
+  }
+
+  /**
+   * @return the number of timeouts that have neither expired nor been canceled
+   */
+  public int getPendingCount() {
+    return _pendingCount.get();
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private void transferNewTimeouts() {
+    Timeout<T> timeout;
+    while ((timeout = _newTimeouts.poll()) != null) {
+      if (timeout.isCanceled())
+        continue;
+      // round up, so a timeout never expires before its deadline
+      long ticks = (timeout._deadline - _startTime + _tickDuration - 1)
+          / _tickDuration;
+      timeout._deadlineTick = Math.max(ticks, _tick + 1);
+      _buckets[(int) (timeout._deadlineTick & _mask)].add(timeout);
+    }
+  }
+
+  private void expireBucket(List<Timeout<T>> bucket, List<Timeout<T>> expired) {
+    for (Iterator<Timeout<T>> it = bucket.iterator(); it.hasNext();) {
+      Timeout<T> timeout = it.next();
+      if (timeout.isCanceled()) {
+        it.remove();
+      } else if (timeout._deadlineTick <= _tick) {
+        it.remove();
+        if (timeout.expire())
+          expired.add(timeout);
+      }
+    }
+  }
+
+  /****
+   *
+   ****/
+
+  public static final class Timeout<T> {
+
+    private final HashedTimingWheel<T> _wheel;
+
+    private final T _value;
+
+    private final long _deadline;
+
+    /**
+     * Only read and written by the thread advancing the wheel
+     */
+    private long _deadlineTick;
+
+    private final AtomicInteger _state = new AtomicInteger(PENDING);
+
+    private Timeout(HashedTimingWheel<T> wheel, T value, long deadline) {
+      _wheel = wheel;
+      _value = value;
+      _deadline = deadline;
+    }
+
+    public T getValue() {
+      return _value;
+    }
+
+    public long getDeadline() {
+      return _deadline;
+    }
+
+    public boolean isCanceled() {
+      return _state.get() == CANCELED;
+    }
+
+    /**
+     * @return true if the timeout was canceled, false if it had already
+     *         expired or been canceled
+     */
+    public boolean cancel() {
+      if (!_state.compareAndSet(PENDING, CANCELED))
+        return false;
+      _wheel._pendingCount.decrementAndGet();
+      return true;
+    }
+
+    private boolean expire() {
+      if (!_state.compareAndSet(PENDING, EXPIRED))
+        return false;
+      _wheel._pendingCount.decrementAndGet();
+      return true;
+    }
+  }
+}
@@ -27,6 +27,12 @@ public final class RefreshableResources {
 
   public static final String TRANSIT_GRAPH = "transitGraph";
 
+  /**
+   * Signalled after a {@link org.onebusaway.transit_data_federation.model.bundle.BundleDelta}
+   * has been applied to the running transit graph in place of a full reload
+   */
+  public static final String TRANSIT_GRAPH_DELTA = "transitGraphDelta";
+
   public static final String BLOCK_INDEX_DATA = "blockIndexData";
 
   public static final String BLOCK_INDEX_SERVICE = "blockIndexService";
@@ -52,7 +52,9 @@ public class RidershipServiceImpl implements RidershipService {
     public void setBundle(FederatedTransitDataBundle bundle) { _bundle = bundle; }
 
     @PostConstruct
-    @Refreshable(dependsOn = RefreshableResources.TRANSIT_GRAPH)
+    @Refreshable(dependsOn = {
+        RefreshableResources.TRANSIT_GRAPH,
+        RefreshableResources.TRANSIT_GRAPH_DELTA })
     public void setup() throws IOException, ClassNotFoundException {
         File path = _bundle.getHistoricalRidershipPath();
         if (path.exists()) {
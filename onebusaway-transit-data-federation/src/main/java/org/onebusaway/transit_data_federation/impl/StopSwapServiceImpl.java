@@ -55,7 +55,9 @@ public class StopSwapServiceImpl implements StopSwapService {
 
   private Map<StopDirectionSwapKey, StopDirectionSwap> _cache;
   @PostConstruct
-  @Refreshable(dependsOn = RefreshableResources.TRANSIT_GRAPH)
+  @Refreshable(dependsOn = {
+      RefreshableResources.TRANSIT_GRAPH,
+      RefreshableResources.TRANSIT_GRAPH_DELTA })
   public void setup() throws IOException, ClassNotFoundException {
     File path = _bundle.getStopSwapPath();
     if (path.exists()) {
@@ -23,12 +23,17 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.onebusaway.collections.Min;
 import org.onebusaway.container.cache.Cacheable;
+import org.onebusaway.container.refresh.Refreshable;
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.gtfs.model.calendar.ServiceInterval;
+import org.onebusaway.transit_data_federation.impl.RefreshableResources;
 import org.onebusaway.transit_data_federation.model.transit_graph.DynamicGraph;
 import org.onebusaway.transit_data_federation.services.ExtendedCalendarService;
 import org.onebusaway.transit_data_federation.services.blocks.BlockCalendarService;
@@ -47,12 +52,23 @@ import org.onebusaway.transit_data_federation.services.transit_graph.BlockTripEn
 import org.onebusaway.transit_data_federation.services.transit_graph.FrequencyEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.TransitGraphDao;
 import org.onebusaway.transit_data_federation.services.transit_graph.dynamic.DynamicTripEntryImpl;
+import org.onebusaway.util.SystemTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 @Component
 class BlockCalendarServiceImpl implements BlockCalendarService {
 
+  private static final long TIMELINE_INTERVAL = TimeUnit.DAYS.toMillis(1);
+
+  /**
+   * How far past the end of its day a timeline reaches, so that ranges
+   * starting late in the day are still answered from it
+   */
+  private static final long TIMELINE_OVERLAP = TimeUnit.HOURS.toMillis(6);
+
+  private static final String ALL_AGENCIES = "";
+
   private ExtendedCalendarService _calendarService;
 
   private BlockIndexService _blockIndexService;
@@ -61,6 +77,8 @@ class BlockCalendarServiceImpl implements BlockCalendarService {
 
   private DynamicGraph _dynamicGraph;
 
+  private volatile Timelines _timelines = null;
+
   @Autowired
   public void setCalendarService(ExtendedCalendarService calendarService) {
     _calendarService = calendarService;
@@ -80,6 +98,18 @@ class BlockCalendarServiceImpl implements BlockCalendarService {
   public void setDynamicGraph(DynamicGraph dynamicGraph) {
     _dynamicGraph = dynamicGraph;
   }
+
+  /**
+   * Drop the precomputed timelines when the block indices or calendar change.
+   * They are rebuilt on the next query.
+   */
+  @Refreshable(dependsOn = {
+      RefreshableResources.BLOCK_INDEX_SERVICE,
+      RefreshableResources.CALENDAR_DATA})
+  public void clearTimelines() {
+    _timelines = null;
+  }
+
   /****
    * {@link BlockCalendarService} Interface
    ****/
@@ -172,6 +202,9 @@ class BlockCalendarServiceImpl implements BlockCalendarService {
   @Override
   public List<BlockInstance> getActiveBlocksInTimeRange(long timeFrom,
       long timeTo) {
+    BlockInstanceTimeline timeline = getTimeline(ALL_AGENCIES, timeFrom, timeTo);
+    if (timeline != null)
+      return getActiveBlocksInTimeRange(timeline, timeFrom, timeTo);
     List<BlockTripIndex> indices = _blockIndexService.getBlockTripIndices();
     List<BlockLayoverIndex> layoverIndices = _blockIndexService.getBlockLayoverIndices();
     List<FrequencyBlockTripIndex> frequencyIndices = _blockIndexService.getFrequencyBlockTripIndices();
@@ -182,6 +215,9 @@ class BlockCalendarServiceImpl implements BlockCalendarService {
   @Override
   public List<BlockInstance> getActiveBlocksForAgencyInTimeRange(
       String agencyId, long timeFrom, long timeTo) {
+    BlockInstanceTimeline timeline = getTimeline(agencyId, timeFrom, timeTo);
+    if (timeline != null)
+      return getActiveBlocksInTimeRange(timeline, timeFrom, timeTo);
     List<BlockTripIndex> indices = _blockIndexService.getBlockTripIndicesForAgencyId(agencyId);
     List<BlockLayoverIndex> layoverIndices = _blockIndexService.getBlockLayoverIndicesForAgencyId(agencyId);
     List<FrequencyBlockTripIndex> frequencyIndices = _blockIndexService.getFrequencyBlockTripIndicesForAgencyId(agencyId);
@@ -224,6 +260,71 @@ class BlockCalendarServiceImpl implements BlockCalendarService {
    * Private Methods
    ****/
 
+  /**
+   * Only the current day has a timeline. Historical and future queries walk
+   * the indices instead, so that they don't evict the timeline real-time
+   * queries depend on.
+   *
+   * @return the timeline of the static block indices for the agency, or for
+   *         all agencies, covering the range, or null if the range is not
+   *         within the current day's window
+   */
+  private BlockInstanceTimeline getTimeline(String agencyId, long timeFrom,
+      long timeTo) {
+
+    long windowFrom = Math.floorDiv(timeFrom, TIMELINE_INTERVAL)
+        * TIMELINE_INTERVAL;
+    long windowTo = windowFrom + TIMELINE_INTERVAL + TIMELINE_OVERLAP;
+    if (agencyId == null || timeTo > windowTo || timeTo < timeFrom)
+      return null;
+
+    long currentWindowFrom = Math.floorDiv(SystemTime.currentTimeMillis(),
+        TIMELINE_INTERVAL) * TIMELINE_INTERVAL;
+    if (windowFrom != currentWindowFrom)
+      return null;
+
+    Timelines timelines = getTimelines(windowFrom, windowTo);
+    return timelines.byAgencyId.computeIfAbsent(agencyId,
+        id -> buildTimeline(timelines, id));
+  }
+
+  private Timelines getTimelines(long windowFrom, long windowTo) {
+    Timelines timelines = _timelines;
+    if (timelines != null && timelines.windowFrom == windowFrom)
+      return timelines;
+    synchronized (this) {
+      timelines = _timelines;
+      if (timelines == null || timelines.windowFrom != windowFrom) {
+        timelines = new Timelines(windowFrom, windowTo);
+        _timelines = timelines;
+      }
+      return timelines;
+    }
+  }
+
+  private BlockInstanceTimeline buildTimeline(Timelines timelines,
+      String agencyId) {
+    if (agencyId.equals(ALL_AGENCIES)) {
+      return BlockInstanceTimeline.build(_calendarService,
+          _blockIndexService.getBlockTripIndices(),
+          _blockIndexService.getBlockLayoverIndices(),
+          _blockIndexService.getFrequencyBlockTripIndices(),
+          timelines.windowFrom, timelines.windowTo);
+    }
+    return BlockInstanceTimeline.build(_calendarService,
+        _blockIndexService.getBlockTripIndicesForAgencyId(agencyId),
+        _blockIndexService.getBlockLayoverIndicesForAgencyId(agencyId),
+        _blockIndexService.getFrequencyBlockTripIndicesForAgencyId(agencyId),
+        timelines.windowFrom, timelines.windowTo);
+  }
+
+  private List<BlockInstance> getActiveBlocksInTimeRange(
+      BlockInstanceTimeline timeline, long timeFrom, long timeTo) {
+    Set<BlockInstance> instances = new HashSet<BlockInstance>();
+    timeline.getActiveInstances(timeFrom, timeTo, instances);
+    return new ArrayList<BlockInstance>(instances);
+  }
+
   private boolean allServiceIdsAreActiveForServiceDate(
       BlockConfigurationEntry configuration, Date serviceDate) {
 
@@ -430,4 +531,22 @@ class BlockCalendarServiceImpl implements BlockCalendarService {
     return index;
   }
 
+  /**
+   * The timelines for one window, by agency id, built as they are first asked
+   * for
+   */
+  private static class Timelines {
+
+    private final long windowFrom;
+
+    private final long windowTo;
+
+    private final Map<String, BlockInstanceTimeline> byAgencyId = new ConcurrentHashMap<String, BlockInstanceTimeline>();
+
+    public Timelines(long windowFrom, long windowTo) {
+      this.windowFrom = windowFrom;
+      this.windowTo = windowTo;
+    }
+  }
+
 }
@@ -0,0 +1,279 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.blocks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import org.onebusaway.transit_data_federation.services.ExtendedCalendarService;
+import org.onebusaway.transit_data_federation.services.blocks.BlockInstance;
+import org.onebusaway.transit_data_federation.services.blocks.BlockLayoverIndex;
+import org.onebusaway.transit_data_federation.services.blocks.BlockTripIndex;
+import org.onebusaway.transit_data_federation.services.blocks.FrequencyBlockTripIndex;
+import org.onebusaway.transit_data_federation.services.blocks.FrequencyServiceIntervalBlock;
+import org.onebusaway.transit_data_federation.services.blocks.InstanceState;
+import org.onebusaway.transit_data_federation.services.blocks.LayoverIntervalBlock;
+import org.onebusaway.transit_data_federation.services.blocks.ServiceIntervalBlock;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockTripEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.FrequencyEntry;
+
+/**
+ * Every block trip, layover and frequency interval that overlaps a fixed time
+ * window, resolved to a {@link BlockInstance} with absolute start and end
+ * times and sorted by start time. Finding the instances active in a range
+ * inside the window is then a binary search followed by a short scan, instead
+ * of a service date lookup and binary search for every block index.
+ *
+ * Intervals follow the same rules as the per-index search in
+ * {@link BlockCalendarServiceImpl}: an interval is active in [from, to] if it
+ * ends at or after from and starts before to, both compared to the second.
+ *
+ * Intervals are bucketed by duration, each bucket doubling the longest
+ * duration of the one before it. A search has to start as far before from as
+ * the longest interval in a bucket, so a handful of very long blocks only
+ * widen the scan over their own bucket instead of over every interval.
+ *
+ * Instances are immutable once built and safe to share between threads.
+ */
+final class BlockInstanceTimeline {
+
+  /**
+   * The longest duration of the first bucket, in ms
+   */
+  private static final long MIN_BUCKET_DURATION = 15 * 60 * 1000L;
+
+  private final Bucket[] _buckets;
+
+  private BlockInstanceTimeline(List<Entry> entries) {
+
+    Collections.sort(entries, EntryComparator.INSTANCE);
+
+    List<List<Entry>> entriesByBucket = new ArrayList<List<Entry>>();
+    for (Entry entry : entries) {
+      int bucket = getBucketIndex(entry.endTime - entry.startTime);
+      while (entriesByBucket.size() <= bucket)
+        entriesByBucket.add(new ArrayList<Entry>());
+      entriesByBucket.get(bucket).add(entry);
+    }
+
+    List<Bucket> buckets = new ArrayList<Bucket>();
+    for (List<Entry> bucketEntries : entriesByBucket) {
+      if (!bucketEntries.isEmpty())
+        buckets.add(new Bucket(bucketEntries));
+    }
+    _buckets = buckets.toArray(new Bucket[buckets.size()]);
+  }
+
+  /**
+   * @param calendarService
+   * @param indices
+   * @param layoverIndices
+   * @param frequencyIndices
+   * @param windowFrom
+   * @param windowTo
+   * @return a timeline of the intervals overlapping [windowFrom, windowTo]
+   */
+  public static BlockInstanceTimeline build(
+      ExtendedCalendarService calendarService,
+      Iterable<BlockTripIndex> indices,
+      Iterable<BlockLayoverIndex> layoverIndices,
+      Iterable<FrequencyBlockTripIndex> frequencyIndices, long windowFrom,
+      long windowTo) {
+
+    Date dateFrom = new Date(windowFrom);
+    Date dateTo = new Date(windowTo);
+    List<Entry> entries = new ArrayList<Entry>();
+
+    for (BlockTripIndex index : indices) {
+      ServiceIntervalBlock intervals = index.getServiceIntervalBlock();
+      Collection<Date> serviceDates = calendarService.getServiceDatesWithinRange(
+          index.getServiceIds(), intervals.getRange(), dateFrom, dateTo);
+      for (Date serviceDate : serviceDates) {
+        InstanceState state = new InstanceState(serviceDate.getTime());
+        addEntries(entries, index.getTrips(), state, serviceDate.getTime(),
+            intervals.getMinArrivals(), intervals.getMaxDepartures(),
+            windowFrom, windowTo);
+      }
+    }
+
+    for (BlockLayoverIndex index : layoverIndices) {
+      LayoverIntervalBlock intervals = index.getLayoverIntervalBlock();
+      Collection<Date> serviceDates = calendarService.getServiceDatesWithinRange(
+          index.getServiceIds(), intervals.getRange(), dateFrom, dateTo);
+      for (Date serviceDate : serviceDates) {
+        InstanceState state = new InstanceState(serviceDate.getTime());
+        addEntries(entries, index.getTrips(), state, serviceDate.getTime(),
+            intervals.getStartTimes(), intervals.getEndTimes(), windowFrom,
+            windowTo);
+      }
+    }
+
+    for (FrequencyBlockTripIndex index : frequencyIndices) {
+      FrequencyServiceIntervalBlock intervals = index.getServiceIntervalBlock();
+      Collection<Date> serviceDates = calendarService.getServiceDatesWithinRange(
+          index.getServiceIds(), intervals.getRange(), dateFrom, dateTo);
+      List<BlockTripEntry> trips = index.getTrips();
+      List<FrequencyEntry> frequencies = index.getFrequencies();
+      int[] startTimes = intervals.getStartTimes();
+      int[] endTimes = intervals.getEndTimes();
+      for (Date serviceDate : serviceDates) {
+        long serviceDateTime = serviceDate.getTime();
+        for (int i = 0; i < trips.size(); i++) {
+          long startTime = serviceDateTime + startTimes[i] * 1000L;
+          long endTime = serviceDateTime + endTimes[i] * 1000L;
+          if (endTime < windowFrom || startTime >= windowTo)
+            continue;
+          InstanceState state = new InstanceState(serviceDateTime,
+              frequencies.get(i));
+          entries.add(new Entry(startTime, endTime, new BlockInstance(
+              trips.get(i).getBlockConfiguration(), state)));
+        }
+      }
+    }
+
+    return new BlockInstanceTimeline(entries);
+  }
+
+  /**
+   * Add the instances active in [timeFrom, timeTo], which must be within the
+   * window this timeline was built for.
+   *
+   * @param timeFrom
+   * @param timeTo
+   * @param results
+   */
+  public void getActiveInstances(long timeFrom, long timeTo,
+      Collection<BlockInstance> results) {
+
+    // match the second resolution of the schedule-relative search
+    long from = floorToSecond(timeFrom);
+    long to = floorToSecond(timeTo);
+
+    for (Bucket bucket : _buckets)
+      bucket.getActiveInstances(from, to, results);
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private static void addEntries(List<Entry> entries,
+      List<BlockTripEntry> trips, InstanceState state, long serviceDate,
+      int[] startTimes, int[] endTimes, long windowFrom, long windowTo) {
+    for (int i = 0; i < trips.size(); i++) {
+      long startTime = serviceDate + startTimes[i] * 1000L;
+      long endTime = serviceDate + endTimes[i] * 1000L;
+      if (endTime < windowFrom || startTime >= windowTo)
+        continue;
+      entries.add(new Entry(startTime, endTime, new BlockInstance(
+          trips.get(i).getBlockConfiguration(), state)));
+    }
+  }
+
+  private static long floorToSecond(long time) {
+    return Math.floorDiv(time, 1000L) * 1000L;
+  }
+
+  private static int getBucketIndex(long duration) {
+    int index = 0;
+    for (long limit = MIN_BUCKET_DURATION; duration > limit; limit *= 2)
+      index++;
+    return index;
+  }
+
+  /**
+   * Intervals of similar duration, sorted by start time
+   */
+  private static class Bucket {
+
+    private final long[] _startTimes;
+
+    private final long[] _endTimes;
+
+    private final BlockInstance[] _instances;
+
+    /**
+     * The longest interval in the bucket, which bounds how far before a range
+     * an active interval may start
+     */
+    private final long _maxDuration;
+
+    public Bucket(List<Entry> entries) {
+
+      int n = entries.size();
+      _startTimes = new long[n];
+      _endTimes = new long[n];
+      _instances = new BlockInstance[n];
+
+      long maxDuration = 0;
+      for (int i = 0; i < n; i++) {
+        Entry entry = entries.get(i);
+        _startTimes[i] = entry.startTime;
+        _endTimes[i] = entry.endTime;
+        _instances[i] = entry.instance;
+        maxDuration = Math.max(maxDuration, entry.endTime - entry.startTime);
+      }
+      _maxDuration = maxDuration;
+    }
+
+    public void getActiveInstances(long from, long to,
+        Collection<BlockInstance> results) {
+
+      int index = Arrays.binarySearch(_startTimes, from - _maxDuration);
+      if (index < 0) {
+        index = -(index + 1);
+      } else {
+        while (index > 0 && _startTimes[index - 1] == _startTimes[index])
+          index--;
+      }
+
+      for (int i = index; i < _startTimes.length && _startTimes[i] < to; i++) {
+        if (_endTimes[i] >= from)
+          results.add(_instances[i]);
+      }
+    }
+  }
+
+  private static class Entry {
+
+    private final long startTime;
+
+    private final long endTime;
+
+    private final BlockInstance instance;
+
+    public Entry(long startTime, long endTime, BlockInstance instance) {
+      this.startTime = startTime;
+      this.endTime = endTime;
+      this.instance = instance;
+    }
+  }
+
+  private static class EntryComparator implements Comparator<Entry> {
+
+    public static final EntryComparator INSTANCE = new EntryComparator();
+
+    @Override
+    public int compare(Entry o1, Entry o2) {
+      return Long.compare(o1.startTime, o2.startTime);
+    }
+  }
+}
@@ -21,13 +21,18 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.onebusaway.container.ConfigurationParameter;
 import org.onebusaway.geospatial.model.CoordinateBounds;
 import org.onebusaway.geospatial.model.CoordinatePoint;
+import org.onebusaway.geospatial.services.SphericalGeometryLibrary;
 import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.transit_data_federation.impl.realtime.VehicleLocationSpatialIndex;
+import org.onebusaway.transit_data_federation.impl.realtime.VehicleLocationSpatialIndex.VehiclePosition;
 import org.onebusaway.transit_data_federation.model.TargetTime;
 import org.onebusaway.transit_data_federation.services.ExtendedCalendarService;
 import org.onebusaway.transit_data_federation.services.blocks.BlockCalendarService;
@@ -56,6 +61,8 @@ public class BlockStatusServiceImpl implements BlockStatusService {
 
   private ExtendedCalendarService _extendedCalendarService;
 
+  private VehicleLocationSpatialIndex _vehicleLocationSpatialIndex;
+
   /**
    * When searching for blocks to apply real-time information, we will look back
    * the specified number of seconds for vehicles that are potentially running
@@ -78,6 +85,13 @@ public class BlockStatusServiceImpl implements BlockStatusService {
    */
   private int _runningEarlyWindow = 10 * 60;
 
+  /**
+   * How far outside the search bounds, in meters, to look for vehicles in the
+   * spatial index. A vehicle's position is projected forward from its last
+   * report, so it may have moved into the bounds since.
+   */
+  private double _vehicleSearchMargin = 500;
+
   @Autowired
   public void setActive(BlockCalendarService activeCalendarService) {
     _blockCalendarService = activeCalendarService;
@@ -94,6 +108,12 @@ public class BlockStatusServiceImpl implements BlockStatusService {
     _blockGeospatialService = blockGeospatialService;
   }
 
+  @Autowired(required = false)
+  public void setVehicleLocationSpatialIndex(
+      VehicleLocationSpatialIndex vehicleLocationSpatialIndex) {
+    _vehicleLocationSpatialIndex = vehicleLocationSpatialIndex;
+  }
+
   @Autowired
   public void setExtendedCalendarService(
       ExtendedCalendarService extendedCalendarSerivce) {
@@ -132,6 +152,17 @@ public class BlockStatusServiceImpl implements BlockStatusService {
     return _runningEarlyWindow;
   }
 
+  /**
+   * When searching for blocks within bounds, vehicles last reported this far
+   * outside the bounds are still considered.
+   * 
+   * @param vehicleSearchMarginInMeters distance in meters
+   */
+  @ConfigurationParameter
+  public void setVehicleSearchMargin(double vehicleSearchMarginInMeters) {
+    _vehicleSearchMargin = vehicleSearchMarginInMeters;
+  }
+
   /****
    * {@link BlockStatusService} Interface
    ****/
@@ -198,6 +229,9 @@ public class BlockStatusServiceImpl implements BlockStatusService {
     List<BlockInstance> instances = _blockGeospatialService.getActiveScheduledBlocksPassingThroughBounds(
         bounds, timeFrom, timeTo);
 
+    if (_vehicleLocationSpatialIndex != null)
+      return getBlocksForBoundsFromSpatialIndex(bounds, time, instances);
+
     List<BlockLocation> locations = getAsLocations(instances, time);
     List<BlockLocation> inRange = new ArrayList<BlockLocation>();
     for (BlockLocation location : locations) {
@@ -229,6 +263,65 @@ public class BlockStatusServiceImpl implements BlockStatusService {
    * Private Methods
    ****/
 
+  /**
+   * Real-time locations come from the vehicles the spatial index has near the
+   * bounds. Scheduled locations are only computed for the instances that no
+   * vehicle is reporting on.
+   * 
+   * A vehicle last seen further than the search margin from the bounds may
+   * still have been projected into them, so instances with vehicles that the
+   * spatial index didn't turn up are located the slow way.
+   */
+  private List<BlockLocation> getBlocksForBoundsFromSpatialIndex(
+      CoordinateBounds bounds, long time,
+      List<BlockInstance> scheduledInstances) {
+
+    List<BlockLocation> inRange = new ArrayList<BlockLocation>();
+    TargetTime target = new TargetTime(time, time);
+
+    Set<BlockInstance> locatedInstances = new HashSet<BlockInstance>();
+    Set<AgencyAndId> locatedVehicleIds = new HashSet<AgencyAndId>();
+
+    CoordinateBounds searchBounds = SphericalGeometryLibrary.bounds(bounds,
+        _vehicleSearchMargin);
+    for (VehiclePosition position : _vehicleLocationSpatialIndex.getVehiclesInBounds(
+        searchBounds, time)) {
+      BlockLocation location = _blockLocationService.getLocationForVehicleAndTime(
+          position.getVehicleId(), target);
+      if (location == null)
+        continue;
+      locatedVehicleIds.add(position.getVehicleId());
+      if (location.getBlockInstance() != null)
+        locatedInstances.add(location.getBlockInstance());
+      if (location.getLocation() != null
+          && bounds.contains(location.getLocation()))
+        inRange.add(location);
+    }
+
+    for (BlockInstance instance : scheduledInstances) {
+      if (_vehicleLocationSpatialIndex.hasVehicles(instance, time)) {
+        if (locatedInstances.contains(instance))
+          continue;
+        for (BlockLocation location : _blockLocationService.getLocationsForBlockInstance(
+            instance, target)) {
+          if (location.getLocation() != null
+              && bounds.contains(location.getLocation())
+              && locatedVehicleIds.add(location.getVehicleId()))
+            inRange.add(location);
+        }
+        continue;
+      }
+      BlockLocation location = _blockLocationService.getScheduledLocationForBlockInstance(
+          instance, time);
+      if (location != null && location.isInService()
+          && location.getLocation() != null
+          && bounds.contains(location.getLocation()))
+        inRange.add(location);
+    }
+
+    return inRange;
+  }
+
   private List<BlockInstance> getBlockInstances(AgencyAndId blockId,
       long serviceDate, long time) {
 
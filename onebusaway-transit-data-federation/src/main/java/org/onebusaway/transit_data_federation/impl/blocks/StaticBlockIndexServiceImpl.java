@@ -377,40 +377,39 @@ class StaticBlockIndexServiceImpl implements StaticBlockIndexService {
     _blockSequenceIndices = _factory.createSequenceIndices(_graphDao.getAllBlocks());
   }
 
+  /**
+   * The indices are collected per stop off to the side and then swapped in,
+   * rather than cleared and refilled in place, as the stops may be shared
+   * with a running graph that is answering queries during a bundle swap.
+   */
   private void loadStopTimeIndices() {
 
-    // Clear any existing indices
-    for (StopEntry stop : _graphDao.getAllStops()) {
-      StopEntryImpl stopImpl = (StopEntryImpl) stop;
-      stopImpl.getStopTimeIndices().clear();
-      stopImpl.getFrequencyStopTimeIndices().clear();
-    }
-
     BlockStopTimeIndicesFactory factory = new BlockStopTimeIndicesFactory();
     factory.setVerbose(true);
     List<BlockStopTimeIndex> indices = factory.createIndices(_graphDao.getAllBlocks());
 
-    for (BlockStopTimeIndex index : indices) {
-      StopEntryImpl stop = (StopEntryImpl) index.getStop();
-      stop.addStopTimeIndex(index);
-    }
+    Map<StopEntryImpl, List<BlockStopTimeIndex>> indicesByStop = new HashMap<StopEntryImpl, List<BlockStopTimeIndex>>();
+    for (BlockStopTimeIndex index : indices)
+      addIndexForStop(indicesByStop, (StopEntryImpl) index.getStop(), index);
 
     List<FrequencyBlockStopTimeIndex> frequencyIndices = factory.createFrequencyIndices(_graphDao.getAllBlocks());
 
-    for (FrequencyBlockStopTimeIndex index : frequencyIndices) {
-      StopEntryImpl stop = (StopEntryImpl) index.getStop();
-      stop.addFrequencyStopTimeIndex(index);
+    Map<StopEntryImpl, List<FrequencyBlockStopTimeIndex>> frequencyIndicesByStop = new HashMap<StopEntryImpl, List<FrequencyBlockStopTimeIndex>>();
+    for (FrequencyBlockStopTimeIndex index : frequencyIndices)
+      addIndexForStop(frequencyIndicesByStop, (StopEntryImpl) index.getStop(),
+          index);
+
+    for (StopEntry stop : _graphDao.getAllStops()) {
+      StopEntryImpl stopImpl = (StopEntryImpl) stop;
+      stopImpl.setStopTimeIndices(indicesByStop.get(stopImpl));
+      stopImpl.setFrequencyStopTimeIndices(frequencyIndicesByStop.get(stopImpl));
     }
   }
 
   private void loadStopTripIndices() {
 
-    // Clear any existing indices
-    for (StopEntry stop : _graphDao.getAllStops()) {
-      StopEntryImpl stopImpl = (StopEntryImpl) stop;
-      stopImpl.getStopTripIndices().clear();
-      stopImpl.getFrequencyStopTripIndices().clear();
-    }
+    Map<StopEntryImpl, List<BlockStopSequenceIndex>> indicesByStop = new HashMap<StopEntryImpl, List<BlockStopSequenceIndex>>();
+    Map<StopEntryImpl, List<FrequencyStopTripIndex>> frequencyIndicesByStop = new HashMap<StopEntryImpl, List<FrequencyStopTripIndex>>();
 
     for (BlockSequenceIndex index : _blockSequenceIndices) {
 
@@ -426,7 +425,7 @@ class StaticBlockIndexServiceImpl implements StaticBlockIndexService {
         BlockStopSequenceIndex blockStopTripIndex = new BlockStopSequenceIndex(
                 index, offset);
 
-        stop.addBlockStopTripIndex(blockStopTripIndex);
+        addIndexForStop(indicesByStop, stop, blockStopTripIndex);
         offset++;
       }
     }
@@ -444,10 +443,26 @@ class StaticBlockIndexServiceImpl implements StaticBlockIndexService {
 
         FrequencyStopTripIndex stopTripIndex = new FrequencyStopTripIndex(
                 index, offset);
-        stop.addFrequencyStopTripIndex(stopTripIndex);
+        addIndexForStop(frequencyIndicesByStop, stop, stopTripIndex);
         offset++;
       }
     }
+
+    for (StopEntry stop : _graphDao.getAllStops()) {
+      StopEntryImpl stopImpl = (StopEntryImpl) stop;
+      stopImpl.setStopTripIndices(indicesByStop.get(stopImpl));
+      stopImpl.setFrequencyStopTripIndices(frequencyIndicesByStop.get(stopImpl));
+    }
+  }
+
+  private static <T> void addIndexForStop(Map<StopEntryImpl, List<T>> indicesByStop,
+      StopEntryImpl stop, T index) {
+    List<T> indices = indicesByStop.get(stop);
+    if (indices == null) {
+      indices = new ArrayList<T>();
+      indicesByStop.put(stop, indices);
+    }
+    indices.add(index);
   }
 
 }
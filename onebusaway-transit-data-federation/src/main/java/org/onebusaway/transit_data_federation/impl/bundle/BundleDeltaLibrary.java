@@ -0,0 +1,344 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.bundle;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.gtfs.model.calendar.LocalizedServiceId;
+import org.onebusaway.transit_data_federation.model.bundle.BundleDelta;
+import org.onebusaway.transit_data_federation.model.transit_graph.TransitGraph;
+import org.onebusaway.transit_data_federation.services.transit_graph.AgencyEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockConfigurationEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockTripEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.FrequencyEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.RouteCollectionEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.RouteEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopTimeEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.TripEntry;
+
+/**
+ * Computes a {@link BundleDelta} between two transit graphs by comparing a
+ * content fingerprint for each stop, trip and block.
+ *
+ * Changes are propagated along graph references so that a delta can be
+ * applied by swapping whole entries: a trip that visits a changed or removed
+ * stop is itself marked changed, and a block whose trips were added, removed
+ * or changed is marked changed.
+ */
+public class BundleDeltaLibrary {
+
+  private BundleDeltaLibrary() {
+
+  }
+
+  public static BundleDelta computeDelta(TransitGraph base, TransitGraph target) {
+
+    BundleDelta delta = new BundleDelta();
+    delta.setBaseFingerprint(getFingerprint(base));
+    delta.setTargetFingerprint(getFingerprint(target));
+
+    if (getStructureFingerprint(base) != getStructureFingerprint(target)) {
+      delta.setFullReloadRequired(true);
+      return delta;
+    }
+
+    Map<AgencyAndId, Long> baseStops = new HashMap<AgencyAndId, Long>();
+    for (StopEntry stop : base.getAllStops())
+      baseStops.put(stop.getId(), getStopFingerprint(stop));
+    Map<AgencyAndId, Long> targetStops = new HashMap<AgencyAndId, Long>();
+    for (StopEntry stop : target.getAllStops())
+      targetStops.put(stop.getId(), getStopFingerprint(stop));
+    diff(baseStops, targetStops, delta.getAddedStopIds(),
+        delta.getRemovedStopIds(), delta.getChangedStopIds());
+
+    Map<AgencyAndId, Long> baseTrips = new HashMap<AgencyAndId, Long>();
+    for (TripEntry trip : base.getAllTrips())
+      baseTrips.put(trip.getId(), getTripFingerprint(trip));
+    Map<AgencyAndId, Long> targetTrips = new HashMap<AgencyAndId, Long>();
+    for (TripEntry trip : target.getAllTrips())
+      targetTrips.put(trip.getId(), getTripFingerprint(trip));
+    diff(baseTrips, targetTrips, delta.getAddedTripIds(),
+        delta.getRemovedTripIds(), delta.getChangedTripIds());
+
+    // Trips that reference a replaced stop must be replaced along with it
+    for (TripEntry trip : target.getAllTrips()) {
+      if (delta.getAddedTripIds().contains(trip.getId())
+          || delta.getChangedTripIds().contains(trip.getId()))
+        continue;
+      for (StopTimeEntry stopTime : trip.getStopTimes()) {
+        AgencyAndId stopId = stopTime.getStop().getId();
+        if (delta.getChangedStopIds().contains(stopId)) {
+          delta.getChangedTripIds().add(trip.getId());
+          break;
+        }
+      }
+    }
+
+    Map<AgencyAndId, Long> baseBlocks = new HashMap<AgencyAndId, Long>();
+    for (BlockEntry block : base.getAllBlocks())
+      baseBlocks.put(block.getId(), getBlockFingerprint(block));
+    Map<AgencyAndId, Long> targetBlocks = new HashMap<AgencyAndId, Long>();
+    for (BlockEntry block : target.getAllBlocks())
+      targetBlocks.put(block.getId(), getBlockFingerprint(block));
+    diff(baseBlocks, targetBlocks, delta.getAddedBlockIds(),
+        delta.getRemovedBlockIds(), delta.getChangedBlockIds());
+
+    // Blocks are rebuilt from their trips, so any block touching a replaced
+    // trip must be rebuilt too
+    for (TripEntry trip : target.getAllTrips()) {
+      AgencyAndId tripId = trip.getId();
+      if (!(delta.getAddedTripIds().contains(tripId) || delta.getChangedTripIds().contains(
+          tripId)))
+        continue;
+      if (trip.getShapeId() != null)
+        delta.getShapeIds().add(trip.getShapeId());
+      BlockEntry block = trip.getBlock();
+      if (block != null && !delta.getAddedBlockIds().contains(block.getId()))
+        delta.getChangedBlockIds().add(block.getId());
+    }
+    for (TripEntry trip : base.getAllTrips()) {
+      if (!delta.getRemovedTripIds().contains(trip.getId()))
+        continue;
+      BlockEntry block = trip.getBlock();
+      if (block != null && targetBlocks.containsKey(block.getId())
+          && !delta.getAddedBlockIds().contains(block.getId()))
+        delta.getChangedBlockIds().add(block.getId());
+    }
+
+    return delta;
+  }
+
+  /**
+   * @return a fingerprint over every stop, trip and block in the graph, along
+   *         with its agencies, routes and route collections. Entry order does
+   *         not matter, so a graph that had a delta applied to it fingerprints
+   *         the same as the delta's target graph.
+   */
+  public static long getFingerprint(TransitGraph graph) {
+    long sum = getStructureFingerprint(graph);
+    for (StopEntry stop : graph.getAllStops())
+      sum += getStopFingerprint(stop);
+    for (TripEntry trip : graph.getAllTrips())
+      sum += getTripFingerprint(trip);
+    for (BlockEntry block : graph.getAllBlocks())
+      sum += getBlockFingerprint(block);
+    return sum;
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private static void diff(Map<AgencyAndId, Long> base,
+      Map<AgencyAndId, Long> target, Set<AgencyAndId> added,
+      Set<AgencyAndId> removed, Set<AgencyAndId> changed) {
+
+    for (Map.Entry<AgencyAndId, Long> entry : target.entrySet()) {
+      Long baseValue = base.get(entry.getKey());
+      if (baseValue == null)
+        added.add(entry.getKey());
+      else if (!baseValue.equals(entry.getValue()))
+        changed.add(entry.getKey());
+    }
+
+    for (AgencyAndId id : base.keySet()) {
+      if (!target.containsKey(id))
+        removed.add(id);
+    }
+  }
+
+  /**
+   * Entries the delta doesn't track. The sum of the per-entry hashes keeps the
+   * result independent of list order.
+   */
+  private static long getStructureFingerprint(TransitGraph graph) {
+
+    long sum = 0;
+
+    for (AgencyEntry agency : graph.getAllAgencies()) {
+      Fingerprint f = new Fingerprint();
+      f.add(agency.getId());
+      for (RouteCollectionEntry routeCollection : agency.getRouteCollections())
+        f.add(routeCollection.getId());
+      sum += f.get();
+    }
+
+    for (RouteCollectionEntry routeCollection : graph.getAllRouteCollections()) {
+      Fingerprint f = new Fingerprint();
+      f.add(routeCollection.getId());
+      for (RouteEntry route : routeCollection.getChildren())
+        f.add(route.getId());
+      sum += f.get();
+    }
+
+    for (RouteEntry route : graph.getAllRoutes()) {
+      Fingerprint f = new Fingerprint();
+      f.add(route.getId());
+      f.add(route.getParent() == null ? null : route.getParent().getId());
+      f.add(route.getType());
+      sum += f.get();
+    }
+
+    return sum;
+  }
+
+  private static long getStopFingerprint(StopEntry stop) {
+    Fingerprint f = new Fingerprint();
+    f.add(stop.getId());
+    f.add(stop.getStopLat());
+    f.add(stop.getStopLon());
+    f.add(stop.getParent());
+    f.add(stop.getWheelchairBoarding() == null ? null
+        : stop.getWheelchairBoarding().name());
+    return f.get();
+  }
+
+  private static long getTripFingerprint(TripEntry trip) {
+    Fingerprint f = new Fingerprint();
+    f.add(trip.getId());
+    f.add(trip.getRoute() == null ? null : trip.getRoute().getId());
+    f.add(trip.getDirectionId());
+    f.add(trip.getBlock() == null ? null : trip.getBlock().getId());
+    add(f, trip.getServiceId());
+    f.add(trip.getShapeId());
+    f.add(trip.getTotalTripDistance());
+    add(f, trip.getFrequencyLabel());
+
+    List<StopTimeEntry> stopTimes = trip.getStopTimes();
+    if (stopTimes != null) {
+      for (StopTimeEntry stopTime : stopTimes) {
+        f.add(stopTime.getId());
+        f.add(stopTime.getStop().getId());
+        f.add(stopTime.getArrivalTime());
+        f.add(stopTime.getDepartureTime());
+        f.add(stopTime.getSequence());
+        f.add(stopTime.getGtfsSequence());
+        f.add(stopTime.getPickupType());
+        f.add(stopTime.getDropOffType());
+        f.add(stopTime.getShapePointIndex());
+        f.add(stopTime.getShapeDistTraveled());
+        f.add(stopTime.getAccumulatedSlackTime());
+        f.add(stopTime.getHistoricalOccupancy() == null ? null
+            : stopTime.getHistoricalOccupancy().name());
+      }
+    }
+
+    return f.get();
+  }
+
+  private static long getBlockFingerprint(BlockEntry block) {
+    Fingerprint f = new Fingerprint();
+    f.add(block.getId());
+    List<BlockConfigurationEntry> configurations = block.getConfigurations();
+    if (configurations != null) {
+      for (BlockConfigurationEntry configuration : configurations) {
+        for (LocalizedServiceId serviceId : configuration.getServiceIds().getActiveServiceIds())
+          add(f, serviceId);
+        f.add("|");
+        for (LocalizedServiceId serviceId : configuration.getServiceIds().getInactiveServiceIds())
+          add(f, serviceId);
+        for (BlockTripEntry blockTrip : configuration.getTrips()) {
+          f.add(blockTrip.getTrip().getId());
+          f.add(blockTrip.getDistanceAlongBlock());
+        }
+        f.add(configuration.getTotalBlockDistance());
+        List<FrequencyEntry> frequencies = configuration.getFrequencies();
+        if (frequencies != null) {
+          for (FrequencyEntry frequency : frequencies)
+            add(f, frequency);
+        }
+      }
+    }
+    return f.get();
+  }
+
+  private static void add(Fingerprint f, LocalizedServiceId serviceId) {
+    if (serviceId == null) {
+      f.add((String) null);
+      return;
+    }
+    f.add(serviceId.getId());
+    f.add(serviceId.getTimeZone().getID());
+  }
+
+  private static void add(Fingerprint f, FrequencyEntry frequency) {
+    if (frequency == null) {
+      f.add((String) null);
+      return;
+    }
+    f.add(frequency.getStartTime());
+    f.add(frequency.getEndTime());
+    f.add(frequency.getHeadwaySecs());
+    f.add(frequency.getExactTimes());
+  }
+
+  /**
+   * 64-bit FNV-1a over a sequence of values
+   */
+  private static class Fingerprint {
+
+    private static final long PRIME = 0x100000001b3L;
+
+    private long _hash = 0xcbf29ce484222325L;
+
+    public void add(long value) {
+      for (int i = 0; i < 8; i++) {
+        _hash ^= (value & 0xff);
+        _hash *= PRIME;
+        value >>>= 8;
+      }
+    }
+
+    public void add(int value) {
+      add((long) value);
+    }
+
+    public void add(double value) {
+      add(Double.doubleToLongBits(value));
+    }
+
+    public void add(String value) {
+      if (value == null) {
+        add(-1);
+        return;
+      }
+      add(value.length());
+      for (int i = 0; i < value.length(); i++) {
+        _hash ^= value.charAt(i);
+        _hash *= PRIME;
+      }
+    }
+
+    public void add(AgencyAndId id) {
+      if (id == null) {
+        add((String) null);
+        return;
+      }
+      add(id.getAgencyId());
+      add(id.getId());
+    }
+
+    public long get() {
+      return _hash;
+    }
+  }
+}
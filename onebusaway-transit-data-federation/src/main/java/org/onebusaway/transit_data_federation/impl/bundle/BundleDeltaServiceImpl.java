@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.bundle;
+
+import java.io.File;
+
+import org.onebusaway.container.refresh.RefreshService;
+import org.onebusaway.transit_data_federation.impl.RefreshableResources;
+import org.onebusaway.transit_data_federation.impl.narrative.NarrativeServiceImpl;
+import org.onebusaway.transit_data_federation.impl.transit_graph.TransitGraphDaoImpl;
+import org.onebusaway.transit_data_federation.model.bundle.BundleDelta;
+import org.onebusaway.transit_data_federation.services.FederatedTransitDataBundle;
+import org.onebusaway.utility.ObjectSerializationLibrary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the running services onto the bundle at the current bundle path by
+ * applying the {@link BundleDelta} the builder stored alongside it, instead of
+ * refreshing {@link RefreshableResources#TRANSIT_GRAPH}.
+ *
+ * Stops, trips and blocks not named in the delta keep their identity, so block
+ * instances held by realtime ingestion stay valid across the swap. Indices
+ * derived from the graph are refreshed only when the delta touches what they
+ * cover.
+ */
+@Component
+public class BundleDeltaServiceImpl {
+
+  private static Logger _log = LoggerFactory.getLogger(BundleDeltaServiceImpl.class);
+
+  private FederatedTransitDataBundle _bundle;
+
+  private TransitGraphDaoImpl _transitGraphDao;
+
+  private NarrativeServiceImpl _narrativeService;
+
+  private RefreshService _refreshService;
+
+  @Autowired
+  public void setBundle(FederatedTransitDataBundle bundle) {
+    _bundle = bundle;
+  }
+
+  @Autowired
+  public void setTransitGraphDao(TransitGraphDaoImpl transitGraphDao) {
+    _transitGraphDao = transitGraphDao;
+  }
+
+  @Autowired
+  public void setNarrativeService(NarrativeServiceImpl narrativeService) {
+    _narrativeService = narrativeService;
+  }
+
+  @Autowired
+  public void setRefreshService(RefreshService refreshService) {
+    _refreshService = refreshService;
+  }
+
+  /**
+   * @return the delta stored in the bundle at the current bundle path, or null
+   *         if the bundle has none
+   */
+  public BundleDelta getBundleDelta() throws Exception {
+    File path = _bundle.getBundleDeltaPath();
+    if (!path.exists())
+      return null;
+    return ObjectSerializationLibrary.readObject(path);
+  }
+
+  /**
+   * Apply a delta to the running services. The bundle path must already point
+   * at the delta's target bundle.
+   *
+   * @param delta
+   * @throws IllegalArgumentException if the delta requires a full reload
+   * @throws IllegalStateException if the running graph is not the delta's base
+   */
+  public void applyDelta(BundleDelta delta) throws Exception {
+
+    if (delta.isFullReloadRequired())
+      throw new IllegalArgumentException("delta requires a full reload");
+
+    long start = System.currentTimeMillis();
+
+    _transitGraphDao.applyDelta(delta);
+    _narrativeService.applyDelta(delta);
+
+    _refreshService.refresh(RefreshableResources.TRANSIT_GRAPH_DELTA);
+    _refreshService.refresh(RefreshableResources.CALENDAR_DATA);
+    _refreshService.refresh(RefreshableResources.ROUTE_COLLECTIONS_DATA);
+    _refreshService.refresh(RefreshableResources.ROUTE_COLLECTION_SEARCH_DATA);
+    _refreshService.refresh(RefreshableResources.STOP_SEARCH_DATA);
+
+    if (delta.hasTripChanges() || delta.hasBlockChanges()) {
+      _refreshService.refresh(RefreshableResources.BLOCK_INDEX_DATA);
+      _refreshService.refresh(RefreshableResources.BLOCK_INDEX_SERVICE);
+      _refreshService.refresh(RefreshableResources.SHAPE_GEOSPATIAL_INDEX);
+    }
+
+    if (delta.hasStopChanges())
+      _refreshService.refresh(RefreshableResources.STOP_GEOSPATIAL_INDEX);
+
+    _refreshService.refresh(RefreshableResources.STOP_CONSOLIDATION_FILE);
+
+    _log.info("applied bundle delta {} in {}ms", delta,
+        System.currentTimeMillis() - start);
+  }
+}
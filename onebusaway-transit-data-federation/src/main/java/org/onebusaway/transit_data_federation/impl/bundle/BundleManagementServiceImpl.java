@@ -21,6 +21,7 @@ import javax.annotation.PostConstruct;
 
 import net.sf.ehcache.CacheManager;
 
+import org.onebusaway.container.cache.CacheableMethodManager;
 import org.onebusaway.container.refresh.RefreshService;
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.gtfs.model.calendar.ServiceDate;
@@ -31,6 +32,7 @@ import org.onebusaway.transit_data.model.config.BundleMetadata;
 import org.onebusaway.transit_data.services.TransitDataService;
 import org.onebusaway.transit_data_federation.impl.RefreshableResources;
 import org.onebusaway.transit_data_federation.impl.config.BundleConfigDao;
+import org.onebusaway.transit_data_federation.model.bundle.BundleDelta;
 import org.onebusaway.transit_data_federation.model.bundle.BundleItem;
 import org.onebusaway.util.AgencyAndIdLibrary;
 import org.onebusaway.transit_data_federation.services.FederatedTransitDataBundle;
@@ -120,6 +122,34 @@ public class BundleManagementServiceImpl implements BundleManagementService {
   @Autowired
   protected RefreshService _refreshService;
 
+  protected List<CacheableMethodManager> _cacheableMethodManagers = Collections.emptyList();
+
+  protected BundleDeltaServiceImpl _bundleDeltaService;
+
+  protected boolean _incrementalBundleSwap = false;
+
+  @Autowired(required = false)
+  public void setCacheableMethodManagers(
+      List<CacheableMethodManager> cacheableMethodManagers) {
+    _cacheableMethodManagers = cacheableMethodManagers;
+  }
+
+  @Autowired(required = false)
+  public void setBundleDeltaService(BundleDeltaServiceImpl bundleDeltaService) {
+    _bundleDeltaService = bundleDeltaService;
+  }
+
+  /**
+   * When the new bundle carries a delta against the active one, patch the
+   * running transit graph instead of reloading it. The patched graph is built
+   * alongside the running one and swapped in, so realtime ingestion keeps
+   * running throughout. Falls back to a full reload if the delta cannot be
+   * applied.
+   */
+  public void setIncrementalBundleSwap(boolean incrementalBundleSwap) {
+    _incrementalBundleSwap = incrementalBundleSwap;
+  }
+
   @Autowired
   public void set_restApiLibrary(HttpServiceClient _restApiLibrary) {
     this._restApiLibrary = _restApiLibrary;
@@ -372,47 +402,22 @@ public class BundleManagementServiceImpl implements BundleManagementService {
     }
 
     _log.info("Switching to bundle " + bundleName + " (" + bundleId + ")...");
-    _bundleIsReady = false;
 
-    // wait until all inference processing threads have exited...
-    int t = INFERENCE_PROCESSING_THREAD_WAIT_TIMEOUT_IN_SECONDS / 5;
-    while (t-- >= 0) {
-      removeDeadInferenceThreads();
-      _log.info("Waiting for all inference processing threads to exit... "
-          + _inferenceProcessingThreads.size() + " thread(s) left.");
-
-      // have all inference threads finished yet?
-      if (allInferenceThreadsHaveExited()) {
-        break;
-
-        // forcefully cancel threads when we timeout
-      } else if (t == 0) {
-        for (Future thread : _inferenceProcessingThreads) {
-          if (!thread.isDone() && !thread.isCancelled()) {
-            thread.cancel(true);
-          }
-        }
-
-        _inferenceProcessingThreads.clear();
-
-        break;
-      }
+    // a delta is applied to a copy of the running graph, so inference
+    // processing carries on while it is built
+    if (_incrementalBundleSwap && _bundleDeltaService != null
+        && _currentBundleId != null
+        && changeBundleIncrementally(bundleId, bundleName))
+      return;
 
-      Thread.yield();
-      Thread.sleep(5 * 1000);
-    }
+    _bundleIsReady = false;
+    waitForInferenceProcessingThreads();
 
     _log.info("All inference processing threads have now exited--changing bundle...");
     _refreshService.refresh(RefreshableResources.MARK_START_BUNDLE_SWAP);
 
     // switch bundle files
-    File path;
-    if(_bundleStore.isLegacyBundle()){
-      path = new File(_bundleRootPath);
-    }else{
-      path = new File(_bundleRootPath, bundleName);
-    }
-    _bundle.setPath(path);
+    _bundle.setPath(getBundlePath(bundleName));
 
     try {
       _refreshService.refresh(RefreshableResources.TRANSIT_GRAPH);
@@ -465,6 +470,45 @@ public class BundleManagementServiceImpl implements BundleManagementService {
     return;
   }
 
+  /**
+   * @return true if the bundle was switched by applying its delta, false if a
+   *         full reload is still needed
+   */
+  private boolean changeBundleIncrementally(String bundleId, String bundleName) {
+    File previousPath = _bundle.getPath();
+    _bundle.setPath(getBundlePath(bundleName));
+
+    try {
+      BundleDelta delta = _bundleDeltaService.getBundleDelta();
+      if (delta == null || delta.isFullReloadRequired()) {
+        _log.info("Bundle " + bundleName + " has no applicable delta; performing full reload");
+        _bundle.setPath(previousPath);
+        return false;
+      }
+
+      _bundleDeltaService.applyDelta(delta);
+    } catch (Exception e) {
+      _log.error("Bundle " + bundleName + "(" + bundleId + ")"
+          + " delta failed to apply; performing full reload", e);
+      _bundle.setPath(previousPath);
+      return false;
+    }
+
+    _currentBundleId = bundleId;
+    _log.info("Bundle delta applied; new bundle is now ready.");
+
+    removeAndRebuildCache();
+    _refreshService.refresh(RefreshableResources.MARK_STOP_BUNDLE_SWAP);
+    _log.info("Cache rebuild complete.");
+    return true;
+  }
+
+  private File getBundlePath(String bundleName) {
+    if (_bundleStore.isLegacyBundle())
+      return new File(_bundleRootPath);
+    return new File(_bundleRootPath, bundleName);
+  }
+
   // some kind of event notification system camsys setup?
   protected void timingHook() {
   }
@@ -473,6 +517,36 @@ public class BundleManagementServiceImpl implements BundleManagementService {
    * Private Helper Methods
    *************************/
 
+  // wait until all inference processing threads have exited...
+  private void waitForInferenceProcessingThreads() throws InterruptedException {
+    int t = INFERENCE_PROCESSING_THREAD_WAIT_TIMEOUT_IN_SECONDS / 5;
+    while (t-- >= 0) {
+      removeDeadInferenceThreads();
+      _log.info("Waiting for all inference processing threads to exit... "
+          + _inferenceProcessingThreads.size() + " thread(s) left.");
+
+      // have all inference threads finished yet?
+      if (allInferenceThreadsHaveExited()) {
+        break;
+
+        // forcefully cancel threads when we timeout
+      } else if (t == 0) {
+        for (Future thread : _inferenceProcessingThreads) {
+          if (!thread.isDone() && !thread.isCancelled()) {
+            thread.cancel(true);
+          }
+        }
+
+        _inferenceProcessingThreads.clear();
+
+        break;
+      }
+
+      Thread.yield();
+      Thread.sleep(5 * 1000);
+    }
+  }
+
   private void removeAndRebuildCache() {
     // give subclasses a chance to do work
     timingHook();
@@ -490,6 +564,10 @@ public class BundleManagementServiceImpl implements BundleManagementService {
       cacheManager.clearAll(); // why not?
     }
 
+    // @Cacheable methods may be backed by caches outside of EhCache
+    for (CacheableMethodManager manager : _cacheableMethodManagers)
+      manager.clearAll();
+
     // Rebuild cache
     try {
       List<AgencyWithCoverageBean> agenciesWithCoverage = _transitDataService
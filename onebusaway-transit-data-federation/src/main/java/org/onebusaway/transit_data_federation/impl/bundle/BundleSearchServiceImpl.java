@@ -68,7 +68,8 @@ public class BundleSearchServiceImpl implements BundleSearchService, Application
 	@PostConstruct
 	@Refreshable(dependsOn = { 
 		      RefreshableResources.ROUTE_COLLECTIONS_DATA, 
-		      RefreshableResources.TRANSIT_GRAPH })
+		      RefreshableResources.TRANSIT_GRAPH,
+		      RefreshableResources.TRANSIT_GRAPH_DELTA })
 	public void init() {
 		Runnable initThread = new Runnable() {
 			@Override
@@ -50,7 +50,9 @@ public class BundleConfigDao {
   }
   
   @PostConstruct
-  @Refreshable(dependsOn = RefreshableResources.TRANSIT_GRAPH)
+  @Refreshable(dependsOn = {
+      RefreshableResources.TRANSIT_GRAPH,
+      RefreshableResources.TRANSIT_GRAPH_DELTA })
   public void setup() throws IOException, ClassNotFoundException {
     _meta = null;
     File path = _bundle.getBundleMetadataPath();
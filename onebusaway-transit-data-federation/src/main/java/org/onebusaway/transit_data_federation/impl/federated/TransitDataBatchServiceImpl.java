@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.federated;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.onebusaway.exceptions.ServiceException;
+import org.onebusaway.transit_data.model.batch.TransitDataBatchCallBean;
+import org.onebusaway.transit_data.model.batch.TransitDataBatchResultBean;
+import org.onebusaway.transit_data.services.TransitDataBatchService;
+import org.onebusaway.transit_data.services.TransitDataService;
+import org.onebusaway.transit_data.services.TransitDataServiceBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Server side of {@link TransitDataBatchService}: executes each call against
+ * the local {@link TransitDataService}, in parallel on a bounded thread pool.
+ * Only methods of the {@link TransitDataService} interface can be called.
+ */
+@Component
+public class TransitDataBatchServiceImpl implements TransitDataBatchService {
+
+  private static Logger _log = LoggerFactory.getLogger(TransitDataBatchServiceImpl.class);
+
+  private TransitDataService _transitDataService;
+
+  private int _threadPoolSize = 8;
+
+  private int _maxBatchSize = TransitDataBatchService.DEFAULT_MAX_BATCH_SIZE;
+
+  private ExecutorService _executor;
+
+  private final Map<String, Method> _methodsBySignature = new HashMap<String, Method>();
+
+  @Autowired
+  public void setTransitDataService(TransitDataService transitDataService) {
+    _transitDataService = transitDataService;
+  }
+
+  /**
+   * @param threadPoolSize the number of calls executed in parallel, across all
+   *          batches; a size of zero executes calls on the request thread
+   */
+  public void setThreadPoolSize(int threadPoolSize) {
+    _threadPoolSize = threadPoolSize;
+  }
+
+  public void setMaxBatchSize(int maxBatchSize) {
+    _maxBatchSize = maxBatchSize;
+  }
+
+  @PostConstruct
+  public void start() {
+    for (Method method : TransitDataService.class.getMethods())
+      _methodsBySignature.put(
+          TransitDataServiceBatch.getMethodSignature(method), method);
+    if (_threadPoolSize > 0)
+      _executor = Executors.newFixedThreadPool(_threadPoolSize);
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (_executor != null) {
+      _executor.shutdownNow();
+      _executor = null;
+    }
+  }
+
+  @Override
+  public List<TransitDataBatchResultBean> invoke(
+      List<TransitDataBatchCallBean> calls) {
+
+    if (calls.size() > _maxBatchSize)
+      throw new ServiceException("batch of " + calls.size()
+          + " calls exceeds the maximum of " + _maxBatchSize);
+
+    List<TransitDataBatchResultBean> results = new ArrayList<TransitDataBatchResultBean>();
+
+    if (_executor == null || calls.size() <= 1) {
+      for (TransitDataBatchCallBean call : calls)
+        results.add(invoke(call));
+      return results;
+    }
+
+    List<Future<TransitDataBatchResultBean>> futures = new ArrayList<Future<TransitDataBatchResultBean>>();
+    for (TransitDataBatchCallBean call : calls)
+      futures.add(_executor.submit(() -> invoke(call)));
+
+    try {
+      for (Future<TransitDataBatchResultBean> future : futures)
+        results.add(future.get());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      for (Future<TransitDataBatchResultBean> future : futures)
+        future.cancel(true);
+      throw new ServiceException("interrupted executing batch", ex);
+    } catch (ExecutionException ex) {
+      throw new ServiceException(ex.getCause());
+    }
+
+    return results;
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private TransitDataBatchResultBean invoke(TransitDataBatchCallBean call) {
+
+    Method method = _methodsBySignature.get(call.getMethod());
+    if (method == null)
+      return TransitDataBatchResultBean.exception(new ServiceException(
+          "unknown TransitDataService method: " + call.getMethod()));
+
+    try {
+      return TransitDataBatchResultBean.value(method.invoke(
+          _transitDataService, call.getArguments()));
+    } catch (InvocationTargetException ex) {
+      return TransitDataBatchResultBean.exception(ex.getTargetException());
+    } catch (IllegalAccessException | IllegalArgumentException ex) {
+      _log.warn("error invoking batched call " + call.getMethod(), ex);
+      return TransitDataBatchResultBean.exception(new ServiceException(
+          "error invoking " + call.getMethod() + ": " + ex.getMessage()));
+    }
+  }
+}
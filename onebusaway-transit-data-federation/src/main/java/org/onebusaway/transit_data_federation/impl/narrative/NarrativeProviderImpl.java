@@ -192,6 +192,15 @@ public final class NarrativeProviderImpl implements Serializable {
     _dynamicShapesById.put(shapePoints.getShapeId(), shapePoints);
   }
 
+  /**
+   * Carry the shapes added at runtime by realtime feeds over from another
+   * provider, typically the one this provider is replacing.
+   */
+  public void copyDynamicShapesFrom(NarrativeProviderImpl provider) {
+    if (provider._dynamicShapesById != null)
+      _dynamicShapesById.putAll(provider._dynamicShapesById);
+  }
+
   public void addStaticRoute(AgencyAndId stopId, List<AgencyAndId> staticRouteIds) {
     _staticRoutesByStopId.put(stopId, staticRouteIds);
   }
@@ -28,6 +28,7 @@ import org.onebusaway.container.refresh.Refreshable;
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.transit_data_federation.impl.RefreshableResources;
 import org.onebusaway.transit_data_federation.model.ShapePoints;
+import org.onebusaway.transit_data_federation.model.bundle.BundleDelta;
 import org.onebusaway.transit_data_federation.model.narrative.AgencyNarrative;
 import org.onebusaway.transit_data_federation.model.narrative.RouteCollectionNarrative;
 import org.onebusaway.transit_data_federation.model.narrative.StopNarrative;
@@ -76,6 +77,24 @@ public class NarrativeServiceImpl implements NarrativeService {
     }
   }
 
+  /**
+   * Switch to the narratives of the current bundle path without losing the
+   * trips and shapes added at runtime by realtime feeds. Dynamic trips that
+   * the new bundle now schedules are dropped so the static narrative wins.
+   */
+  public void applyDelta(BundleDelta delta) throws IOException,
+      ClassNotFoundException {
+    File path = _bundle.getNarrativeProviderPath();
+    NarrativeProviderImpl provider = path.exists()
+        ? ObjectSerializationLibrary.<NarrativeProviderImpl> readObject(path)
+        : new NarrativeProviderImpl();
+    if (_provider != null)
+      provider.copyDynamicShapesFrom(_provider);
+    for (AgencyAndId tripId : delta.getAddedTripIds())
+      _dynamicTripCache.remove(tripId);
+    _provider = provider;
+  }
+
   /****
    * {@link NarrativeService} Interface
    ****/
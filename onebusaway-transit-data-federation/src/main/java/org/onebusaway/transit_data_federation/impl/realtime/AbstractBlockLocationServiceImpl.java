@@ -240,6 +240,7 @@ public abstract class AbstractBlockLocationServiceImpl {
           tprIndexCounter++;
         }
         location.setTimepointPredictions(timepointPredictions);
+        location.setStopTimePredictions(cacheElement.getStopTimePredictions());
 
         double[] scheduleTimes = new double[scheduleDeviations.size()];
         double[] scheduleDeviationMus = new double[scheduleDeviations.size()];
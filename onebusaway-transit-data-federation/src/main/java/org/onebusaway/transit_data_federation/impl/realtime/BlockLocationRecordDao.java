@@ -32,6 +32,15 @@ public interface BlockLocationRecordDao {
 
   public void saveBlockLocationRecords(List<BlockLocationRecord> records);
 
+  /**
+   * Insert new records in JDBC batches, in a transaction of their own and
+   * without going through the session cache. Intended for high-volume
+   * archiving of records that are never updated.
+   * 
+   * @param records
+   */
+  public void insertBlockLocationRecords(List<BlockLocationRecord> records);
+
   /**
    * 
    * @param blockId
@@ -23,6 +23,8 @@ import org.hibernate.Criteria;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Property;
 import org.onebusaway.gtfs.model.AgencyAndId;
@@ -77,6 +79,25 @@ public class BlockLocationRecordDaoImpl implements BlockLocationRecordDao {
     _savedRecordCount.addAndGet(records.size());
   }
 
+  @Override
+  public void insertBlockLocationRecords(List<BlockLocationRecord> records) {
+    StatelessSession session = _sessionFactory.openStatelessSession();
+    try {
+      Transaction tx = session.beginTransaction();
+      try {
+        for (BlockLocationRecord record : records)
+          session.insert(record);
+        tx.commit();
+      } catch (RuntimeException ex) {
+        tx.rollback();
+        throw ex;
+      }
+    } finally {
+      session.close();
+    }
+    _savedRecordCount.addAndGet(records.size());
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public List<BlockLocationRecord> getBlockLocationRecordsForBlockServiceDateAndTimeRange(
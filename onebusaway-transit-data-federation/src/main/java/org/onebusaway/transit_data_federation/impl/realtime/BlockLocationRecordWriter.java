@@ -0,0 +1,404 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.realtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.onebusaway.container.ConfigurationParameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind queue for {@link BlockLocationRecord} persistence. Records are
+ * handed off to a bounded ring buffer on the vehicle update thread and written
+ * to the {@link BlockLocationRecordDao} in JDBC batches by a single background
+ * thread, so a slow database never adds to ingest latency.
+ *
+ * A batch is written once {@link #setFlushSize(int)} records are waiting or
+ * {@link #setFlushInterval(long)} has passed, whichever comes first. When the
+ * buffer is full, the {@link OverflowPolicy} decides whether the caller waits
+ * or a record is dropped.
+ *
+ * @see BlockLocationServiceImpl#setPersistBlockLocationRecords(boolean)
+ */
+@Component
+@ManagedResource("org.onebusaway.transit_data_federation.impl.realtime:name=BlockLocationRecordWriter")
+public class BlockLocationRecordWriter {
+
+  private static Logger _log = LoggerFactory.getLogger(BlockLocationRecordWriter.class);
+
+  public enum OverflowPolicy {
+    /**
+     * Wait up to the block timeout for space, then drop the new record
+     */
+    BLOCK,
+    /**
+     * Drop the new record
+     */
+    DROP_NEWEST,
+    /**
+     * Drop the oldest queued record to make room for the new one
+     */
+    DROP_OLDEST
+  }
+
+  private BlockLocationRecordDao _blockLocationRecordDao;
+
+  private int _capacity = 100000;
+
+  private int _flushSize = 1000;
+
+  private long _flushInterval = 1000;
+
+  private OverflowPolicy _overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+  private long _blockTimeout = 100;
+
+  private ArrayBlockingQueue<PendingRecord> _queue;
+
+  private Thread _thread;
+
+  private volatile boolean _running = false;
+
+  /**
+   * Stats
+   */
+  private AtomicLong _enqueuedCount = new AtomicLong();
+
+  private AtomicLong _droppedCount = new AtomicLong();
+
+  private AtomicLong _writtenCount = new AtomicLong();
+
+  private AtomicLong _failedCount = new AtomicLong();
+
+  private AtomicLong _flushCount = new AtomicLong();
+
+  private AtomicLong _totalQueueLatency = new AtomicLong();
+
+  private volatile long _lastFlushDuration = 0;
+
+  private volatile long _lastFlushCount = 0;
+
+  private volatile long _lastMaxQueueLatency = 0;
+
+  @Autowired
+  public void setBlockLocationRecordDao(
+      BlockLocationRecordDao blockLocationRecordDao) {
+    _blockLocationRecordDao = blockLocationRecordDao;
+  }
+
+  /**
+   * @param capacity the maximum number of records waiting to be written
+   */
+  @ConfigurationParameter
+  public void setCapacity(int capacity) {
+    _capacity = capacity;
+  }
+
+  /**
+   * @param flushSize the number of records written per batch
+   */
+  @ConfigurationParameter
+  public void setFlushSize(int flushSize) {
+    _flushSize = flushSize;
+  }
+
+  /**
+   * @param flushInterval the longest a record waits before its batch is
+   *          written, in milliseconds
+   */
+  @ConfigurationParameter
+  public void setFlushInterval(long flushInterval) {
+    _flushInterval = flushInterval;
+  }
+
+  @ConfigurationParameter
+  public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+    _overflowPolicy = overflowPolicy;
+  }
+
+  /**
+   * @param blockTimeout how long {@link OverflowPolicy#BLOCK} waits for space,
+   *          in milliseconds
+   */
+  @ConfigurationParameter
+  public void setBlockTimeout(long blockTimeout) {
+    _blockTimeout = blockTimeout;
+  }
+
+  /****
+   * JMX Attributes
+   ****/
+
+  @ManagedAttribute
+  public int getQueueDepth() {
+    ArrayBlockingQueue<PendingRecord> queue = _queue;
+    return queue == null ? 0 : queue.size();
+  }
+
+  @ManagedAttribute
+  public int getQueueCapacity() {
+    return _capacity;
+  }
+
+  @ManagedAttribute
+  public long getEnqueuedCount() {
+    return _enqueuedCount.get();
+  }
+
+  @ManagedAttribute
+  public long getDroppedCount() {
+    return _droppedCount.get();
+  }
+
+  @ManagedAttribute
+  public long getWrittenCount() {
+    return _writtenCount.get();
+  }
+
+  @ManagedAttribute
+  public long getFailedCount() {
+    return _failedCount.get();
+  }
+
+  @ManagedAttribute
+  public long getFlushCount() {
+    return _flushCount.get();
+  }
+
+  /**
+   * @return how long the last batch took to write, in milliseconds
+   */
+  @ManagedAttribute
+  public long getLastFlushDuration() {
+    return _lastFlushDuration;
+  }
+
+  @ManagedAttribute
+  public long getLastFlushCount() {
+    return _lastFlushCount;
+  }
+
+  /**
+   * @return how long the oldest record of the last batch waited between being
+   *         queued and being written, in milliseconds
+   */
+  @ManagedAttribute
+  public long getLastMaxQueueLatency() {
+    return _lastMaxQueueLatency;
+  }
+
+  /**
+   * @return the mean time between a record being queued and being written, in
+   *         milliseconds
+   */
+  @ManagedAttribute
+  public double getAverageQueueLatency() {
+    long written = _writtenCount.get() + _failedCount.get();
+    return written == 0 ? 0.0 : (double) _totalQueueLatency.get() / written;
+  }
+
+  /****
+   * Setup and Teardown
+   ****/
+
+  public synchronized void start() {
+    if (_running)
+      return;
+    _queue = new ArrayBlockingQueue<PendingRecord>(_capacity);
+    _running = true;
+    _thread = new Thread(new FlushTask(), "BlockLocationRecordWriter");
+    _thread.setDaemon(true);
+    _thread.start();
+  }
+
+  /**
+   * Stop accepting records, write whatever is still queued, and wait for the
+   * writer thread to finish.
+   */
+  @PreDestroy
+  public synchronized void stop() {
+    if (!_running)
+      return;
+    _running = false;
+    try {
+      _thread.join(_flushInterval * 2 + 30 * 1000);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    _thread = null;
+  }
+
+  /****
+   * Public Methods
+   ****/
+
+  /**
+   * Queue records to be written. Never blocks unless the overflow policy is
+   * {@link OverflowPolicy#BLOCK}.
+   *
+   * @param records
+   */
+  public void addRecords(List<BlockLocationRecord> records) {
+    ArrayBlockingQueue<PendingRecord> queue = _queue;
+    if (!_running || queue == null) {
+      _droppedCount.addAndGet(records.size());
+      return;
+    }
+    long now = System.nanoTime();
+    for (BlockLocationRecord record : records)
+      addRecord(queue, new PendingRecord(record, now));
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private void addRecord(ArrayBlockingQueue<PendingRecord> queue,
+      PendingRecord pending) {
+
+    if (queue.offer(pending)) {
+      _enqueuedCount.incrementAndGet();
+      return;
+    }
+
+    switch (_overflowPolicy) {
+      case BLOCK:
+        try {
+          if (queue.offer(pending, _blockTimeout, TimeUnit.MILLISECONDS)) {
+            _enqueuedCount.incrementAndGet();
+            return;
+          }
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+        _droppedCount.incrementAndGet();
+        break;
+      case DROP_NEWEST:
+        _droppedCount.incrementAndGet();
+        break;
+      case DROP_OLDEST:
+        while (!queue.offer(pending)) {
+          if (queue.poll() != null)
+            _droppedCount.incrementAndGet();
+        }
+        _enqueuedCount.incrementAndGet();
+        break;
+    }
+  }
+
+  private void flush(List<PendingRecord> batch) {
+
+    if (batch.isEmpty())
+      return;
+
+    List<BlockLocationRecord> records = new ArrayList<BlockLocationRecord>(
+        batch.size());
+    for (PendingRecord pending : batch)
+      records.add(pending.record);
+
+    long t1 = System.nanoTime();
+    boolean success = false;
+    try {
+      _blockLocationRecordDao.insertBlockLocationRecords(records);
+      success = true;
+    } catch (Throwable ex) {
+      _log.error("error writing " + records.size()
+          + " block location records to dao", ex);
+    }
+    long t2 = System.nanoTime();
+
+    long latency = 0;
+    long maxLatency = 0;
+    for (PendingRecord pending : batch) {
+      long l = t2 - pending.queuedAt;
+      latency += l;
+      maxLatency = Math.max(maxLatency, l);
+    }
+    _totalQueueLatency.addAndGet(TimeUnit.NANOSECONDS.toMillis(latency));
+    _lastMaxQueueLatency = TimeUnit.NANOSECONDS.toMillis(maxLatency);
+    _lastFlushDuration = TimeUnit.NANOSECONDS.toMillis(t2 - t1);
+    _lastFlushCount = records.size();
+    _flushCount.incrementAndGet();
+
+    if (success)
+      _writtenCount.addAndGet(records.size());
+    else
+      _failedCount.addAndGet(records.size());
+  }
+
+  private static class PendingRecord {
+
+    private final BlockLocationRecord record;
+
+    private final long queuedAt;
+
+    public PendingRecord(BlockLocationRecord record, long queuedAt) {
+      this.record = record;
+      this.queuedAt = queuedAt;
+    }
+  }
+
+  private class FlushTask implements Runnable {
+
+    @Override
+    public void run() {
+
+      ArrayBlockingQueue<PendingRecord> queue = _queue;
+      List<PendingRecord> batch = new ArrayList<PendingRecord>(_flushSize);
+      long interval = TimeUnit.MILLISECONDS.toNanos(_flushInterval);
+      long flushAt = System.nanoTime() + interval;
+
+      while (_running) {
+
+        long wait = flushAt - System.nanoTime();
+        if (wait > 0 && batch.size() < _flushSize) {
+          try {
+            PendingRecord pending = queue.poll(wait, TimeUnit.NANOSECONDS);
+            if (pending != null) {
+              batch.add(pending);
+              queue.drainTo(batch, _flushSize - batch.size());
+            }
+          } catch (InterruptedException ex) {
+            break;
+          }
+          continue;
+        }
+
+        flush(batch);
+        batch.clear();
+        flushAt = System.nanoTime() + interval;
+      }
+
+      // Write out whatever is left on shutdown
+      do {
+        queue.drainTo(batch, _flushSize - batch.size());
+        flush(batch);
+        batch.clear();
+      } while (!queue.isEmpty());
+    }
+  }
+}
@@ -22,7 +22,10 @@ import org.onebusaway.collections.CollectionsLibrary;
 import org.onebusaway.collections.FactoryMap;
 import org.onebusaway.collections.Min;
 import org.onebusaway.collections.Range;
+import org.onebusaway.collections.tuple.T2;
+import org.onebusaway.collections.tuple.Tuples;
 import org.onebusaway.container.ConfigurationParameter;
+import org.onebusaway.geospatial.model.CoordinatePoint;
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.realtime.api.EVehicleType;
 import org.onebusaway.realtime.api.TimepointPredictionRecord;
@@ -31,7 +34,6 @@ import org.onebusaway.transit_data_federation.model.TargetTime;
 import org.onebusaway.transit_data_federation.services.blocks.*;
 import org.onebusaway.transit_data_federation.services.realtime.*;
 import org.onebusaway.transit_data_federation.services.transit_graph.*;
-import org.onebusaway.util.SystemTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,10 +44,9 @@ import org.springframework.stereotype.Component;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Implementation for {@link BlockLocationService}. Keeps a recent cache of
@@ -104,26 +105,14 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
   private boolean _persistBlockLocationRecords = false;
 
   /**
-   * We queue up block location records so they can be bulk persisted to the
-   * database
+   * Bulk persists queued block location records to the database
    */
-  private List<BlockLocationRecord> _recordPersistenceQueue = new ArrayList<BlockLocationRecord>();
+  private BlockLocationRecordWriter _recordWriter;
 
   /**
-   * Used to schedule periodic flushes to the database of the block location
-   * records queue
+   * Tracks the latest position of each vehicle for bounds queries
    */
-  private ScheduledExecutorService _executor = Executors.newSingleThreadScheduledExecutor();
-
-  /**
-   * Block location record persistence stats - last record insert duration
-   */
-  private volatile long _lastInsertDuration = 0;
-
-  /**
-   * Block location record persistence stats - last record insert count
-   */
-  private volatile long _lastInsertCount = 0;
+  private VehicleLocationSpatialIndex _spatialIndex;
 
   /**
    * Records the number of times block location record cache requests fall
@@ -131,6 +120,16 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
    */
   private AtomicInteger _blockLocationRecordPersistentStoreAccessCount = new AtomicInteger();
 
+  private AtomicLong _batchCount = new AtomicLong();
+
+  private AtomicLong _batchRecordCount = new AtomicLong();
+
+  private AtomicLong _batchRejectedRecordCount = new AtomicLong();
+
+  private volatile int _lastBatchSize = 0;
+
+  private volatile long _lastBatchDuration = 0;
+
   @Autowired
   public void setVehicleLocationRecordCache(VehicleLocationRecordCache cache) {
     _cache = cache;
@@ -142,6 +141,17 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
     _blockLocationRecordDao = blockLocationRecordDao;
   }
 
+  @Autowired(required = false)
+  public void setBlockLocationRecordWriter(BlockLocationRecordWriter recordWriter) {
+    _recordWriter = recordWriter;
+  }
+
+  @Autowired(required = false)
+  public void setVehicleLocationSpatialIndex(
+          VehicleLocationSpatialIndex spatialIndex) {
+    _spatialIndex = spatialIndex;
+  }
+
   @Autowired
   public void setTransitGraphDao(TransitGraphDao transitGraphDao) {
     _transitGraphDao = transitGraphDao;
@@ -191,12 +201,12 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
 
   @ManagedAttribute
   public long getLastInsertDuration() {
-    return _lastInsertDuration;
+    return _recordWriter == null ? 0 : _recordWriter.getLastFlushDuration();
   }
 
   @ManagedAttribute
   public long getLastInsertCount() {
-    return _lastInsertCount;
+    return _recordWriter == null ? 0 : _recordWriter.getLastFlushCount();
   }
 
   @ManagedAttribute
@@ -204,20 +214,62 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
     return _blockLocationRecordPersistentStoreAccessCount.get();
   }
 
+  @ManagedAttribute
+  public long getBatchCount() {
+    return _batchCount.get();
+  }
+
+  @ManagedAttribute
+  public long getBatchRecordCount() {
+    return _batchRecordCount.get();
+  }
+
+  /**
+   * @return the number of batched records skipped because their block or
+   *         service date couldn't be resolved
+   */
+  @ManagedAttribute
+  public long getBatchRejectedRecordCount() {
+    return _batchRejectedRecordCount.get();
+  }
+
+  @ManagedAttribute
+  public int getLastBatchSize() {
+    return _lastBatchSize;
+  }
+
+  /**
+   * @return how long the last batch took to process, in ms
+   */
+  @ManagedAttribute
+  public long getLastBatchDuration() {
+    return _lastBatchDuration;
+  }
+
+  /**
+   * @return records per second processed in the last batch
+   */
+  @ManagedAttribute
+  public double getLastBatchThroughput() {
+    long duration = _lastBatchDuration;
+    return duration == 0 ? _lastBatchSize * 1000.0 : _lastBatchSize * 1000.0
+        / duration;
+  }
+
   /****
    * Setup and Teardown
    ****/
 
   @PostConstruct
   public void start() {
-    if (_persistBlockLocationRecords)
-      _executor.scheduleAtFixedRate(new PredictionWriter(), 0, 1,
-              TimeUnit.SECONDS);
+    if (_persistBlockLocationRecords && _recordWriter != null)
+      _recordWriter.start();
   }
 
   @PreDestroy
   public void stop() {
-    _executor.shutdownNow();
+    if (_recordWriter != null)
+      _recordWriter.stop();
   }
 
   /****
@@ -231,28 +283,123 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
 
     if (instance != null) {
 
-      ScheduledBlockLocation scheduledBlockLocation = getScheduledBlockLocationForVehicleLocationRecord(
+      ScheduledBlockLocation scheduledBlockLocation = getScheduledBlockLocationAndApplyDeviation(
               record, instance);
+      ScheduleDeviationSamples samples = sampleScheduleDeviations(instance,
+              record, scheduledBlockLocation);
 
+      putBlockLocationRecord(instance, record, scheduledBlockLocation, samples);
+    }
+  }
 
-      if (!record.isScheduleDeviationSet() && scheduledBlockLocation != null ) {
-        int deviation = (int) ((record.getTimeOfRecord() - record.getServiceDate()) / 1000 - scheduledBlockLocation.getScheduledTime());
-        record.setScheduleDeviation(deviation);
+  /**
+   * Records are grouped by block and service date, and added to the cache in
+   * bulk. Listeners are notified once with the block locations of the whole
+   * batch. A record whose block can't be resolved is logged and skipped,
+   * rather than failing the rest of the batch.
+   * 
+   * A vehicle may report more than once in a batch, possibly on different
+   * blocks, so the batch is applied in rounds: each vehicle's records are
+   * sorted by time and its n-th record goes into the n-th round. Within a
+   * round every vehicle appears once, so grouping can't reorder its records.
+   * Within a group, the block instance is resolved once per distinct record
+   * time, with the same matching window as a single record.
+   */
+  @Override
+  public void handleVehicleLocationRecords(List<VehicleLocationRecord> records) {
+
+    long start = System.nanoTime();
+
+    Map<AgencyAndId, List<VehicleLocationRecord>> recordsByVehicle = new LinkedHashMap<AgencyAndId, List<VehicleLocationRecord>>();
+    List<List<VehicleLocationRecord>> rounds = new ArrayList<List<VehicleLocationRecord>>();
+    rounds.add(new ArrayList<VehicleLocationRecord>());
+
+    for (VehicleLocationRecord record : records) {
+      AgencyAndId vehicleId = record.getVehicleId() != null
+          ? record.getVehicleId() : record.getTripId();
+      if (vehicleId == null)
+        rounds.get(0).add(record);
+      else
+        recordsByVehicle.computeIfAbsent(vehicleId,
+                k -> new ArrayList<VehicleLocationRecord>()).add(record);
+    }
+
+    for (List<VehicleLocationRecord> vehicleRecords : recordsByVehicle.values()) {
+      vehicleRecords.sort(Comparator.comparingLong(VehicleLocationRecord::getTimeOfRecord));
+      for (int i = 0; i < vehicleRecords.size(); i++) {
+        if (i == rounds.size())
+          rounds.add(new ArrayList<VehicleLocationRecord>());
+        rounds.get(i).add(vehicleRecords.get(i));
       }
+    }
 
-      ScheduleDeviationSamples samples = null;
-      if (_sampleScheduleDeviationHistory == true) {
-        samples = _realTimeHistoryService.sampleScheduleDeviationsForVehicle(
-                instance, record, scheduledBlockLocation);
+    boolean hasListeners = !CollectionsLibrary.isEmpty(_blockLocationListeners);
+    boolean persist = _persistBlockLocationRecords && _recordWriter != null;
+
+    List<BlockLocation> locations = new ArrayList<BlockLocation>();
+    List<BlockLocationRecord> blockLocationRecords = new ArrayList<BlockLocationRecord>();
+    int rejected = 0;
+
+    for (List<VehicleLocationRecord> round : rounds) {
+
+      Map<T2<AgencyAndId, Long>, List<VehicleLocationRecord>> recordsByBlock = new LinkedHashMap<T2<AgencyAndId, Long>, List<VehicleLocationRecord>>();
+
+      for (VehicleLocationRecord record : round) {
+        try {
+          AgencyAndId blockId = getBlockIdForVehicleLocationRecord(record);
+          recordsByBlock.computeIfAbsent(
+                  Tuples.tuple(blockId, record.getServiceDate()),
+                  k -> new ArrayList<VehicleLocationRecord>()).add(record);
+        } catch (IllegalArgumentException ex) {
+          rejected++;
+          _log.warn("skipping vehicle location record for vehicle="
+                  + record.getVehicleId() + ": " + ex.getMessage());
+        }
       }
 
-      putBlockLocationRecord(instance, record, scheduledBlockLocation, samples);
+      for (Map.Entry<T2<AgencyAndId, Long>, List<VehicleLocationRecord>> entry : recordsByBlock.entrySet()) {
+
+        AgencyAndId blockId = entry.getKey().getFirst();
+        long serviceDate = entry.getKey().getSecond();
+
+        Map<Long, BlockInstance> instancesByTime = new HashMap<Long, BlockInstance>();
+        Map<BlockInstance, List<VehicleLocationRecord>> recordsByInstance = new LinkedHashMap<BlockInstance, List<VehicleLocationRecord>>();
+        for (VehicleLocationRecord record : entry.getValue()) {
+          long time = record.getTimeOfRecord();
+          BlockInstance instance = instancesByTime.computeIfAbsent(time,
+                  k -> getBestBlockForRecord(blockId, serviceDate, time));
+          if (instance != null)
+            recordsByInstance.computeIfAbsent(instance,
+                    k -> new ArrayList<VehicleLocationRecord>()).add(record);
+        }
+
+        for (Map.Entry<BlockInstance, List<VehicleLocationRecord>> group : recordsByInstance.entrySet())
+          addRecordsForBlockInstance(group.getKey(), group.getValue(),
+                  hasListeners ? locations : null,
+                  persist ? blockLocationRecords : null);
+      }
+    }
+
+    if (!locations.isEmpty()) {
+      for (BlockLocationListener listener : _blockLocationListeners)
+        listener.handleBlockLocations(locations);
     }
+
+    if (!blockLocationRecords.isEmpty())
+      _recordWriter.addRecords(blockLocationRecords);
+
+    _batchCount.incrementAndGet();
+    _batchRecordCount.addAndGet(records.size());
+    _batchRejectedRecordCount.addAndGet(rejected);
+    _lastBatchSize = records.size();
+    _lastBatchDuration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
   }
 
   @Override
   public void resetVehicleLocation(AgencyAndId vehicleId) {
     _cache.clearRecordsForVehicleId(vehicleId);
+    if (_spatialIndex != null)
+      _spatialIndex.remove(vehicleId);
   }
 
   /****
@@ -354,9 +501,61 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
    * Private Methods
    ****/
 
+  /**
+   * Add records of different vehicles on the same block instance to the cache
+   * in bulk.
+   * 
+   * @param locations if not null, collects the block locations of the records
+   * @param blockLocationRecords if not null, collects the records to persist
+   */
+  private void addRecordsForBlockInstance(BlockInstance instance,
+          List<VehicleLocationRecord> group, List<BlockLocation> locations,
+          List<BlockLocationRecord> blockLocationRecords) {
+
+    List<ScheduledBlockLocation> scheduledBlockLocations = new ArrayList<ScheduledBlockLocation>(group.size());
+    List<ScheduleDeviationSamples> samples = new ArrayList<ScheduleDeviationSamples>(group.size());
+    for (VehicleLocationRecord record : group) {
+      ScheduledBlockLocation scheduledBlockLocation = getScheduledBlockLocationAndApplyDeviation(
+              record, instance);
+      scheduledBlockLocations.add(scheduledBlockLocation);
+      samples.add(sampleScheduleDeviations(instance, record,
+              scheduledBlockLocation));
+    }
+
+    List<VehicleLocationCacheElements> elements = _cache.addRecords(instance,
+            group, scheduledBlockLocations, samples);
+
+    for (int i = 0; i < group.size(); i++) {
+      VehicleLocationRecord record = group.get(i);
+      ScheduledBlockLocation scheduledBlockLocation = scheduledBlockLocations.get(i);
+      if (_spatialIndex != null)
+        updateSpatialIndex(instance, record, scheduledBlockLocation);
+      if (locations != null) {
+        BlockLocation location = getBlockLocation(instance, elements.get(i),
+                scheduledBlockLocation, record.getTimeOfRecord());
+        if (location != null)
+          locations.add(location);
+      }
+      if (blockLocationRecords != null)
+        blockLocationRecords.addAll(getVehicleLocationRecordAsBlockLocationRecord(
+                instance, record, scheduledBlockLocation));
+    }
+  }
+
   private BlockInstance getVehicleLocationRecordAsBlockInstance(
           VehicleLocationRecord record) {
 
+    AgencyAndId blockId = getBlockIdForVehicleLocationRecord(record);
+
+    BlockInstance blockInstance = getBestBlockForRecord(blockId,
+            record.getServiceDate(), record.getTimeOfRecord());
+
+    return blockInstance;
+  }
+
+  private AgencyAndId getBlockIdForVehicleLocationRecord(
+          VehicleLocationRecord record) {
+
     AgencyAndId blockId = record.getBlockId();
 
     if (blockId == null) {
@@ -377,10 +576,7 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
     if (record.getTimeOfRecord() == 0)
       throw new IllegalArgumentException("you must specify a record time");
 
-    BlockInstance blockInstance = getBestBlockForRecord(blockId,
-            record.getServiceDate(), record.getTimeOfRecord());
-
-    return blockInstance;
+    return blockId;
   }
 
   private BlockInstance getBestBlockForRecord(AgencyAndId blockId,
@@ -407,6 +603,30 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
     return m.getMinElement();
   }
 
+  private ScheduledBlockLocation getScheduledBlockLocationAndApplyDeviation(
+          VehicleLocationRecord record, BlockInstance instance) {
+
+    ScheduledBlockLocation scheduledBlockLocation = getScheduledBlockLocationForVehicleLocationRecord(
+            record, instance);
+
+    if (!record.isScheduleDeviationSet() && scheduledBlockLocation != null ) {
+      int deviation = (int) ((record.getTimeOfRecord() - record.getServiceDate()) / 1000 - scheduledBlockLocation.getScheduledTime());
+      record.setScheduleDeviation(deviation);
+    }
+
+    return scheduledBlockLocation;
+  }
+
+  private ScheduleDeviationSamples sampleScheduleDeviations(
+          BlockInstance instance, VehicleLocationRecord record,
+          ScheduledBlockLocation scheduledBlockLocation) {
+    if (_sampleScheduleDeviationHistory == true) {
+      return _realTimeHistoryService.sampleScheduleDeviationsForVehicle(
+              instance, record, scheduledBlockLocation);
+    }
+    return null;
+  }
+
   /**
    * We add the {@link BlockInstance} to the local cache and persist it to
    * a back-end data-store if necessary
@@ -423,6 +643,9 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
     VehicleLocationCacheElements elements = _cache.addRecord(blockInstance,
             record, scheduledBlockLocation, samples);
 
+    if (_spatialIndex != null)
+      updateSpatialIndex(blockInstance, record, scheduledBlockLocation);
+
     if (!CollectionsLibrary.isEmpty(_blockLocationListeners)) {
 
       /**
@@ -437,14 +660,35 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
       }
     }
 
-    if (_persistBlockLocationRecords) {
+    if (_persistBlockLocationRecords && _recordWriter != null) {
       List<BlockLocationRecord> blockLocationRecords = getVehicleLocationRecordAsBlockLocationRecord(
               blockInstance, record, scheduledBlockLocation);
-      addPredictionToPersistenceQueue(blockLocationRecords);
+      _recordWriter.addRecords(blockLocationRecords);
     }
   }
 
 
+  /**
+   * Index the vehicle at its reported position, or failing that at its
+   * scheduled position at the time of the record
+   */
+  private void updateSpatialIndex(BlockInstance blockInstance,
+                                  VehicleLocationRecord record,
+                                  ScheduledBlockLocation scheduledBlockLocation) {
+    if (record.getVehicleId() == null)
+      return;
+    if (record.isCurrentLocationSet()) {
+      _spatialIndex.update(record.getVehicleId(), blockInstance,
+              record.getCurrentLocationLat(), record.getCurrentLocationLon(),
+              record.getTimeOfRecord());
+    } else if (scheduledBlockLocation != null
+            && scheduledBlockLocation.getLocation() != null) {
+      CoordinatePoint location = scheduledBlockLocation.getLocation();
+      _spatialIndex.update(record.getVehicleId(), blockInstance,
+              location.getLat(), location.getLon(), record.getTimeOfRecord());
+    }
+  }
+
   /****
    * {@link ScheduledBlockLocation} Methods
    ****/
@@ -661,43 +905,6 @@ public class BlockLocationServiceImpl extends AbstractBlockLocationServiceImpl i
     return recordsByKey;
   }
 
-  private void addPredictionToPersistenceQueue(List<BlockLocationRecord> records) {
-    synchronized (_recordPersistenceQueue) {
-      _recordPersistenceQueue.addAll(records);
-    }
-  }
-
-  private List<BlockLocationRecord> getPredictionPersistenceQueue() {
-    synchronized (_recordPersistenceQueue) {
-      List<BlockLocationRecord> queue = new ArrayList<BlockLocationRecord>(
-              _recordPersistenceQueue);
-      _recordPersistenceQueue.clear();
-      return queue;
-    }
-  }
-
-  private class PredictionWriter implements Runnable {
-
-    @Override
-    public void run() {
-
-      try {
-        List<BlockLocationRecord> queue = getPredictionPersistenceQueue();
-
-        if (queue.isEmpty())
-          return;
-
-        long t1 = SystemTime.currentTimeMillis();
-        _blockLocationRecordDao.saveBlockLocationRecords(queue);
-        long t2 = SystemTime.currentTimeMillis();
-        _lastInsertDuration = t2 - t1;
-        _lastInsertCount = queue.size();
-      } catch (Throwable ex) {
-        _log.error("error writing block location records to dao", ex);
-      }
-    }
-  }
-
   private interface RecordStrategy {
 
     public List<VehicleLocationCacheElements> getRecordsFromCache();
@@ -16,18 +16,20 @@
 package org.onebusaway.transit_data_federation.impl.realtime;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -45,26 +47,48 @@ import org.onebusaway.transit_data_federation.services.realtime.VehicleLocationR
 import org.onebusaway.util.SystemTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Component;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * The general assumption is that we won't get back to back updates from the
  * same vehicle on a short enough time-scale that it can cause serious race
  * condition issues. If we DO get lots of back to back updates, we'll just have
  * to assume some amount of data loss.
  * 
- * @param record record to add
+ * Entries and raw positions are split across a fixed number of shards by
+ * vehicle id, so updates for different vehicles rarely touch the same map.
+ * 
+ * Eviction does not scan the whole cache. Each time a vehicle is updated it is
+ * filed under the time bucket of the update, and the eviction pass only visits
+ * the buckets that have aged past the cache window. A vehicle that has since
+ * been re-filed under a newer bucket is simply dropped from the old one. Old
+ * records of vehicles that keep reporting are pruned as they move into a new
+ * bucket.
+ * 
+ * Memory is bounded by {@link #setMaxRecordsPerVehicle(int)} and
+ * {@link #setMaxVehicles(int)}. Once the vehicle cap is reached, the vehicles
+ * in the oldest buckets are evicted first.
  */
 @Component
+@ManagedResource("org.onebusaway.transit_data_federation.impl.realtime:name=VehicleLocationRecordCacheImpl")
 public class VehicleLocationRecordCacheImpl implements VehicleLocationRecordCache {
 
   private static Logger _log = LoggerFactory.getLogger(VehicleLocationRecordCacheImpl.class);
 
-  private ConcurrentMap<AgencyAndId, VehicleLocationCacheEntry> _entriesByVehicleId = new ConcurrentHashMap<AgencyAndId, VehicleLocationCacheEntry>();
+  private static final int DEFAULT_SHARD_COUNT = 16;
+
+  private Shard[] _shards = createShards(DEFAULT_SHARD_COUNT);
 
   private ConcurrentMap<BlockInstance, Set<AgencyAndId>> _vehicleIdsByBlockInstance = new ConcurrentHashMap<BlockInstance, Set<AgencyAndId>>();
 
-  private Map<AgencyAndId, VehicleLocationRecord> rawPositionMap = new HashMap<>();
+  /**
+   * Vehicle ids keyed by the time bucket of their last update
+   */
+  private ConcurrentNavigableMap<Long, Set<AgencyAndId>> _vehicleIdsByEvictionBucket = new ConcurrentSkipListMap<Long, Set<AgencyAndId>>();
 
   /**
    * By default, we keep around 20 minutes of cache entries
@@ -73,10 +97,24 @@ public class VehicleLocationRecordCacheImpl implements VehicleLocationRecordCach
 
   private int _cacheEvictionFrequency = 1;
 
+  private int _evictionBucketSize = 60;
+
+  private int _maxRecordsPerVehicle = 1000;
+
+  private int _maxVehicles = 50000;
+
   private ScheduledExecutorService _executor;
 
   private ScheduledFuture<?> _evictionHandler;
 
+  private final AtomicInteger _vehicleCount = new AtomicInteger();
+
+  private final AtomicLong _staleEvictionCount = new AtomicLong();
+
+  private final AtomicLong _capacityEvictionCount = new AtomicLong();
+
+  private final AtomicLong _addRecordRetryCount = new AtomicLong();
+
   /**
    * Controls how far back in time we include records in the
    * {@link BlockLocationRecordCollection} for each active trip.
@@ -95,9 +133,48 @@ public class VehicleLocationRecordCacheImpl implements VehicleLocationRecordCach
     _cacheEvictionFrequency = cacheEvictionFrequency;
   }
 
+  /**
+   * 
+   * @param evictionBucketSize width of each eviction time bucket, in seconds
+   */
+  public void setEvictionBucketSize(int evictionBucketSize) {
+    if (evictionBucketSize < 1)
+      throw new IllegalArgumentException("evictionBucketSize must be positive");
+    _evictionBucketSize = evictionBucketSize;
+  }
+
+  /**
+   * 
+   * @param maxRecordsPerVehicle the most records kept for one vehicle, with
+   *          the oldest dropped first, or zero for no limit
+   */
+  public void setMaxRecordsPerVehicle(int maxRecordsPerVehicle) {
+    _maxRecordsPerVehicle = maxRecordsPerVehicle;
+  }
+
+  /**
+   * 
+   * @param maxVehicles the most vehicles held in the cache, or zero for no
+   *          limit
+   */
+  public void setMaxVehicles(int maxVehicles) {
+    _maxVehicles = maxVehicles;
+  }
+
+  /**
+   * Must be set before any records are added.
+   * 
+   * @param shardCount number of shards, rounded up to a power of two
+   */
+  public void setShardCount(int shardCount) {
+    _shards = createShards(shardCount);
+  }
+
   @PostConstruct
   public void start() {
-    _executor = Executors.newScheduledThreadPool(1);
+    _executor = Executors.newScheduledThreadPool(1,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat(
+            "vehicle-location-cache-eviction-%d").build());
     _evictionHandler = _executor.scheduleAtFixedRate(
         new CacheEvictionHandler(), _cacheEvictionFrequency,
         _cacheEvictionFrequency, TimeUnit.MINUTES);
@@ -111,24 +188,69 @@ public class VehicleLocationRecordCacheImpl implements VehicleLocationRecordCach
       _executor.shutdownNow();
   }
 
+  /****
+   * JMX Attributes
+   ****/
+
+  @ManagedAttribute
+  public int getVehicleCount() {
+    return _vehicleCount.get();
+  }
+
+  @ManagedAttribute
+  public int getRawPositionCount() {
+    int count = 0;
+    for (Shard shard : _shards)
+      count += shard.rawPositions.size();
+    return count;
+  }
+
+  @ManagedAttribute
+  public int getEvictionBucketCount() {
+    return _vehicleIdsByEvictionBucket.size();
+  }
+
+  @ManagedAttribute
+  public long getStaleEvictionCount() {
+    return _staleEvictionCount.get();
+  }
+
+  @ManagedAttribute
+  public long getCapacityEvictionCount() {
+    return _capacityEvictionCount.get();
+  }
+
+  /**
+   * @return the number of times adding a record had to retry because the
+   *         vehicle's entry was closed or replaced underneath it
+   */
+  @ManagedAttribute
+  public long getAddRecordRetryCount() {
+    return _addRecordRetryCount.get();
+  }
+
   /****
    * {@link VehicleLocationRecordCache} Interface
    ****/
   @Override
   public void addRawPosition(AgencyAndId vehicleId, VehicleLocationRecord point) {
-    rawPositionMap.put(vehicleId, point);
+    if (vehicleId == null || point == null)
+      return;
+    getShard(vehicleId).rawPositions.put(vehicleId, point);
   }
 
   @Override
   public VehicleLocationRecord getRawPosition(AgencyAndId vehicleId) {
-    return rawPositionMap.get(vehicleId);
+    if (vehicleId == null)
+      return null;
+    return getShard(vehicleId).rawPositions.get(vehicleId);
   }
 
 
   @Override
   public VehicleLocationCacheElements getRecordForVehicleId(
       AgencyAndId vehicleId) {
-    VehicleLocationCacheEntry entry = _entriesByVehicleId.get(vehicleId);
+    VehicleLocationCacheEntry entry = getShard(vehicleId).entries.get(vehicleId);
     if (entry == null)
       return null;
     return entry.getElements();
@@ -143,7 +265,7 @@ public class VehicleLocationRecordCacheImpl implements VehicleLocationRecordCach
     List<VehicleLocationCacheElements> records = new ArrayList<VehicleLocationCacheElements>();
     if (vehicleIds != null) {
       for (AgencyAndId vehicleId : vehicleIds) {
-        VehicleLocationCacheEntry record = _entriesByVehicleId.get(vehicleId);
+        VehicleLocationCacheEntry record = getShard(vehicleId).entries.get(vehicleId);
 
         if (record != null && record.getBlockInstance().equals(blockInstance))
           records.add(record.getElements());
@@ -159,22 +281,122 @@ public class VehicleLocationRecordCacheImpl implements VehicleLocationRecordCach
       ScheduledBlockLocation scheduledBlockLocation,
       ScheduleDeviationSamples samples) {
 
+    VehicleLocationCacheElements elements = addRecord(blockInstance, record,
+        scheduledBlockLocation, samples, SystemTime.currentTimeMillis());
+
+    if (_maxVehicles > 0 && _vehicleCount.get() > _maxVehicles)
+      evictForCapacity();
+
+    return elements;
+  }
+
+  /**
+   * Adds the whole batch against a single clock reading and only checks the
+   * vehicle cap once, after the last record.
+   */
+  @Override
+  public List<VehicleLocationCacheElements> addRecords(
+      BlockInstance blockInstance, List<VehicleLocationRecord> records,
+      List<ScheduledBlockLocation> scheduledBlockLocations,
+      List<ScheduleDeviationSamples> samples) {
+
+    long now = SystemTime.currentTimeMillis();
+
+    List<VehicleLocationCacheElements> elements = new ArrayList<VehicleLocationCacheElements>(
+        records.size());
+    for (int i = 0; i < records.size(); i++)
+      elements.add(addRecord(blockInstance, records.get(i),
+          scheduledBlockLocations.get(i), samples.get(i), now));
+
+    if (_maxVehicles > 0 && _vehicleCount.get() > _maxVehicles)
+      evictForCapacity();
+
+    return elements;
+  }
+
+  @Override
+  public void clearRecordsForVehicleId(AgencyAndId vehicleId) {
+
+    Shard shard = getShard(vehicleId);
+    VehicleLocationCacheEntry record = shard.entries.get(vehicleId);
+
+    if (record != null)
+      removeEntry(shard, vehicleId, record);
+  }
+
+  public void clearStaleRecords(long time) {
+
+    long cutoffBucket = getEvictionBucket(time);
+
+    for (Map.Entry<Long, Set<AgencyAndId>> bucketEntry : _vehicleIdsByEvictionBucket.headMap(
+        cutoffBucket, true).entrySet()) {
+
+      long bucket = bucketEntry.getKey();
+      Set<AgencyAndId> vehicleIds = bucketEntry.getValue();
+
+      Iterator<AgencyAndId> it = vehicleIds.iterator();
+
+      while (it.hasNext()) {
+
+        AgencyAndId vehicleId = it.next();
+        Shard shard = getShard(vehicleId);
+        VehicleLocationCacheEntry cacheEntry = shard.entries.get(vehicleId);
+
+        // The vehicle was removed, or has reported since and been re-filed
+        if (cacheEntry == null || cacheEntry.getEvictionBucket() != bucket) {
+          it.remove();
+          continue;
+        }
+
+        if (cacheEntry.closeIfStale(time)) {
+
+          it.remove();
+
+          if (removeEntry(shard, vehicleId, cacheEntry)) {
+            _staleEvictionCount.incrementAndGet();
+            if (_log.isDebugEnabled())
+              _log.debug("pruning block location record cache for vehicle="
+                  + vehicleId + " block=" + cacheEntry.getBlockInstance());
+          }
+        }
+      }
+
+      if (vehicleIds.isEmpty())
+        _vehicleIdsByEvictionBucket.remove(bucket, vehicleIds);
+    }
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private VehicleLocationCacheElements addRecord(BlockInstance blockInstance,
+      VehicleLocationRecord record,
+      ScheduledBlockLocation scheduledBlockLocation,
+      ScheduleDeviationSamples samples, long now) {
+
     AgencyAndId vehicleId = record.getVehicleId();
     if (vehicleId == null && TransitDataConstants.STATUS_CANCELED.equals(record.getStatus())) {
       vehicleId = record.getTripId();  // cache needs an id, use trip
     }
     if (vehicleId == null) return null;
+
+    Shard shard = getShard(vehicleId);
+
     while (true) {
 
       VehicleLocationCacheEntry newCacheEntry = new VehicleLocationCacheEntry(
           blockInstance);
 
-      VehicleLocationCacheEntry cacheEntry = _entriesByVehicleId.putIfAbsent(
+      VehicleLocationCacheEntry cacheEntry = shard.entries.putIfAbsent(
           vehicleId, newCacheEntry);
 
-      if (cacheEntry == null) {
+      boolean isNewEntry = cacheEntry == null;
+
+      if (isNewEntry) {
 
         cacheEntry = newCacheEntry;
+        _vehicleCount.incrementAndGet();
 
         /**
          * Since we're adding a new entry, we indicate the connection between
@@ -189,13 +411,7 @@ public class VehicleLocationRecordCacheImpl implements VehicleLocationRecordCach
        * the cache entry and remove the block=>vid mapping
        */
       if (cacheEntry.isClosedBecauseBlockInstanceChanged(blockInstance)) {
-
-        _entriesByVehicleId.remove(vehicleId);
-
-        ConcurrentCollectionsLibrary.removeFromMapValueSet(
-            _vehicleIdsByBlockInstance, cacheEntry.getBlockInstance(),
-            vehicleId);
-
+        removeEntry(shard, vehicleId, cacheEntry);
         continue;
       }
 
@@ -204,68 +420,142 @@ public class VehicleLocationRecordCacheImpl implements VehicleLocationRecordCach
        * Someone closed the entry while we were in the process of requesting it
        * from the map. On the next loop, it should no longer be in the map.
        */
-      if (!cacheEntry.addElement(record, scheduledBlockLocation, samples))
+      if (!cacheEntry.addElement(record, scheduledBlockLocation, samples,
+          _maxRecordsPerVehicle)) {
+        _addRecordRetryCount.incrementAndGet();
         continue;
+      }
 
       BlockInstance existingBlockInstance = cacheEntry.getBlockInstance();
       if (!blockInstance.equals(existingBlockInstance))
         ConcurrentCollectionsLibrary.removeFromMapValueSet(
             _vehicleIdsByBlockInstance, existingBlockInstance, vehicleId);
 
-      // Ensure the block => vehicle mapping is set
+      fileForEviction(vehicleId, cacheEntry, now);
 
       return cacheEntry.getElements();
 
     }
   }
 
-  @Override
-  public void clearRecordsForVehicleId(AgencyAndId vehicleId) {
+  private static Shard[] createShards(int shardCount) {
+    int size = 1;
+    while (size < shardCount)
+      size <<= 1;
+    Shard[] shards = new Shard[size];
+    for (int i = 0; i < size; i++)
+      shards[i] = new Shard();
+    return shards;
+  }
+
+  private Shard getShard(AgencyAndId vehicleId) {
+    int h = vehicleId.hashCode();
+    h ^= (h >>> 16);
+    return _shards[h & (_shards.length - 1)];
+  }
 
-    VehicleLocationCacheEntry record = _entriesByVehicleId.remove(vehicleId);
+  private long getEvictionBucket(long time) {
+    return time / (_evictionBucketSize * 1000L);
+  }
+
+  /**
+   * File the vehicle under the eviction bucket for the current time, if it
+   * isn't there already. Moving to a new bucket is also when we prune any of
+   * the vehicle's records that have aged out of the cache window.
+   */
+  private void fileForEviction(AgencyAndId vehicleId,
+      VehicleLocationCacheEntry cacheEntry, long now) {
 
-    if (record != null) {
-      ConcurrentCollectionsLibrary.removeFromMapValueSet(
-          _vehicleIdsByBlockInstance, record.getBlockInstance(), vehicleId);
+    long bucket = getEvictionBucket(now);
+    if (cacheEntry.getEvictionBucket() == bucket)
+      return;
+
+    cacheEntry.setEvictionBucket(bucket);
+    cacheEntry.closeIfStale(now - _blockLocationRecordCacheWindowSize * 1000L);
+
+    while (true) {
+      Set<AgencyAndId> vehicleIds = _vehicleIdsByEvictionBucket.get(bucket);
+      if (vehicleIds == null) {
+        Set<AgencyAndId> newVehicleIds = ConcurrentHashMap.newKeySet();
+        vehicleIds = _vehicleIdsByEvictionBucket.putIfAbsent(bucket,
+            newVehicleIds);
+        if (vehicleIds == null)
+          vehicleIds = newVehicleIds;
+      }
+      vehicleIds.add(vehicleId);
+
+      // The eviction pass may have dropped the bucket as we were adding to it
+      if (_vehicleIdsByEvictionBucket.get(bucket) == vehicleIds)
+        return;
     }
   }
 
-  public void clearStaleRecords(long time) {
+  private void evictForCapacity() {
 
-    Iterator<Entry<AgencyAndId, VehicleLocationCacheEntry>> it = _entriesByVehicleId.entrySet().iterator();
+    while (_vehicleCount.get() > _maxVehicles) {
 
-    while (it.hasNext()) {
+      Map.Entry<Long, Set<AgencyAndId>> oldest = _vehicleIdsByEvictionBucket.firstEntry();
+      if (oldest == null)
+        return;
 
-      Entry<AgencyAndId, VehicleLocationCacheEntry> entry = it.next();
-      AgencyAndId vehicleId = entry.getKey();
-      VehicleLocationCacheEntry cacheEntry = entry.getValue();
+      long bucket = oldest.getKey();
+      Set<AgencyAndId> vehicleIds = oldest.getValue();
 
-      if (cacheEntry.closeIfStale(time)) {
+      for (Iterator<AgencyAndId> it = vehicleIds.iterator(); it.hasNext();) {
 
-        if (_log.isDebugEnabled())
-          _log.debug("pruning block location record cache for vehicle="
-              + vehicleId + " block=" + cacheEntry.getBlockInstance());
+        if (_vehicleCount.get() <= _maxVehicles)
+          return;
+
+        AgencyAndId vehicleId = it.next();
         it.remove();
-        ConcurrentCollectionsLibrary.removeFromMapValueSet(
-            _vehicleIdsByBlockInstance, cacheEntry.getBlockInstance(),
-            vehicleId);
+
+        Shard shard = getShard(vehicleId);
+        VehicleLocationCacheEntry cacheEntry = shard.entries.get(vehicleId);
+        if (cacheEntry != null && cacheEntry.getEvictionBucket() == bucket
+            && removeEntry(shard, vehicleId, cacheEntry))
+          _capacityEvictionCount.incrementAndGet();
       }
+
+      _vehicleIdsByEvictionBucket.remove(bucket, vehicleIds);
     }
   }
 
-  /****
-   * Private Methods
-   ****/
+  /**
+   * Closes the entry before removing it, so that a concurrent
+   * {@link #addRecord} can't add to an entry that is no longer in the cache.
+   * 
+   * @return true if the entry was still in the cache and has been removed
+   */
+  private boolean removeEntry(Shard shard, AgencyAndId vehicleId,
+      VehicleLocationCacheEntry cacheEntry) {
+
+    cacheEntry.close();
+
+    if (!shard.entries.remove(vehicleId, cacheEntry))
+      return false;
+
+    _vehicleCount.decrementAndGet();
+    ConcurrentCollectionsLibrary.removeFromMapValueSet(
+        _vehicleIdsByBlockInstance, cacheEntry.getBlockInstance(), vehicleId);
+    return true;
+  }
+
+  private static class Shard {
+
+    final ConcurrentMap<AgencyAndId, VehicleLocationCacheEntry> entries = new ConcurrentHashMap<AgencyAndId, VehicleLocationCacheEntry>();
+
+    final ConcurrentMap<AgencyAndId, VehicleLocationRecord> rawPositions = new ConcurrentHashMap<AgencyAndId, VehicleLocationRecord>();
+  }
 
   private class CacheEvictionHandler implements Runnable {
 
     @Override
     public void run() {
-      int preSize = _entriesByVehicleId.size();
+      int preSize = _vehicleCount.get();
       int vehiclePreSize = _vehicleIdsByBlockInstance.size();
       clearStaleRecords(SystemTime.currentTimeMillis()
           - _blockLocationRecordCacheWindowSize * 1000);
-      int postSize = _entriesByVehicleId.size();
+      int postSize = _vehicleCount.get();
       int vehiclePostSize = _vehicleIdsByBlockInstance.size();
       _log.debug("cleared {} entries and {} vehicles, now {} entries and {} vehicles",
               preSize - postSize, vehiclePreSize - vehiclePostSize, postSize, vehiclePostSize);
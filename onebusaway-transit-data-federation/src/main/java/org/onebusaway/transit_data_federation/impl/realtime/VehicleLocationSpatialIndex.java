@@ -0,0 +1,314 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.realtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.onebusaway.container.ConfigurationParameter;
+import org.onebusaway.container.refresh.Refreshable;
+import org.onebusaway.geospatial.model.CoordinateBounds;
+import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.transit_data_federation.impl.RefreshableResources;
+import org.onebusaway.transit_data_federation.services.blocks.BlockInstance;
+import org.onebusaway.util.SystemTime;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Grid index of the last reported position of each vehicle with real-time
+ * data, kept up to date by {@link BlockLocationServiceImpl} as records arrive.
+ * Bounds queries read the grid cells the bounds cover, or scan every vehicle
+ * when the bounds cover more cells than are occupied, instead of computing a
+ * location for every block scheduled through the area.
+ *
+ * Positions older than {@link #setMaxAge(int)} are ignored by queries and
+ * pruned as updates come in.
+ */
+@Component
+@ManagedResource("org.onebusaway.transit_data_federation.impl.realtime:name=VehicleLocationSpatialIndex")
+public class VehicleLocationSpatialIndex {
+
+  private static final long PRUNE_INTERVAL = 60 * 1000;
+
+  private final ConcurrentMap<AgencyAndId, VehiclePosition> _positionsByVehicleId = new ConcurrentHashMap<AgencyAndId, VehiclePosition>();
+
+  private final ConcurrentMap<Long, Set<AgencyAndId>> _vehicleIdsByCell = new ConcurrentHashMap<Long, Set<AgencyAndId>>();
+
+  private final ConcurrentMap<BlockInstance, Set<AgencyAndId>> _vehicleIdsByBlockInstance = new ConcurrentHashMap<BlockInstance, Set<AgencyAndId>>();
+
+  private double _cellSize = 0.01;
+
+  private long _maxAge = 20 * 60 * 1000;
+
+  private volatile long _lastPrune = 0;
+
+  /**
+   * @param cellSize grid cell size in degrees of latitude and longitude. May
+   *          only be changed before the first update.
+   */
+  @ConfigurationParameter
+  public void setCellSize(double cellSize) {
+    _cellSize = cellSize;
+  }
+
+  /**
+   * @param maxAgeInSeconds how long a position is used after it was reported
+   */
+  @ConfigurationParameter
+  public void setMaxAge(int maxAgeInSeconds) {
+    _maxAge = maxAgeInSeconds * 1000L;
+  }
+
+  /****
+   * JMX Attributes
+   ****/
+
+  @ManagedAttribute
+  public int getVehicleCount() {
+    return _positionsByVehicleId.size();
+  }
+
+  @ManagedAttribute
+  public int getOccupiedCellCount() {
+    return _vehicleIdsByCell.size();
+  }
+
+  /****
+   * Public Methods
+   ****/
+
+  /**
+   * Record the latest position of a vehicle, replacing any previous one.
+   *
+   * @param vehicleId
+   * @param blockInstance the block the vehicle is serving
+   * @param lat
+   * @param lon
+   * @param time the time the position was reported
+   */
+  public void update(AgencyAndId vehicleId, BlockInstance blockInstance,
+      double lat, double lon, long time) {
+
+    if (vehicleId == null || Double.isNaN(lat) || Double.isNaN(lon))
+      return;
+
+    VehiclePosition position = new VehiclePosition(vehicleId, blockInstance,
+        lat, lon, time, getCellKey(lat, lon));
+
+    _positionsByVehicleId.compute(vehicleId, (id, existing) -> {
+      if (existing != null && existing.time > time)
+        return existing;
+      if (existing != null)
+        unindex(existing);
+      index(position);
+      return position;
+    });
+
+    long now = SystemTime.currentTimeMillis();
+    if (now - _lastPrune > PRUNE_INTERVAL) {
+      _lastPrune = now;
+      prune(now - _maxAge);
+    }
+  }
+
+  public void remove(AgencyAndId vehicleId) {
+    _positionsByVehicleId.computeIfPresent(vehicleId, (id, existing) -> {
+      unindex(existing);
+      return null;
+    });
+  }
+
+  /**
+   * Drops every position when a new bundle is loaded, since the indexed block
+   * instances refer to the old bundle's block configurations.
+   */
+  @Refreshable(dependsOn = RefreshableResources.BLOCK_INDEX_DATA)
+  public void clear() {
+    for (AgencyAndId vehicleId : _positionsByVehicleId.keySet())
+      remove(vehicleId);
+  }
+
+  /**
+   * @param bounds
+   * @param time
+   * @return the vehicles last reported inside the bounds and no more than the
+   *         max age before time
+   */
+  public List<VehiclePosition> getVehiclesInBounds(CoordinateBounds bounds,
+      long time) {
+
+    List<VehiclePosition> results = new ArrayList<VehiclePosition>();
+    if (bounds == null || bounds.isEmpty())
+      return results;
+
+    long minTime = time - _maxAge;
+
+    long latFrom = cell(bounds.getMinLat());
+    long latTo = cell(bounds.getMaxLat());
+    long lonFrom = cell(bounds.getMinLon());
+    long lonTo = cell(bounds.getMaxLon());
+    long cellCount = (latTo - latFrom + 1) * (lonTo - lonFrom + 1);
+
+    if (cellCount > _vehicleIdsByCell.size()) {
+      for (VehiclePosition position : _positionsByVehicleId.values())
+        addIfMatches(position, bounds, minTime, results);
+      return results;
+    }
+
+    for (long latCell = latFrom; latCell <= latTo; latCell++) {
+      for (long lonCell = lonFrom; lonCell <= lonTo; lonCell++) {
+        Set<AgencyAndId> vehicleIds = _vehicleIdsByCell.get(getCellKey(
+            latCell, lonCell));
+        if (vehicleIds == null)
+          continue;
+        for (AgencyAndId vehicleId : vehicleIds) {
+          VehiclePosition position = _positionsByVehicleId.get(vehicleId);
+          if (position != null)
+            addIfMatches(position, bounds, minTime, results);
+        }
+      }
+    }
+    return results;
+  }
+
+  /**
+   * @param blockInstance
+   * @param time
+   * @return true if some vehicle serving the block instance has reported a
+   *         position no more than the max age before time
+   */
+  public boolean hasVehicles(BlockInstance blockInstance, long time) {
+    Set<AgencyAndId> vehicleIds = _vehicleIdsByBlockInstance.get(blockInstance);
+    if (vehicleIds == null)
+      return false;
+    long minTime = time - _maxAge;
+    for (AgencyAndId vehicleId : vehicleIds) {
+      VehiclePosition position = _positionsByVehicleId.get(vehicleId);
+      if (position != null && position.time >= minTime)
+        return true;
+    }
+    return false;
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private void addIfMatches(VehiclePosition position, CoordinateBounds bounds,
+      long minTime, List<VehiclePosition> results) {
+    if (position.time >= minTime && bounds.contains(position.lat, position.lon))
+      results.add(position);
+  }
+
+  private void index(VehiclePosition position) {
+    _vehicleIdsByCell.computeIfAbsent(position.cellKey,
+        k -> ConcurrentHashMap.newKeySet()).add(position.vehicleId);
+    if (position.blockInstance != null) {
+      _vehicleIdsByBlockInstance.computeIfAbsent(position.blockInstance,
+          k -> ConcurrentHashMap.newKeySet()).add(position.vehicleId);
+    }
+  }
+
+  private void unindex(VehiclePosition position) {
+    _vehicleIdsByCell.computeIfPresent(position.cellKey, (k, ids) -> {
+      ids.remove(position.vehicleId);
+      return ids.isEmpty() ? null : ids;
+    });
+    if (position.blockInstance != null) {
+      _vehicleIdsByBlockInstance.computeIfPresent(position.blockInstance,
+          (k, ids) -> {
+            ids.remove(position.vehicleId);
+            return ids.isEmpty() ? null : ids;
+          });
+    }
+  }
+
+  private void prune(long minTime) {
+    for (VehiclePosition position : _positionsByVehicleId.values()) {
+      if (position.time >= minTime)
+        continue;
+      _positionsByVehicleId.computeIfPresent(position.vehicleId,
+          (id, existing) -> {
+            if (existing.time >= minTime)
+              return existing;
+            unindex(existing);
+            return null;
+          });
+    }
+  }
+
+  private long cell(double value) {
+    return (long) Math.floor(value / _cellSize);
+  }
+
+  private long getCellKey(double lat, double lon) {
+    return getCellKey(cell(lat), cell(lon));
+  }
+
+  private static long getCellKey(long latCell, long lonCell) {
+    return (latCell << 32) ^ (lonCell & 0xffffffffL);
+  }
+
+  public static final class VehiclePosition {
+
+    private final AgencyAndId vehicleId;
+
+    private final BlockInstance blockInstance;
+
+    private final double lat;
+
+    private final double lon;
+
+    private final long time;
+
+    private final long cellKey;
+
+    private VehiclePosition(AgencyAndId vehicleId, BlockInstance blockInstance,
+        double lat, double lon, long time, long cellKey) {
+      this.vehicleId = vehicleId;
+      this.blockInstance = blockInstance;
+      this.lat = lat;
+      this.lon = lon;
+      this.time = time;
+      this.cellKey = cellKey;
+    }
+
+    public AgencyAndId getVehicleId() {
+      return vehicleId;
+    }
+
+    public BlockInstance getBlockInstance() {
+      return blockInstance;
+    }
+
+    public double getLat() {
+      return lat;
+    }
+
+    public double getLon() {
+      return lon;
+    }
+
+    public long getTime() {
+      return time;
+    }
+  }
+}
@@ -33,6 +33,8 @@ import org.onebusaway.transit_data_federation.impl.realtime.apc.VehicleOccupancy
 import org.onebusaway.transit_data_federation.services.transit_graph.BlockEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.TransitGraphDao;
 import org.onebusaway.transit_data_federation.services.transit_graph.TripEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -41,6 +43,8 @@ public class VehicleStatusServiceImpl implements VehicleLocationListener,
         VehicleOccupancyListener,
     VehicleStatusService {
 
+  private static Logger _log = LoggerFactory.getLogger(VehicleStatusServiceImpl.class);
+
   private ConcurrentHashMap<AgencyAndId, VehicleLocationRecord> _vehicleRecordsById = new ConcurrentHashMap<AgencyAndId, VehicleLocationRecord>();
 
   private TransitGraphDao _transitGraphDao;
@@ -88,40 +92,30 @@ public class VehicleStatusServiceImpl implements VehicleLocationListener,
 
   @Override
   public void handleVehicleLocationRecord(VehicleLocationRecord record) {
-	  if (record.getPhase() == null) {
-	    // if the trip is cancelled, the vehicle may not exist
-	    if (!TransitDataConstants.STATUS_CANCELED.equals(record.getStatus()))
-          record.setPhase(EVehiclePhase.IN_PROGRESS); // if we've received a report, assume it is in progress/in service
-	  } 
-    if (record.getTimeOfRecord() == 0)
-      throw new IllegalArgumentException("you must specify a record time");
-
-    if( record.getVehicleId() != null)
-      _vehicleRecordsById.put(record.getVehicleId(), record);
-
-    AgencyAndId blockId = record.getBlockId();
-
-    if (blockId == null) {
-      AgencyAndId tripId = record.getTripId();
-      if (tripId != null) {
-        TripEntry tripEntry = _transitGraphDao.getTripEntryForId(tripId);
-        if (tripEntry == null)
-          throw new IllegalArgumentException("trip not found with id=" + tripId);
-        BlockEntry block = tripEntry.getBlock();
-        blockId = block.getId();
-      }
-    }
-
-    // TODO : Maybe not require service date?
-    if (blockId != null && record.getServiceDate() != 0)
+    if (hasBlockAndServiceDate(record))
       _blockVehicleLocationService.handleVehicleLocationRecord(record);
+  }
 
-    // if vehicle has no block or has lost it, remove it from the block VLS.
-    else {
-      if(record.getVehicleId() != null) {
-        _blockVehicleLocationService.resetVehicleLocation(record.getVehicleId());
+  /**
+   * Records with a block are handed to the {@link BlockVehicleLocationListener}
+   * as a single batch. A record that can't be applied is logged and skipped,
+   * rather than failing the rest of the batch.
+   */
+  @Override
+  public void handleVehicleLocationRecords(List<VehicleLocationRecord> records) {
+    List<VehicleLocationRecord> blockRecords = new ArrayList<VehicleLocationRecord>(
+        records.size());
+    for (VehicleLocationRecord record : records) {
+      try {
+        if (hasBlockAndServiceDate(record))
+          blockRecords.add(record);
+      } catch (IllegalArgumentException ex) {
+        _log.warn("skipping vehicle location record for vehicle="
+            + record.getVehicleId() + ": " + ex.getMessage());
       }
     }
+    if (!blockRecords.isEmpty())
+      _blockVehicleLocationService.handleVehicleLocationRecords(blockRecords);
   }
 
   @Override
@@ -142,12 +136,6 @@ public class VehicleStatusServiceImpl implements VehicleLocationListener,
     _vehicleOccupanycRecordCache.clearRecordForVehicle(vehicleId);
   }
 
-  @Override
-  public void handleVehicleLocationRecords(List<VehicleLocationRecord> records) {
-    for (VehicleLocationRecord record : records)
-      handleVehicleLocationRecord(record);
-  }
-
   @Override
   public void resetVehicleLocation(AgencyAndId vehicleId) {
     _vehicleRecordsById.remove(vehicleId);
@@ -209,4 +197,50 @@ public class VehicleStatusServiceImpl implements VehicleLocationListener,
     }
     return statuses;
   }
+
+  /****
+   * Private Methods
+   ****/
+
+  /**
+   * Record the latest position of the vehicle, and reset its block location if
+   * it has no block
+   * 
+   * @return true if the record should be applied to its block
+   */
+  private boolean hasBlockAndServiceDate(VehicleLocationRecord record) {
+	  if (record.getPhase() == null) {
+	    // if the trip is cancelled, the vehicle may not exist
+	    if (!TransitDataConstants.STATUS_CANCELED.equals(record.getStatus()))
+          record.setPhase(EVehiclePhase.IN_PROGRESS); // if we've received a report, assume it is in progress/in service
+	  } 
+    if (record.getTimeOfRecord() == 0)
+      throw new IllegalArgumentException("you must specify a record time");
+
+    if( record.getVehicleId() != null)
+      _vehicleRecordsById.put(record.getVehicleId(), record);
+
+    AgencyAndId blockId = record.getBlockId();
+
+    if (blockId == null) {
+      AgencyAndId tripId = record.getTripId();
+      if (tripId != null) {
+        TripEntry tripEntry = _transitGraphDao.getTripEntryForId(tripId);
+        if (tripEntry == null)
+          throw new IllegalArgumentException("trip not found with id=" + tripId);
+        BlockEntry block = tripEntry.getBlock();
+        blockId = block.getId();
+      }
+    }
+
+    // TODO : Maybe not require service date?
+    if (blockId != null && record.getServiceDate() != 0)
+      return true;
+
+    // if vehicle has no block or has lost it, remove it from the block VLS.
+    if(record.getVehicleId() != null) {
+      _blockVehicleLocationService.resetVehicleLocation(record.getVehicleId());
+    }
+    return false;
+  }
 }
@@ -18,10 +18,12 @@ package org.onebusaway.transit_data_federation.impl.realtime.gtfs_realtime;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -29,6 +31,12 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -75,6 +83,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.ExtensionRegistry;
 import com.google.transit.realtime.GtfsRealtime.Alert;
 import com.google.transit.realtime.GtfsRealtime.FeedEntity;
@@ -123,6 +132,18 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
 
   private ScheduledFuture<?> _refreshTask;
 
+  /**
+   * reads the trip update, vehicle position and alert feeds concurrently
+   */
+  private ExecutorService _fetchExecutor;
+
+  /**
+   * creates vehicle location records, partitioned by block
+   */
+  private ExecutorService _blockExecutor;
+
+  private int _blockWorkerThreads = 1;
+
   private DataSourceMonitor _monitor;
 
   private URL _tripUpdatesUrl;
@@ -160,9 +181,9 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
    * underling {@link VehicleLocationListener} when they've been updated, since
    * we'll often see the same trip updates and vehicle positions every time we
    * poll the GTFS-realtime feeds. We keep track of the timestamp of last update
-   * for each vehicle id.
+   * for each vehicle id.  Block workers update this concurrently.
    */
-  private Map<AgencyAndId, Date> _lastVehicleUpdate = new HashMap<AgencyAndId, Date>();
+  private Map<AgencyAndId, Date> _lastVehicleUpdate = Collections.synchronizedMap(new HashMap<AgencyAndId, Date>());
 
   /**
    * We keep track of alerts, only pushing them to the underlying
@@ -374,6 +395,17 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
   public void setRefreshInterval(int refreshInterval) {
     _refreshInterval = refreshInterval;
   }
+
+  /**
+   * @param blockWorkerThreads the number of threads used to create vehicle
+   *          location records.  Updates are partitioned by block so records
+   *          for a given block (and so its vehicle) are always handled in feed
+   *          order on the same thread.  Defaults to 1, processing updates on
+   *          the refresh thread.
+   */
+  public void setBlockWorkerThreads(int blockWorkerThreads) {
+    _blockWorkerThreads = blockWorkerThreads;
+  }
   
   public int getRefreshInterval() {
     return _refreshInterval;
@@ -565,6 +597,13 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
     _alertLibrary = new GtfsRealtimeAlertLibrary();
     _alertLibrary.setEntitySource(_entitySource);
 
+    _fetchExecutor = Executors.newFixedThreadPool(4, new ThreadFactoryBuilder()
+        .setDaemon(true).setNameFormat("gtfsrt-fetch-" + getFeedId() + "-%d").build());
+    if (_blockWorkerThreads > 1) {
+      _blockExecutor = Executors.newFixedThreadPool(_blockWorkerThreads, new ThreadFactoryBuilder()
+          .setDaemon(true).setNameFormat("gtfsrt-block-" + getFeedId() + "-%d").build());
+    }
+
     if (_refreshInterval > 0) {
       _refreshTask = _scheduledExecutorService.scheduleAtFixedRate(
           new RefreshTask(), 0, _refreshInterval, TimeUnit.SECONDS);
@@ -581,6 +620,14 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
       _refreshTask.cancel(true);
       _refreshTask = null;
     }
+    if (_fetchExecutor != null) {
+      _fetchExecutor.shutdownNow();
+      _fetchExecutor = null;
+    }
+    if (_blockExecutor != null) {
+      _blockExecutor.shutdownNow();
+      _blockExecutor = null;
+    }
   }
 
   public void refresh() throws IOException {
@@ -588,21 +635,29 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
       _log.warn("skipping update " + getAgencyIds() + ", bundle not ready");
       return;
     }
-    FeedMessage tripUpdates = _sftpTripUpdatesUrl != null ?
+    long fetchStartTime = System.currentTimeMillis();
+    // the feeds are independent, so read them all at once
+    Future<FeedMessage> tripUpdatesFuture = submitFetch(() -> _sftpTripUpdatesUrl != null ?
         readOrReturnDefault(_sftpTripUpdatesUrl)
-        : readOrReturnDefault(_tripUpdatesUrl);
-    FeedMessage vehiclePositions = _sftpVehiclePositionsUrl != null ?
+        : readOrReturnDefault(_tripUpdatesUrl));
+    Future<FeedMessage> vehiclePositionsFuture = submitFetch(() -> _sftpVehiclePositionsUrl != null ?
         readOrReturnDefault(_sftpVehiclePositionsUrl)
-        : readOrReturnDefault(_vehiclePositionsUrl);
-    FeedMessage alerts = _sftpAlertsUrl != null ?
+        : readOrReturnDefault(_vehiclePositionsUrl));
+    Future<FeedMessage> alertsFuture = submitFetch(() -> _sftpAlertsUrl != null ?
         readOrReturnDefault(_sftpAlertsUrl)
-        : readOrReturnDefault(_alertsUrl);
-    ServiceAlerts.ServiceAlertsCollection alertCollection
-            = readOrReturnDefaultCollection(_alertCollectionUrl);
+        : readOrReturnDefault(_alertsUrl));
+    Future<ServiceAlerts.ServiceAlertsCollection> alertCollectionFuture
+            = submitFetch(() -> readOrReturnDefaultCollection(_alertCollectionUrl));
+
+    FeedMessage tripUpdates = getFetched(tripUpdatesFuture);
+    FeedMessage vehiclePositions = getFetched(vehiclePositionsFuture);
+    FeedMessage alerts = getFetched(alertsFuture);
+    ServiceAlerts.ServiceAlertsCollection alertCollection = getFetched(alertCollectionFuture);
 
     MonitoredResult result = new MonitoredResult();
     result.setAgencyIds(_agencyIds);
     result.setFeedId(getFeedId());
+    result.setFetchTime(System.currentTimeMillis() - fetchStartTime);
 
     if (_routeIdsToCancel != null) {
       long currentTime = _tripsLibrary.getCurrentTime();
@@ -619,6 +674,34 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
     return readAlertCollectionFromUrl(alertCollectionUrl);
   }
 
+  private <T> Future<T> submitFetch(Callable<T> fetch) {
+    if (_fetchExecutor == null) {
+      // not started (unit tests), read on the calling thread
+      FutureTask<T> task = new FutureTask<T>(fetch);
+      task.run();
+      return task;
+    }
+    return _fetchExecutor.submit(fetch);
+  }
+
+  private <T> T getFetched(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted reading feed for " + getFeedId());
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw new IOException(cause);
+    }
+  }
+
   /****
    * Private Methods
    ****/
@@ -644,13 +727,19 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
 	long time = tripUpdates.getHeader().getTimestamp() * 1000;
 	_tripsLibrary.setCurrentTime(_tripsLibrary.ensureMillis(time));
 
+    long groupStartTime = System.currentTimeMillis();
     List<CombinedTripUpdatesAndVehiclePosition> combinedUpdates = _tripsLibrary.groupTripUpdatesAndVehiclePositions(result,
             tripUpdates, vehiclePositions);
     result.setRecordsTotal(combinedUpdates.size());
+    long recordStartTime = System.currentTimeMillis();
+    result.setGroupTime(recordStartTime - groupStartTime);
     handleCombinedUpdatesLogged(result, combinedUpdates);
     cacheVehicleLocations(vehiclePositions);
+    long alertsStartTime = System.currentTimeMillis();
+    result.setRecordTime(alertsStartTime - recordStartTime);
     handleAlerts(alerts);
     handleAlertCollection(alertCollection);
+    result.setAlertsTime(System.currentTimeMillis() - alertsStartTime);
   }
 
   private void cacheVehicleLocations(FeedMessage vehiclePositions) {
@@ -683,76 +772,18 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
     // exit if we are configured in alerts mode
     if (_tripUpdatesUrl == null) return;
 
-    Set<AgencyAndId> seenVehicles = new HashSet<AgencyAndId>();
+    Set<AgencyAndId> seenVehicles = Collections.synchronizedSet(new HashSet<AgencyAndId>());
 
     try {
-      for (CombinedTripUpdatesAndVehiclePosition update : updates) {
-        String metricTripId = null;
-        if (update.getTripUpdates() != null && update.getTripUpdatesSize() > 0) {
-          if (update.getTripUpdates().get(0).hasTrip()) {
-            metricTripId = update.getTripUpdates().get(0).getTrip().getTripId();
-          }
-        }
-
-        if (update.block == null) {
-          _log.error("null block {} for agencies {}, bailing...", metricTripId, _agencyIds);
-          result.addUnmatchedTripId(metricTripId);
-          continue;
-        }
-        BlockDescriptor.ScheduleRelationship scheduleRelationship = update.block.getScheduleRelationship();
-        if (scheduleRelationship == null) {
-          _log.error("no schedule relationship for update {}", update);
-          result.addUnmatchedTripId(metricTripId);
-          continue;
-        }
-        boolean isDynamicTrip = TransitDataConstants.STATUS_ADDED.equals(scheduleRelationship.name())
-                || TransitDataConstants.STATUS_DUPLICATED.equals(scheduleRelationship.name());
-
-        VehicleLocationRecord record = _tripsLibrary.createVehicleLocationRecordForUpdate(result, update);
-        if (record != null) {
-          if (isDynamicTrip) {
-            if (_monitoredResult.getLastUpdate() < record.getTimeOfRecord()) {
-              _monitoredResult.setLastUpdate(record.getTimeOfRecord());
-            }
-            _serviceSource.getDynamicBlockIndexService().register(update.block.getBlockInstance(), record.getTimeOfRecord());
-          }
-          if (record.getTripId() != null) {
-            // tripId will be null if block was matched
-            result.addUnmatchedTripId(record.getTripId().toString());
-          }
-
-          AgencyAndId vehicleId = record.getVehicleId();
-          // here we try to get a more accurate count of updates
-          // some providers re-send old data or future data cluttering the feed
-          // the TDS will discard these
-          if (!isDynamicTrip && blockNotActive(record)) {
-            _log.debug("discarding v: " + vehicleId + " as block not active");
-            result.addUnmatchedTripId(metricTripId);
-            continue;
-          }
-          if (!isDynamicTrip && !isValidLocation(record, update)) {
-            _log.debug("discarding v: " + vehicleId + " as location is bad");
-            result.addUnmatchedTripId(metricTripId);
-            continue;
-          }
-          seenVehicles.add(vehicleId);
-          VehicleOccupancyRecord vor = _tripsLibrary.createVehicleOccupancyRecordForUpdate(result, update);
-          Date timestamp = new Date(getGtfsRealtimeTripLibrary().ensureMillis(record.getTimeOfRecord()));
-          Date prev = _lastVehicleUpdate.get(vehicleId);
-          if (prev == null || prev.before(timestamp)) {
-            _log.debug("matched vehicle " + vehicleId + " on block=" + record.getBlockId() + " with scheduleDeviation=" + record.getScheduleDeviation());
-            _vehicleLocationListener.handleVehicleLocationRecord(record);
-            if (vor != null) {
-              _vehicleOccupancyListener.handleVehicleOccupancyRecord(vor);
-            }
-            _lastVehicleUpdate.put(vehicleId, timestamp);
-          } else {
-            _log.debug("discarding: update for vehicle " + vehicleId
-                    + " as timestamp in past (" + (timestamp.getTime()-prev.getTime()) + "ms)");
-          }
-        }
+      long newestDynamicUpdate;
+      if (_blockExecutor == null || updates.size() < 2) {
+        newestDynamicUpdate = handleCombinedUpdatesForPartition(result, updates, seenVehicles);
+      } else {
+        newestDynamicUpdate = handleCombinedUpdatesByBlock(result, updates, seenVehicles);
+      }
+      if (_monitoredResult.getLastUpdate() < newestDynamicUpdate) {
+        _monitoredResult.setLastUpdate(newestDynamicUpdate);
       }
-
     } catch (Throwable t) {
       _log.error("fatal exception {}", t, t);
     }
@@ -791,6 +822,134 @@ public class GtfsRealtimeSource implements MonitoredDataSource {
             + " in " + (methodEndTime-methodStarTime) + "ms");
   }
 
+  /**
+   * Split updates into at most {@link #setBlockWorkerThreads(int)} partitions
+   * by block and process each partition on the block worker pool, merging the
+   * partial results back into result once every partition is done.
+   */
+  private long handleCombinedUpdatesByBlock(MonitoredResult result,
+      List<CombinedTripUpdatesAndVehiclePosition> updates,
+      Set<AgencyAndId> seenVehicles) throws InterruptedException, ExecutionException {
+    int partitionCount = Math.min(_blockWorkerThreads, updates.size());
+    List<List<CombinedTripUpdatesAndVehiclePosition>> partitions = new ArrayList<>(partitionCount);
+    for (int i = 0; i < partitionCount; i++) {
+      partitions.add(new ArrayList<CombinedTripUpdatesAndVehiclePosition>());
+    }
+    for (CombinedTripUpdatesAndVehiclePosition update : updates) {
+      partitions.get(getPartition(update, partitionCount)).add(update);
+    }
+
+    List<MonitoredResult> partialResults = new ArrayList<>(partitionCount);
+    List<Future<Long>> futures = new ArrayList<>(partitionCount);
+    for (List<CombinedTripUpdatesAndVehiclePosition> partition : partitions) {
+      if (partition.isEmpty()) continue;
+      MonitoredResult partialResult = new MonitoredResult();
+      partialResult.setAgencyIds(result.getAgencyIds());
+      partialResult.setFeedId(result.getFeedId());
+      partialResults.add(partialResult);
+      futures.add(_blockExecutor.submit(
+          () -> handleCombinedUpdatesForPartition(partialResult, partition, seenVehicles)));
+    }
+
+    long newestDynamicUpdate = 0;
+    for (Future<Long> future : futures) {
+      newestDynamicUpdate = Math.max(newestDynamicUpdate, future.get());
+    }
+    for (MonitoredResult partialResult : partialResults) {
+      result.addAll(partialResult);
+    }
+    return newestDynamicUpdate;
+  }
+
+  private int getPartition(CombinedTripUpdatesAndVehiclePosition update, int partitionCount) {
+    Object key = null;
+    if (update.block != null) {
+      if (update.block.getBlockInstance() != null) {
+        key = update.block.getBlockInstance().getBlock().getBlock().getId();
+      } else {
+        key = update.block.getVehicleId();
+      }
+    }
+    if (key == null) return 0;
+    return Math.floorMod(key.hashCode(), partitionCount);
+  }
+
+  /**
+   * create and publish vehicle location records for a list of updates in
+   * order.
+   * @return the newest time of record seen for an added or duplicated trip
+   */
+  private long handleCombinedUpdatesForPartition(MonitoredResult result,
+      List<CombinedTripUpdatesAndVehiclePosition> updates,
+      Set<AgencyAndId> seenVehicles) {
+    long newestDynamicUpdate = 0;
+    for (CombinedTripUpdatesAndVehiclePosition update : updates) {
+      String metricTripId = null;
+      if (update.getTripUpdates() != null && update.getTripUpdatesSize() > 0) {
+        if (update.getTripUpdates().get(0).hasTrip()) {
+          metricTripId = update.getTripUpdates().get(0).getTrip().getTripId();
+        }
+      }
+
+      if (update.block == null) {
+        _log.error("null block {} for agencies {}, bailing...", metricTripId, _agencyIds);
+        result.addUnmatchedTripId(metricTripId);
+        continue;
+      }
+      BlockDescriptor.ScheduleRelationship scheduleRelationship = update.block.getScheduleRelationship();
+      if (scheduleRelationship == null) {
+        _log.error("no schedule relationship for update {}", update);
+        result.addUnmatchedTripId(metricTripId);
+        continue;
+      }
+      boolean isDynamicTrip = TransitDataConstants.STATUS_ADDED.equals(scheduleRelationship.name())
+              || TransitDataConstants.STATUS_DUPLICATED.equals(scheduleRelationship.name());
+
+      VehicleLocationRecord record = _tripsLibrary.createVehicleLocationRecordForUpdate(result, update);
+      if (record != null) {
+        if (isDynamicTrip) {
+          newestDynamicUpdate = Math.max(newestDynamicUpdate, record.getTimeOfRecord());
+          _serviceSource.getDynamicBlockIndexService().register(update.block.getBlockInstance(), record.getTimeOfRecord());
+        }
+        if (record.getTripId() != null) {
+          // tripId will be null if block was matched
+          result.addUnmatchedTripId(record.getTripId().toString());
+        }
+
+        AgencyAndId vehicleId = record.getVehicleId();
+        // here we try to get a more accurate count of updates
+        // some providers re-send old data or future data cluttering the feed
+        // the TDS will discard these
+        if (!isDynamicTrip && blockNotActive(record)) {
+          _log.debug("discarding v: " + vehicleId + " as block not active");
+          result.addUnmatchedTripId(metricTripId);
+          continue;
+        }
+        if (!isDynamicTrip && !isValidLocation(record, update)) {
+          _log.debug("discarding v: " + vehicleId + " as location is bad");
+          result.addUnmatchedTripId(metricTripId);
+          continue;
+        }
+        seenVehicles.add(vehicleId);
+        VehicleOccupancyRecord vor = _tripsLibrary.createVehicleOccupancyRecordForUpdate(result, update);
+        Date timestamp = new Date(getGtfsRealtimeTripLibrary().ensureMillis(record.getTimeOfRecord()));
+        Date prev = _lastVehicleUpdate.get(vehicleId);
+        if (prev == null || prev.before(timestamp)) {
+          _log.debug("matched vehicle " + vehicleId + " on block=" + record.getBlockId() + " with scheduleDeviation=" + record.getScheduleDeviation());
+          _vehicleLocationListener.handleVehicleLocationRecord(record);
+          if (vor != null) {
+            _vehicleOccupancyListener.handleVehicleOccupancyRecord(vor);
+          }
+          _lastVehicleUpdate.put(vehicleId, timestamp);
+        } else {
+          _log.debug("discarding: update for vehicle " + vehicleId
+                  + " as timestamp in past (" + (timestamp.getTime()-prev.getTime()) + "ms)");
+        }
+      }
+    }
+    return newestDynamicUpdate;
+  }
+
   private boolean isValidLocation(VehicleLocationRecord record, CombinedTripUpdatesAndVehiclePosition update) {
     if (_maxDeltaLocationMeters == null) return true; // validation turned off
     CoordinatePoint reported = new CoordinatePoint(update.vehiclePosition.getPosition().getLatitude(),
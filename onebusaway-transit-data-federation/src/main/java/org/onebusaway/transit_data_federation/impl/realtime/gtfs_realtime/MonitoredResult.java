@@ -36,6 +36,11 @@ public class MonitoredResult {
   private String feedId = null;
   private int _recordsTotal = 0;
   private long _lastUpdate = 0; // we want the default to be very very old, to catch stale updates
+  // per-stage timings of the refresh that produced this result, in millis
+  private long _fetchTime = 0;
+  private long _groupTime = 0;
+  private long _recordTime = 0;
+  private long _alertsTime = 0;
   
   public void addUnmatchedTripId(String tripId) {
     if (tripId != null)
@@ -156,4 +161,64 @@ public class MonitoredResult {
       return getAgencyIds().toString();
     return feedId;
   }
+
+  /**
+   * time spent reading the trip update, vehicle position and alert feeds
+   */
+  public long getFetchTime() {
+    return _fetchTime;
+  }
+
+  public void setFetchTime(long fetchTime) {
+    _fetchTime = fetchTime;
+  }
+
+  /**
+   * time spent matching trip updates and vehicle positions to blocks
+   */
+  public long getGroupTime() {
+    return _groupTime;
+  }
+
+  public void setGroupTime(long groupTime) {
+    _groupTime = groupTime;
+  }
+
+  /**
+   * time spent creating and publishing vehicle location records
+   */
+  public long getRecordTime() {
+    return _recordTime;
+  }
+
+  public void setRecordTime(long recordTime) {
+    _recordTime = recordTime;
+  }
+
+  /**
+   * time spent applying service alerts
+   */
+  public long getAlertsTime() {
+    return _alertsTime;
+  }
+
+  public void setAlertsTime(long alertsTime) {
+    _alertsTime = alertsTime;
+  }
+
+  /**
+   * fold the trip, stop, block and coordinate results of a partial result
+   * (such as one computed on a worker thread) into this result.
+   */
+  public void addAll(MonitoredResult other) {
+    _unmatchedTripIds.addAll(other._unmatchedTripIds);
+    _matchedTripIds.addAll(other._matchedTripIds);
+    _unmatchedStopIds.addAll(other._unmatchedStopIds);
+    _matchedStopIds.addAll(other._matchedStopIds);
+    _canelledTripIds.addAll(other._canelledTripIds);
+    _addedTripIds.addAll(other._addedTripIds);
+    _duplicatedTripIds.addAll(other._duplicatedTripIds);
+    _unmatchedBlockIds.addAll(other._unmatchedBlockIds);
+    _allCoordinates.addAll(other._allCoordinates);
+  }
 }
@@ -29,7 +29,7 @@ public class AgencyEntryImpl implements AgencyEntry, Serializable {
 
   private String _id;
 
-  private List<StopEntry> _stops = Collections.emptyList();
+  private volatile List<StopEntry> _stops = Collections.emptyList();
 
   private List<RouteCollectionEntry> _routeCollections = Collections.emptyList();
 
@@ -110,14 +110,22 @@ public class BlockConfigurationEntryImpl implements BlockConfigurationEntry,
 
   @Override
   public int getArrivalTimeForIndex(int index) {
-    StopTimeEntry stopTime = getStopTimeForIndex(index);
-    return stopTime.getArrivalTime();
+    int tripIndex = tripIndices[index];
+    List<StopTimeEntry> stopTimes = trips.get(tripIndex).getTrip().getStopTimes();
+    int stopTimeIndex = index - accumulatedStopTimeIndices[tripIndex];
+    if (stopTimes instanceof CompactStopTimeList)
+      return ((CompactStopTimeList) stopTimes).getArrivalTime(stopTimeIndex);
+    return stopTimes.get(stopTimeIndex).getArrivalTime();
   }
 
   @Override
   public int getDepartureTimeForIndex(int index) {
-    StopTimeEntry stopTime = getStopTimeForIndex(index);
-    return stopTime.getDepartureTime();
+    int tripIndex = tripIndices[index];
+    List<StopTimeEntry> stopTimes = trips.get(tripIndex).getTrip().getStopTimes();
+    int stopTimeIndex = index - accumulatedStopTimeIndices[tripIndex];
+    if (stopTimes instanceof CompactStopTimeList)
+      return ((CompactStopTimeList) stopTimes).getDepartureTime(stopTimeIndex);
+    return stopTimes.get(stopTimeIndex).getDepartureTime();
   }
 
   @Override
@@ -130,6 +138,11 @@ public class BlockConfigurationEntryImpl implements BlockConfigurationEntry,
 
     List<StopTimeEntry> stopTimes = trip.getStopTimes();
     int stopTimeIndex = index - accumulatedStopTimeIndices[tripIndex];
+
+    if (stopTimes instanceof CompactStopTimeList)
+      return blockTrip.getDistanceAlongBlock()
+          + ((CompactStopTimeList) stopTimes).getShapeDistTraveled(stopTimeIndex);
+
     StopTimeEntry stopTime = stopTimes.get(stopTimeIndex);
 
     return blockTrip.getDistanceAlongBlock() + stopTime.getShapeDistTraveled();
@@ -0,0 +1,333 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.transit_graph;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.onebusaway.realtime.api.OccupancyStatus;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopTimeEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.TripEntry;
+
+/**
+ * Column-oriented storage for the stop times of a single trip. Rather than one
+ * {@link StopTimeEntryImpl} object per stop time, each field is kept in a
+ * primitive array indexed by stop time position, and {@link #get(int)} hands
+ * out a lightweight {@link StopTimeEntry} view over a given index on demand.
+ *
+ * Views are not cached, so two calls to {@link #get(int)} return different
+ * objects. They compare equal to one another, however, and writes through a
+ * view's setters land in the underlying arrays.
+ *
+ * Hot paths that only need times or distances can avoid creating a view at all
+ * with {@link #getArrivalTime(int)}, {@link #getDepartureTime(int)} and
+ * {@link #getShapeDistTraveled(int)}.
+ */
+public class CompactStopTimeList extends AbstractList<StopTimeEntry> implements
+    RandomAccess, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final OccupancyStatus[] OCCUPANCY_VALUES = OccupancyStatus.values();
+
+  private final int[] _ids;
+
+  private final int[] _arrivalTimes;
+
+  private final int[] _departureTimes;
+
+  private final int[] _sequences;
+
+  private final int[] _gtfsSequences;
+
+  private final int[] _shapePointIndices;
+
+  private final int[] _accumulatedSlackTimes;
+
+  private final double[] _shapeDistTraveled;
+
+  private final byte[] _dropOffTypes;
+
+  private final byte[] _pickupTypes;
+
+  /**
+   * {@link OccupancyStatus} ordinal, or -1 when not set
+   */
+  private final byte[] _historicalOccupancy;
+
+  private final StopEntryImpl[] _stops;
+
+  private TripEntry _trip;
+
+  private int _totalStopsInTrip;
+
+  public CompactStopTimeList(int size) {
+    _ids = new int[size];
+    _arrivalTimes = new int[size];
+    _departureTimes = new int[size];
+    _sequences = new int[size];
+    _gtfsSequences = new int[size];
+    _shapePointIndices = new int[size];
+    _accumulatedSlackTimes = new int[size];
+    _shapeDistTraveled = new double[size];
+    _dropOffTypes = new byte[size];
+    _pickupTypes = new byte[size];
+    _historicalOccupancy = new byte[size];
+    _stops = new StopEntryImpl[size];
+    _totalStopsInTrip = size;
+  }
+
+  /**
+   * Copy a list of stop time entries into their compact form. Every entry must
+   * reference a {@link StopEntryImpl}.
+   *
+   * @param trip the trip that will own the new list
+   * @param stopTimes
+   * @return the compact copy
+   */
+  public static CompactStopTimeList copyOf(TripEntry trip,
+      List<StopTimeEntry> stopTimes) {
+    CompactStopTimeList list = new CompactStopTimeList(stopTimes.size());
+    list.setTrip(trip);
+    for (int i = 0; i < stopTimes.size(); i++)
+      list.setStopTime(i, stopTimes.get(i));
+    if (!stopTimes.isEmpty())
+      list.setTotalStopsInTrip(stopTimes.get(0).getTotalStopsInTrip());
+    return list;
+  }
+
+  public TripEntry getTrip() {
+    return _trip;
+  }
+
+  public void setTrip(TripEntry trip) {
+    _trip = trip;
+  }
+
+  public void setTotalStopsInTrip(int totalStopsInTrip) {
+    _totalStopsInTrip = totalStopsInTrip;
+  }
+
+  /**
+   * Copy every field of the given entry, other than its trip, into the given
+   * index.
+   */
+  public void setStopTime(int index, StopTimeEntry stopTime) {
+    _ids[index] = stopTime.getId();
+    _arrivalTimes[index] = stopTime.getArrivalTime();
+    _departureTimes[index] = stopTime.getDepartureTime();
+    _sequences[index] = stopTime.getSequence();
+    _gtfsSequences[index] = stopTime.getGtfsSequence();
+    _shapePointIndices[index] = stopTime.getShapePointIndex();
+    _accumulatedSlackTimes[index] = stopTime.getAccumulatedSlackTime();
+    _shapeDistTraveled[index] = stopTime.getShapeDistTraveled();
+    _dropOffTypes[index] = (byte) stopTime.getDropOffType();
+    _pickupTypes[index] = (byte) stopTime.getPickupType();
+    setHistoricalOccupancy(index, stopTime.getHistoricalOccupancy());
+    _stops[index] = (StopEntryImpl) stopTime.getStop();
+  }
+
+  public void setStop(int index, StopEntryImpl stop) {
+    _stops[index] = stop;
+  }
+
+  public void setHistoricalOccupancy(int index, OccupancyStatus occupancy) {
+    _historicalOccupancy[index] = (byte) (occupancy == null ? -1
+        : occupancy.ordinal());
+  }
+
+  public int getArrivalTime(int index) {
+    return _arrivalTimes[index];
+  }
+
+  public int getDepartureTime(int index) {
+    return _departureTimes[index];
+  }
+
+  public double getShapeDistTraveled(int index) {
+    return _shapeDistTraveled[index];
+  }
+
+  /****
+   * {@link List} Interface
+   ****/
+
+  @Override
+  public StopTimeEntry get(int index) {
+    if (index < 0 || index >= _ids.length)
+      throw new IndexOutOfBoundsException("index=" + index + " size="
+          + _ids.length);
+    return new StopTimeView(index);
+  }
+
+  @Override
+  public int size() {
+    return _ids.length;
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private class StopTimeView implements StopTimeEntry {
+
+    private final int _index;
+
+    public StopTimeView(int index) {
+      _index = index;
+    }
+
+    @Override
+    public int getId() {
+      return _ids[_index];
+    }
+
+    @Override
+    public TripEntry getTrip() {
+      return _trip;
+    }
+
+    @Override
+    public int getSequence() {
+      return _sequences[_index];
+    }
+
+    @Override
+    public int getGtfsSequence() {
+      return _gtfsSequences[_index];
+    }
+
+    @Override
+    public StopEntryImpl getStop() {
+      return _stops[_index];
+    }
+
+    @Override
+    public int getArrivalTime() {
+      return _arrivalTimes[_index];
+    }
+
+    @Override
+    public int getDepartureTime() {
+      return _departureTimes[_index];
+    }
+
+    @Override
+    public OccupancyStatus getHistoricalOccupancy() {
+      byte ordinal = _historicalOccupancy[_index];
+      return ordinal < 0 ? null : OCCUPANCY_VALUES[ordinal];
+    }
+
+    @Override
+    public int getPickupType() {
+      return _pickupTypes[_index];
+    }
+
+    @Override
+    public int getDropOffType() {
+      return _dropOffTypes[_index];
+    }
+
+    @Override
+    public int getShapePointIndex() {
+      return _shapePointIndices[_index];
+    }
+
+    @Override
+    public double getShapeDistTraveled() {
+      return _shapeDistTraveled[_index];
+    }
+
+    @Override
+    public int getSlackTime() {
+      return _departureTimes[_index] - _arrivalTimes[_index];
+    }
+
+    @Override
+    public int getAccumulatedSlackTime() {
+      return _accumulatedSlackTimes[_index];
+    }
+
+    @Override
+    public int getTotalStopsInTrip() {
+      return _totalStopsInTrip;
+    }
+
+    @Override
+    public void setShapePointIndex(int index) {
+      _shapePointIndices[_index] = index;
+    }
+
+    @Override
+    public void setShapeDistTraveled(double distanceAlongShape) {
+      _shapeDistTraveled[_index] = distanceAlongShape;
+    }
+
+    @Override
+    public void setTrip(TripEntry tripEntry) {
+      _trip = tripEntry;
+    }
+
+    @Override
+    public void setTotalStopsInTrip(int size) {
+      _totalStopsInTrip = size;
+    }
+
+    @Override
+    public void setArrivalTime(int arrivalTime) {
+      _arrivalTimes[_index] = arrivalTime;
+    }
+
+    @Override
+    public void setDepartureTime(int departureTime) {
+      _departureTimes[_index] = departureTime;
+    }
+
+    @Override
+    public void setAccumulatedSlackTime(int accumulatedSlackTime) {
+      _accumulatedSlackTimes[_index] = accumulatedSlackTime;
+    }
+
+    private CompactStopTimeList getList() {
+      return CompactStopTimeList.this;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(CompactStopTimeList.this) * 31 + _index;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof StopTimeView))
+        return false;
+      StopTimeView other = (StopTimeView) obj;
+      return other.getList() == CompactStopTimeList.this
+          && other._index == _index;
+    }
+
+    @Override
+    public String toString() {
+      return "StopTimeEntryImpl(stop=" + getStop().getId() + " trip=" + _trip
+          + " arrival=" + getArrivalTime() + " departure="
+          + getDepartureTime() + ")";
+    }
+  }
+}
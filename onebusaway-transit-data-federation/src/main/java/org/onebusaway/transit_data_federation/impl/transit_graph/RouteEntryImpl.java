@@ -32,7 +32,7 @@ public class RouteEntryImpl implements RouteEntry, Serializable {
 
   private RouteCollectionEntry _parent;
   
-  private List<TripEntry> _trips;
+  private volatile List<TripEntry> _trips;
 
   private int _type = EVehicleType.UNSET.getGtfsType();
 
@@ -46,13 +46,13 @@ public class StopEntryImpl implements StopEntry, Serializable {
 
   private transient int _index;
 
-  private transient List<BlockStopTimeIndex> _stopTimeIndices = null;
+  private transient volatile List<BlockStopTimeIndex> _stopTimeIndices = null;
 
-  private transient List<FrequencyBlockStopTimeIndex> _frequencyStopTimeIndices = null;
+  private transient volatile List<FrequencyBlockStopTimeIndex> _frequencyStopTimeIndices = null;
 
-  private transient List<BlockStopSequenceIndex> _stopTripIndices = null;
+  private transient volatile List<BlockStopSequenceIndex> _stopTripIndices = null;
 
-  private transient List<FrequencyStopTripIndex> _frequencyStopTripIndices = null;
+  private transient volatile List<FrequencyStopTripIndex> _frequencyStopTripIndices = null;
 
   private final AgencyAndId _parent;
 
@@ -82,6 +82,14 @@ public class StopEntryImpl implements StopEntry, Serializable {
     _stopTimeIndices.add(stopTimeIndex);
   }
 
+  /**
+   * Replaces the stop time indices wholesale, so that readers iterating the
+   * previous list are not disturbed.
+   */
+  public void setStopTimeIndices(List<BlockStopTimeIndex> stopTimeIndices) {
+    _stopTimeIndices = stopTimeIndices;
+  }
+
   public List<BlockStopTimeIndex> getStopTimeIndices() {
     if (_stopTimeIndices == null)
       return Collections.emptyList();
@@ -95,6 +103,11 @@ public class StopEntryImpl implements StopEntry, Serializable {
     _frequencyStopTimeIndices.add(stopTimeIndex);
   }
 
+  public void setFrequencyStopTimeIndices(
+      List<FrequencyBlockStopTimeIndex> frequencyStopTimeIndices) {
+    _frequencyStopTimeIndices = frequencyStopTimeIndices;
+  }
+
   public List<FrequencyBlockStopTimeIndex> getFrequencyStopTimeIndices() {
     if (_frequencyStopTimeIndices == null)
       return Collections.emptyList();
@@ -107,6 +120,10 @@ public class StopEntryImpl implements StopEntry, Serializable {
     _stopTripIndices.add(index);
   }
 
+  public void setStopTripIndices(List<BlockStopSequenceIndex> stopTripIndices) {
+    _stopTripIndices = stopTripIndices;
+  }
+
   public List<BlockStopSequenceIndex> getStopTripIndices() {
     if (_stopTripIndices == null)
       return Collections.emptyList();
@@ -119,6 +136,11 @@ public class StopEntryImpl implements StopEntry, Serializable {
     _frequencyStopTripIndices.add(index);
   }
 
+  public void setFrequencyStopTripIndices(
+      List<FrequencyStopTripIndex> frequencyStopTripIndices) {
+    _frequencyStopTripIndices = frequencyStopTripIndices;
+  }
+
   public List<FrequencyStopTripIndex> getFrequencyStopTripIndices() {
     if (_frequencyStopTripIndices == null)
       return Collections.emptyList();
@@ -59,6 +59,8 @@ public class StopTimeEntriesFactory {
   // OBA doesn't support time points very well -- so optionally remove them
   private boolean removeTimePoints = !DEFAULT_TIMEPOINT_SUPPORT;
 
+  private boolean _compactStopTimes = true;
+
   /**
    * set true if system should try to correct small errors in arrival/departure times
    * @param isLenient
@@ -68,7 +70,18 @@ public class StopTimeEntriesFactory {
     isLenientArrivalDepartureTimes = isLenient;
   }
 
-  
+  /**
+   * When true (the default), the stop times for each trip are returned as a
+   * {@link CompactStopTimeList}, storing each field in a primitive array
+   * instead of allocating a {@link StopTimeEntryImpl} per stop time.
+   * 
+   * @param compactStopTimes
+   */
+  @ConfigurationParameter
+  public void setCompactStopTimes(boolean compactStopTimes) {
+    _compactStopTimes = compactStopTimes;
+  }
+
   @Autowired
   public void setDistanceAlongShapeLibrary(
       DistanceAlongShapeLibrary distanceAlongShapeLibrary) {
@@ -123,6 +136,9 @@ public class StopTimeEntriesFactory {
     removeDuplicateStopTimes(stopTimes);
     ensureStopTimesHaveTimesSet(stopTimes, stopTimeEntries);
 
+    if (_compactStopTimes)
+      return CompactStopTimeList.copyOf(tripEntry, stopTimeEntries);
+
     return stopTimeEntries;
   }
 
@@ -0,0 +1,434 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.transit_graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.gtfs.model.calendar.LocalizedServiceId;
+import org.onebusaway.realtime.api.OccupancyStatus;
+import org.onebusaway.transit_data.model.EAccessibility;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockConfigurationEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.FrequencyEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.RouteCollectionEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.RouteEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.ServiceIdActivation;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.TripEntry;
+
+/**
+ * Reads a {@link TransitGraphImpl} written by {@link TransitGraphBinaryWriter}.
+ *
+ * The file is memory-mapped and entities are decoded straight from the
+ * mapping, so there is no intermediate stream buffer, no reflection and no
+ * object handle table holding every entry alive while the graph is read. A
+ * single mapping can't exceed 2 GB, so the file is mapped in chunks and a
+ * value that straddles two chunks is assembled byte by byte.
+ *
+ * This is a faster way to load the graph, not a smaller one: every entity is
+ * decoded eagerly onto the heap, just as with the serialized graph, and the
+ * mapping is not used once {@link #read()} returns.
+ */
+public class TransitGraphBinaryReader {
+
+  private static final EAccessibility[] ACCESSIBILITY_VALUES = EAccessibility.values();
+
+  private static final OccupancyStatus[] OCCUPANCY_VALUES = OccupancyStatus.values();
+
+  /**
+   * The largest chunk of the file mapped at once
+   */
+  static final int MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+
+  private final ByteBuffer[] _chunks;
+
+  private final long _chunkSize;
+
+  private final long _size;
+
+  private int _chunk = 0;
+
+  private String[] _strings;
+
+  private final Map<String, TimeZone> _timeZones = new HashMap<String, TimeZone>();
+
+  private final Map<String, AgencyAndId> _ids = new HashMap<String, AgencyAndId>();
+
+  private StopEntryImpl[] _stops;
+
+  private RouteCollectionEntryImpl[] _routeCollections;
+
+  private RouteEntryImpl[] _routes;
+
+  private BlockEntryImpl[] _blocks;
+
+  private TripEntryImpl[] _trips;
+
+  public static TransitGraphImpl read(File path) throws IOException {
+    return read(path, MAX_CHUNK_SIZE);
+  }
+
+  static TransitGraphImpl read(File path, int chunkSize) throws IOException {
+    try (FileChannel channel = FileChannel.open(path.toPath(),
+        StandardOpenOption.READ)) {
+      long size = channel.size();
+      ByteBuffer[] chunks = new ByteBuffer[(int) Math.max(
+          (size + chunkSize - 1) / chunkSize, 1)];
+      for (int i = 0; i < chunks.length; i++) {
+        long position = (long) i * chunkSize;
+        chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+            Math.min(chunkSize, size - position));
+      }
+      return new TransitGraphBinaryReader(chunks, chunkSize).read();
+    }
+  }
+
+  public TransitGraphBinaryReader(ByteBuffer buffer) {
+    this(new ByteBuffer[] {buffer}, Math.max(buffer.limit(), 1));
+  }
+
+  /**
+   * @param chunks consecutive pieces of the file, each but the last exactly
+   *          chunkSize bytes long
+   * @param chunkSize
+   */
+  TransitGraphBinaryReader(ByteBuffer[] chunks, long chunkSize) {
+    _chunks = chunks;
+    _chunkSize = chunkSize;
+    long size = 0;
+    for (ByteBuffer chunk : chunks)
+      size += chunk.limit();
+    _size = size;
+  }
+
+  public TransitGraphImpl read() throws IOException {
+
+    if (_size < 8 + TransitGraphBinaryWriter.TRAILER_SIZE
+        || getInt() != TransitGraphBinaryWriter.MAGIC)
+      throw new IOException("not a binary transit graph");
+    int version = getInt();
+    if (version != TransitGraphBinaryWriter.VERSION)
+      throw new IOException("unsupported binary transit graph version: "
+          + version);
+    long bodyOffset = position();
+
+    seek(_size - TransitGraphBinaryWriter.TRAILER_SIZE);
+    long stringsOffset = getLong();
+    if (getInt() != TransitGraphBinaryWriter.MAGIC || stringsOffset < bodyOffset
+        || stringsOffset > _size - TransitGraphBinaryWriter.TRAILER_SIZE)
+      throw new IOException("truncated binary transit graph");
+
+    seek(stringsOffset);
+    _strings = new String[getInt()];
+    for (int i = 0; i < _strings.length; i++) {
+      byte[] utf8 = new byte[getInt()];
+      get(utf8);
+      _strings[i] = new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    seek(bodyOffset);
+
+    TransitGraphImpl graph = new TransitGraphImpl();
+
+    _stops = new StopEntryImpl[getInt()];
+    for (int i = 0; i < _stops.length; i++) {
+      AgencyAndId id = readId();
+      double lat = getDouble();
+      double lon = getDouble();
+      AgencyAndId parent = readOptionalId();
+      StopEntryImpl stop = new StopEntryImpl(id, lat, lon, parent);
+      stop.setWheelchairBoarding(ACCESSIBILITY_VALUES[get()]);
+      _stops[i] = stop;
+      graph.putStopEntry(stop);
+    }
+
+    _routeCollections = new RouteCollectionEntryImpl[getInt()];
+    for (int i = 0; i < _routeCollections.length; i++) {
+      RouteCollectionEntryImpl routeCollection = new RouteCollectionEntryImpl();
+      routeCollection.setId(readId());
+      _routeCollections[i] = routeCollection;
+      graph.putRouteCollectionEntry(routeCollection);
+    }
+
+    _routes = new RouteEntryImpl[getInt()];
+    for (int i = 0; i < _routes.length; i++) {
+      RouteEntryImpl route = new RouteEntryImpl();
+      route.setId(readId());
+      route.setType(getInt());
+      route.setParent(get(_routeCollections, getInt()));
+      _routes[i] = route;
+      graph.putRouteEntry(route);
+    }
+
+    _blocks = new BlockEntryImpl[getInt()];
+    for (int i = 0; i < _blocks.length; i++) {
+      BlockEntryImpl block = new BlockEntryImpl();
+      block.setId(readId());
+      _blocks[i] = block;
+      graph.putBlockEntry(block);
+    }
+
+    _trips = new TripEntryImpl[getInt()];
+    for (int i = 0; i < _trips.length; i++) {
+      TripEntryImpl trip = readTrip();
+      _trips[i] = trip;
+      graph.putTripEntry(trip);
+    }
+
+    for (RouteEntryImpl route : _routes)
+      route.setTrips(this.<TripEntry> readReferences(_trips));
+
+    for (RouteCollectionEntryImpl routeCollection : _routeCollections)
+      routeCollection.setChildren(this.<RouteEntry> readReferences(_routes));
+
+    for (BlockEntryImpl block : _blocks) {
+      int n = getInt();
+      if (n == -1)
+        continue;
+      List<BlockConfigurationEntry> configurations = new ArrayList<BlockConfigurationEntry>(
+          n);
+      for (int i = 0; i < n; i++)
+        configurations.add(readBlockConfiguration(block));
+      block.setConfigurations(configurations);
+    }
+
+    int agencyCount = getInt();
+    for (int i = 0; i < agencyCount; i++) {
+      AgencyEntryImpl agency = new AgencyEntryImpl();
+      agency.setId(_strings[getInt()]);
+      agency.setStops(this.<StopEntry> readReferences(_stops));
+      agency.setRouteCollections(this.<RouteCollectionEntry> readReferences(_routeCollections));
+      graph.putAgencyEntry(agency);
+    }
+
+    return graph;
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private TripEntryImpl readTrip() {
+    TripEntryImpl trip = new TripEntryImpl();
+    trip.setId(readId());
+    trip.setRoute(get(_routes, getInt()));
+    trip.setDirectionId(readString());
+    trip.setBlock(get(_blocks, getInt()));
+    trip.setServiceId(readServiceId());
+    trip.setShapeId(readOptionalId());
+    trip.setTotalTripDistance(getDouble());
+    if (get() != 0)
+      trip.setFrequencyLabel(readFrequency());
+
+    int n = getInt();
+    if (n == -1)
+      return trip;
+
+    // stop times land directly in columnar storage, via one reused scratch entry
+    CompactStopTimeList stopTimes = new CompactStopTimeList(n);
+    stopTimes.setTrip(trip);
+    StopTimeEntryImpl stopTime = new StopTimeEntryImpl();
+    for (int i = 0; i < n; i++) {
+      stopTime.setId(getInt());
+      stopTime.setArrivalTime(getInt());
+      stopTime.setDepartureTime(getInt());
+      byte occupancy = get();
+      stopTime.setHistoricalOccupancy(occupancy >= 0
+          ? OCCUPANCY_VALUES[occupancy] : null);
+      stopTime.setSequence(getInt());
+      stopTime.setGtfsSequence(getInt());
+      stopTime.setDropOffType(getInt());
+      stopTime.setPickupType(getInt());
+      stopTime.setShapePointIndex(getInt());
+      stopTime.setShapeDistTraveled(getDouble());
+      stopTime.setAccumulatedSlackTime(getInt());
+      stopTimes.setTotalStopsInTrip(getInt());
+      stopTime.setStop(get(_stops, getInt()));
+      stopTimes.setStopTime(i, stopTime);
+    }
+    trip.setStopTimes(stopTimes);
+    return trip;
+  }
+
+  private BlockConfigurationEntry readBlockConfiguration(BlockEntryImpl block) {
+
+    List<LocalizedServiceId> activeServiceIds = readServiceIds();
+    List<LocalizedServiceId> inactiveServiceIds = readServiceIds();
+
+    int tripCount = getInt();
+    List<TripEntry> trips = new ArrayList<TripEntry>(tripCount);
+    for (int i = 0; i < tripCount; i++)
+      trips.add(get(_trips, getInt()));
+
+    double[] tripGapDistances = new double[tripCount];
+    for (int i = 0; i < tripCount; i++)
+      tripGapDistances[i] = getDouble();
+
+    List<FrequencyEntry> frequencies = null;
+    int frequencyCount = getInt();
+    if (frequencyCount != -1) {
+      frequencies = new ArrayList<FrequencyEntry>(frequencyCount);
+      for (int i = 0; i < frequencyCount; i++)
+        frequencies.add(readFrequency());
+    }
+
+    BlockConfigurationEntryImpl.Builder builder = BlockConfigurationEntryImpl.builder();
+    builder.setBlock(block);
+    builder.setServiceIds(new ServiceIdActivation(activeServiceIds,
+        inactiveServiceIds));
+    builder.setTrips(trips);
+    builder.setFrequencies(frequencies);
+    builder.setTripGapDistances(tripGapDistances);
+    return builder.create();
+  }
+
+  private List<LocalizedServiceId> readServiceIds() {
+    int n = getInt();
+    List<LocalizedServiceId> serviceIds = new ArrayList<LocalizedServiceId>(n);
+    for (int i = 0; i < n; i++)
+      serviceIds.add(readServiceId());
+    return serviceIds;
+  }
+
+  private LocalizedServiceId readServiceId() {
+    if (get() == 0)
+      return null;
+    AgencyAndId id = readId();
+    String timeZoneId = readString();
+    TimeZone timeZone = _timeZones.get(timeZoneId);
+    if (timeZone == null) {
+      timeZone = TimeZone.getTimeZone(timeZoneId);
+      _timeZones.put(timeZoneId, timeZone);
+    }
+    return new LocalizedServiceId(id, timeZone);
+  }
+
+  private FrequencyEntry readFrequency() {
+    int startTime = getInt();
+    int endTime = getInt();
+    int headwaySecs = getInt();
+    int exactTimes = getInt();
+    return new FrequencyEntryImpl(startTime, endTime, headwaySecs, exactTimes);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> List<T> readReferences(Object[] entries) {
+    int n = getInt();
+    if (n == -1)
+      return null;
+    ArrayList<T> references = new ArrayList<T>(n);
+    for (int i = 0; i < n; i++)
+      references.add((T) get(entries, getInt()));
+    return references;
+  }
+
+  private AgencyAndId readId() {
+    String agencyId = _strings[getInt()];
+    String id = _strings[getInt()];
+    // ids such as service ids repeat across many entries, so share them
+    String key = agencyId + '\u0000' + id;
+    AgencyAndId aid = _ids.get(key);
+    if (aid == null) {
+      aid = new AgencyAndId(agencyId, id);
+      _ids.put(key, aid);
+    }
+    return aid;
+  }
+
+  private AgencyAndId readOptionalId() {
+    if (get() == 0)
+      return null;
+    return readId();
+  }
+
+  private String readString() {
+    int index = getInt();
+    return index == -1 ? null : _strings[index];
+  }
+
+  private static <T> T get(T[] entries, int index) {
+    return index == -1 ? null : entries[index];
+  }
+
+  /****
+   * Chunked Buffer Access
+   ****/
+
+  private long position() {
+    return _chunk * _chunkSize + _chunks[_chunk].position();
+  }
+
+  private void seek(long position) {
+    _chunk = (int) Math.min(position / _chunkSize, _chunks.length - 1);
+    _chunks[_chunk].position((int) (position - _chunk * _chunkSize));
+    for (int i = _chunk + 1; i < _chunks.length; i++)
+      _chunks[i].position(0);
+  }
+
+  private ByteBuffer current() {
+    ByteBuffer buffer = _chunks[_chunk];
+    while (!buffer.hasRemaining()) {
+      if (_chunk + 1 == _chunks.length)
+        throw new BufferUnderflowException();
+      buffer = _chunks[++_chunk];
+    }
+    return buffer;
+  }
+
+  private byte get() {
+    return current().get();
+  }
+
+  private void get(byte[] dst) {
+    int offset = 0;
+    while (offset < dst.length) {
+      ByteBuffer buffer = current();
+      int n = Math.min(buffer.remaining(), dst.length - offset);
+      buffer.get(dst, offset, n);
+      offset += n;
+    }
+  }
+
+  private int getInt() {
+    ByteBuffer buffer = current();
+    if (buffer.remaining() >= 4)
+      return buffer.getInt();
+    return (get() & 0xff) << 24 | (get() & 0xff) << 16 | (get() & 0xff) << 8
+        | (get() & 0xff);
+  }
+
+  private long getLong() {
+    ByteBuffer buffer = current();
+    if (buffer.remaining() >= 8)
+      return buffer.getLong();
+    return ((long) getInt() << 32) | (getInt() & 0xffffffffL);
+  }
+
+  private double getDouble() {
+    return Double.longBitsToDouble(getLong());
+  }
+}
@@ -0,0 +1,386 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.transit_graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.gtfs.model.calendar.LocalizedServiceId;
+import org.onebusaway.transit_data_federation.services.transit_graph.AgencyEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockConfigurationEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockTripEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.FrequencyEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.RouteCollectionEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.RouteEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopTimeEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.TripEntry;
+
+/**
+ * Writes a {@link TransitGraphImpl} in the compact binary bundle format read
+ * back by {@link TransitGraphBinaryReader}.
+ *
+ * Unlike Java serialization, the format carries no class descriptors or
+ * object handles: every string (ids, direction ids, time zones) is written
+ * once to a string table, and entities reference each other by their index in
+ * the graph's entity lists. All values are big-endian. The sections, in
+ * order, are:
+ *
+ * <pre>
+ * header       magic, version
+ * stops        count, (id, lat, lon, parent?, wheelchairBoarding)*
+ * collections  count, (id)*
+ * routes       count, (id, type, parent collection)*
+ * blocks       count, (id)*
+ * trips        count, (id, route, direction, block, serviceId, shapeId,
+ *              distance, frequency?, stopTimes)*
+ * route trips  per route: count, trip*
+ * collection routes  per collection: count, route*
+ * block configurations  per block: count, (active serviceIds,
+ *              inactive serviceIds, trip*, trip gap distance*, frequencies?)*
+ * agencies     count, (id, stop*, collection*)*
+ * strings      count, (length, utf-8 bytes)*
+ * trailer      offset of strings (8 bytes), magic
+ * </pre>
+ *
+ * The string table is only complete once every entity has been written, so it
+ * goes after them and is found through the fixed-size trailer. That lets the
+ * graph be streamed straight to the file, whatever its size. Indices of -1
+ * stand for null references.
+ */
+public class TransitGraphBinaryWriter {
+
+  static final int MAGIC = 0x4F424754; // "OBGT"
+
+  static final int VERSION = 2;
+
+  /**
+   * The size of the trailer at the end of the file, in bytes
+   */
+  static final int TRAILER_SIZE = 12;
+
+  private final Map<String, Integer> _stringIndices = new HashMap<String, Integer>();
+
+  private final List<String> _strings = new ArrayList<String>();
+
+  private final Map<Object, Integer> _stopIndices = new IdentityHashMap<Object, Integer>();
+
+  private final Map<Object, Integer> _routeCollectionIndices = new IdentityHashMap<Object, Integer>();
+
+  private final Map<Object, Integer> _routeIndices = new IdentityHashMap<Object, Integer>();
+
+  private final Map<Object, Integer> _blockIndices = new IdentityHashMap<Object, Integer>();
+
+  private final Map<Object, Integer> _tripIndices = new IdentityHashMap<Object, Integer>();
+
+  public static void write(TransitGraphImpl graph, File path)
+      throws IOException {
+    OutputStream out = new BufferedOutputStream(new FileOutputStream(path));
+    try {
+      new TransitGraphBinaryWriter().write(graph, out);
+    } finally {
+      out.close();
+    }
+  }
+
+  public void write(TransitGraphImpl graph, OutputStream outputStream)
+      throws IOException {
+
+    List<AgencyEntry> agencies = graph.getAllAgencies();
+    List<StopEntryImpl> stops = graph.getStops();
+    List<RouteCollectionEntry> routeCollections = graph.getAllRouteCollections();
+    List<RouteEntryImpl> routes = graph.getRoutes();
+    List<BlockEntryImpl> blocks = graph.getBlocks();
+    List<TripEntryImpl> trips = graph.getTrips();
+
+    index(stops, _stopIndices);
+    index(routeCollections, _routeCollectionIndices);
+    index(routes, _routeIndices);
+    index(blocks, _blockIndices);
+    index(trips, _tripIndices);
+
+    CountingOutputStream counter = new CountingOutputStream(outputStream);
+    DataOutputStream body = new DataOutputStream(counter);
+    body.writeInt(MAGIC);
+    body.writeInt(VERSION);
+
+    body.writeInt(stops.size());
+    for (StopEntryImpl stop : stops) {
+      writeId(body, stop.getId());
+      body.writeDouble(stop.getStopLat());
+      body.writeDouble(stop.getStopLon());
+      writeOptionalId(body, stop.getParent());
+      body.writeByte(stop.getWheelchairBoarding().ordinal());
+    }
+
+    body.writeInt(routeCollections.size());
+    for (RouteCollectionEntry routeCollection : routeCollections)
+      writeId(body, routeCollection.getId());
+
+    body.writeInt(routes.size());
+    for (RouteEntryImpl route : routes) {
+      writeId(body, route.getId());
+      body.writeInt(route.getType());
+      body.writeInt(indexOf(_routeCollectionIndices, route.getParent()));
+    }
+
+    body.writeInt(blocks.size());
+    for (BlockEntryImpl block : blocks)
+      writeId(body, block.getId());
+
+    body.writeInt(trips.size());
+    for (TripEntryImpl trip : trips)
+      writeTrip(body, trip);
+
+    for (RouteEntryImpl route : routes)
+      writeReferences(body, route.getTrips(), _tripIndices);
+
+    for (RouteCollectionEntry routeCollection : routeCollections)
+      writeReferences(body, routeCollection.getChildren(), _routeIndices);
+
+    for (BlockEntryImpl block : blocks) {
+      List<BlockConfigurationEntry> configurations = block.getConfigurations();
+      if (configurations == null) {
+        body.writeInt(-1);
+        continue;
+      }
+      body.writeInt(configurations.size());
+      for (BlockConfigurationEntry configuration : configurations)
+        writeBlockConfiguration(body, configuration);
+    }
+
+    body.writeInt(agencies.size());
+    for (AgencyEntry agency : agencies) {
+      body.writeInt(stringIndex(agency.getId()));
+      writeReferences(body, agency.getStops(), _stopIndices);
+      writeReferences(body, agency.getRouteCollections(),
+          _routeCollectionIndices);
+    }
+
+    body.flush();
+    long stringsOffset = counter.getCount();
+
+    body.writeInt(_strings.size());
+    for (String value : _strings) {
+      byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+      body.writeInt(utf8.length);
+      body.write(utf8);
+    }
+
+    body.writeLong(stringsOffset);
+    body.writeInt(MAGIC);
+    body.flush();
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private void writeTrip(DataOutputStream out, TripEntryImpl trip)
+      throws IOException {
+    writeId(out, trip.getId());
+    out.writeInt(indexOf(_routeIndices, trip.getRoute()));
+    out.writeInt(stringIndex(trip.getDirectionId()));
+    out.writeInt(indexOf(_blockIndices, trip.getBlock()));
+    writeServiceId(out, trip.getServiceId());
+    writeOptionalId(out, trip.getShapeId());
+    out.writeDouble(trip.getTotalTripDistance());
+
+    FrequencyEntry frequency = trip.getFrequencyLabel();
+    out.writeBoolean(frequency != null);
+    if (frequency != null)
+      writeFrequency(out, frequency);
+
+    List<StopTimeEntry> stopTimes = trip.getStopTimes();
+    if (stopTimes == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(stopTimes.size());
+    for (StopTimeEntry stopTime : stopTimes) {
+      if (stopTime.getTrip() != trip)
+        throw new IllegalStateException("stop time " + stopTime.getId()
+            + " does not belong to trip " + trip.getId());
+      out.writeInt(stopTime.getId());
+      out.writeInt(stopTime.getArrivalTime());
+      out.writeInt(stopTime.getDepartureTime());
+      out.writeByte(stopTime.getHistoricalOccupancy() == null ? -1
+          : stopTime.getHistoricalOccupancy().ordinal());
+      out.writeInt(stopTime.getSequence());
+      out.writeInt(stopTime.getGtfsSequence());
+      out.writeInt(stopTime.getDropOffType());
+      out.writeInt(stopTime.getPickupType());
+      out.writeInt(stopTime.getShapePointIndex());
+      out.writeDouble(stopTime.getShapeDistTraveled());
+      out.writeInt(stopTime.getAccumulatedSlackTime());
+      out.writeInt(stopTime.getTotalStopsInTrip());
+      out.writeInt(indexOf(_stopIndices, stopTime.getStop()));
+    }
+  }
+
+  private void writeBlockConfiguration(DataOutputStream out,
+      BlockConfigurationEntry configuration) throws IOException {
+
+    writeServiceIds(out, configuration.getServiceIds().getActiveServiceIds());
+    writeServiceIds(out, configuration.getServiceIds().getInactiveServiceIds());
+
+    List<BlockTripEntry> blockTrips = configuration.getTrips();
+    out.writeInt(blockTrips.size());
+    for (BlockTripEntry blockTrip : blockTrips)
+      out.writeInt(indexOf(_tripIndices, blockTrip.getTrip()));
+
+    /**
+     * The configuration only keeps accumulated distances, so recover the gap
+     * between each trip and the next one to feed back through the builder
+     */
+    for (int i = 0; i < blockTrips.size(); i++) {
+      BlockTripEntry blockTrip = blockTrips.get(i);
+      double next = i + 1 < blockTrips.size()
+          ? blockTrips.get(i + 1).getDistanceAlongBlock()
+          : configuration.getTotalBlockDistance();
+      out.writeDouble(next - blockTrip.getDistanceAlongBlock()
+          - blockTrip.getTrip().getTotalTripDistance());
+    }
+
+    List<FrequencyEntry> frequencies = configuration.getFrequencies();
+    if (frequencies == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(frequencies.size());
+    for (FrequencyEntry frequency : frequencies)
+      writeFrequency(out, frequency);
+  }
+
+  private void writeServiceIds(DataOutputStream out,
+      List<LocalizedServiceId> serviceIds) throws IOException {
+    out.writeInt(serviceIds.size());
+    for (LocalizedServiceId serviceId : serviceIds)
+      writeServiceId(out, serviceId);
+  }
+
+  private void writeServiceId(DataOutputStream out, LocalizedServiceId serviceId)
+      throws IOException {
+    out.writeBoolean(serviceId != null);
+    if (serviceId == null)
+      return;
+    writeId(out, serviceId.getId());
+    out.writeInt(stringIndex(serviceId.getTimeZone().getID()));
+  }
+
+  private void writeFrequency(DataOutputStream out, FrequencyEntry frequency)
+      throws IOException {
+    out.writeInt(frequency.getStartTime());
+    out.writeInt(frequency.getEndTime());
+    out.writeInt(frequency.getHeadwaySecs());
+    out.writeInt(frequency.getExactTimes());
+  }
+
+  private void writeReferences(DataOutputStream out, List<?> entries,
+      Map<Object, Integer> indices) throws IOException {
+    if (entries == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(entries.size());
+    for (Object entry : entries)
+      out.writeInt(indexOf(indices, entry));
+  }
+
+  private void writeId(DataOutputStream out, AgencyAndId id)
+      throws IOException {
+    out.writeInt(stringIndex(id.getAgencyId()));
+    out.writeInt(stringIndex(id.getId()));
+  }
+
+  private void writeOptionalId(DataOutputStream out, AgencyAndId id)
+      throws IOException {
+    out.writeBoolean(id != null);
+    if (id != null)
+      writeId(out, id);
+  }
+
+  private int stringIndex(String value) {
+    if (value == null)
+      return -1;
+    Integer index = _stringIndices.get(value);
+    if (index == null) {
+      index = _strings.size();
+      _strings.add(value);
+      _stringIndices.put(value, index);
+    }
+    return index;
+  }
+
+  private static int indexOf(Map<Object, Integer> indices, Object entry) {
+    if (entry == null)
+      return -1;
+    Integer index = indices.get(entry);
+    if (index == null)
+      throw new IllegalStateException("entry not in transit graph: " + entry);
+    return index;
+  }
+
+  private static void index(List<?> entries, Map<Object, Integer> indices) {
+    for (int i = 0; i < entries.size(); i++)
+      indices.put(entries.get(i), i);
+  }
+
+  /****
+   *
+   ****/
+
+  /**
+   * Counts the bytes written through it, past the 2 GB that
+   * {@link DataOutputStream#size()} can count to
+   */
+  private static class CountingOutputStream extends FilterOutputStream {
+
+    private long _count = 0;
+
+    public CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    public long getCount() {
+      return _count;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      _count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      _count += len;
+    }
+  }
+}
@@ -27,6 +27,8 @@ import org.onebusaway.exceptions.NoSuchStopServiceException;
 import org.onebusaway.geospatial.model.CoordinateBounds;
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.transit_data_federation.impl.RefreshableResources;
+import org.onebusaway.transit_data_federation.impl.bundle.BundleDeltaLibrary;
+import org.onebusaway.transit_data_federation.model.bundle.BundleDelta;
 import org.onebusaway.transit_data_federation.model.transit_graph.DynamicGraph;
 import org.onebusaway.util.AgencyAndIdLibrary;
 import org.onebusaway.transit_data_federation.services.FederatedTransitDataBundle;
@@ -50,10 +52,12 @@ public class TransitGraphDaoImpl implements TransitGraphDao {
   private static final Logger _log = LoggerFactory.getLogger(TransitGraphDaoImpl.class);
   private FederatedTransitDataBundle _bundle;
 
-  private TransitGraph _graph;
+  private volatile TransitGraph _graph;
 
   private DynamicGraph _dynamicGraph;
 
+  private boolean _binaryGraph = false;
+
   @Autowired
   public void setBundle(FederatedTransitDataBundle bundle) {
     _bundle = bundle;
@@ -67,13 +71,90 @@ public class TransitGraphDaoImpl implements TransitGraphDao {
     _graph = graph;
   }
 
+  /**
+   * Load the graph from the binary bundle format written by
+   * {@link TransitGraphBinaryWriter} instead of the serialized graph.  It loads
+   * faster, but the graph takes the same heap once loaded.  Falls back to the
+   * serialized graph if the bundle does not contain one or it can't be read.
+   * Enable with a property override such as
+   * {@code transitGraphDaoImpl.binaryGraph}.
+   */
+  public void setBinaryGraph(boolean binaryGraph) {
+    _binaryGraph = binaryGraph;
+  }
+
   @PostConstruct
   @Refreshable(dependsOn = RefreshableResources.TRANSIT_GRAPH)
   public void setup() throws IOException, ClassNotFoundException {
+    TransitGraphImpl newGraph = loadGraph();
+
+    TransitGraphImpl oldGraph = (TransitGraphImpl) _graph;
+    _graph = newGraph;
+
+    if(oldGraph != null) {
+      oldGraph.empty();
+      oldGraph = null;
+    }
+  }
+
+  /**
+   * Patch the running graph up to the graph at the current bundle path rather
+   * than reloading it, so that stops, trips and blocks untouched by the delta
+   * keep their identity.  The patched graph is built alongside the running one
+   * and then published in its place, so readers never see it half patched.
+   * The running graph must be the one the delta was computed from.
+   * 
+   * @param delta the difference between the running graph and the graph at
+   *          the current bundle path
+   * @throws IllegalStateException if the running graph is not the delta's base
+   */
+  public void applyDelta(BundleDelta delta) throws IOException,
+      ClassNotFoundException {
+
+    TransitGraphImpl graph = (TransitGraphImpl) _graph;
+    long fingerprint = BundleDeltaLibrary.getFingerprint(graph);
+    if (fingerprint != delta.getBaseFingerprint())
+      throw new IllegalStateException("running graph fingerprint "
+          + fingerprint + " does not match delta base fingerprint "
+          + delta.getBaseFingerprint());
+
+    long start = System.currentTimeMillis();
+    TransitGraphImpl target = loadGraph();
+    _graph = graph.applyDelta(target, delta);
+    // the old graph shares its entries with the new one, so it is not emptied
+    target.empty();
+    _log.info("Transit Graph delta {} applied in {}ms", delta,
+        System.currentTimeMillis() - start);
+  }
+
+  private TransitGraphImpl loadGraph() throws IOException,
+      ClassNotFoundException {
     TransitGraphImpl newGraph = null;
 
     File path = _bundle.getTransitGraphPath();
+    File binaryPath = _bundle.getTransitGraphBinaryPath();
+    if (_binaryGraph && binaryPath.exists()) {
+      long start = System.currentTimeMillis();
+      try {
+        newGraph = TransitGraphBinaryReader.read(binaryPath);
+      } catch (IOException | RuntimeException ex) {
+        if (!path.exists())
+          throw ex;
+        // e.g. a graph written in an older version of the format
+        _log.warn("error reading binary transit graph at " + binaryPath
+            + ", reading serialized graph", ex);
+      }
+      if (newGraph != null) {
+        long delta = System.currentTimeMillis() - start;
+        _log.info("Binary Transit Graph load in {}ms", delta);
+        newGraph.initialize();
+        return newGraph;
+      }
+    }
+
     if (path.exists()) {
+      if (_binaryGraph && !binaryPath.exists())
+        _log.warn("no binary transit graph at {}, reading serialized graph", binaryPath);
       long start = System.currentTimeMillis();
       newGraph = ObjectSerializationLibrary.readObject(path);
       long delta = System.currentTimeMillis() - start;
@@ -82,14 +163,7 @@ public class TransitGraphDaoImpl implements TransitGraphDao {
     } else {
       newGraph = new TransitGraphImpl();
     }
-
-    TransitGraphImpl oldGraph = (TransitGraphImpl) _graph;
-    _graph = newGraph;
-
-    if(oldGraph != null) {
-      oldGraph.empty();
-      oldGraph = null;
-    }
+    return newGraph;
   }
 
   /****
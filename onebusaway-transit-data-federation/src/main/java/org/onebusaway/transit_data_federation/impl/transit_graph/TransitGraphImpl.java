@@ -22,20 +22,26 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.onebusaway.collections.adapter.IAdapter;
 import org.onebusaway.collections.adapter.ListAdapter;
 import org.onebusaway.geospatial.model.CoordinateBounds;
 import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.transit_data_federation.model.bundle.BundleDelta;
 import org.onebusaway.transit_data_federation.services.serialization.EntryCallback;
 import org.onebusaway.transit_data_federation.services.serialization.EntryIdAndCallback;
 import org.onebusaway.transit_data_federation.services.transit_graph.AgencyEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockConfigurationEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.BlockEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockTripEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.RouteCollectionEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.RouteEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.StopEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopTimeEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.TripEntry;
 import org.onebusaway.transit_data_federation.model.transit_graph.TransitGraph;
 import org.slf4j.Logger;
@@ -122,18 +128,7 @@ public class TransitGraphImpl implements Serializable, TransitGraph {
         _log.warn("no stops found for graph");
 
       } else {
-
-        _stopLocationTree = new STRtree(_stops.size());
-
-        for (int i = 0; i < _stops.size(); i++) {
-          StopEntry stop = _stops.get(i);
-          double x = stop.getStopLon();
-          double y = stop.getStopLat();
-          Envelope r = new Envelope(x, x, y, y);
-          _stopLocationTree.insert(r, stop);
-        }
-
-        _stopLocationTree.build();
+        buildStopLocationTree();
       }
 
       System.out.println("  stops=" + _stops.size());
@@ -178,6 +173,137 @@ public class TransitGraphImpl implements Serializable, TransitGraph {
     initialize();
   }
 
+  /**
+   * Build the graph the delta leads to from this graph and a newer one,
+   * replacing only the stops, trips and blocks named in the delta. Entries the
+   * delta does not mention keep their identity, so anything holding on to them
+   * (realtime block instances, for example) remains valid.
+   * 
+   * This graph is left as it is, so readers may keep using it until the
+   * returned graph is published in its place. Entries adopted from the target
+   * graph are relinked to the shared routes, stops and blocks while still
+   * private to the new graph. Only once everything is built are the links held
+   * by shared entries (route trip lists, agency stop lists and the blocks of
+   * unchanged trips) moved over, each with a single reference write.
+   * 
+   * @param target the fully loaded graph the delta was computed against; its
+   *          adopted entries are modified, so it should be discarded afterwards
+   * @param delta
+   * @return the patched graph
+   */
+  public TransitGraphImpl applyDelta(TransitGraphImpl target, BundleDelta delta) {
+
+    if (delta.isFullReloadRequired())
+      throw new IllegalArgumentException("delta requires a full reload");
+
+    // Stops
+    List<StopEntryImpl> stops = patch(_stops, _stopEntriesById,
+        target._stopEntriesById, target._stops, delta.getAddedStopIds(),
+        delta.getRemovedStopIds(), delta.getChangedStopIds());
+    Map<AgencyAndId, StopEntryImpl> stopsById = new HashMap<AgencyAndId, StopEntryImpl>();
+    for (StopEntryImpl stop : stops)
+      stopsById.put(stop.getId(), stop);
+
+    // Trips
+    List<TripEntryImpl> trips = patch(_trips, _tripEntriesById,
+        target._tripEntriesById, target._trips, delta.getAddedTripIds(),
+        delta.getRemovedTripIds(), delta.getChangedTripIds());
+    Map<AgencyAndId, TripEntryImpl> tripsById = new HashMap<AgencyAndId, TripEntryImpl>();
+    for (TripEntryImpl trip : trips)
+      tripsById.put(trip.getId(), trip);
+
+    // Blocks
+    List<BlockEntryImpl> blocks = patch(_blocks, _blockEntriesById,
+        target._blockEntriesById, target._blocks, delta.getAddedBlockIds(),
+        delta.getRemovedBlockIds(), delta.getChangedBlockIds());
+    Map<AgencyAndId, BlockEntryImpl> blocksById = new HashMap<AgencyAndId, BlockEntryImpl>();
+    for (BlockEntryImpl block : blocks)
+      blocksById.put(block.getId(), block);
+
+    // Adopted stops take the index of the stop they replace, or a new one
+    int nextStopIndex = 0;
+    for (StopEntryImpl stop : _stops)
+      nextStopIndex = Math.max(nextStopIndex, stop.getIndex() + 1);
+    for (AgencyAndId stopId : delta.getChangedStopIds())
+      stopsById.get(stopId).setIndex(_stopEntriesById.get(stopId).getIndex());
+    for (AgencyAndId stopId : delta.getAddedStopIds())
+      stopsById.get(stopId).setIndex(nextStopIndex++);
+
+    // Relink adopted trips to this graph's routes and stops
+    for (AgencyAndId tripId : delta.getAddedTripIds())
+      relinkTrip(tripsById.get(tripId), stopsById);
+    for (AgencyAndId tripId : delta.getChangedTripIds())
+      relinkTrip(tripsById.get(tripId), stopsById);
+
+    // Rebuild adopted block configurations over this graph's trips
+    Map<TripEntryImpl, BlockEntryImpl> blocksByTrip = new IdentityHashMap<TripEntryImpl, BlockEntryImpl>();
+    for (AgencyAndId blockId : delta.getAddedBlockIds())
+      relinkBlock(blocksById.get(blockId), tripsById, blocksByTrip);
+    for (AgencyAndId blockId : delta.getChangedBlockIds())
+      relinkBlock(blocksById.get(blockId), tripsById, blocksByTrip);
+
+    // Route trip lists and agency stop lists follow the target graph
+    Map<RouteEntryImpl, List<TripEntry>> tripsByRoute = new IdentityHashMap<RouteEntryImpl, List<TripEntry>>();
+    if (delta.hasTripChanges()) {
+      for (RouteEntryImpl route : _routes) {
+        RouteEntryImpl targetRoute = target.getRouteForId(route.getId());
+        List<TripEntry> routeTrips = new ArrayList<TripEntry>();
+        if (targetRoute != null && targetRoute.getTrips() != null) {
+          for (TripEntry trip : targetRoute.getTrips()) {
+            TripEntryImpl ours = tripsById.get(trip.getId());
+            if (ours != null)
+              routeTrips.add(ours);
+          }
+        }
+        tripsByRoute.put(route, routeTrips);
+      }
+    }
+
+    Map<AgencyEntryImpl, List<StopEntry>> stopsByAgency = new IdentityHashMap<AgencyEntryImpl, List<StopEntry>>();
+    if (delta.hasStopChanges()) {
+      for (AgencyEntryImpl agency : _agencies) {
+        AgencyEntryImpl targetAgency = target.getAgencyForId(agency.getId());
+        List<StopEntry> agencyStops = new ArrayList<StopEntry>();
+        if (targetAgency != null && targetAgency.getStops() != null) {
+          for (StopEntry stop : targetAgency.getStops()) {
+            StopEntryImpl ours = stopsById.get(stop.getId());
+            if (ours != null)
+              agencyStops.add(ours);
+          }
+        }
+        stopsByAgency.put(agency, agencyStops);
+      }
+    }
+
+    TransitGraphImpl graph = new TransitGraphImpl();
+    graph._agencies = _agencies;
+    graph._routeCollections = _routeCollections;
+    graph._routes = _routes;
+    graph._stops = stops;
+    graph._trips = trips;
+    graph._blocks = blocks;
+    graph._agencyEntriesById = _agencyEntriesById;
+    graph._routeCollectionEntriesById = _routeCollectionEntriesById;
+    graph._routeEntriesById = _routeEntriesById;
+    graph._stopEntriesById = stopsById;
+    graph._tripEntriesById = tripsById;
+    graph._blockEntriesById = blocksById;
+    if (delta.hasStopChanges())
+      graph.buildStopLocationTree();
+    else
+      graph._stopLocationTree = _stopLocationTree;
+
+    // Everything private to the new graph is in place; move the shared links
+    for (Map.Entry<TripEntryImpl, BlockEntryImpl> entry : blocksByTrip.entrySet())
+      entry.getKey().setBlock(entry.getValue());
+    for (Map.Entry<RouteEntryImpl, List<TripEntry>> entry : tripsByRoute.entrySet())
+      entry.getKey().setTrips(entry.getValue());
+    for (Map.Entry<AgencyEntryImpl, List<StopEntry>> entry : stopsByAgency.entrySet())
+      entry.getKey().setStops(entry.getValue());
+
+    return graph;
+  }
+
   public void putAgencyEntry(AgencyEntryImpl agencyEntry) {
     _agencies.add(agencyEntry);
   }
@@ -331,6 +457,138 @@ public class TransitGraphImpl implements Serializable, TransitGraph {
     return go.getStops();
   }
 
+  private void buildStopLocationTree() {
+
+    STRtree tree = new STRtree(Math.max(_stops.size(), 2));
+
+    for (int i = 0; i < _stops.size(); i++) {
+      StopEntry stop = _stops.get(i);
+      double x = stop.getStopLon();
+      double y = stop.getStopLat();
+      Envelope r = new Envelope(x, x, y, y);
+      tree.insert(r, stop);
+    }
+
+    tree.build();
+    _stopLocationTree = tree;
+  }
+
+  /**
+   * Apply one kind of change to an entry list: removed entries are dropped,
+   * changed entries are swapped for the target's in place, and added entries
+   * are appended in target order.
+   */
+  private static <T> List<T> patch(List<T> current,
+      Map<AgencyAndId, T> currentById, Map<AgencyAndId, T> targetById,
+      List<T> targetEntries, Set<AgencyAndId> added, Set<AgencyAndId> removed,
+      Set<AgencyAndId> changed) {
+
+    Map<T, AgencyAndId> idsByEntry = getIdsByEntry(currentById);
+
+    List<T> entries = new ArrayList<T>(current.size() + added.size());
+    for (T entry : current) {
+      AgencyAndId id = idsByEntry.get(entry);
+      if (removed.contains(id))
+        continue;
+      if (changed.contains(id)) {
+        T replacement = targetById.get(id);
+        if (replacement == null)
+          throw new IllegalStateException("target graph has no entry for " + id);
+        entries.add(replacement);
+      } else {
+        entries.add(entry);
+      }
+    }
+
+    Map<T, AgencyAndId> targetIdsByEntry = getIdsByEntry(targetById);
+    for (T entry : targetEntries) {
+      if (added.contains(targetIdsByEntry.get(entry)))
+        entries.add(entry);
+    }
+
+    return entries;
+  }
+
+  private static <T> Map<T, AgencyAndId> getIdsByEntry(
+      Map<AgencyAndId, T> entriesById) {
+    Map<T, AgencyAndId> idsByEntry = new IdentityHashMap<T, AgencyAndId>();
+    for (Map.Entry<AgencyAndId, T> entry : entriesById.entrySet())
+      idsByEntry.put(entry.getValue(), entry.getKey());
+    return idsByEntry;
+  }
+
+  private void relinkTrip(TripEntryImpl trip,
+      Map<AgencyAndId, StopEntryImpl> stopsById) {
+
+    if (trip.getRoute() != null)
+      trip.setRoute(getRouteForId(trip.getRoute().getId()));
+
+    List<StopTimeEntry> stopTimes = trip.getStopTimes();
+    if (stopTimes == null)
+      return;
+
+    for (int i = 0; i < stopTimes.size(); i++) {
+      StopTimeEntry stopTime = stopTimes.get(i);
+      AgencyAndId stopId = stopTime.getStop().getId();
+      StopEntryImpl stop = stopsById.get(stopId);
+      if (stop == null)
+        throw new IllegalStateException("no such stop entry: " + stopId);
+      if (stopTimes instanceof CompactStopTimeList)
+        ((CompactStopTimeList) stopTimes).setStop(i, stop);
+      else
+        ((StopTimeEntryImpl) stopTime).setStop(stop);
+    }
+  }
+
+  /**
+   * @param blocksByTrip collects the block each trip of the block should link
+   *          to, for trips that may be shared with a running graph
+   */
+  private void relinkBlock(BlockEntryImpl block,
+      Map<AgencyAndId, TripEntryImpl> tripsById,
+      Map<TripEntryImpl, BlockEntryImpl> blocksByTrip) {
+
+    List<BlockConfigurationEntry> configurations = block.getConfigurations();
+    if (configurations == null)
+      return;
+
+    List<BlockConfigurationEntry> relinked = new ArrayList<BlockConfigurationEntry>(
+        configurations.size());
+
+    for (BlockConfigurationEntry configuration : configurations) {
+
+      List<BlockTripEntry> blockTrips = configuration.getTrips();
+      List<TripEntry> trips = new ArrayList<TripEntry>(blockTrips.size());
+      double[] tripGapDistances = new double[blockTrips.size()];
+
+      for (int i = 0; i < blockTrips.size(); i++) {
+        BlockTripEntry blockTrip = blockTrips.get(i);
+        TripEntryImpl trip = tripsById.get(blockTrip.getTrip().getId());
+        if (trip == null)
+          throw new IllegalStateException("no such trip entry: "
+              + blockTrip.getTrip().getId());
+        blocksByTrip.put(trip, block);
+        trips.add(trip);
+
+        double next = i + 1 < blockTrips.size()
+            ? blockTrips.get(i + 1).getDistanceAlongBlock()
+            : configuration.getTotalBlockDistance();
+        tripGapDistances[i] = next - blockTrip.getDistanceAlongBlock()
+            - blockTrip.getTrip().getTotalTripDistance();
+      }
+
+      BlockConfigurationEntryImpl.Builder builder = BlockConfigurationEntryImpl.builder();
+      builder.setBlock(block);
+      builder.setServiceIds(configuration.getServiceIds());
+      builder.setTrips(trips);
+      builder.setFrequencies(configuration.getFrequencies());
+      builder.setTripGapDistances(tripGapDistances);
+      relinked.add(builder.create());
+    }
+
+    block.setConfigurations(relinked);
+  }
+
   private class StopRTreeVisitor implements ItemVisitor {
 
     private List<StopEntry> _nearbyStops = new ArrayList<StopEntry>();
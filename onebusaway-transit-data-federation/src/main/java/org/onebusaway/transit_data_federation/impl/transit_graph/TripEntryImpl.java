@@ -35,7 +35,7 @@ public class TripEntryImpl implements TripEntry, Serializable {
 
   private String _directionId;
 
-  private BlockEntryImpl _block;
+  private volatile BlockEntryImpl _block;
 
   private LocalizedServiceId _serviceId;
 
@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.model.bundle;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.onebusaway.gtfs.model.AgencyAndId;
+
+/**
+ * The difference between a base bundle and a target bundle, expressed as the
+ * ids of the stops, trips and blocks that were added, removed or changed. A
+ * delta can only be applied to a running graph whose fingerprint matches
+ * {@link #getBaseFingerprint()}.
+ *
+ * Agencies, routes and route collections are not diffed. If any of them differ
+ * between the two bundles, the delta is marked as requiring a full reload.
+ */
+public class BundleDelta implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private long baseFingerprint;
+
+  private long targetFingerprint;
+
+  private boolean fullReloadRequired;
+
+  private Set<AgencyAndId> addedStopIds = new HashSet<AgencyAndId>();
+
+  private Set<AgencyAndId> removedStopIds = new HashSet<AgencyAndId>();
+
+  private Set<AgencyAndId> changedStopIds = new HashSet<AgencyAndId>();
+
+  private Set<AgencyAndId> addedTripIds = new HashSet<AgencyAndId>();
+
+  private Set<AgencyAndId> removedTripIds = new HashSet<AgencyAndId>();
+
+  private Set<AgencyAndId> changedTripIds = new HashSet<AgencyAndId>();
+
+  private Set<AgencyAndId> addedBlockIds = new HashSet<AgencyAndId>();
+
+  private Set<AgencyAndId> removedBlockIds = new HashSet<AgencyAndId>();
+
+  private Set<AgencyAndId> changedBlockIds = new HashSet<AgencyAndId>();
+
+  private Set<AgencyAndId> shapeIds = new HashSet<AgencyAndId>();
+
+  public long getBaseFingerprint() {
+    return baseFingerprint;
+  }
+
+  public void setBaseFingerprint(long baseFingerprint) {
+    this.baseFingerprint = baseFingerprint;
+  }
+
+  public long getTargetFingerprint() {
+    return targetFingerprint;
+  }
+
+  public void setTargetFingerprint(long targetFingerprint) {
+    this.targetFingerprint = targetFingerprint;
+  }
+
+  /**
+   * @return true if the bundles differ in a way the delta cannot express, such
+   *         as an added or removed route
+   */
+  public boolean isFullReloadRequired() {
+    return fullReloadRequired;
+  }
+
+  public void setFullReloadRequired(boolean fullReloadRequired) {
+    this.fullReloadRequired = fullReloadRequired;
+  }
+
+  public Set<AgencyAndId> getAddedStopIds() {
+    return addedStopIds;
+  }
+
+  public Set<AgencyAndId> getRemovedStopIds() {
+    return removedStopIds;
+  }
+
+  public Set<AgencyAndId> getChangedStopIds() {
+    return changedStopIds;
+  }
+
+  public Set<AgencyAndId> getAddedTripIds() {
+    return addedTripIds;
+  }
+
+  public Set<AgencyAndId> getRemovedTripIds() {
+    return removedTripIds;
+  }
+
+  public Set<AgencyAndId> getChangedTripIds() {
+    return changedTripIds;
+  }
+
+  public Set<AgencyAndId> getAddedBlockIds() {
+    return addedBlockIds;
+  }
+
+  public Set<AgencyAndId> getRemovedBlockIds() {
+    return removedBlockIds;
+  }
+
+  public Set<AgencyAndId> getChangedBlockIds() {
+    return changedBlockIds;
+  }
+
+  /**
+   * @return the shape ids referenced by added or changed trips in the target
+   *         bundle
+   */
+  public Set<AgencyAndId> getShapeIds() {
+    return shapeIds;
+  }
+
+  public boolean hasStopChanges() {
+    return !(addedStopIds.isEmpty() && removedStopIds.isEmpty() && changedStopIds.isEmpty());
+  }
+
+  public boolean hasTripChanges() {
+    return !(addedTripIds.isEmpty() && removedTripIds.isEmpty() && changedTripIds.isEmpty());
+  }
+
+  public boolean hasBlockChanges() {
+    return !(addedBlockIds.isEmpty() && removedBlockIds.isEmpty() && changedBlockIds.isEmpty());
+  }
+
+  public boolean isEmpty() {
+    return !(fullReloadRequired || hasStopChanges() || hasTripChanges() || hasBlockChanges());
+  }
+
+  @Override
+  public String toString() {
+    return "BundleDelta(stops=+" + addedStopIds.size() + "/-"
+        + removedStopIds.size() + "/~" + changedStopIds.size() + " trips=+"
+        + addedTripIds.size() + "/-" + removedTripIds.size() + "/~"
+        + changedTripIds.size() + " blocks=+" + addedBlockIds.size() + "/-"
+        + removedBlockIds.size() + "/~" + changedBlockIds.size()
+        + " fullReloadRequired=" + fullReloadRequired + ")";
+  }
+}
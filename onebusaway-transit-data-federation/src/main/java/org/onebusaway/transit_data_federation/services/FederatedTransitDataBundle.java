@@ -60,6 +60,14 @@ public class FederatedTransitDataBundle {
     return new File(_path, "TransitGraph.obj");
   }
 
+  public File getTransitGraphBinaryPath() {
+    return new File(_path, "TransitGraph.bin");
+  }
+
+  public File getBundleDeltaPath() {
+    return new File(_path, "BundleDelta.obj");
+  }
+
   public File getNarrativeProviderPath() {
     return new File(_path, "NarrativeProvider.obj");
   }
@@ -15,6 +15,8 @@
  */
 package org.onebusaway.transit_data_federation.services.blocks;
 
+import java.util.List;
+
 import org.onebusaway.gtfs.model.AgencyAndId;
 import org.onebusaway.realtime.api.VehicleLocationRecord;
 
@@ -22,5 +24,15 @@ public interface BlockVehicleLocationListener {
 
   public void handleVehicleLocationRecord(VehicleLocationRecord record);
 
+  /**
+   * Handle a batch of records, each of which has a block or trip id and a
+   * service date.
+   */
+  public default void handleVehicleLocationRecords(
+      List<VehicleLocationRecord> records) {
+    for (VehicleLocationRecord record : records)
+      handleVehicleLocationRecord(record);
+  }
+
   public void resetVehicleLocation(AgencyAndId vehicleId);
 }
@@ -111,6 +111,8 @@ public class BlockLocation {
   
   private List<TimepointPredictionRecord> timepointPredictions;
 
+  private BlockStopTimePredictions stopTimePredictions;
+
   private List<String> vehicleFeatures;
 
 
@@ -490,6 +492,19 @@ public class BlockLocation {
       this.timepointPredictions = timepointPredictions;
   }
 
+  /**
+   * @return the timepoint predictions resolved against the block, if they
+   *         have been
+   */
+  public BlockStopTimePredictions getStopTimePredictions() {
+    return stopTimePredictions;
+  }
+
+  public void setStopTimePredictions(
+      BlockStopTimePredictions stopTimePredictions) {
+    this.stopTimePredictions = stopTimePredictions;
+  }
+
   public void setVehicleFeatures(List<String> vehicleFeatures) {
     this.vehicleFeatures = vehicleFeatures;
   }
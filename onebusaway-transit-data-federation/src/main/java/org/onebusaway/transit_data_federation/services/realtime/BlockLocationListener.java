@@ -15,6 +15,18 @@
  */
 package org.onebusaway.transit_data_federation.services.realtime;
 
+import java.util.List;
+
 public interface BlockLocationListener {
   public void handleBlockLocation(BlockLocation blockLocation);
+
+  /**
+   * Called once for all the block locations produced by a batch of vehicle
+   * location records. Listeners that can share work across locations should
+   * override this.
+   */
+  public default void handleBlockLocations(List<BlockLocation> blockLocations) {
+    for (BlockLocation blockLocation : blockLocations)
+      handleBlockLocation(blockLocation);
+  }
 }
@@ -0,0 +1,216 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.services.realtime;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.realtime.api.TimepointPredictionRecord;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockConfigurationEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockStopTimeEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockTripEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopTimeEntry;
+
+/**
+ * The predicted arrival and departure time of every stop time in a block,
+ * resolved once from a list of {@link TimepointPredictionRecord} and indexed
+ * by {@link BlockStopTimeEntry#getBlockSequence()}.
+ *
+ * A stop time is matched to a record by trip and stop, and then by GTFS stop
+ * sequence if the record has one, or else by the order of the stop's visits
+ * within the trip. A stop time visited more often than it has records gets no
+ * prediction.
+ */
+public final class BlockStopTimePredictions {
+
+  private final BlockConfigurationEntry block;
+
+  private final List<TimepointPredictionRecord> timepointPredictions;
+
+  private final long[] arrivalTimes;
+
+  private final long[] departureTimes;
+
+  private final boolean[] predicted;
+
+  /**
+   * The last record matched for each stop time, even if it ended up with no
+   * prediction
+   */
+  private final TimepointPredictionRecord[] records;
+
+  private BlockStopTimePredictions(BlockConfigurationEntry block,
+      List<TimepointPredictionRecord> timepointPredictions) {
+    int n = block.getStopTimes().size();
+    this.block = block;
+    this.timepointPredictions = timepointPredictions;
+    this.arrivalTimes = new long[n];
+    this.departureTimes = new long[n];
+    this.predicted = new boolean[n];
+    this.records = new TimepointPredictionRecord[n];
+  }
+
+  /**
+   * @param block
+   * @param timepointPredictions
+   * @return the predictions for every stop time in the block
+   */
+  public static BlockStopTimePredictions create(BlockConfigurationEntry block,
+      List<TimepointPredictionRecord> timepointPredictions) {
+
+    BlockStopTimePredictions predictions = new BlockStopTimePredictions(block,
+        timepointPredictions);
+
+    Map<AgencyAndId, Map<AgencyAndId, List<TimepointPredictionRecord>>> recordsByTripAndStopId = new HashMap<AgencyAndId, Map<AgencyAndId, List<TimepointPredictionRecord>>>();
+    for (TimepointPredictionRecord tpr : timepointPredictions) {
+      if (tpr.getTripId() == null || tpr.getTimepointId() == null)
+        continue;
+      recordsByTripAndStopId.computeIfAbsent(tpr.getTripId(),
+          k -> new HashMap<AgencyAndId, List<TimepointPredictionRecord>>()).computeIfAbsent(
+          tpr.getTimepointId(), k -> new ArrayList<TimepointPredictionRecord>()).add(
+          tpr);
+    }
+
+    for (BlockTripEntry blockTrip : block.getTrips()) {
+      Map<AgencyAndId, List<TimepointPredictionRecord>> recordsByStopId = recordsByTripAndStopId.get(blockTrip.getTrip().getId());
+      if (recordsByStopId == null)
+        continue;
+      List<BlockStopTimeEntry> stopTimes = blockTrip.getStopTimes();
+      for (BlockStopTimeEntry blockStopTime : stopTimes) {
+        List<TimepointPredictionRecord> records = recordsByStopId.get(blockStopTime.getStopTime().getStop().getId());
+        if (records != null)
+          predictions.resolve(blockStopTime, stopTimes, records);
+      }
+    }
+
+    return predictions;
+  }
+
+  public BlockConfigurationEntry getBlock() {
+    return block;
+  }
+
+  /**
+   * @return the records these predictions were resolved from
+   */
+  public List<TimepointPredictionRecord> getTimepointPredictions() {
+    return timepointPredictions;
+  }
+
+  public boolean hasPrediction(int blockSequence) {
+    return predicted[blockSequence];
+  }
+
+  public long getArrivalTime(int blockSequence) {
+    return arrivalTimes[blockSequence];
+  }
+
+  public long getDepartureTime(int blockSequence) {
+    return departureTimes[blockSequence];
+  }
+
+  /**
+   * @param blockSequence
+   * @return the record matched to the stop time, or null if none matched
+   */
+  public TimepointPredictionRecord getRecord(int blockSequence) {
+    return records[blockSequence];
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  /**
+   * @param blockStopTime
+   * @param tripStopTimes the stop times of the trip of blockStopTime
+   * @param stopRecords the records for the trip and stop of blockStopTime, in
+   *          feed order
+   */
+  private void resolve(BlockStopTimeEntry blockStopTime,
+      List<BlockStopTimeEntry> tripStopTimes,
+      List<TimepointPredictionRecord> stopRecords) {
+
+    StopTimeEntry stopTime = blockStopTime.getStopTime();
+    AgencyAndId stopId = stopTime.getStop().getId();
+    int stopSequence = stopTime.getSequence();
+    int gtfsSequence = stopTime.getGtfsSequence();
+    int index = blockStopTime.getBlockSequence();
+
+    int totalCandidates = 0;
+    int thisStopIndex = 0; // index (with respect to stop sequence) among stops
+                           // with the same ID
+    for (BlockStopTimeEntry candidate : tripStopTimes) {
+      StopTimeEntry candidateStopTime = candidate.getStopTime();
+      if (candidateStopTime.getStop().getId().equals(stopId)) {
+        totalCandidates++;
+        if (candidateStopTime.getSequence() < stopSequence)
+          thisStopIndex++;
+      }
+    }
+
+    int tprTotalCandidates = 0;
+    int tprStopIndex = 0;
+    boolean success = false;
+
+    for (TimepointPredictionRecord tpr : stopRecords) {
+
+      boolean sequenceMatches = tpr.getStopSequence() > 0
+          && tpr.getStopSequence() == gtfsSequence;
+
+      if (sequenceMatches || tprStopIndex == thisStopIndex) {
+
+        success = true;
+
+        long arrivalTime = tpr.getTimepointPredictedArrivalTime();
+        long departureTime = tpr.getTimepointPredictedDepartureTime();
+        if (departureTime <= 0)
+          departureTime = arrivalTime + stopTime.getSlackTime() * 1000;
+
+        // if arrivalTime is -1 be polite to clients and serve departureTime
+        if (arrivalTime == -1)
+          arrivalTime = departureTime;
+
+        arrivalTimes[index] = arrivalTime;
+        departureTimes[index] = departureTime;
+        records[index] = tpr;
+
+        if (sequenceMatches) {
+          predicted[index] = true;
+          return;
+        }
+      }
+
+      else if (tprStopIndex < thisStopIndex)
+        tprStopIndex++;
+
+      tprTotalCandidates++;
+    }
+
+    if (success && totalCandidates == tprTotalCandidates
+        && tprStopIndex == thisStopIndex) {
+      predicted[index] = true;
+      return;
+    }
+
+    // we didn't end up finding the proper number of records
+    arrivalTimes[index] = 0;
+    departureTimes[index] = 0;
+  }
+}
@@ -30,12 +30,22 @@ public class VehicleLocationCacheElement {
 
   private final ScheduleDeviationSamples _scheduleDeviations;
 
+  private final BlockStopTimePredictions _stopTimePredictions;
+
   public VehicleLocationCacheElement(VehicleLocationRecord record,
       ScheduledBlockLocation scheduledBlockLocation,
       ScheduleDeviationSamples scheduleDeviations) {
+    this(record, scheduledBlockLocation, scheduleDeviations, null);
+  }
+
+  public VehicleLocationCacheElement(VehicleLocationRecord record,
+      ScheduledBlockLocation scheduledBlockLocation,
+      ScheduleDeviationSamples scheduleDeviations,
+      BlockStopTimePredictions stopTimePredictions) {
     _record = record;
     _scheduledBlockLocation = scheduledBlockLocation;
     _scheduleDeviations = scheduleDeviations;
+    _stopTimePredictions = stopTimePredictions;
   }
 
   public long getMeasuredLastUpdateTime() {
@@ -59,4 +69,13 @@ public class VehicleLocationCacheElement {
   public ScheduleDeviationSamples getScheduleDeviations() {
     return _scheduleDeviations;
   }
+
+  /**
+   * The record's timepoint predictions resolved against the block.
+   * 
+   * @return the predictions, or null if the record has none
+   */
+  public BlockStopTimePredictions getStopTimePredictions() {
+    return _stopTimePredictions;
+  }
 }
\ No newline at end of file
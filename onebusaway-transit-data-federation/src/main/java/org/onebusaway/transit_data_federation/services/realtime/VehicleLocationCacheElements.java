@@ -53,7 +53,19 @@ public class VehicleLocationCacheElements {
   }
 
   public VehicleLocationCacheElements extend(VehicleLocationCacheElement element) {
-    
+    return extend(element, 0);
+  }
+
+  /**
+   * 
+   * @param element
+   * @param maxElements if positive, the oldest elements are dropped so that at
+   *          most this many remain after the new element is added
+   * @return the extended elements
+   */
+  public VehicleLocationCacheElements extend(
+      VehicleLocationCacheElement element, int maxElements) {
+
     if (!_elements.isEmpty()) {
       VehicleLocationCacheElement lastElement = _elements.get(_elements.size() - 1);
       if (lastElement.getRecord().getTimeOfRecord() > element.getRecord().getTimeOfRecord()) {
@@ -63,9 +75,13 @@ public class VehicleLocationCacheElements {
       }
     }
 
+    int from = 0;
+    if (maxElements > 0 && _elements.size() >= maxElements)
+      from = _elements.size() - maxElements + 1;
+
     List<VehicleLocationCacheElement> elements = new ArrayList<VehicleLocationCacheElement>(
-        _elements.size() + 1);
-    elements.addAll(_elements);
+        _elements.size() - from + 1);
+    elements.addAll(_elements.subList(from, _elements.size()));
     elements.add(element);
     return new VehicleLocationCacheElements(_blockInstance, elements);
   }
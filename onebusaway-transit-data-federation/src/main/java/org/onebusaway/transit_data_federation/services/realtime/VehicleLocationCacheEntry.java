@@ -15,6 +15,9 @@
  */
 package org.onebusaway.transit_data_federation.services.realtime;
 
+import java.util.List;
+
+import org.onebusaway.realtime.api.TimepointPredictionRecord;
 import org.onebusaway.realtime.api.VehicleLocationRecord;
 import org.onebusaway.transit_data_federation.services.blocks.BlockInstance;
 import org.onebusaway.transit_data_federation.services.blocks.ScheduledBlockLocation;
@@ -27,6 +30,8 @@ public class VehicleLocationCacheEntry {
 
   private boolean _closed = false;
 
+  private volatile long _evictionBucket = Long.MIN_VALUE;
+
   public VehicleLocationCacheEntry(BlockInstance blockInstance) {
     _blockInstance = blockInstance;
     _elements = new VehicleLocationCacheElements(blockInstance);
@@ -40,6 +45,15 @@ public class VehicleLocationCacheEntry {
     return _closed;
   }
 
+  /**
+   * Close the entry to new elements, so that a record added concurrently with
+   * the entry's removal from the cache is retried against its replacement
+   * rather than lost
+   */
+  public synchronized void close() {
+    _closed = true;
+  }
+
   /**
    * 
    * @param record
@@ -48,17 +62,43 @@ public class VehicleLocationCacheEntry {
    * @return true if the element was successfully added, or false if the entry
    *         is closed to new elements
    */
-  public synchronized boolean addElement(VehicleLocationRecord record,
+  public boolean addElement(VehicleLocationRecord record,
       ScheduledBlockLocation scheduledBlockLocation,
       ScheduleDeviationSamples samples) {
+    return addElement(record, scheduledBlockLocation, samples, 0);
+  }
+
+  /**
+   * 
+   * @param record
+   * @param scheduledBlockLocation
+   * @param samples
+   * @param maxElements if positive, the maximum number of elements retained,
+   *          with the oldest dropped first
+   * @return true if the element was successfully added, or false if the entry
+   *         is closed to new elements
+   */
+  public synchronized boolean addElement(VehicleLocationRecord record,
+      ScheduledBlockLocation scheduledBlockLocation,
+      ScheduleDeviationSamples samples, int maxElements) {
 
     if (_closed)
       return false;
 
+    /**
+     * Resolve timepoint predictions against the block once here, rather than
+     * for every arrival and departure that reads them
+     */
+    BlockStopTimePredictions stopTimePredictions = null;
+    List<TimepointPredictionRecord> timepointPredictions = record.getTimepointPredictions();
+    if (timepointPredictions != null && !timepointPredictions.isEmpty())
+      stopTimePredictions = BlockStopTimePredictions.create(
+          _blockInstance.getBlock(), timepointPredictions);
+
     VehicleLocationCacheElement element = new VehicleLocationCacheElement(
-        record, scheduledBlockLocation, samples);
+        record, scheduledBlockLocation, samples, stopTimePredictions);
 
-    _elements = _elements.extend(element);
+    _elements = _elements.extend(element, maxElements);
 
     return true;
   }
@@ -106,4 +146,16 @@ public class VehicleLocationCacheEntry {
     return _elements;
   }
 
+  /**
+   * @return the eviction time bucket this entry was last filed under by its
+   *         owning cache
+   */
+  public long getEvictionBucket() {
+    return _evictionBucket;
+  }
+
+  public void setEvictionBucket(long evictionBucket) {
+    _evictionBucket = evictionBucket;
+  }
+
 }
\ No newline at end of file
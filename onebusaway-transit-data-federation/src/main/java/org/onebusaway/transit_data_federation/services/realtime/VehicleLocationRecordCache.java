@@ -15,6 +15,7 @@
  */
 package org.onebusaway.transit_data_federation.services.realtime;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.onebusaway.gtfs.model.AgencyAndId;
@@ -31,6 +32,25 @@ public interface VehicleLocationRecordCache {
 
   public VehicleLocationCacheElements addRecord(BlockInstance blockInstance, VehicleLocationRecord record, ScheduledBlockLocation scheduledBlockLocation, ScheduleDeviationSamples samples);
 
+  /**
+   * Add several records for the same block instance. The scheduled block
+   * location and samples at each index belong to the record at that index, and
+   * either may be null.
+   * 
+   * @return the cache elements for each record, in order, with null for records
+   *         that weren't cached
+   */
+  public default List<VehicleLocationCacheElements> addRecords(
+      BlockInstance blockInstance, List<VehicleLocationRecord> records,
+      List<ScheduledBlockLocation> scheduledBlockLocations,
+      List<ScheduleDeviationSamples> samples) {
+    List<VehicleLocationCacheElements> elements = new ArrayList<VehicleLocationCacheElements>();
+    for (int i = 0; i < records.size(); i++)
+      elements.add(addRecord(blockInstance, records.get(i),
+          scheduledBlockLocations.get(i), samples.get(i)));
+    return elements;
+  }
+
   public void clearRecordsForVehicleId(AgencyAndId vehicleId);
 
   public void addRawPosition(AgencyAndId vehicleId, VehicleLocationRecord point);
@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.siri;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.ValidationEventHandler;
+
+/**
+ * Pool of configured {@link Marshaller} instances for a single
+ * {@link JAXBContext}. A marshaller is not thread-safe, but creating one per
+ * request is expensive, so each is borrowed for the length of a single marshal
+ * call and then returned. The pool grows to the peak number of concurrent
+ * callers and no further.
+ */
+class MarshallerPool {
+
+  private final JAXBContext _context;
+
+  private final ValidationEventHandler _eventHandler;
+
+  private final Queue<Marshaller> _pool = new ConcurrentLinkedQueue<Marshaller>();
+
+  /**
+   * @param context
+   * @param eventHandler set on every marshaller the pool creates
+   */
+  public MarshallerPool(JAXBContext context,
+      ValidationEventHandler eventHandler) {
+    _context = context;
+    _eventHandler = eventHandler;
+  }
+
+  public Marshaller borrow() throws JAXBException {
+    Marshaller marshaller = _pool.poll();
+    if (marshaller != null)
+      return marshaller;
+    marshaller = _context.createMarshaller();
+    marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
+    marshaller.setEventHandler(_eventHandler);
+    return marshaller;
+  }
+
+  public void release(Marshaller marshaller) {
+    _pool.offer(marshaller);
+  }
+}
@@ -24,6 +24,7 @@ import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationConfig;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.SerializerProvider;
@@ -39,7 +40,11 @@ import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import uk.org.siri.siri.Siri;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.text.FieldPosition;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -167,36 +172,78 @@ public class SiriJsonSerializer {
     }
   }
 
-  public String getJson(Siri siri) throws Exception {    
-    return getJson(siri, null);
-  }
-  
-  public String getJson(Siri siri, String callback) throws Exception {    
+  /**
+   * Configured once and shared: an {@link ObjectWriter} is immutable and
+   * thread-safe, and reusing it keeps Jackson's serializer cache warm across
+   * requests.
+   */
+  private final ObjectWriter _writer;
+
+  public SiriJsonSerializer() {
     ObjectMapper mapper = new ObjectMapper();    
     mapper.setSerializationInclusion(Include.NON_EMPTY);
+    mapper.setPropertyNamingStrategy(PropertyNamingStrategies.UPPER_CAMEL_CASE);
     mapper.configure(SerializationFeature.INDENT_OUTPUT, false);
     mapper.configure(SerializationFeature.WRAP_ROOT_VALUE, true);
-    mapper.setPropertyNamingStrategy(PropertyNamingStrategies.UPPER_CAMEL_CASE);
+    mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+    
     mapper.setDateFormat(new RFC822SimpleDateFormat());
 
     // Method A: Standard registration -- Direct introspection not necessary
-    SiriJacksonModule module = new SiriJacksonModule();
-    mapper.registerModule(module);
+    mapper.registerModule(new SiriJacksonModule());
 
     // Needed to process SIRI JAXB Annotations
     mapper.registerModules(new JaxbAnnotationModule());
 
-    String output = "";
+    _writer = mapper.writer();
+  }
 
-    if(callback != null)
-      output = callback + "(";
+  public String getJson(Siri siri) throws Exception {    
+    return getJson(siri, null);
+  }
+
+  public String getJson(Siri siri, String callback) throws Exception {    
+    StringWriter output = new StringWriter();
+    writeJson(siri, callback, output);
+    return output.toString();
+  }
 
-    output += mapper.writeValueAsString(siri);
+  /**
+   * Write the JSON for a response straight to the given writer, which is
+   * neither flushed nor closed.
+   * 
+   * @param siri
+   * @param callback JSONP callback to wrap the response in, or null
+   * @param out
+   */
+  public void writeJson(Siri siri, String callback, Writer out)
+      throws IOException {
+    if (callback != null) {
+      out.write(callback);
+      out.write('(');
+    }
+    _writer.writeValue(out, siri);
+    if (callback != null)
+      out.write(')');
+  }
 
-    if(callback != null)
-      output += ")";
+  /**
+   * Write the JSON for a response straight to the given stream as UTF-8. The
+   * stream is neither flushed nor closed.
+   * 
+   * @param siri
+   * @param callback JSONP callback to wrap the response in, or null
+   * @param out
+   */
+  public void writeJson(Siri siri, String callback, OutputStream out)
+      throws IOException {
+    if (callback != null) {
+      out.write(callback.getBytes(StandardCharsets.UTF_8));
+      out.write('(');
+    }
+    _writer.writeValue(out, siri);
+    if (callback != null)
+      out.write(')');
+  }
 
-    return output;
-  }  
-  
 }
\ No newline at end of file
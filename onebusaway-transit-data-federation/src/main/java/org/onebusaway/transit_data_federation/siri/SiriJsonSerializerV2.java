@@ -16,7 +16,11 @@
 package org.onebusaway.transit_data_federation.siri;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.text.FieldPosition;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -32,6 +36,7 @@ import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationConfig;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.SerializerProvider;
@@ -162,34 +167,75 @@ public class SiriJsonSerializerV2 {
     }
   }
 
-  public String getJson(Siri siri) throws Exception {    
-    return getJson(siri, null);
-  }
+  /**
+   * Configured once and shared: an {@link ObjectWriter} is immutable and
+   * thread-safe, and reusing it keeps Jackson's serializer cache warm across
+   * requests.
+   */
+  private final ObjectWriter _writer;
 
-  public String getJson(Siri siri, String callback) throws Exception {    
+  public SiriJsonSerializerV2() {
     ObjectMapper mapper = new ObjectMapper();    
     mapper.setSerializationInclusion(Include.NON_EMPTY);
     mapper.setPropertyNamingStrategy(PropertyNamingStrategy.UPPER_CAMEL_CASE);
     mapper.configure(SerializationFeature.INDENT_OUTPUT, false);
     mapper.configure(SerializationFeature.WRAP_ROOT_VALUE, true);
+    mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
     
     mapper.setDateFormat(new RFC822SimpleDateFormat());
 
     // Method A: Standard registration -- Direct introspection not necessary
-    SiriJsonSerializerV2.SiriJacksonModule module = new SiriJsonSerializerV2.SiriJacksonModule();
-    mapper.registerModule(module);
+    mapper.registerModule(new SiriJacksonModule());
 
-    String output = "";
+    _writer = mapper.writer();
+  }
 
-    if(callback != null)
-      output = callback + "(";
+  public String getJson(Siri siri) throws Exception {    
+    return getJson(siri, null);
+  }
 
-    output += mapper.writeValueAsString(siri);
+  public String getJson(Siri siri, String callback) throws Exception {    
+    StringWriter output = new StringWriter();
+    writeJson(siri, callback, output);
+    return output.toString();
+  }
 
-    if(callback != null)
-      output += ")";
+  /**
+   * Write the JSON for a response straight to the given writer, which is
+   * neither flushed nor closed.
+   * 
+   * @param siri
+   * @param callback JSONP callback to wrap the response in, or null
+   * @param out
+   */
+  public void writeJson(Siri siri, String callback, Writer out)
+      throws IOException {
+    if (callback != null) {
+      out.write(callback);
+      out.write('(');
+    }
+    _writer.writeValue(out, siri);
+    if (callback != null)
+      out.write(')');
+  }
 
-    return output;
+  /**
+   * Write the JSON for a response straight to the given stream as UTF-8. The
+   * stream is neither flushed nor closed.
+   * 
+   * @param siri
+   * @param callback JSONP callback to wrap the response in, or null
+   * @param out
+   */
+  public void writeJson(Siri siri, String callback, OutputStream out)
+      throws IOException {
+    if (callback != null) {
+      out.write(callback.getBytes(StandardCharsets.UTF_8));
+      out.write('(');
+    }
+    _writer.writeValue(out, siri);
+    if (callback != null)
+      out.write(')');
   }
 
 }
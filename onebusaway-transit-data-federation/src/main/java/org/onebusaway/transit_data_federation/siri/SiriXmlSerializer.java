@@ -17,6 +17,7 @@ package org.onebusaway.transit_data_federation.siri;
 
 import uk.org.siri.siri.Siri;
 
+import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
@@ -27,54 +28,68 @@ import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.ValidationEvent;
 import javax.xml.bind.ValidationEventHandler;
-import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.commons.lang.StringUtils;
 
 /** 
  * Serializer for XSD-generated SIRI classes, creating XML in the format suitable
  * for Bus Time front-ends and third-party apps.
  * 
+ * Marshallers are pooled, so one instance may be shared across request threads.
+ * 
  * @author jmaki
  *
  */
 public class SiriXmlSerializer {
 
+  // FIXME: strip off ns5 namespaces on siri root namespace. super hack, please fix me!
+  private static final String[] SEARCH_LIST = {
+      "<ns5:", "</ns5:", "xmlns:ns5", "<siriExtensionWrapper>",
+      "</siriExtensionWrapper>"};
+
+  private static final String[] REPLACEMENT_LIST = {"<", "</", "xmlns", "",
+      ""};
+
   private JAXBContext context = null;
-  
+
+  private MarshallerPool marshallers = null;
+
   public SiriXmlSerializer() {
     try {
       context = JAXBContext.newInstance(uk.org.siri.siri.Siri.class, SiriExtensionWrapper.class, SiriDistanceExtension.class);
+      marshallers = new MarshallerPool(context, new ValidationEventHandler() {
+        public boolean handleEvent(ValidationEvent event) {
+          throw new RuntimeException(event.getMessage(), event.getLinkedException());
+        }
+      });
     } catch(Exception e) {
       // discard
     }
   }
   
   public String getXml(Siri siri) throws Exception {    
-    Marshaller marshaller = context.createMarshaller();
-    marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
-    marshaller.setEventHandler(
-        new ValidationEventHandler() {
-            public boolean handleEvent(ValidationEvent event ) {
-                throw new RuntimeException(event.getMessage(), event.getLinkedException());
-            }
-        }
-    );
-    
-    DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-    dbf.setNamespaceAware(true);
-
-    Writer output = new StringWriter();
-    marshaller.marshal(siri, output);
-
-    // FIXME: strip off ns5 namespaces on siri root namespace. super hack, please fix me!
-    String outputAsString = output.toString();    
-    outputAsString = outputAsString.replaceAll("<ns5:", "<");
-    outputAsString = outputAsString.replaceAll("</ns5:", "</");
-    outputAsString = outputAsString.replaceAll("xmlns:ns5", "xmlns");
+    return toXml(siri);
+  }
 
-    outputAsString = outputAsString.replaceAll("<siriExtensionWrapper>", "");
-    outputAsString = outputAsString.replaceAll("</siriExtensionWrapper>", "");
+  /**
+   * Write the XML for a response to the given writer, which is neither
+   * flushed nor closed.
+   */
+  public void writeXml(Siri siri, Writer out) throws JAXBException,
+      IOException {
+    out.write(toXml(siri));
+  }
 
-    return outputAsString;
+  private String toXml(Siri siri) throws JAXBException {
+    Writer output = new StringWriter();
+    Marshaller marshaller = marshallers.borrow();
+    try {
+      marshaller.marshal(siri, output);
+    } finally {
+      marshallers.release(marshaller);
+    }
+    return StringUtils.replaceEach(output.toString(), SEARCH_LIST,
+        REPLACEMENT_LIST);
   }
   
   public Siri fromXml(String xml) throws JAXBException {
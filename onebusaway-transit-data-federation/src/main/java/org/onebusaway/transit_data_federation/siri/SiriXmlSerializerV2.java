@@ -15,14 +15,15 @@
  */
 package org.onebusaway.transit_data_federation.siri;
 
+import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
 
 import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.ValidationEvent;
 import javax.xml.bind.ValidationEventHandler;
-import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -34,12 +35,26 @@ import uk.org.siri.siri_2.Siri;
  * Serializer for XSD-generated SIRI classes, creating XML in the format suitable
  * for Bus Time front-ends and third-party apps.
  * 
+ * Marshallers are pooled, so one instance may be shared across request threads.
+ * 
  * @author jmaki
  *
  */
 public class SiriXmlSerializerV2 {
 
+  private static final String[] SEARCH_LIST = {
+      "<siriExtensionWrapper>",
+      "</siriExtensionWrapper>",
+      "<siriUpcomingServiceExtension>",
+      "</siriUpcomingServiceExtension>",
+      "<siriPolyLinesExtension>",
+      "</siriPolyLinesExtension>"
+  };
+
+  private static final String[] REPLACEMENT_LIST = {"","","","","",""};
+
   private JAXBContext context = null;
+  private MarshallerPool marshallers = null;
   private static Logger _log = LoggerFactory.getLogger(SiriXmlSerializerV2.class);
 
   public SiriXmlSerializerV2() {
@@ -50,52 +65,42 @@ public class SiriXmlSerializerV2 {
           SiriDistanceExtension.class, 
           SiriUpcomingServiceExtension.class,
           SiriPolyLinesExtension.class);
+      marshallers = new MarshallerPool(context, new ValidationEventHandler() {
+        public boolean handleEvent(ValidationEvent event) {
+          _log.error(event.getMessage(), event.getLinkedException());
+          throw new RuntimeException(event.getMessage(), event.getLinkedException());
+        }
+      });
     } catch(Exception e) {
       _log.error("Failed to Serialize Siri to XML", e);
     }
   }
 
   public String getXml(Siri siri) throws Exception {    
-    Marshaller marshaller = context.createMarshaller();
-    marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
-    marshaller.setEventHandler(
-        new ValidationEventHandler() {
-            public boolean handleEvent(ValidationEvent event ) {
-              _log.error(event.getMessage(), event.getLinkedException());
-                throw new RuntimeException(event.getMessage(), event.getLinkedException());
-            }
-        }
-    );
-    
-    DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-    dbf.setNamespaceAware(true);
-
-    Writer output = new StringWriter();
-    marshaller.marshal(siri, output);
-
-    // FIXME: strip off ns6 namespaces on siri root namespace. super hack, please fix me!
-    String outputAsString = output.toString();   
-
-    /*outputAsString = outputAsString.replaceAll("<ns6:", "<");
-    outputAsString = outputAsString.replaceAll("</ns6:", "</");
-    outputAsString = outputAsString.replaceAll("xmlns:ns6", "xmlns");
-*/
+    return toXml(siri);
+  }
 
-    String[] searchList = {
-      "<siriExtensionWrapper>", 
-      "</siriExtensionWrapper>",
-      "<siriUpcomingServiceExtension>",
-      "</siriUpcomingServiceExtension>",
-      "<siriPolyLinesExtension>",
-      "</siriPolyLinesExtension>"
-  };
-    
-    String[] replacementList = {"","","","","",""};
-    
-    outputAsString = StringUtils.replaceEach(outputAsString, searchList, replacementList);
+  /**
+   * Write the XML for a response to the given writer, which is neither
+   * flushed nor closed.
+   */
+  public void writeXml(Siri siri, Writer out) throws JAXBException,
+      IOException {
+    out.write(toXml(siri));
+  }
 
-    return outputAsString;
+  private String toXml(Siri siri) throws JAXBException {
+    Writer output = new StringWriter();
+    Marshaller marshaller = marshallers.borrow();
+    try {
+      marshaller.marshal(siri, output);
+    } finally {
+      marshallers.release(marshaller);
+    }
+    return StringUtils.replaceEach(output.toString(), SEARCH_LIST,
+        REPLACEMENT_LIST);
   }
+
   /*
   public Siri fromXml(String xml) throws JAXBException {
     Unmarshaller u = context.createUnmarshaller();
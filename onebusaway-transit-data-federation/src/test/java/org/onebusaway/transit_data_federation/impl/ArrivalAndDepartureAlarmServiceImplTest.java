@@ -0,0 +1,258 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.transit_data.model.RegisterAlarmQueryBean;
+import org.onebusaway.transit_data_federation.services.ArrivalAndDepartureQuery;
+import org.onebusaway.transit_data_federation.services.ArrivalAndDepartureService;
+import org.onebusaway.transit_data_federation.services.blocks.BlockInstance;
+import org.onebusaway.transit_data_federation.services.realtime.ArrivalAndDepartureInstance;
+import org.onebusaway.transit_data_federation.services.realtime.BlockLocation;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockConfigurationEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopEntry;
+import org.onebusaway.util.AgencyAndIdLibrary;
+import org.onebusaway.util.SystemTime;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class ArrivalAndDepartureAlarmServiceImplTest {
+
+  private ArrivalAndDepartureAlarmServiceImpl _service;
+
+  private ArrivalAndDepartureService _arrivalAndDepartureService;
+
+  private HttpServer _server;
+
+  private BlockingQueue<String> _firedAlarmIds = new LinkedBlockingQueue<String>();
+
+  private BlockInstance _blockInstance;
+
+  private long _serviceDate;
+
+  @Before
+  public void before() throws Exception {
+
+    _server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    _server.createContext("/alarm", exchange -> {
+      _firedAlarmIds.add(exchange.getRequestURI().getQuery());
+      exchange.sendResponseHeaders(200, -1);
+      exchange.close();
+    });
+    _server.start();
+
+    _arrivalAndDepartureService = mock(ArrivalAndDepartureService.class);
+
+    _serviceDate = SystemTime.currentTimeMillis();
+    _blockInstance = new BlockInstance(mock(BlockConfigurationEntry.class),
+        _serviceDate);
+
+    _service = new ArrivalAndDepartureAlarmServiceImpl();
+    _service.setArrivalAndDepartureService(_arrivalAndDepartureService);
+    _service.setTickDuration(10);
+    _service.setConnectTimeout(1000);
+    _service.setReadTimeout(1000);
+    _service.start();
+  }
+
+  @After
+  public void after() {
+    _service.stop();
+    _server.stop(0);
+  }
+
+  @Test
+  public void testRegisterAndFire() throws Exception {
+
+    AgencyAndId alarmId = registerAlarm(1);
+    assertEquals(1, _service.getPendingAlarmCount());
+    assertEquals(1, _service.getBlockInstanceCount());
+
+    assertEquals(AgencyAndIdLibrary.convertToString(alarmId),
+        _firedAlarmIds.poll(5, TimeUnit.SECONDS));
+    assertEquals(0, _service.getPendingAlarmCount());
+    assertEquals(0, _service.getBlockInstanceCount());
+    assertEquals(1, _service.getFiredAlarmCount());
+  }
+
+  @Test
+  public void testScheduleDeviationMovesAlarm() throws Exception {
+
+    AgencyAndId alarmId = registerAlarm(60);
+
+    // the vehicle is running 59 seconds early, so the alarm is due in a second
+    _service.handleBlockLocation(createBlockLocation(-59));
+
+    assertEquals(AgencyAndIdLibrary.convertToString(alarmId),
+        _firedAlarmIds.poll(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+
+    AgencyAndId canceledId = registerAlarm(1);
+    AgencyAndId alarmId = registerAlarm(1);
+
+    _service.cancelAlarmForArrivalAndDepartureAtStop(canceledId);
+    assertEquals(1, _service.getPendingAlarmCount());
+    assertEquals(1, _service.getCanceledAlarmCount());
+
+    // both alarms were due at the same time, so only the other one fires
+    assertEquals(AgencyAndIdLibrary.convertToString(alarmId),
+        _firedAlarmIds.poll(5, TimeUnit.SECONDS));
+    assertNull(_firedAlarmIds.poll(100, TimeUnit.MILLISECONDS));
+    assertEquals(1, _service.getFiredAlarmCount());
+    assertEquals(0, _service.getBlockInstanceCount());
+  }
+
+  @Test
+  public void testConcurrentRegisterUpdateAndCancel() throws Exception {
+
+    Set<String> expectedIds = ConcurrentHashMap.newKeySet();
+    Set<String> canceledIds = ConcurrentHashMap.newKeySet();
+
+    // stubs every registration to an arrival a minute out
+    expectedIds.add(AgencyAndIdLibrary.convertToString(registerAlarm(60)));
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    CountDownLatch startLatch = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<Future<?>>();
+
+    for (int i = 0; i < 4; i++) {
+      futures.add(executor.submit(() -> {
+        startLatch.await();
+        for (int j = 0; j < 50; j++) {
+          AgencyAndId alarmId = _service.registerAlarmForArrivalAndDepartureAtStop(
+              new ArrivalAndDepartureQuery(), createAlarmBean());
+          String rawId = AgencyAndIdLibrary.convertToString(alarmId);
+          if (j % 2 == 0) {
+            _service.cancelAlarmForArrivalAndDepartureAtStop(alarmId);
+            canceledIds.add(rawId);
+          } else {
+            expectedIds.add(rawId);
+          }
+        }
+        return null;
+      }));
+    }
+
+    for (int i = 0; i < 4; i++) {
+      long seed = i;
+      futures.add(executor.submit(() -> {
+        Random random = new Random(seed);
+        startLatch.await();
+        for (int j = 0; j < 500; j++) {
+          // the vehicle runs late, so nothing fires while we churn
+          _service.handleBlockLocation(createBlockLocation(random.nextInt(120)));
+        }
+        return null;
+      }));
+    }
+
+    startLatch.countDown();
+    for (Future<?> future : futures)
+      future.get(30, TimeUnit.SECONDS);
+    executor.shutdown();
+
+    assertEquals(expectedIds.size(), _service.getPendingAlarmCount());
+
+    // every remaining alarm follows the last update and comes due now
+    _service.handleBlockLocation(createBlockLocation(-59));
+
+    Set<String> firedIds = new HashSet<String>();
+    while (firedIds.size() < expectedIds.size()) {
+      String firedId = _firedAlarmIds.poll(5, TimeUnit.SECONDS);
+      if (firedId == null)
+        break;
+      assertTrue("alarm fired twice: " + firedId, firedIds.add(firedId));
+    }
+    assertNull(_firedAlarmIds.poll(100, TimeUnit.MILLISECONDS));
+
+    assertEquals(expectedIds, firedIds);
+    assertEquals(canceledIds.size(), _service.getCanceledAlarmCount());
+    assertEquals(expectedIds.size(), _service.getFiredAlarmCount());
+    assertEquals(0, _service.getPendingAlarmCount());
+    assertEquals(0, _service.getBlockInstanceCount());
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  /**
+   * @param arrivalTime seconds after the service date of the scheduled arrival
+   */
+  private AgencyAndId registerAlarm(int arrivalTime) {
+
+    StopEntry stop = mock(StopEntry.class);
+    when(stop.getId()).thenReturn(new AgencyAndId("1", "stop"));
+
+    ArrivalAndDepartureInstance instance = mock(ArrivalAndDepartureInstance.class);
+    when(instance.getBlockInstance()).thenReturn(_blockInstance);
+    when(instance.getStop()).thenReturn(stop);
+    when(instance.getServiceDate()).thenReturn(_serviceDate);
+    when(instance.getScheduledArrivalTime()).thenReturn(
+        _serviceDate + arrivalTime * 1000L);
+
+    ArrivalAndDepartureQuery query = new ArrivalAndDepartureQuery();
+    when(_arrivalAndDepartureService.getArrivalAndDepartureForStop(query)).thenReturn(
+        instance);
+
+    return _service.registerAlarmForArrivalAndDepartureAtStop(query,
+        createAlarmBean());
+  }
+
+  private RegisterAlarmQueryBean createAlarmBean() {
+    RegisterAlarmQueryBean alarmBean = new RegisterAlarmQueryBean();
+    alarmBean.setOnArrival(true);
+    alarmBean.setAlarmTimeOffset(0);
+    alarmBean.setUrl("http://localhost:" + _server.getAddress().getPort()
+        + "/alarm?#ALARM_ID#");
+    return alarmBean;
+  }
+
+  private BlockLocation createBlockLocation(int scheduleDeviation) {
+    BlockLocation blockLocation = new BlockLocation();
+    blockLocation.setBlockInstance(_blockInstance);
+    blockLocation.setVehicleId(new AgencyAndId("1", "vehicle"));
+    blockLocation.setScheduleDeviation(scheduleDeviation);
+    return blockLocation;
+  }
+}
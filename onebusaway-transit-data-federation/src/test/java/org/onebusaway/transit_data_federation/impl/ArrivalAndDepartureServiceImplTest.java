@@ -1695,6 +1695,39 @@ public class ArrivalAndDepartureServiceImplTest {
 
   }
 
+  /**
+   * Repeated queries for a stop share a cached result until a new block
+   * location is received for a block serving the stop
+   */
+  @Test
+  public void testGetArrivalsAndDeparturesForStopInTimeRangeCached() {
+
+    TimepointPredictionRecord tprA = new TimepointPredictionRecord();
+    tprA.setTimepointId(mStopA.getId());
+    long tprATime = createPredictedTime(time(13, 30));
+    tprA.setTimepointPredictedDepartureTime(tprATime);
+    tprA.setTripId(mTrip1.getId());
+
+    List<ArrivalAndDepartureInstance> arrivalsAndDepartures = getArrivalsAndDeparturesForStopInTimeRangeByTimepointPredictionRecord(Arrays.asList(tprA));
+
+    TargetTime target = new TargetTime(mCurrentTime + 500, mCurrentTime + 500);
+    long stopTimeFrom = dateAsLong("2015-07-23 00:00");
+    long stopTimeTo = dateAsLong("2015-07-24 00:00");
+
+    assertSame(arrivalsAndDepartures,
+        _service.getArrivalsAndDeparturesForStopInTimeRange(mStopB, target,
+            stopTimeFrom, stopTimeTo));
+
+    BlockLocation blockLocation = new BlockLocation();
+    blockLocation.setBlockInstance(arrivalsAndDepartures.get(0).getBlockInstance());
+    _service.handleBlockLocation(blockLocation);
+
+    List<ArrivalAndDepartureInstance> updated = _service.getArrivalsAndDeparturesForStopInTimeRange(
+        mStopB, target, stopTimeFrom, stopTimeTo);
+    assertNotSame(arrivalsAndDepartures, updated);
+    assertEquals(arrivalsAndDepartures.size(), updated.size());
+  }
+
   /**
    * Testing StopTime update SKIPPED stops support
    */
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.onebusaway.transit_data_federation.impl.HashedTimingWheel.Timeout;
+
+public class HashedTimingWheelTest {
+
+  private static final long START = 1000000;
+
+  @Test
+  public void testAdvance() {
+
+    HashedTimingWheel<String> wheel = new HashedTimingWheel<String>(1000, 8,
+        START);
+
+    wheel.schedule("a", START + 2500);
+    wheel.schedule("b", START + 3000);
+    // more than one revolution of the wheel away
+    wheel.schedule("c", START + 20000);
+    // already past due
+    wheel.schedule("d", START - 5000);
+    assertEquals(4, wheel.getPendingCount());
+
+    assertEquals(values(), values(wheel.advance(START + 500)));
+    assertEquals(values("d"), values(wheel.advance(START + 1000)));
+    // a deadline is never expired early
+    assertEquals(values(), values(wheel.advance(START + 2999)));
+    assertEquals(values("a", "b"), values(wheel.advance(START + 3000)));
+    // same bucket as "c" one revolution earlier
+    assertEquals(values(), values(wheel.advance(START + 12000)));
+    assertEquals(1, wheel.getPendingCount());
+    assertEquals(values("c"), values(wheel.advance(START + 25000)));
+    assertEquals(0, wheel.getPendingCount());
+  }
+
+  @Test
+  public void testCancel() {
+
+    HashedTimingWheel<String> wheel = new HashedTimingWheel<String>(1000, 8,
+        START);
+
+    Timeout<String> a = wheel.schedule("a", START + 2000);
+    Timeout<String> b = wheel.schedule("b", START + 4000);
+
+    assertTrue(a.cancel());
+    assertFalse(a.cancel());
+    assertEquals(1, wheel.getPendingCount());
+    assertEquals(values(), values(wheel.advance(START + 3000)));
+
+    // canceled after being placed in its bucket
+    assertTrue(b.cancel());
+    assertEquals(values(), values(wheel.advance(START + 5000)));
+    assertEquals(0, wheel.getPendingCount());
+
+    Timeout<String> c = wheel.schedule("c", START + 6000);
+    assertEquals(values("c"), values(wheel.advance(START + 6000)));
+    assertFalse(c.cancel());
+  }
+
+  private List<String> values(String... values) {
+    List<String> list = new ArrayList<String>();
+    for (String value : values)
+      list.add(value);
+    return list;
+  }
+
+  private List<String> values(List<Timeout<String>> timeouts) {
+    List<String> list = new ArrayList<String>();
+    for (Timeout<String> timeout : timeouts)
+      list.add(timeout.getValue());
+    return list;
+  }
+}
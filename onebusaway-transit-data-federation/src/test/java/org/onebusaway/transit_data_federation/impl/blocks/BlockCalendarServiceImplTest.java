@@ -29,10 +29,12 @@ import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.Mockito;
 import org.onebusaway.gtfs.impl.calendar.CalendarServiceImpl;
 import org.onebusaway.gtfs.model.calendar.CalendarServiceData;
 import org.onebusaway.transit_data_federation.impl.ExtendedCalendarServiceImpl;
@@ -41,6 +43,7 @@ import org.onebusaway.transit_data_federation.impl.transit_graph.BlockConfigurat
 import org.onebusaway.transit_data_federation.impl.transit_graph.BlockEntryImpl;
 import org.onebusaway.transit_data_federation.impl.transit_graph.StopEntryImpl;
 import org.onebusaway.transit_data_federation.impl.transit_graph.TripEntryImpl;
+import org.onebusaway.transit_data_federation.services.blocks.BlockIndexService;
 import org.onebusaway.transit_data_federation.services.blocks.BlockInstance;
 import org.onebusaway.transit_data_federation.services.blocks.BlockLayoverIndex;
 import org.onebusaway.transit_data_federation.services.blocks.BlockTripIndex;
@@ -49,6 +52,7 @@ import org.onebusaway.transit_data_federation.services.transit_graph.BlockConfig
 import org.onebusaway.transit_data_federation.services.transit_graph.ServiceIdActivation;
 import org.onebusaway.transit_data_federation.services.transit_graph.TripEntry;
 import org.onebusaway.transit_data_federation.testing.UnitTestingSupport;
+import org.onebusaway.util.SystemTime;
 
 public class BlockCalendarServiceImplTest {
 
@@ -306,6 +310,101 @@ public class BlockCalendarServiceImplTest {
     assertEquals(serviceDateC.getTime(), instance.getServiceDate());
   }
 
+  @Test
+  public void testGetActiveBlocksInTimeRangeFromTimeline() {
+
+    Date serviceDateA = UnitTestingSupport.date("2010-09-07 00:00");
+    Date serviceDateB = UnitTestingSupport.date("2010-09-08 00:00");
+
+    UnitTestingSupport.addDates(_calendarData, "sidA", serviceDateA,
+        serviceDateB);
+
+    ServiceIdActivation ids_A = serviceIds(lsids("sidA"), lsids());
+
+    StopEntryImpl stopA = stop("stopA", 0.0, 0.0);
+    StopEntryImpl stopB = stop("stopB", 0.0, 0.0);
+
+    BlockEntryImpl blockA = block("blockA");
+    TripEntryImpl tripA = trip("tripA", "sidA");
+    TripEntryImpl tripB = trip("tripB", "sidA");
+
+    stopTime(0, stopA, tripA, time(9, 00), time(9, 00), 0);
+    stopTime(1, stopB, tripA, time(9, 30), time(9, 30), 100);
+    stopTime(2, stopB, tripB, time(23, 00), time(23, 00), 200);
+    stopTime(3, stopA, tripB, time(25, 30), time(25, 30), 300);
+
+    linkBlockTrips(ids_A, blockA, tripA, tripB);
+
+    BlockEntryImpl blockB = block("blockB");
+    TripEntryImpl tripC = trip("tripC", "sidA");
+
+    stopTime(4, stopA, tripC, time(9, 15), time(9, 15), 0);
+    stopTime(5, stopB, tripC, time(10, 30), time(10, 30), 0);
+
+    linkBlockTrips(ids_A, blockB, tripC);
+
+    List<BlockTripIndex> blocks = blockTripIndices(blockA, blockB);
+    List<BlockLayoverIndex> layoverIndices = Collections.emptyList();
+    List<FrequencyBlockTripIndex> frequencyIndices = Collections.emptyList();
+
+    BlockIndexService blockIndexService = Mockito.mock(BlockIndexService.class);
+    Mockito.when(blockIndexService.getBlockTripIndices()).thenReturn(blocks);
+    Mockito.when(blockIndexService.getBlockLayoverIndices()).thenReturn(
+        layoverIndices);
+    Mockito.when(blockIndexService.getFrequencyBlockTripIndices()).thenReturn(
+        frequencyIndices);
+    Mockito.when(blockIndexService.getBlockTripIndicesForAgencyId("1")).thenReturn(
+        blocks);
+    Mockito.when(blockIndexService.getBlockLayoverIndicesForAgencyId("1")).thenReturn(
+        layoverIndices);
+    Mockito.when(
+        blockIndexService.getFrequencyBlockTripIndicesForAgencyId("1")).thenReturn(
+        frequencyIndices);
+    _service.setBlockIndexService(blockIndexService);
+
+    // only the current day is answered from a timeline
+    SystemTime.setAdjustment(timeFromString("2010-09-07 12:00")
+        - System.currentTimeMillis());
+    try {
+      assertActiveBlocksMatchIndexSearch(blocks, layoverIndices,
+          frequencyIndices);
+    } finally {
+      SystemTime.setAdjustment(0);
+    }
+  }
+
+  private void assertActiveBlocksMatchIndexSearch(List<BlockTripIndex> blocks,
+      List<BlockLayoverIndex> layoverIndices,
+      List<FrequencyBlockTripIndex> frequencyIndices) {
+
+    String[] times = {
+        "2010-09-07 08:59", "2010-09-07 09:00", "2010-09-07 09:15",
+        "2010-09-07 09:30", "2010-09-07 09:31", "2010-09-07 10:30",
+        "2010-09-07 23:30", "2010-09-08 00:30", "2010-09-08 01:31",
+        "2010-09-08 09:20", "2010-09-09 09:20"};
+
+    for (String t : times) {
+      long time = timeFromString(t);
+      List<BlockInstance> expected = _service.getActiveBlocksInTimeRange(
+          blocks, layoverIndices, frequencyIndices, time, time);
+      assertEquals(t, new HashSet<BlockInstance>(expected),
+          new HashSet<BlockInstance>(_service.getActiveBlocksInTimeRange(time,
+              time)));
+      assertEquals(t, new HashSet<BlockInstance>(expected),
+          new HashSet<BlockInstance>(
+              _service.getActiveBlocksForAgencyInTimeRange("1", time, time)));
+    }
+
+    long from = timeFromString("2010-09-07 09:20");
+    long to = timeFromString("2010-09-07 22:50");
+    List<BlockInstance> expected = _service.getActiveBlocksInTimeRange(blocks,
+        layoverIndices, frequencyIndices, from, to);
+    assertEquals(2, expected.size());
+    assertEquals(new HashSet<BlockInstance>(expected),
+        new HashSet<BlockInstance>(_service.getActiveBlocksInTimeRange(from,
+            to)));
+  }
+
   private static void linkBlockTrips(ServiceIdActivation serviceIds,
       BlockEntryImpl block, TripEntryImpl... trips) {
 
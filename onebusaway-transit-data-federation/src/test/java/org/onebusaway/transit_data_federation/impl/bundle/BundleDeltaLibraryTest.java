@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.bundle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.aid;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.block;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.linkBlockTrips;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.route;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.stop;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.stopTime;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.time;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.trip;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.onebusaway.transit_data_federation.impl.transit_graph.BlockEntryImpl;
+import org.onebusaway.transit_data_federation.impl.transit_graph.RouteEntryImpl;
+import org.onebusaway.transit_data_federation.impl.transit_graph.StopEntryImpl;
+import org.onebusaway.transit_data_federation.impl.transit_graph.TransitGraphImpl;
+import org.onebusaway.transit_data_federation.impl.transit_graph.TripEntryImpl;
+import org.onebusaway.transit_data_federation.model.bundle.BundleDelta;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockConfigurationEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopTimeEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.TripEntry;
+
+public class BundleDeltaLibraryTest {
+
+  @Test
+  public void testEmptyDelta() {
+    BundleDelta delta = BundleDeltaLibrary.computeDelta(graph(false),
+        graph(false));
+    assertTrue(delta.isEmpty());
+    assertEquals(delta.getBaseFingerprint(), delta.getTargetFingerprint());
+  }
+
+  @Test
+  public void testComputeAndApplyDelta() {
+
+    TransitGraphImpl base = graph(false);
+    TransitGraphImpl target = graph(true);
+
+    BundleDelta delta = BundleDeltaLibrary.computeDelta(base, target);
+    assertFalse(delta.isFullReloadRequired());
+    assertEquals(Arrays.asList(aid("c")),
+        Arrays.asList(delta.getAddedStopIds().toArray()));
+    assertTrue(delta.getChangedTripIds().contains(aid("tripB")));
+    assertTrue(delta.getAddedTripIds().contains(aid("tripC")));
+    assertFalse(delta.getChangedTripIds().contains(aid("tripA")));
+    assertTrue(delta.getChangedBlockIds().contains(aid("blockB")));
+    assertFalse(delta.getChangedBlockIds().contains(aid("blockA")));
+    assertEquals(BundleDeltaLibrary.getFingerprint(base),
+        delta.getBaseFingerprint());
+
+    TripEntry tripA = base.getTripEntryForId(aid("tripA"));
+    TripEntry tripB = base.getTripEntryForId(aid("tripB"));
+    StopEntryImpl stopB = base.getStopEntryForId(aid("b"));
+    RouteEntryImpl route = base.getRouteForId(aid("route"));
+
+    TransitGraphImpl patched = base.applyDelta(target, delta);
+
+    // the running graph is left for readers until the patched one replaces it
+    assertSame(tripB, base.getTripEntryForId(aid("tripB")));
+    assertNull(base.getTripEntryForId(aid("tripC")));
+    assertEquals(2, base.getAllStops().size());
+
+    base = patched;
+    assertEquals(delta.getTargetFingerprint(),
+        BundleDeltaLibrary.getFingerprint(base));
+
+    // untouched entries keep their identity
+    assertSame(tripA, base.getTripEntryForId(aid("tripA")));
+    assertSame(stopB, base.getStopEntryForId(aid("b")));
+
+    // replaced entries are linked into the running graph
+    TripEntry newTripB = base.getTripEntryForId(aid("tripB"));
+    assertNotSame(tripB, newTripB);
+    assertSame(route, newTripB.getRoute());
+    StopTimeEntry stopTime = newTripB.getStopTimes().get(0);
+    assertSame(stopB, stopTime.getStop());
+    assertEquals(time(10, 5), stopTime.getArrivalTime());
+
+    TripEntry tripC = base.getTripEntryForId(aid("tripC"));
+    assertSame(base.getStopEntryForId(aid("c")),
+        tripC.getStopTimes().get(1).getStop());
+
+    BlockEntry blockB = base.getBlockEntryForId(aid("blockB"));
+    assertSame(blockB, newTripB.getBlock());
+    assertSame(blockB, tripC.getBlock());
+    BlockConfigurationEntry config = blockB.getConfigurations().get(0);
+    assertEquals(2, config.getTrips().size());
+    assertSame(newTripB, config.getTrips().get(0).getTrip());
+    assertSame(tripC, config.getTrips().get(1).getTrip());
+
+    assertEquals(Arrays.asList(tripA, newTripB, tripC),
+        route.getTrips());
+    assertEquals(3, base.getAllStops().size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFullReloadRequired() {
+
+    TransitGraphImpl base = graph(false);
+    TransitGraphImpl target = graph(false);
+    target.putRouteEntry(route("otherRoute"));
+    target.refreshRouteMapping();
+
+    BundleDelta delta = BundleDeltaLibrary.computeDelta(base, target);
+    assertTrue(delta.isFullReloadRequired());
+    base.applyDelta(target, delta);
+  }
+
+  /**
+   * Two blocks of one route. The updated graph shifts tripB five minutes
+   * later and adds tripC, serving a new stop, to the end of its block.
+   */
+  private TransitGraphImpl graph(boolean updated) {
+
+    TransitGraphImpl graph = new TransitGraphImpl();
+
+    StopEntryImpl stopA = stop("a", 47.0, -122.0);
+    StopEntryImpl stopB = stop("b", 47.1, -122.1);
+
+    RouteEntryImpl route = route("route");
+
+    TripEntryImpl tripA = trip("tripA", "sA", 1000.0);
+    tripA.setRoute(route);
+    stopTime(0, stopA, tripA, time(9, 0), 0.0);
+    stopTime(1, stopB, tripA, time(9, 10), 1000.0);
+
+    int offset = updated ? 5 : 0;
+    TripEntryImpl tripB = trip("tripB", "sA", 1000.0);
+    tripB.setRoute(route);
+    stopTime(2, stopB, tripB, time(10, offset), 0.0);
+    stopTime(3, stopA, tripB, time(10, 10 + offset), 1000.0);
+
+    BlockEntryImpl blockA = block("blockA");
+    linkBlockTrips(blockA, tripA);
+
+    BlockEntryImpl blockB = block("blockB");
+
+    graph.putStopEntry(stopA);
+    graph.putStopEntry(stopB);
+    graph.putRouteEntry(route);
+    graph.putTripEntry(tripA);
+    graph.putTripEntry(tripB);
+    graph.putBlockEntry(blockA);
+    graph.putBlockEntry(blockB);
+
+    if (updated) {
+      StopEntryImpl stopC = stop("c", 47.2, -122.2);
+      TripEntryImpl tripC = trip("tripC", "sA", 500.0);
+      tripC.setRoute(route);
+      stopTime(4, stopA, tripC, time(11, 0), 0.0);
+      stopTime(5, stopC, tripC, time(11, 10), 500.0);
+      linkBlockTrips(blockB, tripB, tripC);
+      route.setTrips(Arrays.<TripEntry> asList(tripA, tripB, tripC));
+      graph.putStopEntry(stopC);
+      graph.putTripEntry(tripC);
+    } else {
+      linkBlockTrips(blockB, tripB);
+      route.setTrips(Arrays.<TripEntry> asList(tripA, tripB));
+    }
+
+    graph.initialize();
+    return graph;
+  }
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.federated;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.onebusaway.exceptions.NoSuchStopServiceException;
+import org.onebusaway.exceptions.ServiceException;
+import org.onebusaway.transit_data.model.RouteBean;
+import org.onebusaway.transit_data.model.StopBean;
+import org.onebusaway.transit_data.model.batch.TransitDataBatchCallBean;
+import org.onebusaway.transit_data.model.batch.TransitDataBatchResultBean;
+import org.onebusaway.transit_data.services.TransitDataBatchService;
+import org.onebusaway.transit_data.services.TransitDataService;
+import org.onebusaway.transit_data.services.TransitDataServiceBatch;
+import org.onebusaway.transit_data.services.TransitDataServiceBatch.Result;
+
+public class TransitDataBatchServiceImplTest {
+
+  private TransitDataService _transitDataService;
+
+  private TransitDataBatchServiceImpl _batchService;
+
+  @Before
+  public void before() {
+    _transitDataService = Mockito.mock(TransitDataService.class);
+    _batchService = new TransitDataBatchServiceImpl();
+    _batchService.setTransitDataService(_transitDataService);
+    _batchService.setThreadPoolSize(2);
+    _batchService.start();
+  }
+
+  @After
+  public void after() {
+    _batchService.stop();
+  }
+
+  @Test
+  public void testBatch() {
+
+    StopBean stop = new StopBean();
+    RouteBean route = new RouteBean();
+    Mockito.when(_transitDataService.getStop("1_stop")).thenReturn(stop);
+    Mockito.when(_transitDataService.getRouteForId("1_route")).thenReturn(
+        route);
+    Mockito.when(_transitDataService.getStop("1_missing")).thenThrow(
+        new NoSuchStopServiceException("1_missing"));
+
+    TransitDataBatchService batchService = Mockito.spy(_batchService);
+    TransitDataServiceBatch batch = new TransitDataServiceBatch(
+        _transitDataService, batchService);
+    Result<StopBean> stopResult = batch.add(tds -> tds.getStop("1_stop"));
+    Result<RouteBean> routeResult = batch.add(tds -> tds.getRouteForId("1_route"));
+    Result<StopBean> missingResult = batch.add(tds -> tds.getStop("1_missing"));
+    Result<Boolean> revenueResult = batch.add(tds -> tds.stopHasRevenueService(
+        "1", "1_stop"));
+
+    try {
+      stopResult.get();
+      fail();
+    } catch (IllegalStateException ex) {
+
+    }
+
+    batch.execute();
+
+    // one round trip for all four calls
+    Mockito.verify(batchService, Mockito.times(1)).invoke(Mockito.anyList());
+    assertSame(stop, stopResult.get());
+    assertSame(route, routeResult.get());
+    assertEquals(Boolean.FALSE, revenueResult.get());
+    try {
+      missingResult.get();
+      fail();
+    } catch (NoSuchStopServiceException ex) {
+
+    }
+  }
+
+  @Test
+  public void testBatchLargerThanMaxBatchSize() {
+
+    Mockito.when(_transitDataService.getStop(Mockito.anyString())).thenAnswer(
+        invocation -> {
+          StopBean stop = new StopBean();
+          stop.setId((String) invocation.getArguments()[0]);
+          return stop;
+        });
+
+    TransitDataBatchService batchService = Mockito.spy(_batchService);
+    TransitDataServiceBatch batch = new TransitDataServiceBatch(
+        _transitDataService, batchService);
+    List<Result<StopBean>> results = new ArrayList<Result<StopBean>>();
+    for (int i = 0; i < 1201; i++) {
+      String stopId = "1_" + i;
+      results.add(batch.add(tds -> tds.getStop(stopId)));
+    }
+
+    batch.execute();
+
+    // chunks of 500, 500 and 201 calls
+    Mockito.verify(batchService, Mockito.times(3)).invoke(Mockito.anyList());
+    for (int i = 0; i < results.size(); i++)
+      assertEquals("1_" + i, results.get(i).get().getId());
+  }
+
+  @Test
+  public void testFailedRoundTrip() {
+
+    StopBean stop = new StopBean();
+    Mockito.when(_transitDataService.getStop("1_stop")).thenReturn(stop);
+
+    // the server accepts fewer calls than the client sends at once
+    _batchService.setMaxBatchSize(2);
+    TransitDataServiceBatch batch = new TransitDataServiceBatch(
+        _transitDataService, _batchService);
+    batch.setMaxBatchSize(3);
+    List<Result<StopBean>> results = new ArrayList<Result<StopBean>>();
+    for (int i = 0; i < 4; i++)
+      results.add(batch.add(tds -> tds.getStop("1_stop")));
+
+    batch.execute();
+
+    for (int i = 0; i < 3; i++) {
+      try {
+        results.get(i).get();
+        fail();
+      } catch (ServiceException ex) {
+
+      }
+    }
+    // the last chunk is small enough and still succeeds
+    assertSame(stop, results.get(3).get());
+  }
+
+  @Test
+  public void testUnreachableBatchService() {
+
+    StopBean stop = new StopBean();
+    Mockito.when(_transitDataService.getStop("1_stop")).thenReturn(stop);
+
+    // what an older deployment without the batch endpoint looks like
+    TransitDataBatchService batchService = Mockito.mock(TransitDataBatchService.class);
+    Mockito.when(batchService.invoke(Mockito.anyList())).thenThrow(
+        new IllegalStateException("404: Not Found"));
+
+    TransitDataServiceBatch batch = new TransitDataServiceBatch(
+        _transitDataService, batchService);
+    batch.setMaxBatchSize(2);
+    List<Result<StopBean>> results = new ArrayList<Result<StopBean>>();
+    for (int i = 0; i < 4; i++)
+      results.add(batch.add(tds -> tds.getStop("1_stop")));
+
+    batch.execute();
+
+    for (Result<StopBean> result : results)
+      assertSame(stop, result.get());
+    // the second chunk doesn't try the batch service again
+    Mockito.verify(batchService, Mockito.times(1)).invoke(Mockito.anyList());
+    Mockito.verify(_transitDataService, Mockito.times(4)).getStop("1_stop");
+  }
+
+  @Test
+  public void testWithoutBatchService() {
+
+    StopBean stop = new StopBean();
+    Mockito.when(_transitDataService.getStop("1_stop")).thenReturn(stop);
+
+    TransitDataServiceBatch batch = new TransitDataServiceBatch(
+        _transitDataService, null);
+    Result<StopBean> a = batch.add(tds -> tds.getStop("1_stop"));
+    Result<StopBean> b = batch.add(tds -> tds.getStop("1_other"));
+    batch.execute();
+
+    assertSame(stop, a.get());
+    assertNull(b.get());
+    Mockito.verify(_transitDataService, Mockito.times(2)).getStop(
+        Mockito.anyString());
+  }
+
+  @Test
+  public void testUnknownMethod() {
+
+    List<TransitDataBatchResultBean> results = _batchService.invoke(Arrays.asList(
+        new TransitDataBatchCallBean("getStop(java.lang.String)",
+            new Object[] {"1_stop"}), new TransitDataBatchCallBean(
+            "getClass()", new Object[0])));
+
+    assertEquals(2, results.size());
+    assertNull(results.get(0).getException());
+    assertEquals(ServiceException.class,
+        results.get(1).getException().getClass());
+  }
+
+  @Test
+  public void testAddRequiresSingleCall() {
+
+    TransitDataServiceBatch batch = new TransitDataServiceBatch(
+        _transitDataService, _batchService);
+    try {
+      batch.add(tds -> null);
+      fail();
+    } catch (IllegalArgumentException ex) {
+
+    }
+    try {
+      batch.add(tds -> {
+        tds.getStop("a");
+        return tds.getStop("b");
+      });
+      fail();
+    } catch (IllegalArgumentException ex) {
+
+    }
+    assertEquals(0, batch.size());
+  }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.realtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class BlockLocationRecordWriterTest {
+
+  @Test
+  public void testFlushOnStop() {
+
+    final List<BlockLocationRecord> written = Collections.synchronizedList(new ArrayList<BlockLocationRecord>());
+    BlockLocationRecordDao dao = mock(BlockLocationRecordDao.class);
+    doAnswer(new Answer<Void>() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        written.addAll((List<BlockLocationRecord>) invocation.getArguments()[0]);
+        return null;
+      }
+    }).when(dao).insertBlockLocationRecords(anyList());
+
+    BlockLocationRecordWriter writer = new BlockLocationRecordWriter();
+    writer.setBlockLocationRecordDao(dao);
+    writer.setFlushSize(2);
+    writer.setFlushInterval(60 * 1000);
+    writer.start();
+
+    writer.addRecords(records(5));
+    writer.stop();
+
+    assertEquals(5, written.size());
+    assertEquals(5, writer.getWrittenCount());
+    assertEquals(0, writer.getDroppedCount());
+    assertEquals(0, writer.getQueueDepth());
+  }
+
+  @Test
+  public void testAddBeforeStart() {
+
+    BlockLocationRecordWriter writer = new BlockLocationRecordWriter();
+    writer.setBlockLocationRecordDao(mock(BlockLocationRecordDao.class));
+
+    writer.addRecords(records(3));
+    assertEquals(3, writer.getDroppedCount());
+    assertEquals(0, writer.getEnqueuedCount());
+  }
+
+  @Test
+  public void testFailedFlush() {
+
+    BlockLocationRecordDao dao = mock(BlockLocationRecordDao.class);
+    doThrow(new IllegalStateException()).when(dao).insertBlockLocationRecords(
+        anyList());
+
+    BlockLocationRecordWriter writer = new BlockLocationRecordWriter();
+    writer.setBlockLocationRecordDao(dao);
+    writer.start();
+    writer.addRecords(records(3));
+    writer.stop();
+
+    assertEquals(3, writer.getFailedCount());
+    assertEquals(0, writer.getWrittenCount());
+  }
+
+  private List<BlockLocationRecord> records(int count) {
+    List<BlockLocationRecord> records = new ArrayList<BlockLocationRecord>();
+    for (int i = 0; i < count; i++)
+      records.add(new BlockLocationRecord());
+    return records;
+  }
+}
@@ -19,16 +19,22 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.aid;
 import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.block;
 import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.linkBlockTrips;
 import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.stop;
 import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.stopTime;
 import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.trip;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.onebusaway.geospatial.model.CoordinatePoint;
+import org.onebusaway.realtime.api.VehicleLocationRecord;
 import org.onebusaway.transit_data_federation.impl.transit_graph.BlockEntryImpl;
 import org.onebusaway.transit_data_federation.impl.transit_graph.StopEntryImpl;
 import org.onebusaway.transit_data_federation.impl.transit_graph.TripEntryImpl;
@@ -38,6 +44,8 @@ import org.onebusaway.transit_data_federation.services.blocks.BlockInstance;
 import org.onebusaway.transit_data_federation.services.blocks.ScheduledBlockLocation;
 import org.onebusaway.transit_data_federation.services.blocks.ScheduledBlockLocationService;
 import org.onebusaway.transit_data_federation.services.realtime.BlockLocation;
+import org.onebusaway.transit_data_federation.services.realtime.BlockLocationListener;
+import org.onebusaway.transit_data_federation.services.realtime.VehicleLocationCacheElements;
 import org.onebusaway.transit_data_federation.services.transit_graph.BlockConfigurationEntry;
 import org.onebusaway.transit_data_federation.services.transit_graph.TransitGraphDao;
 
@@ -51,6 +59,8 @@ public class BlockLocationServiceImplTest {
 
   private BlockCalendarService _blockCalendarService;
 
+  private VehicleLocationRecordCacheImpl _cache;
+
   @Before
   public void setup() {
 
@@ -62,7 +72,8 @@ public class BlockLocationServiceImplTest {
     _blockLocationService = Mockito.mock(ScheduledBlockLocationService.class);
     _service.setScheduledBlockLocationService(_blockLocationService);
 
-    _service.setVehicleLocationRecordCache(new VehicleLocationRecordCacheImpl());
+    _cache = new VehicleLocationRecordCacheImpl();
+    _service.setVehicleLocationRecordCache(_cache);
 
     _blockCalendarService = Mockito.mock(BlockCalendarService.class);
     _service.setBlockCalendarService(_blockCalendarService);
@@ -148,6 +159,121 @@ public class BlockLocationServiceImplTest {
     assertEquals("fewSeatsAvailable", blockConfig.getStopTimes().get(0).getStopTime().getHistoricalOccupancy().toString());
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testHandleVehicleLocationRecords() {
+
+    StopEntryImpl stopA = stop("a", 47.5, -122.5);
+    BlockEntryImpl block = block("block");
+    TripEntryImpl tripA = trip("tripA", "serviceId");
+    stopTime(0, stopA, tripA, 30, 90, 0);
+    BlockConfigurationEntry blockConfig = linkBlockTrips(block, tripA);
+
+    long serviceDate = 1000 * 1000;
+    BlockInstance blockInstance = new BlockInstance(blockConfig, serviceDate);
+
+    Mockito.when(
+        _blockCalendarService.getActiveBlocks(Mockito.eq(block.getId()),
+            Mockito.anyLong(), Mockito.anyLong())).thenReturn(
+        Arrays.asList(blockInstance));
+
+    ScheduledBlockLocation p = new ScheduledBlockLocation();
+    p.setActiveTrip(blockConfig.getTrips().get(0));
+    p.setClosestStop(blockConfig.getStopTimes().get(0));
+    p.setLocation(new CoordinatePoint(stopA.getStopLat(), stopA.getStopLon()));
+    p.setInService(true);
+
+    Mockito.when(
+        _blockLocationService.getScheduledBlockLocationFromScheduledTime(
+            Mockito.eq(blockConfig), Mockito.anyInt())).thenReturn(p);
+
+    BlockLocationListener listener = Mockito.mock(BlockLocationListener.class);
+    _service.setBlockLocationListeners(Arrays.asList(listener));
+
+    VehicleLocationRecord recordA = record(block, serviceDate, "vehicleA",
+        t(serviceDate, 0, 1));
+    VehicleLocationRecord recordB = record(block, serviceDate, "vehicleB",
+        t(serviceDate, 0, 1));
+    // no service date
+    VehicleLocationRecord invalid = record(block, 0, "vehicleC", t(serviceDate,
+        0, 2));
+
+    _service.handleVehicleLocationRecords(Arrays.asList(recordA, invalid,
+        recordB));
+
+    // the block instance is resolved once for both records at the same time
+    Mockito.verify(_blockCalendarService, Mockito.times(1)).getActiveBlocks(
+        Mockito.any(), Mockito.anyLong(), Mockito.anyLong());
+
+    assertEquals(2, _cache.getRecordsForBlockInstance(blockInstance).size());
+
+    ArgumentCaptor<List> locations = ArgumentCaptor.forClass(List.class);
+    Mockito.verify(listener, Mockito.times(1)).handleBlockLocations(
+        locations.capture());
+    assertEquals(2, locations.getValue().size());
+    Mockito.verify(listener, Mockito.never()).handleBlockLocation(
+        Mockito.any());
+
+    assertEquals(1, _service.getBatchCount());
+    assertEquals(3, _service.getBatchRecordCount());
+    assertEquals(1, _service.getBatchRejectedRecordCount());
+    assertEquals(3, _service.getLastBatchSize());
+  }
+
+  @Test
+  public void testHandleVehicleLocationRecordsWithBlockChange() {
+
+    StopEntryImpl stopA = stop("a", 47.5, -122.5);
+
+    BlockEntryImpl blockA = block("blockA");
+    TripEntryImpl tripA = trip("tripA", "serviceId");
+    stopTime(0, stopA, tripA, 30, 90, 0);
+    BlockConfigurationEntry blockConfigA = linkBlockTrips(blockA, tripA);
+
+    BlockEntryImpl blockB = block("blockB");
+    TripEntryImpl tripB = trip("tripB", "serviceId");
+    stopTime(1, stopA, tripB, 30, 90, 0);
+    BlockConfigurationEntry blockConfigB = linkBlockTrips(blockB, tripB);
+
+    long serviceDate = 1000 * 1000;
+    BlockInstance instanceA = new BlockInstance(blockConfigA, serviceDate);
+    BlockInstance instanceB = new BlockInstance(blockConfigB, serviceDate);
+
+    Mockito.when(
+        _blockCalendarService.getActiveBlocks(Mockito.eq(blockA.getId()),
+            Mockito.anyLong(), Mockito.anyLong())).thenReturn(
+        Arrays.asList(instanceA));
+    Mockito.when(
+        _blockCalendarService.getActiveBlocks(Mockito.eq(blockB.getId()),
+            Mockito.anyLong(), Mockito.anyLong())).thenReturn(
+        Arrays.asList(instanceB));
+
+    long t1 = t(serviceDate, 0, 1);
+    long t2 = t(serviceDate, 0, 2);
+    long t3 = t(serviceDate, 0, 3);
+
+    // out of order in the batch, but applied in time order
+    _service.handleVehicleLocationRecords(Arrays.asList(
+        record(blockA, serviceDate, "vehicleA", t1),
+        record(blockA, serviceDate, "vehicleA", t3),
+        record(blockB, serviceDate, "vehicleA", t2)));
+
+    VehicleLocationCacheElements elements = _cache.getRecordForVehicleId(aid("vehicleA"));
+    assertEquals(instanceA, elements.getBlockInstance());
+    assertEquals(t3, elements.getLastElement().getRecord().getTimeOfRecord());
+    assertTrue(_cache.getRecordsForBlockInstance(instanceB).isEmpty());
+  }
+
+  private VehicleLocationRecord record(BlockEntryImpl block, long serviceDate,
+      String vehicleId, long time) {
+    VehicleLocationRecord record = new VehicleLocationRecord();
+    record.setBlockId(block.getId());
+    record.setServiceDate(serviceDate);
+    record.setVehicleId(aid(vehicleId));
+    record.setTimeOfRecord(time);
+    return record;
+  }
+
   private long t(long serviceDate, int hours, double minutes) {
     return (long) (serviceDate + (((hours * 60) + minutes) * 60) * 1000);
   }
@@ -178,6 +178,69 @@ public class VehicleLocationRecordCacheImplTest {
     assertEquals(1, records.size());
   }
 
+  @Test
+  public void testMaxRecordsPerVehicle() {
+
+    long serviceDate = System.currentTimeMillis();
+
+    BlockEntryImpl block = block("blockA");
+    TripEntryImpl trip = trip("tripA", "serviceId");
+    stopTime(0, null, trip, time(9, 00), 0);
+    BlockConfigurationEntry blockConfig = linkBlockTrips(block, trip);
+    BlockInstance blockInstance = new BlockInstance(blockConfig, serviceDate);
+
+    VehicleLocationRecordCacheImpl cache = new VehicleLocationRecordCacheImpl();
+    cache.setMaxRecordsPerVehicle(3);
+
+    for (int i = 0; i < 5; i++)
+      cache.addRecord(blockInstance,
+          record(i * 10, "blockA", serviceDate, "vehicleA", i * 10.0), null,
+          null);
+
+    VehicleLocationCacheElements cacheRecord = cache.getRecordForVehicleId(aid("vehicleA"));
+    assertEquals(3, cacheRecord.getElements().size());
+    assertEquals(20, cacheRecord.getElements().get(0).getRecord().getTimeOfRecord());
+    assertEquals(40, cacheRecord.getLastElement().getRecord().getTimeOfRecord());
+  }
+
+  @Test
+  public void testMaxVehicles() {
+
+    long serviceDate = System.currentTimeMillis();
+
+    BlockEntryImpl block = block("blockA");
+    TripEntryImpl trip = trip("tripA", "serviceId");
+    stopTime(0, null, trip, time(9, 00), 0);
+    BlockConfigurationEntry blockConfig = linkBlockTrips(block, trip);
+    BlockInstance blockInstance = new BlockInstance(blockConfig, serviceDate);
+
+    VehicleLocationRecordCacheImpl cache = new VehicleLocationRecordCacheImpl();
+    cache.setMaxVehicles(2);
+
+    cache.addRecord(blockInstance,
+        record(10, "blockA", serviceDate, "vehicleA", 10.0), null, null);
+    cache.addRecord(blockInstance,
+        record(20, "blockA", serviceDate, "vehicleB", 20.0), null, null);
+    cache.addRecord(blockInstance,
+        record(30, "blockA", serviceDate, "vehicleC", 30.0), null, null);
+
+    assertEquals(2, cache.getVehicleCount());
+    assertEquals(1, cache.getCapacityEvictionCount());
+    assertEquals(2, cache.getRecordsForBlockInstance(blockInstance).size());
+  }
+
+  @Test
+  public void testRawPositions() {
+
+    VehicleLocationRecordCacheImpl cache = new VehicleLocationRecordCacheImpl();
+    assertNull(cache.getRawPosition(aid("vehicleA")));
+
+    VehicleLocationRecord r = record(10, "blockA", 0, "vehicleA", 0.0);
+    cache.addRawPosition(aid("vehicleA"), r);
+    assertSame(r, cache.getRawPosition(aid("vehicleA")));
+    assertEquals(1, cache.getRawPositionCount());
+  }
+
   @Test
   public void testConcurrentOperations() {
 
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.realtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.onebusaway.geospatial.model.CoordinateBounds;
+import org.onebusaway.gtfs.model.AgencyAndId;
+import org.onebusaway.transit_data_federation.impl.realtime.VehicleLocationSpatialIndex.VehiclePosition;
+import org.onebusaway.transit_data_federation.services.blocks.BlockInstance;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockConfigurationEntry;
+
+public class VehicleLocationSpatialIndexTest {
+
+  private static final long NOW = 1000L * 1000 * 1000 * 1000;
+
+  private final BlockInstance _blockInstance = new BlockInstance(
+      mock(BlockConfigurationEntry.class), 0);
+
+  private final AgencyAndId _vehicleA = new AgencyAndId("1", "A");
+
+  private final AgencyAndId _vehicleB = new AgencyAndId("1", "B");
+
+  @Test
+  public void testBoundsQuery() {
+
+    VehicleLocationSpatialIndex index = new VehicleLocationSpatialIndex();
+    index.update(_vehicleA, _blockInstance, 47.60, -122.30, NOW);
+    index.update(_vehicleB, null, 47.70, -122.40, NOW);
+
+    CoordinateBounds bounds = new CoordinateBounds(47.55, -122.35, 47.65,
+        -122.25);
+    List<VehiclePosition> positions = index.getVehiclesInBounds(bounds, NOW);
+    assertEquals(1, positions.size());
+    assertEquals(_vehicleA, positions.get(0).getVehicleId());
+
+    // a bounds much larger than the occupied cells scans every vehicle
+    bounds = new CoordinateBounds(40, -130, 50, -120);
+    assertEquals(2, index.getVehiclesInBounds(bounds, NOW).size());
+  }
+
+  @Test
+  public void testMoveAndRemove() {
+
+    VehicleLocationSpatialIndex index = new VehicleLocationSpatialIndex();
+    CoordinateBounds bounds = new CoordinateBounds(47.55, -122.35, 47.65,
+        -122.25);
+
+    index.update(_vehicleA, _blockInstance, 47.60, -122.30, NOW);
+    index.update(_vehicleA, _blockInstance, 47.80, -122.30, NOW + 1000);
+    assertEquals(0, index.getVehiclesInBounds(bounds, NOW + 1000).size());
+    assertEquals(1, index.getOccupiedCellCount());
+
+    // an out-of-order record does not move the vehicle back
+    index.update(_vehicleA, _blockInstance, 47.60, -122.30, NOW);
+    assertEquals(0, index.getVehiclesInBounds(bounds, NOW + 1000).size());
+
+    assertTrue(index.hasVehicles(_blockInstance, NOW + 1000));
+    index.remove(_vehicleA);
+    assertFalse(index.hasVehicles(_blockInstance, NOW + 1000));
+    assertEquals(0, index.getVehicleCount());
+    assertEquals(0, index.getOccupiedCellCount());
+  }
+
+  @Test
+  public void testMaxAge() {
+
+    VehicleLocationSpatialIndex index = new VehicleLocationSpatialIndex();
+    index.setMaxAge(60);
+    index.update(_vehicleA, _blockInstance, 47.60, -122.30, NOW);
+
+    CoordinateBounds bounds = new CoordinateBounds(47.55, -122.35, 47.65,
+        -122.25);
+    assertEquals(1, index.getVehiclesInBounds(bounds, NOW + 59 * 1000).size());
+    assertEquals(0, index.getVehiclesInBounds(bounds, NOW + 61 * 1000).size());
+    assertFalse(index.hasVehicles(_blockInstance, NOW + 61 * 1000));
+  }
+
+  @Test
+  public void testClear() {
+
+    VehicleLocationSpatialIndex index = new VehicleLocationSpatialIndex();
+    index.update(_vehicleA, _blockInstance, 47.60, -122.30, NOW);
+    index.update(_vehicleB, null, 47.70, -122.40, NOW);
+
+    index.clear();
+    assertFalse(index.hasVehicles(_blockInstance, NOW));
+    assertEquals(0, index.getVehicleCount());
+    assertEquals(0, index.getOccupiedCellCount());
+  }
+}
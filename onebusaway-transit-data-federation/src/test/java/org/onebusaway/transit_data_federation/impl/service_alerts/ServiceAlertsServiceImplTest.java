@@ -32,6 +32,7 @@ import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.
 import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.trip;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.UUID;
@@ -675,6 +676,139 @@ public class ServiceAlertsServiceImplTest extends AbstractTransactionalJUnit4Spr
     assertEquals(0, alerts.size());
   }
 
+  @Test
+  public void testIncrementalSync() {
+    long now = System.currentTimeMillis();
+
+    ServiceAlertRecord alert1 = new ServiceAlertRecord();
+    alert1.setAgencyId("1");
+    alert1.setServiceAlertId("A");
+    ServiceAlertsSituationAffectsClause affectsClause = new ServiceAlertsSituationAffectsClause();
+    affectsClause.setAgencyId("1");
+    alert1.getAllAffects().add(affectsClause);
+    _service.createOrUpdateServiceAlert(alert1);
+
+    // a second alert written by another instance after the initial load
+    ServiceAlertRecord alert2 = new ServiceAlertRecord();
+    alert2.setAgencyId("1");
+    alert2.setServiceAlertId("B");
+    alert2.setModifiedTime(System.currentTimeMillis());
+    affectsClause = new ServiceAlertsSituationAffectsClause();
+    affectsClause.setAgencyId("1");
+    affectsClause.setStopId("10020");
+    alert2.getAllAffects().add(affectsClause);
+    _persister.saveOrUpdate(alert2);
+
+    // readers keep the existing snapshot until the next sync
+    List<ServiceAlertRecord> alerts = _service.getAllServiceAlerts();
+    assertEquals(1, alerts.size());
+
+    try {
+      Thread.sleep(1 * 1000);
+    } catch (InterruptedException e) {
+      e.printStackTrace();
+    }
+
+    alerts = _service.getAllServiceAlerts();
+    assertEquals(2, alerts.size());
+    alerts = _service.getServiceAlertsForStopId(now,
+        AgencyAndId.convertFromString("1_10020"));
+    assertEquals(1, alerts.size());
+    alerts = _service.getServiceAlertsForAgencyId(now, "1");
+    assertEquals(1, alerts.size());
+
+    _persister.delete(alert2);
+
+    try {
+      Thread.sleep(1 * 1000);
+    } catch (InterruptedException e) {
+      e.printStackTrace();
+    }
+
+    alerts = _service.getAllServiceAlerts();
+    assertEquals(1, alerts.size());
+    alerts = _service.getServiceAlertsForStopId(now,
+        AgencyAndId.convertFromString("1_10020"));
+    assertEquals(0, alerts.size());
+  }
+
+  @Test
+  public void testNullModifiedTime() {
+
+    ServiceAlertRecord alert1 = new ServiceAlertRecord();
+    alert1.setAgencyId("1");
+    alert1.setServiceAlertId("A");
+    _persister.saveOrUpdate(alert1);
+
+    // the column is nullable, as for alerts written by older versions
+    _sessionFactory.getCurrentSession().createQuery(
+        "update ServiceAlertRecord set modifiedTime = null where serviceAlertId = :id")
+        .setParameter("id", "A").executeUpdate();
+    _sessionFactory.getCurrentSession().refresh(alert1);
+    assertNull(alert1.getModifiedTime());
+
+    _service.loadServiceAlerts();
+    assertEquals(1, _service.getAllServiceAlerts().size());
+
+    // and later syncs are incremental rather than failing full reloads
+    ServiceAlertRecord alert2 = new ServiceAlertRecord();
+    alert2.setAgencyId("1");
+    alert2.setServiceAlertId("B");
+    alert2.setModifiedTime(System.currentTimeMillis());
+    _persister.saveOrUpdate(alert2);
+
+    try {
+      Thread.sleep(1 * 1000);
+    } catch (InterruptedException e) {
+      e.printStackTrace();
+    }
+
+    assertEquals(2, _service.getAllServiceAlerts().size());
+  }
+
+  @Test
+  public void testActivePublicationWindows() {
+    long now = System.currentTimeMillis();
+    AgencyAndId stopId = AgencyAndId.convertFromString("1_10020");
+
+    ServiceAlertRecord expired = createStopAlertWithWindow("A", now - 60 * 1000, now - 30 * 1000);
+    ServiceAlertRecord current = createStopAlertWithWindow("B", now - 30 * 1000, now + 30 * 1000);
+    ServiceAlertRecord future = createStopAlertWithWindow("C", now + 30 * 1000, now + 60 * 1000);
+    _service.createOrUpdateServiceAlerts("1", Arrays.asList(expired, current, future));
+
+    // answered from the active snapshot
+    List<ServiceAlertRecord> alerts = _service.getServiceAlertsForStopId(now, stopId);
+    assertEquals(1, alerts.size());
+    assertTrue(alerts.contains(current));
+
+    // outside the current window interval, alerts are filtered one by one
+    alerts = _service.getServiceAlertsForStopId(now + 45 * 1000, stopId);
+    assertEquals(1, alerts.size());
+    assertTrue(alerts.contains(future));
+    alerts = _service.getServiceAlertsForStopId(now - 45 * 1000, stopId);
+    assertEquals(1, alerts.size());
+    assertTrue(alerts.contains(expired));
+
+    // untimed queries see everything
+    assertEquals(3, _service.getAllServiceAlerts().size());
+  }
+
+  private ServiceAlertRecord createStopAlertWithWindow(String id, long from, long to) {
+    ServiceAlertRecord alert = new ServiceAlertRecord();
+    alert.setAgencyId("1");
+    alert.setServiceAlertId(id);
+    ServiceAlertsSituationAffectsClause affectsClause = new ServiceAlertsSituationAffectsClause();
+    affectsClause.setAgencyId("1");
+    affectsClause.setStopId("10020");
+    alert.getAllAffects().add(affectsClause);
+    ServiceAlertTimeRange range = new ServiceAlertTimeRange();
+    range.setFromValue(from);
+    range.setToValue(to);
+    alert.setPublicationWindows(new HashSet<ServiceAlertTimeRange>());
+    alert.getPublicationWindows().add(range);
+    return alert;
+  }
+
   @Test
   public void testAsyncPublicationWindow() {
       Long now = System.currentTimeMillis();
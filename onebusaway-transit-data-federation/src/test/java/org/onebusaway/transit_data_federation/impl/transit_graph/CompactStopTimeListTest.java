@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.transit_graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.stop;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.stopTime;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.time;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.trip;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.onebusaway.realtime.api.OccupancyStatus;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopTimeEntry;
+
+public class CompactStopTimeListTest {
+
+  @Test
+  public void testCopyOf() {
+
+    StopEntryImpl stopA = stop("a", 47.0, -122.0);
+    StopEntryImpl stopB = stop("b", 47.1, -122.1);
+
+    TripEntryImpl trip = trip("trip", "sA", 1000.0);
+    StopTimeEntryImpl stA = stopTime(0, stopA, trip, time(9, 0), time(9, 2),
+        0.0, 0);
+    StopTimeEntryImpl stB = stopTime(1, stopB, trip, time(9, 10), time(9, 10),
+        1000.0, 7);
+    stA.setHistoricalOccupancy(OccupancyStatus.FEW_SEATS_AVAILABLE);
+    stB.setAccumulatedSlackTime(120);
+
+    List<StopTimeEntry> original = new ArrayList<StopTimeEntry>(
+        trip.getStopTimes());
+    CompactStopTimeList list = CompactStopTimeList.copyOf(trip, original);
+
+    assertEquals(2, list.size());
+
+    StopTimeEntry a = list.get(0);
+    assertEquals(stA.getId(), a.getId());
+    assertSame(stopA, a.getStop());
+    assertSame(trip, a.getTrip());
+    assertEquals(time(9, 0), a.getArrivalTime());
+    assertEquals(time(9, 2), a.getDepartureTime());
+    assertEquals(120, a.getSlackTime());
+    assertEquals(OccupancyStatus.FEW_SEATS_AVAILABLE,
+        a.getHistoricalOccupancy());
+    assertEquals(stA.getSequence(), a.getSequence());
+    assertEquals(stA.getTotalStopsInTrip(), a.getTotalStopsInTrip());
+
+    StopTimeEntry b = list.get(1);
+    assertNull(b.getHistoricalOccupancy());
+    assertEquals(7, b.getShapePointIndex());
+    assertEquals(1000.0, b.getShapeDistTraveled(), 0.0);
+    assertEquals(120, b.getAccumulatedSlackTime());
+
+    assertEquals(time(9, 10), list.getArrivalTime(1));
+    assertEquals(time(9, 10), list.getDepartureTime(1));
+    assertEquals(1000.0, list.getShapeDistTraveled(1), 0.0);
+  }
+
+  @Test
+  public void testViews() {
+
+    StopEntryImpl stopA = stop("a", 47.0, -122.0);
+    TripEntryImpl trip = trip("trip", "sA", 1000.0);
+    stopTime(0, stopA, trip, time(9, 0), 0.0);
+    stopTime(1, stopA, trip, time(9, 5), 500.0);
+
+    CompactStopTimeList list = CompactStopTimeList.copyOf(trip,
+        trip.getStopTimes());
+
+    assertEquals(list.get(0), list.get(0));
+    assertEquals(list.get(0).hashCode(), list.get(0).hashCode());
+    assertFalse(list.get(0).equals(list.get(1)));
+
+    list.get(1).setArrivalTime(time(9, 4));
+    list.get(1).setShapeDistTraveled(400.0);
+    assertEquals(time(9, 4), list.getArrivalTime(1));
+    assertEquals(400.0, list.get(1).getShapeDistTraveled(), 0.0);
+  }
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.impl.transit_graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.agency;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.aid;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.block;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.frequency;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.linkBlockTrips;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.route;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.routeCollection;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.stop;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.stopTime;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.time;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.trip;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.onebusaway.geospatial.model.CoordinateBounds;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockConfigurationEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockStopTimeEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.FrequencyEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.RouteCollectionEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.RouteEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.StopTimeEntry;
+import org.onebusaway.transit_data_federation.services.transit_graph.TripEntry;
+
+public class TransitGraphBinaryReaderTest {
+
+  @Rule
+  public TemporaryFolder _tmp = new TemporaryFolder();
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    testRoundTrip(0);
+  }
+
+  @Test
+  public void testRoundTripAcrossChunks() throws IOException {
+    // small enough that values straddle chunk boundaries
+    testRoundTrip(7);
+  }
+
+  @Test
+  public void testTruncated() throws IOException {
+
+    TransitGraphImpl graph = new TransitGraphImpl();
+    graph.initialize();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new TransitGraphBinaryWriter().write(graph, out);
+    byte[] bytes = Arrays.copyOf(out.toByteArray(), out.size() - 1);
+
+    try {
+      new TransitGraphBinaryReader(ByteBuffer.wrap(bytes)).read();
+      fail();
+    } catch (IOException ex) {
+
+    }
+  }
+
+  private void testRoundTrip(int chunkSize) throws IOException {
+
+    TransitGraphImpl graph = new TransitGraphImpl();
+
+    AgencyEntryImpl agency = agency("1");
+
+    StopEntryImpl stopA = stop("a", 47.0, -122.0);
+    StopEntryImpl stopB = stop("b", 47.1, -122.1);
+    StopEntryImpl stopC = new StopEntryImpl(aid("c"), 47.2, -122.2, aid("b"));
+
+    RouteEntryImpl route = route("route");
+    RouteCollectionEntryImpl routeCollection = routeCollection("routeC", route);
+
+    BlockEntryImpl block = block("block");
+
+    TripEntryImpl tripA = trip("tripA", "sA", 1000.0);
+    tripA.setRoute(route);
+    tripA.setDirectionId("0");
+    tripA.setShapeId(aid("shapeA"));
+    stopTime(0, stopA, tripA, time(9, 0), time(9, 1), 0.0, 0);
+    stopTime(1, stopB, tripA, time(9, 10), time(9, 10), 1000.0, 5);
+
+    TripEntryImpl tripB = trip("tripB", "sA", 500.0);
+    tripB.setRoute(route);
+    stopTime(2, stopB, tripB, time(9, 30), time(9, 30), 0.0);
+    stopTime(3, stopC, tripB, time(9, 40), time(9, 40), 500.0);
+
+    route.setTrips(Arrays.<TripEntry> asList(tripA, tripB));
+    agency.setStops(Arrays.<StopEntry> asList(stopA, stopB, stopC));
+    agency.setRouteCollections(Arrays.<RouteCollectionEntry> asList(routeCollection));
+
+    List<FrequencyEntry> frequencies = Arrays.asList(frequency(time(6, 0),
+        time(9, 0), 600, 0));
+    linkBlockTrips(block, frequencies, tripA, tripB);
+
+    graph.putAgencyEntry(agency);
+    graph.putStopEntry(stopA);
+    graph.putStopEntry(stopB);
+    graph.putStopEntry(stopC);
+    graph.putRouteEntry(route);
+    graph.putRouteCollectionEntry(routeCollection);
+    graph.putTripEntry(tripA);
+    graph.putTripEntry(tripB);
+    graph.putBlockEntry(block);
+    graph.initialize();
+
+    TransitGraphImpl read;
+    if (chunkSize == 0) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      new TransitGraphBinaryWriter().write(graph, out);
+      read = new TransitGraphBinaryReader(ByteBuffer.wrap(out.toByteArray())).read();
+    } else {
+      File path = _tmp.newFile("graph.bin");
+      TransitGraphBinaryWriter.write(graph, path);
+      read = TransitGraphBinaryReader.read(path, chunkSize);
+    }
+    read.initialize();
+
+    assertEquals(1, read.getAllAgencies().size());
+    assertEquals(3, read.getAllAgencies().get(0).getStops().size());
+    assertEquals(3, read.getAllStops().size());
+
+    StopEntry readStopC = read.getStopEntryForId(aid("c"));
+    assertEquals(47.2, readStopC.getStopLat(), 0.0);
+    assertEquals(aid("b"), readStopC.getParent());
+    assertNull(read.getStopEntryForId(aid("a")).getParent());
+    assertEquals(2,
+        read.getStopsByLocation(new CoordinateBounds(46.9, -122.15, 47.15, -121.9)).size());
+
+    RouteEntry readRoute = read.getRouteForId(aid("route"));
+    assertEquals(aid("routeC"), readRoute.getParent().getId());
+    assertSame(readRoute, readRoute.getParent().getChildren().get(0));
+    assertEquals(2, readRoute.getTrips().size());
+
+    TripEntry readTripA = read.getTripEntryForId(aid("tripA"));
+    assertSame(readRoute, readTripA.getRoute());
+    assertEquals("0", readTripA.getDirectionId());
+    assertEquals(aid("shapeA"), readTripA.getShapeId());
+    assertEquals(aid("sA"), readTripA.getServiceId().getId());
+    assertEquals(1000.0, readTripA.getTotalTripDistance(), 0.0);
+    assertNull(read.getTripEntryForId(aid("tripB")).getDirectionId());
+
+    List<StopTimeEntry> stopTimes = readTripA.getStopTimes();
+    assertEquals(2, stopTimes.size());
+    assertSame(read.getStopEntryForId(aid("a")), stopTimes.get(0).getStop());
+    assertSame(readTripA, stopTimes.get(0).getTrip());
+    assertEquals(time(9, 1), stopTimes.get(0).getDepartureTime());
+    assertEquals(5, stopTimes.get(1).getShapePointIndex());
+    assertEquals(1000.0, stopTimes.get(1).getShapeDistTraveled(), 0.0);
+
+    BlockEntry readBlock = read.getBlockEntryForId(aid("block"));
+    assertSame(readBlock, readTripA.getBlock());
+    BlockConfigurationEntry config = readBlock.getConfigurations().get(0);
+    BlockConfigurationEntry original = block.getConfigurations().get(0);
+    assertEquals(original.getServiceIds(), config.getServiceIds());
+    assertEquals(original.getTotalBlockDistance(),
+        config.getTotalBlockDistance(), 0.0);
+    assertEquals(original.getFrequencies(), config.getFrequencies());
+    assertEquals(2, config.getTrips().size());
+    assertSame(readTripA, config.getTrips().get(0).getTrip());
+
+    List<BlockStopTimeEntry> blockStopTimes = config.getStopTimes();
+    assertEquals(4, blockStopTimes.size());
+    for (int i = 0; i < blockStopTimes.size(); i++) {
+      BlockStopTimeEntry expected = original.getStopTimes().get(i);
+      BlockStopTimeEntry actual = blockStopTimes.get(i);
+      assertEquals(expected.getDistanceAlongBlock(),
+          actual.getDistanceAlongBlock(), 0.0);
+      assertEquals(expected.getAccumulatedSlackTime(),
+          actual.getAccumulatedSlackTime());
+      assertEquals(expected.getStopTime().getArrivalTime(),
+          actual.getStopTime().getArrivalTime());
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data_federation.services.realtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.block;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.blockConfiguration;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.lsids;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.serviceIds;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.stop;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.stopTime;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.time;
+import static org.onebusaway.transit_data_federation.testing.UnitTestingSupport.trip;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.onebusaway.realtime.api.TimepointPredictionRecord;
+import org.onebusaway.transit_data_federation.impl.transit_graph.StopEntryImpl;
+import org.onebusaway.transit_data_federation.impl.transit_graph.TripEntryImpl;
+import org.onebusaway.transit_data_federation.services.transit_graph.BlockConfigurationEntry;
+
+public class BlockStopTimePredictionsTest {
+
+  private StopEntryImpl _stopA = stop("stopA", 47.0, -122.0);
+
+  private StopEntryImpl _stopB = stop("stopB", 47.0, -122.1);
+
+  private TripEntryImpl _trip = trip("tripA", "sA", 3000);
+
+  private BlockConfigurationEntry _block;
+
+  @Before
+  public void before() {
+    // a loop visiting stop A twice
+    stopTime(0, _stopA, _trip, time(13, 0), time(13, 0), 0).setGtfsSequence(1);
+    stopTime(1, _stopB, _trip, time(13, 10), time(13, 10), 1000).setGtfsSequence(2);
+    stopTime(2, _stopA, _trip, time(13, 20), time(13, 20), 2000).setGtfsSequence(3);
+    _block = blockConfiguration(block("blockA"),
+        serviceIds(lsids("sA"), lsids()), _trip);
+  }
+
+  @Test
+  public void testStopSequence() {
+
+    TimepointPredictionRecord tprA = record(_stopA, 3, 1000L, 2000L);
+    TimepointPredictionRecord tprB = record(_stopB, -1, 500L, -1);
+    tprB.setStatus("ON_TIME");
+
+    BlockStopTimePredictions predictions = BlockStopTimePredictions.create(
+        _block, Arrays.asList(tprA, tprB));
+    assertSame(_block, predictions.getBlock());
+
+    // the stop sequence picks the second visit of stop A
+    assertFalse(predictions.hasPrediction(0));
+    assertEquals(0, predictions.getArrivalTime(0));
+    assertTrue(predictions.hasPrediction(2));
+    assertEquals(1000L, predictions.getArrivalTime(2));
+    assertEquals(2000L, predictions.getDepartureTime(2));
+
+    // a missing departure time falls back to the arrival time
+    assertTrue(predictions.hasPrediction(1));
+    assertEquals(500L, predictions.getArrivalTime(1));
+    assertEquals(500L, predictions.getDepartureTime(1));
+    assertSame(tprB, predictions.getRecord(1));
+  }
+
+  @Test
+  public void testTooFewRecordsForLoop() {
+
+    TimepointPredictionRecord tprA = record(_stopA, -1, 1000L, 2000L);
+
+    BlockStopTimePredictions predictions = BlockStopTimePredictions.create(
+        _block, Arrays.asList(tprA));
+
+    // one record can't be matched to either visit of a stop visited twice
+    assertFalse(predictions.hasPrediction(0));
+    assertFalse(predictions.hasPrediction(2));
+    assertEquals(0, predictions.getArrivalTime(0));
+    assertSame(tprA, predictions.getRecord(0));
+
+    assertFalse(predictions.hasPrediction(1));
+    assertNull(predictions.getRecord(1));
+  }
+
+  private TimepointPredictionRecord record(StopEntryImpl stop,
+      int stopSequence, long arrivalTime, long departureTime) {
+    TimepointPredictionRecord tpr = new TimepointPredictionRecord();
+    tpr.setTimepointId(stop.getId());
+    tpr.setTripId(_trip.getId());
+    tpr.setStopSequence(stopSequence);
+    tpr.setTimepointPredictedArrivalTime(arrivalTime);
+    tpr.setTimepointPredictedDepartureTime(departureTime);
+    return tpr;
+  }
+}
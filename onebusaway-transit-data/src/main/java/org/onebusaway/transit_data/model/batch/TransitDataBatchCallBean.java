@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data.model.batch;
+
+import java.io.Serializable;
+
+import org.onebusaway.transit_data.services.TransitDataBatchService;
+import org.onebusaway.transit_data.services.TransitDataService;
+
+/**
+ * A single {@link TransitDataService} method call, sent as part of a
+ * {@link TransitDataBatchService} batch.
+ */
+public class TransitDataBatchCallBean implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private String method;
+
+  private Object[] arguments;
+
+  public TransitDataBatchCallBean() {
+
+  }
+
+  public TransitDataBatchCallBean(String method, Object[] arguments) {
+    this.method = method;
+    this.arguments = arguments;
+  }
+
+  /**
+   * @return the method signature, in the form
+   *         "getStop(java.lang.String)"
+   */
+  public String getMethod() {
+    return method;
+  }
+
+  public void setMethod(String method) {
+    this.method = method;
+  }
+
+  public Object[] getArguments() {
+    return arguments;
+  }
+
+  public void setArguments(Object[] arguments) {
+    this.arguments = arguments;
+  }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data.model.batch;
+
+import java.io.Serializable;
+
+/**
+ * The outcome of a {@link TransitDataBatchCallBean}: either the value returned
+ * by the call or the exception it threw.
+ */
+public class TransitDataBatchResultBean implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private Object value;
+
+  private Throwable exception;
+
+  public TransitDataBatchResultBean() {
+
+  }
+
+  public static TransitDataBatchResultBean value(Object value) {
+    TransitDataBatchResultBean bean = new TransitDataBatchResultBean();
+    bean.setValue(value);
+    return bean;
+  }
+
+  public static TransitDataBatchResultBean exception(Throwable exception) {
+    TransitDataBatchResultBean bean = new TransitDataBatchResultBean();
+    bean.setException(exception);
+    return bean;
+  }
+
+  public Object getValue() {
+    return value;
+  }
+
+  public void setValue(Object value) {
+    this.value = value;
+  }
+
+  public Throwable getException() {
+    return exception;
+  }
+
+  public void setException(Throwable exception) {
+    this.exception = exception;
+  }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data.services;
+
+import java.util.List;
+
+import org.onebusaway.transit_data.model.batch.TransitDataBatchCallBean;
+import org.onebusaway.transit_data.model.batch.TransitDataBatchResultBean;
+
+/**
+ * Executes several {@link TransitDataService} calls in a single remote round
+ * trip. Clients normally go through {@link TransitDataServiceBatch} rather than
+ * building calls by hand.
+ */
+public interface TransitDataBatchService {
+
+  /**
+   * The default maximum number of calls in a single invocation, which
+   * {@link TransitDataServiceBatch} won't exceed
+   */
+  public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+
+  /**
+   * The calls are independent of each other and may be executed in parallel. A
+   * call that fails doesn't affect the others.
+   * 
+   * @param calls
+   * @return one result per call, in the same order
+   */
+  public List<TransitDataBatchResultBean> invoke(
+      List<TransitDataBatchCallBean> calls);
+}
@@ -0,0 +1,312 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.transit_data.services;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.onebusaway.exceptions.ServiceException;
+import org.onebusaway.transit_data.model.batch.TransitDataBatchCallBean;
+import org.onebusaway.transit_data.model.batch.TransitDataBatchResultBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects {@link TransitDataService} calls made while building a single
+ * response and executes them together through a
+ * {@link TransitDataBatchService}, so that a remote deployment pays one network
+ * round trip rather than one per call.
+ * 
+ * Calls are recorded with {@link #add(Function)} and executed by
+ * {@link #execute()}, after which each {@link Result} holds its value. Since
+ * nothing is returned until the batch executes, only calls that don't depend
+ * on each other's results can share a batch.
+ * 
+ * <pre>
+ * TransitDataServiceBatch batch = new TransitDataServiceBatch(_service, _batchService);
+ * Result&lt;StopBean&gt; stop = batch.add(tds -> tds.getStop(stopId));
+ * Result&lt;RouteBean&gt; route = batch.add(tds -> tds.getRouteForId(routeId));
+ * batch.execute();
+ * </pre>
+ * 
+ * When no {@link TransitDataBatchService} is available, or the batch holds a
+ * single call, the calls are made one by one against the
+ * {@link TransitDataService} instead. A batch larger than the maximum batch
+ * size is sent in several round trips. If a round trip fails in transport,
+ * for instance because the remote deployment predates the batch endpoint and
+ * answers with a 404, that chunk and the rest of the batch fall back to one
+ * call at a time. A batch is meant to be used by a single thread and discarded
+ * after it executes.
+ */
+public class TransitDataServiceBatch {
+
+  private static Logger _log = LoggerFactory.getLogger(TransitDataServiceBatch.class);
+
+  private static final TransitDataService _recorder = (TransitDataService) Proxy.newProxyInstance(
+      TransitDataService.class.getClassLoader(),
+      new Class<?>[] {TransitDataService.class}, new RecordingHandler());
+
+  private static final ThreadLocal<RecordedCall> _recordedCall = new ThreadLocal<RecordedCall>();
+
+  private final TransitDataService _service;
+
+  private final TransitDataBatchService _batchService;
+
+  private final List<RecordedCall> _calls = new ArrayList<RecordedCall>();
+
+  private final List<Result<?>> _results = new ArrayList<Result<?>>();
+
+  private int _maxBatchSize = TransitDataBatchService.DEFAULT_MAX_BATCH_SIZE;
+
+  private boolean _executed = false;
+
+  private boolean _batchServiceFailed = false;
+
+  /**
+   * @param service used when the batch can't be sent as a whole
+   * @param batchService may be null
+   */
+  public TransitDataServiceBatch(TransitDataService service,
+      TransitDataBatchService batchService) {
+    _service = service;
+    _batchService = batchService;
+  }
+
+  /**
+   * @param maxBatchSize the most calls sent in a single round trip, which must
+   *          not be more than the {@link TransitDataBatchService} accepts
+   */
+  public void setMaxBatchSize(int maxBatchSize) {
+    if (maxBatchSize < 1)
+      throw new IllegalArgumentException("maxBatchSize must be positive: "
+          + maxBatchSize);
+    _maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * @return the signature used to identify a method in a
+   *         {@link TransitDataBatchCallBean}
+   */
+  public static String getMethodSignature(Method method) {
+    StringBuilder b = new StringBuilder();
+    b.append(method.getName()).append('(');
+    Class<?>[] types = method.getParameterTypes();
+    for (int i = 0; i < types.length; i++) {
+      if (i > 0)
+        b.append(',');
+      b.append(types[i].getName());
+    }
+    return b.append(')').toString();
+  }
+
+  /**
+   * @param call a lambda that makes exactly one {@link TransitDataService}
+   *          call on its argument and returns the result
+   * @return a holder for the result, available once the batch is executed
+   */
+  public <T> Result<T> add(Function<TransitDataService, T> call) {
+
+    if (_executed)
+      throw new IllegalStateException("batch has already been executed");
+
+    _recordedCall.remove();
+    try {
+      call.apply(_recorder);
+      RecordedCall recorded = _recordedCall.get();
+      if (recorded == null)
+        throw new IllegalArgumentException(
+            "batched call must invoke a TransitDataService method");
+      _calls.add(recorded);
+    } finally {
+      _recordedCall.remove();
+    }
+
+    Result<T> result = new Result<T>();
+    _results.add(result);
+    return result;
+  }
+
+  public int size() {
+    return _calls.size();
+  }
+
+  /**
+   * Execute every call added so far. A call that fails doesn't stop the others;
+   * its exception is rethrown by {@link Result#get()}. If the batch service
+   * rejects a whole round trip with a {@link ServiceException}, that exception
+   * is rethrown by the result of each call it carried. Any other failure of a
+   * round trip is treated as the batch service being unreachable, and the
+   * calls are made directly instead.
+   */
+  public void execute() {
+
+    if (_executed)
+      throw new IllegalStateException("batch has already been executed");
+    _executed = true;
+
+    if (_batchService == null || _calls.size() <= 1) {
+      invokeChunkDirectly(0, _calls.size());
+      return;
+    }
+
+    for (int from = 0; from < _calls.size(); from += _maxBatchSize)
+      executeChunk(from, Math.min(from + _maxBatchSize, _calls.size()));
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private void executeChunk(int from, int to) {
+
+    if (_batchServiceFailed) {
+      invokeChunkDirectly(from, to);
+      return;
+    }
+
+    List<TransitDataBatchCallBean> beans = new ArrayList<TransitDataBatchCallBean>();
+    for (RecordedCall call : _calls.subList(from, to))
+      beans.add(new TransitDataBatchCallBean(
+          getMethodSignature(call.method), call.args));
+
+    List<TransitDataBatchResultBean> results;
+    try {
+      results = _batchService.invoke(beans);
+      if (results == null || results.size() != beans.size())
+        throw new ServiceException("expected " + beans.size()
+            + " batch results but received "
+            + (results == null ? 0 : results.size()));
+    } catch (ServiceException ex) {
+      TransitDataBatchResultBean failure = TransitDataBatchResultBean.exception(ex);
+      for (int i = from; i < to; i++)
+        _results.get(i).set(failure);
+      return;
+    } catch (RuntimeException ex) {
+      _log.warn("batch round trip failed, falling back to individual calls: "
+          + ex);
+      _batchServiceFailed = true;
+      invokeChunkDirectly(from, to);
+      return;
+    }
+
+    for (int i = from; i < to; i++)
+      _results.get(i).set(results.get(i - from));
+  }
+
+  private void invokeChunkDirectly(int from, int to) {
+    for (int i = from; i < to; i++)
+      _results.get(i).set(invokeDirectly(_calls.get(i)));
+  }
+
+  private TransitDataBatchResultBean invokeDirectly(RecordedCall call) {
+    try {
+      return TransitDataBatchResultBean.value(call.method.invoke(_service,
+          call.args));
+    } catch (InvocationTargetException ex) {
+      return TransitDataBatchResultBean.exception(ex.getTargetException());
+    } catch (IllegalAccessException ex) {
+      return TransitDataBatchResultBean.exception(ex);
+    }
+  }
+
+  private static Object getDefaultValue(Class<?> type) {
+    if (!type.isPrimitive() || type == Void.TYPE)
+      return null;
+    if (type == Boolean.TYPE)
+      return false;
+    if (type == Character.TYPE)
+      return (char) 0;
+    if (type == Long.TYPE)
+      return 0L;
+    if (type == Float.TYPE)
+      return 0f;
+    if (type == Double.TYPE)
+      return 0d;
+    if (type == Byte.TYPE)
+      return (byte) 0;
+    if (type == Short.TYPE)
+      return (short) 0;
+    return 0;
+  }
+
+  /****
+   *
+   ****/
+
+  /**
+   * The result of a batched call.
+   */
+  public static class Result<T> {
+
+    private TransitDataBatchResultBean _bean;
+
+    /**
+     * @return the value returned by the call
+     * @throws IllegalStateException if the batch hasn't been executed yet
+     * @throws RuntimeException the exception thrown by the call, if any
+     */
+    @SuppressWarnings("unchecked")
+    public T get() {
+      if (_bean == null)
+        throw new IllegalStateException("batch has not been executed");
+      Throwable ex = _bean.getException();
+      if (ex == null)
+        return (T) _bean.getValue();
+      if (ex instanceof RuntimeException)
+        throw (RuntimeException) ex;
+      if (ex instanceof Error)
+        throw (Error) ex;
+      throw new ServiceException(ex);
+    }
+
+    private void set(TransitDataBatchResultBean bean) {
+      _bean = bean;
+    }
+  }
+
+  private static class RecordedCall {
+
+    private final Method method;
+
+    private final Object[] args;
+
+    public RecordedCall(Method method, Object[] args) {
+      this.method = method;
+      this.args = args == null ? new Object[0] : args;
+    }
+  }
+
+  private static class RecordingHandler implements InvocationHandler {
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+        throws Throwable {
+      if (method.getDeclaringClass() == Object.class)
+        throw new IllegalArgumentException(
+            "batched call must invoke a TransitDataService method");
+      if (_recordedCall.get() != null)
+        throw new IllegalArgumentException(
+            "batched call must invoke a single TransitDataService method");
+      _recordedCall.set(new RecordedCall(method, args));
+      return getDefaultValue(method.getReturnType());
+    }
+  }
+}
@@ -19,45 +19,237 @@ import org.onebusaway.users.services.ApiKeyPermissionService;
 import org.onebusaway.users.services.UserService;
 import org.onebusaway.util.SystemTime;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Rate limits API keys with a per-key token bucket. A key's bucket holds up to
+ * {@link #setBurstCapacity(int)} requests and refills at one request per the
+ * key's minApiRequestInterval, so a client may burst briefly as long as its
+ * average rate stays within its configured interval.
+ *
+ * Each bucket is kept as a single "theoretical arrival time" (the GCRA
+ * formulation of a token bucket) that is updated with a compare-and-set, so
+ * concurrent requests for the same key never block one another.
+ *
+ * The key's request interval is cached alongside the bucket and only re-read
+ * from the {@link UserService} every {@link #setPermissionCacheTimeout(long)}
+ * milliseconds. Those re-reads bypass the {@link UserService} method cache, so
+ * keys changed or deleted through the admin webapp, which runs in a different
+ * process and can only invalidate its own caches, take effect here within one
+ * timeout.
+ */
 @Component
+@ManagedResource("org.onebusaway.users.impl:name=ApiKeyPermissionServiceImpl")
 public class ApiKeyPermissionServiceImpl implements ApiKeyPermissionService {
 
-  private HashMap<String, Long> _lastVisitForUser;
+  private ConcurrentMap<String, KeyBucket> _bucketsByKey = new ConcurrentHashMap<String, KeyBucket>();
+
   private UserService _userService;
 
+  private int _burstCapacity = 10;
+
+  private long _permissionCacheTimeout = 60 * 1000;
+
+  private final AtomicLong _rateExceededCount = new AtomicLong();
+
   @Autowired
   public void setUserService(UserService userService) {
     _userService = userService;
   }
 
-  public ApiKeyPermissionServiceImpl() {
-    _lastVisitForUser = new HashMap<String, Long>();
+  /**
+   * @param burstCapacity the number of back-to-back requests a key may make
+   *          before it is held to its minimum request interval
+   */
+  @ManagedAttribute
+  public void setBurstCapacity(int burstCapacity) {
+    if (burstCapacity < 1)
+      throw new IllegalArgumentException("burstCapacity must be at least 1");
+    _burstCapacity = burstCapacity;
+  }
+
+  @ManagedAttribute
+  public int getBurstCapacity() {
+    return _burstCapacity;
+  }
 
+  /**
+   * @param permissionCacheTimeout how long, in milliseconds, a key's request
+   *          interval is trusted before it is looked up again
+   */
+  @ManagedAttribute
+  public void setPermissionCacheTimeout(long permissionCacheTimeout) {
+    _permissionCacheTimeout = permissionCacheTimeout;
+  }
+
+  @ManagedAttribute
+  public long getPermissionCacheTimeout() {
+    return _permissionCacheTimeout;
   }
 
   @Override
   public Status getPermission(String key, String service) {
+    return getPermission(key, service, SystemTime.currentTimeMillis());
+  }
 
-    Long minRequestInterval = _userService.getMinApiRequestIntervalForKey(key,false);
-    if (minRequestInterval == null) {
+  /**
+   * @return the total number of requests rejected with
+   *         {@link Status#RATE_EXCEEDED} across all keys
+   */
+  @ManagedAttribute
+  public long getRateExceededCount() {
+    return _rateExceededCount.get();
+  }
+
+  /**
+   * @return the number of requests rejected with {@link Status#RATE_EXCEEDED}
+   *         for the given key
+   */
+  @ManagedOperation
+  public long getRateExceededCountForKey(String key) {
+    KeyBucket bucket = _bucketsByKey.get(key);
+    if (bucket == null)
+      return 0;
+    return bucket.getRateExceededCount();
+  }
+
+  /**
+   * @return a snapshot of rejection counts for every key that has been
+   *         rejected at least once
+   */
+  @ManagedAttribute
+  public Map<String, Long> getRateExceededCountsByKey() {
+    Map<String, Long> counts = new HashMap<String, Long>();
+    for (Map.Entry<String, KeyBucket> entry : _bucketsByKey.entrySet()) {
+      long count = entry.getValue().getRateExceededCount();
+      if (count > 0)
+        counts.put(entry.getKey(), count);
+    }
+    return counts;
+  }
+
+  /**
+   * Forget the cached request interval and bucket for a key, forcing the next
+   * request to look the key up again.
+   */
+  @Override
+  public void invalidateKey(String key) {
+    _bucketsByKey.remove(key);
+  }
+
+  /****
+   * Package-Private Methods
+   ****/
+
+  Status getPermission(String key, String service, long now) {
+
+    KeyBucket bucket = getBucketForKey(key, now);
+    if (bucket == null)
       return Status.UNAUTHORIZED;
+
+    if (bucket.tryAcquire(now, _burstCapacity))
+      return Status.AUTHORIZED;
+
+    _rateExceededCount.incrementAndGet();
+    return Status.RATE_EXCEEDED;
+  }
+
+  /****
+   * Private Methods
+   ****/
+
+  private KeyBucket getBucketForKey(String key, long now) {
+
+    KeyBucket bucket = _bucketsByKey.get(key);
+
+    if (bucket != null && !bucket.isPermissionExpired(now))
+      return bucket;
+
+    /**
+     * A key we're already tracking is re-read from the database, since the
+     * method cache may hold a value from before the key was changed elsewhere
+     */
+    Long minRequestInterval = _userService.getMinApiRequestIntervalForKey(key,
+        bucket != null);
+
+    if (minRequestInterval == null) {
+      _bucketsByKey.remove(key);
+      return null;
     }
-    
-    long now = SystemTime.currentTimeMillis();
-    Long lastVisit = _lastVisitForUser.get(key);
-    
-    Status ok = Status.RATE_EXCEEDED;
-    
-    if (lastVisit == null || lastVisit + minRequestInterval <= now) {
-      ok = Status.AUTHORIZED;
+
+    long expiresAt = now + _permissionCacheTimeout;
+
+    if (bucket != null) {
+      // keep the existing token state, just refresh the permission view
+      bucket.refreshPermission(minRequestInterval, expiresAt);
+      return bucket;
+    }
+
+    KeyBucket newBucket = new KeyBucket(minRequestInterval, expiresAt);
+    bucket = _bucketsByKey.putIfAbsent(key, newBucket);
+    return bucket != null ? bucket : newBucket;
+  }
+
+  private static class KeyBucket {
+
+    /**
+     * The time at which the bucket would be completely refilled, given every
+     * request admitted so far
+     */
+    private final AtomicLong _theoreticalArrivalTime = new AtomicLong();
+
+    private final AtomicLong _rateExceededCount = new AtomicLong();
+
+    private volatile long _minRequestInterval;
+
+    private volatile long _permissionExpiresAt;
+
+    public KeyBucket(long minRequestInterval, long permissionExpiresAt) {
+      _minRequestInterval = minRequestInterval;
+      _permissionExpiresAt = permissionExpiresAt;
+    }
+
+    public boolean isPermissionExpired(long now) {
+      return now >= _permissionExpiresAt;
+    }
+
+    public void refreshPermission(long minRequestInterval,
+        long permissionExpiresAt) {
+      _minRequestInterval = minRequestInterval;
+      _permissionExpiresAt = permissionExpiresAt;
+    }
+
+    public long getRateExceededCount() {
+      return _rateExceededCount.get();
+    }
+
+    public boolean tryAcquire(long now, int burstCapacity) {
+
+      long interval = _minRequestInterval;
+      if (interval <= 0)
+        return true;
+
+      long tolerance = interval * (burstCapacity - 1);
+
+      while (true) {
+        long tat = _theoreticalArrivalTime.get();
+        long start = Math.max(tat, now);
+        if (start - now > tolerance) {
+          _rateExceededCount.incrementAndGet();
+          return false;
+        }
+        if (_theoreticalArrivalTime.compareAndSet(tat, start + interval))
+          return true;
+      }
     }
-    
-    _lastVisitForUser.put(key, now);
-    return ok;
   }
-  
 }
@@ -29,4 +29,10 @@ public interface ApiKeyPermissionService {
    */
   public Status getPermission(String key, String service);
 
+  /**
+   * Drops any permission cached for the key, so that a change to or removal
+   * of the key takes effect on its next request.
+   */
+  public void invalidateKey(String key);
+
 }
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2026 Cambridge Systematics, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onebusaway.users.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.onebusaway.users.services.ApiKeyPermissionService.Status;
+import org.onebusaway.users.services.UserService;
+
+public class ApiKeyPermissionServiceImplTest {
+
+  private ApiKeyPermissionServiceImpl _service;
+
+  private UserService _userService;
+
+  @Before
+  public void setup() {
+    _userService = Mockito.mock(UserService.class);
+    Mockito.when(_userService.getMinApiRequestIntervalForKey("fast", false)).thenReturn(
+        0L);
+    Mockito.when(_userService.getMinApiRequestIntervalForKey("slow", false)).thenReturn(
+        1000L);
+    Mockito.when(_userService.getMinApiRequestIntervalForKey("slow", true)).thenReturn(
+        1000L);
+
+    _service = new ApiKeyPermissionServiceImpl();
+    _service.setUserService(_userService);
+  }
+
+  @Test
+  public void testUnknownKey() {
+    assertEquals(Status.UNAUTHORIZED, _service.getPermission("nope", "api", 0));
+  }
+
+  @Test
+  public void testUnlimitedKey() {
+    for (int i = 0; i < 100; i++)
+      assertEquals(Status.AUTHORIZED, _service.getPermission("fast", "api", 0));
+    assertEquals(0, _service.getRateExceededCount());
+  }
+
+  @Test
+  public void testBurstThenRefill() {
+    _service.setBurstCapacity(3);
+
+    assertEquals(Status.AUTHORIZED, _service.getPermission("slow", "api", 0));
+    assertEquals(Status.AUTHORIZED, _service.getPermission("slow", "api", 0));
+    assertEquals(Status.AUTHORIZED, _service.getPermission("slow", "api", 0));
+    assertEquals(Status.RATE_EXCEEDED, _service.getPermission("slow", "api", 0));
+    assertEquals(Status.RATE_EXCEEDED,
+        _service.getPermission("slow", "api", 500));
+
+    // one token back after a full interval
+    assertEquals(Status.AUTHORIZED,
+        _service.getPermission("slow", "api", 1000));
+    assertEquals(Status.RATE_EXCEEDED,
+        _service.getPermission("slow", "api", 1000));
+
+    assertEquals(3, _service.getRateExceededCountForKey("slow"));
+    assertEquals(3, _service.getRateExceededCount());
+    assertEquals(Long.valueOf(3),
+        _service.getRateExceededCountsByKey().get("slow"));
+  }
+
+  @Test
+  public void testSingleRequestBurstMatchesMinInterval() {
+    _service.setBurstCapacity(1);
+
+    assertEquals(Status.AUTHORIZED, _service.getPermission("slow", "api", 0));
+    assertEquals(Status.RATE_EXCEEDED,
+        _service.getPermission("slow", "api", 999));
+    assertEquals(Status.AUTHORIZED,
+        _service.getPermission("slow", "api", 1000));
+  }
+
+  @Test
+  public void testPermissionIsCached() {
+    _service.setPermissionCacheTimeout(60 * 1000);
+
+    _service.getPermission("slow", "api", 0);
+    _service.getPermission("slow", "api", 30 * 1000);
+    Mockito.verify(_userService, Mockito.times(1)).getMinApiRequestIntervalForKey(
+        "slow", false);
+
+    // the refresh skips the user service cache
+    _service.getPermission("slow", "api", 60 * 1000);
+    Mockito.verify(_userService, Mockito.times(1)).getMinApiRequestIntervalForKey(
+        "slow", false);
+    Mockito.verify(_userService, Mockito.times(1)).getMinApiRequestIntervalForKey(
+        "slow", true);
+  }
+
+  @Test
+  public void testRevokedKey() {
+    _service.setPermissionCacheTimeout(1000);
+    assertEquals(Status.AUTHORIZED, _service.getPermission("slow", "api", 0));
+
+    // deleted in another process, so only the database knows
+    Mockito.when(_userService.getMinApiRequestIntervalForKey("slow", true)).thenReturn(
+        null);
+    assertEquals(Status.UNAUTHORIZED,
+        _service.getPermission("slow", "api", 5000));
+  }
+
+  @Test
+  public void testThrottledKey() {
+    _service.setPermissionCacheTimeout(1000);
+    _service.setBurstCapacity(1);
+    Mockito.when(_userService.getMinApiRequestIntervalForKey("fast", true)).thenReturn(
+        1000L);
+
+    assertEquals(Status.AUTHORIZED, _service.getPermission("fast", "api", 0));
+    assertEquals(Status.AUTHORIZED, _service.getPermission("fast", "api", 500));
+
+    // the new interval is picked up once the cached permission expires
+    assertEquals(Status.AUTHORIZED, _service.getPermission("fast", "api", 1000));
+    assertEquals(Status.RATE_EXCEEDED,
+        _service.getPermission("fast", "api", 1500));
+  }
+}